@@ -11,5 +11,6 @@ public final class DeecoProperties {
 	public static final String MESSAGE_CACHE_DEADLINE = "deeco.receive.cache.deadline";
 	public static final String MESSAGE_CACHE_WIPE_PERIOD = "deeco.receive.cache.period";
 	public static final String MAXIMUM_REBROADCAST_DELAY = "deeco.rebroadcast.delay";
+	public static final String KEY_ROTATION_PERIOD = "deeco.security.keyrotation";
 
 }
@@ -2,12 +2,14 @@ package cz.cuni.mff.d3s.deeco.ensembles.intelligent;
 
 import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.StringTokenizer;
+
+import cz.cuni.mff.d3s.deeco.logging.Log;
 
 /**
  * Runs native applications. Returns output.
@@ -22,27 +24,60 @@ public class ExternalAppRunner {
 	 * 
 	 * @param appPath Command (application). If the command contains spaces it should be wrapped in quote marks.
 	 * @param appArguments Arguments (will be joined and separated by spaces).
-	 * @return Output of the application, separated by lines (includes also error stream output).
-	 * @throws IOException
+	 * @return Standard output of the application, separated by lines. The error stream is read separately, so that
+	 * neither of the pipes can fill up and block the application, and its output is logged as a warning.
+	 * @throws IOException if the application cannot be run or exits with a non-zero code; the message then contains
+	 * the error stream output.
 	 */
 	public String[] run(String appPath, Collection<String> appArguments) throws IOException {
 		String command = String.format("%s %s", appPath, String.join(" ", appArguments));
 		
-		Process process = Runtime.getRuntime().exec(command);
-		InputStream is = process.getInputStream();
-		InputStreamReader isr = new InputStreamReader(is);
-		BufferedReader br = new BufferedReader(isr);
+		// split the command the same way as Runtime.exec(String) does
+		List<String> commandParts = new ArrayList<>();
+		StringTokenizer tokenizer = new StringTokenizer(command);
+		while (tokenizer.hasMoreTokens()) {
+			commandParts.add(tokenizer.nextToken());
+		}
+		
+		Process process = new ProcessBuilder(commandParts).start();
 		
-		BufferedReader brError = new BufferedReader(new InputStreamReader(process.getErrorStream()));
+		StringBuilder errors = new StringBuilder();
+		Thread errorReader = new Thread(() -> {
+			String errorLine;
+			try (BufferedReader br = new BufferedReader(new InputStreamReader(process.getErrorStream()))) {
+				while ((errorLine = br.readLine()) != null) {
+					errors.append(errorLine).append(System.lineSeparator());
+				}
+			} catch (IOException e) {
+				// the rest of the error stream is lost
+			}
+		}, "ExternalAppRunner stderr");
+		errorReader.setDaemon(true);
+		errorReader.start();
 		
 		String line;
 		List<String> output = new ArrayList<>();
-		while ((line = br.readLine()) != null) {
-			output.add(line);
+		try (BufferedReader br = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+			while ((line = br.readLine()) != null) {
+				output.add(line);
+			}
 		}
 		
-		while ((line = brError.readLine()) != null) {
-			output.add(line);
+		int exitValue;
+		try {
+			exitValue = process.waitFor();
+			errorReader.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting for " + command, e);
+		}
+		
+		String errorOutput = errors.toString().trim();
+		if (exitValue != 0) {
+			throw new IOException(String.format("%s exited with code %d: %s", command, exitValue, errorOutput));
+		}
+		if (!errorOutput.isEmpty()) {
+			Log.w(String.format("%s: %s", command, errorOutput));
 		}
 		
 		return Arrays.copyOf(output.toArray(), output.size(), String[].class);
@@ -3,13 +3,18 @@ package cz.cuni.mff.d3s.deeco.ensembles.intelligent;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 import cz.cuni.mff.d3s.deeco.ensembles.intelligent.ScriptInputVariableRegistry.Entry;
 
@@ -24,7 +29,13 @@ import cz.cuni.mff.d3s.deeco.ensembles.intelligent.ScriptInputVariableRegistry.E
  * Internally, this class does not execute the applications; it uses {@link ExternalAppRunner} class to do so.
  * 
  * The location of the mzn2fzn application and Gecode solver is obtained from minizinc.properties file located
- * in the jdeeco core project root.
+ * in the jdeeco core project root. The file is read once per runner.
+ * 
+ * Unless a temporary file is given explicitly, each execution uses its own FlatZinc file in the folder given by
+ * the tempPath property, so the runner can be used by concurrent ensemble formations. The FlatZinc model of
+ * the last input values is kept in memory, so that mzn2fzn is not executed again while the input does not change.
+ * 
+ * The runner also counts the executions and the time spent by flattening and solving the scripts.
  * 
  * @author Zbyněk Jiráček
  *
@@ -34,6 +45,16 @@ public class MznScriptRunner {
 	private String scriptPath;
 	private ExternalAppRunner appRunner;
 	private String tempFilePath;
+	private Properties properties;
+	
+	/** The input variables of the last flattened script and the resulting FlatZinc model. */
+	private String flattenedInput;
+	private byte[] flattenedModel;
+	
+	private final AtomicLong runCount = new AtomicLong();
+	private final AtomicLong flatteningCount = new AtomicLong();
+	private final AtomicLong flatteningTime = new AtomicLong();
+	private final AtomicLong solvingTime = new AtomicLong();
 	
 	/**
 	 * A key in minizinc.properties file containing path to the mzn2fzn program.
@@ -46,7 +67,7 @@ public class MznScriptRunner {
 	public static String FZN_SOLVER_PATH_PROPERTY = "fznSolverPath";
 	
 	/**
-	 * Not used (TODO)
+	 * A key in minizinc.properties file containing the folder of the temporary FlatZinc files (the working directory by default).
 	 */
 	public static String TEMP_FOLDER_PROPERTY = "tempPath";
 	
@@ -55,14 +76,14 @@ public class MznScriptRunner {
 	 * @param scriptPath The script file path (without any enclosing quotes!)
 	 */
 	public MznScriptRunner(String scriptPath) {
-		this(scriptPath, new ExternalAppRunner(), generateTempFilePath());
+		this(scriptPath, new ExternalAppRunner(), null);
 	}
 	
 	/**
 	 * Creates runner instance (used for tests only)
 	 * @param scriptPath The script file path (without any enclosing quotes!)
 	 * @param appRunner An instance of the {@link ExternalAppRunner} (can be replaced by a mock)
-	 * @param tempFilePath
+	 * @param tempFilePath The FlatZinc file used by all the executions, or null to use a new temporary file for each execution
 	 */
 	public MznScriptRunner(String scriptPath, ExternalAppRunner appRunner, String tempFilePath) {
 		this.scriptPath = scriptPath;
@@ -86,10 +107,51 @@ public class MznScriptRunner {
 	 */
 	public static Properties getProperties() throws FileNotFoundException, IOException {
 		Properties properties = new Properties();
-		properties.load(new FileInputStream("minizinc.properties"));
+		try (FileInputStream stream = new FileInputStream("minizinc.properties")) {
+			properties.load(stream);
+		}
+		return properties;
+	}
+	
+	private synchronized Properties getCachedProperties() throws IOException {
+		if (properties == null) {
+			properties = getProperties();
+		}
 		return properties;
 	}
 	
+	/**
+	 * Gets the number of the script executions.
+	 * @return The number of executions.
+	 */
+	public long getRunCount() {
+		return runCount.get();
+	}
+	
+	/**
+	 * Gets the number of the executions that ran mzn2fzn, i.e. whose input differed from the previous one.
+	 * @return The number of mzn2fzn executions.
+	 */
+	public long getFlatteningCount() {
+		return flatteningCount.get();
+	}
+	
+	/**
+	 * Gets the total time spent by flattening the script, including the reuse of the FlatZinc model.
+	 * @return The time in nanoseconds.
+	 */
+	public long getFlatteningTime() {
+		return flatteningTime.get();
+	}
+	
+	/**
+	 * Gets the total time spent by the FlatZinc solver.
+	 * @return The time in nanoseconds.
+	 */
+	public long getSolvingTime() {
+		return solvingTime.get();
+	}
+	
 	/**
 	 * Executes MiniZinc script and returns the output variables with their respective values.
 	 * If the result is "unsatisfiable", the method returns an empty map.
@@ -102,22 +164,54 @@ public class MznScriptRunner {
 				
 		Properties properties;
 		try {
-			properties = getProperties();
+			properties = getCachedProperties();
 		} catch (IOException e) {
 			throw new ScriptExecutionException("Error reading MiniZinc properties (minizinc.properties file)", e, scriptPath);
 		}
 		
+		runCount.incrementAndGet();
+		String fznFilePath;
 		try {
-			String mzn2fznResult = mzn2fzn(inputParams, properties);
-			if (!mzn2fznResult.trim().equals("")) {
-				throw new ScriptExecutionException("MZN2FZN returned a message (though the output should be empty): " + mzn2fznResult, scriptPath);
+			fznFilePath = tempFilePath != null ? tempFilePath : createTempFile(properties);
+		} catch (IOException e) {
+			throw new ScriptExecutionException("Error creating a temporary FlatZinc file.", e, scriptPath);
+		}
+		
+		try {
+			return runScript(inputParams, properties, fznFilePath);
+		} finally {
+			if (tempFilePath == null) {
+				try {
+					Files.deleteIfExists(Paths.get(fznFilePath));
+				} catch (IOException e) {
+					// the file stays in the temporary folder
+				}
+			}
+		}
+	}
+	
+	private Map<String, String> runScript(ScriptInputVariableRegistry inputParams, Properties properties, String fznFilePath) 
+			throws ScriptExecutionException {
+		
+		long startTime = System.nanoTime();
+		try {
+			if (!reuseFlattenedModel(inputParams, fznFilePath)) {
+				flatteningCount.incrementAndGet();
+				String mzn2fznResult = mzn2fzn(inputParams, properties, fznFilePath);
+				if (!mzn2fznResult.trim().equals("")) {
+					throw new ScriptExecutionException("MZN2FZN returned a message (though the output should be empty): " + mzn2fznResult, scriptPath);
+				}
+				storeFlattenedModel(inputParams, fznFilePath);
 			}
 		} catch (IOException e) {
 			throw new ScriptExecutionException("Error running MZN2FZN.", e, scriptPath);
+		} finally {
+			flatteningTime.addAndGet(System.nanoTime() - startTime);
 		}
 	
+		startTime = System.nanoTime();
 		try {
-			String[] result = fznSolve(properties);
+			String[] result = fznSolve(properties, fznFilePath);
 			
 			// parse the result into Map
 			Pattern pattern = Pattern.compile("^([A-Za-z0-9_]+)=(.*)$");
@@ -142,13 +236,49 @@ public class MznScriptRunner {
 			
 		} catch (IOException e) {
 			throw new ScriptExecutionException("Error running FZN solver.", e, scriptPath);
+		} finally {
+			solvingTime.addAndGet(System.nanoTime() - startTime);
 		}
 
 	}
 	
-	private static String generateTempFilePath() {
-		// TODO
-		return "temp.fzn";
+	private String createTempFile(Properties properties) throws IOException {
+		String tempFolder = properties.getProperty(TEMP_FOLDER_PROPERTY, "");
+		return Files.createTempFile(Paths.get(tempFolder), "temp", ".fzn").toString();
+	}
+	
+	private static String getInputKey(ScriptInputVariableRegistry inputParams) {
+		return inputParams.getInputVariables().stream().map(Entry::toString).collect(Collectors.joining("\n"));
+	}
+	
+	/**
+	 * Writes the FlatZinc model of the previous execution into the given file if the input has not changed since.
+	 */
+	private boolean reuseFlattenedModel(ScriptInputVariableRegistry inputParams, String fznFilePath) throws IOException {
+		byte[] model;
+		synchronized (this) {
+			if (flattenedModel == null || !getInputKey(inputParams).equals(flattenedInput)) {
+				return false;
+			}
+			model = flattenedModel;
+		}
+		
+		Files.write(Paths.get(fznFilePath), model);
+		return true;
+	}
+	
+	/**
+	 * Keeps the FlatZinc model created by mzn2fzn in the given file for the next executions with the same input.
+	 */
+	private void storeFlattenedModel(ScriptInputVariableRegistry inputParams, String fznFilePath) throws IOException {
+		Path path = Paths.get(fznFilePath);
+		if (Files.exists(path)) {
+			byte[] model = Files.readAllBytes(path);
+			synchronized (this) {
+				flattenedInput = getInputKey(inputParams);
+				flattenedModel = model;
+			}
+		}
 	}
 	
 	/**
@@ -159,14 +289,15 @@ public class MznScriptRunner {
 	 *  
 	 * @param inputParams The input variable values.
 	 * @param properties Properties containing the mzn2fzn file path.
+	 * @param fznFilePath The FlatZinc output file.
 	 * @return Output of the mzn2fzn application (should be empty).
 	 * @throws IOException
 	 */
-	private String mzn2fzn(ScriptInputVariableRegistry inputParams, Properties properties) throws IOException {
+	private String mzn2fzn(ScriptInputVariableRegistry inputParams, Properties properties, String fznFilePath) throws IOException {
 		List<Entry> inputVariables = inputParams.getInputVariables();
 		String[] parameterList = new String[2 + inputVariables.size()];
 		parameterList[0] = String.format("\"%s\"", scriptPath);
-		parameterList[1] = String.format("-o %s", tempFilePath);
+		parameterList[1] = String.format("-o %s", fznFilePath);
 		for (int i = 0; i < inputVariables.size(); i++) {
 			parameterList[2 + i] = String.format("-D %s", inputVariables.get(i).toString());
 		}
@@ -179,12 +310,13 @@ public class MznScriptRunner {
 	/**
 	 * Runs the Gecode solver providing it the FlatZinc file created by mzn2fzn.
 	 * @param properties Properties containing the solver file path.
+	 * @param fznFilePath The FlatZinc file.
 	 * @return Solver output (split by lines).
 	 * @throws IOException
 	 */
-	private String[] fznSolve(Properties properties) throws IOException {
+	private String[] fznSolve(Properties properties, String fznFilePath) throws IOException {
 		String[] parameterList = new String[1];
-		parameterList[0] = tempFilePath;		
+		parameterList[0] = fznFilePath;		
 		String appPath = properties.getProperty(FZN_SOLVER_PATH_PROPERTY);
 		
 		return appRunner.run(appPath, Arrays.asList(parameterList));
@@ -0,0 +1,37 @@
+package cz.cuni.mff.d3s.deeco.executor;
+
+import cz.cuni.mff.d3s.deeco.knowledge.KnowledgeManager;
+
+/**
+ * Executor running the tasks concurrently, which lets the knowledge managers
+ * be accessed outside the tasks (e.g. the replicas updated with the received
+ * knowledge) without interfering with the tasks accessing them.
+ *
+ * @see MultiThreadedExecutor
+ */
+public interface KnowledgeLockingExecutor extends Executor {
+
+	/**
+	 * Access to the knowledge of a knowledge manager.
+	 *
+	 * @param <E>
+	 *            The exception thrown by the access
+	 */
+	interface KnowledgeAccess<E extends Exception> {
+		void access() throws E;
+	}
+
+	/**
+	 * Accesses the knowledge manager as a task accessing it would, i.e. while
+	 * no other task accessing it is executed. It can be called outside the
+	 * tasks only.
+	 *
+	 * @param knowledgeManager
+	 *            The knowledge manager to be accessed
+	 * @param access
+	 *            The access to the knowledge
+	 * @throws E
+	 *             The exception thrown by the access
+	 */
+	<E extends Exception> void accessKnowledge(KnowledgeManager knowledgeManager, KnowledgeAccess<E> access) throws E;
+}
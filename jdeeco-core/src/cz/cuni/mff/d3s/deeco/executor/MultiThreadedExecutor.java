@@ -0,0 +1,211 @@
+package cz.cuni.mff.d3s.deeco.executor;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import cz.cuni.mff.d3s.deeco.knowledge.KnowledgeManager;
+import cz.cuni.mff.d3s.deeco.logging.Log;
+import cz.cuni.mff.d3s.deeco.model.runtime.api.Trigger;
+import cz.cuni.mff.d3s.deeco.scheduler.MultiThreadedScheduler;
+import cz.cuni.mff.d3s.deeco.task.Task;
+
+/**
+ * Executor running the tasks on a pool of threads.
+ *
+ * Tasks accessing different knowledge managers (see
+ * {@link Task#getAccessedKnowledgeManager()}) are executed concurrently, while
+ * the tasks accessing the same knowledge manager are executed one at a time.
+ * Thus a task reads and writes the knowledge without any other task modifying
+ * it in between. Tasks which may access any knowledge of the node (e.g. the
+ * ensembles) are executed when no other task is running.
+ *
+ * The call to {@link #execute(Task, Trigger)} is not blocking. The listener is
+ * notified from the thread which executed the task, so it has to be thread
+ * safe, see {@link MultiThreadedScheduler}.
+ *
+ * The knowledge managers accessed outside the tasks (e.g. the replicas updated
+ * with the received knowledge) are locked by
+ * {@link #accessKnowledge(KnowledgeManager, KnowledgeAccess)} the same way as
+ * for the tasks.
+ */
+public class MultiThreadedExecutor implements KnowledgeLockingExecutor {
+
+	protected volatile ExecutionListener listener = null;
+
+	private final ExecutorService workers;
+	/**
+	 * Held shared by the tasks accessing a single knowledge manager and
+	 * exclusively by the others
+	 */
+	private final ReadWriteLock nodeLock;
+	private final ConcurrentMap<KnowledgeManager, Lock> knowledgeLocks;
+
+	/**
+	 * Creates new {@link MultiThreadedExecutor} using a thread per available
+	 * processor.
+	 */
+	public MultiThreadedExecutor() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates new {@link MultiThreadedExecutor}.
+	 *
+	 * @param threads
+	 *            The number of threads executing the tasks
+	 */
+	public MultiThreadedExecutor(int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("The number of threads must be positive");
+		}
+		workers = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			private int counter = 0;
+
+			@Override
+			public synchronized Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "MultiThreadedExecutor-" + counter++);
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		// fair, so that the exclusive tasks are not starved by the others
+		nodeLock = new ReentrantReadWriteLock(true);
+		knowledgeLocks = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * <p>
+	 * The call is not blocking, the task is executed by one of the threads of
+	 * the executor.
+	 * </p>
+	 */
+	@Override
+	public void execute(final Task task, final Trigger trigger) {
+		if (task != null) {
+			workers.execute(new Runnable() {
+				@Override
+				public void run() {
+					executeTask(task, trigger);
+				}
+			});
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * cz.cuni.mff.d3s.deeco.executor.Executor#setExecutionListener(cz.cuni.mff.d3s.deeco.executor.ExecutionListener)
+	 */
+	@Override
+	public void setExecutionListener(ExecutionListener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * Stops the threads of the executor once all the tasks passed to it have
+	 * been executed, waiting for them to complete. No tasks can be passed to
+	 * the executor afterwards.
+	 */
+	public void shutdown() throws InterruptedException {
+		workers.shutdown();
+		workers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * cz.cuni.mff.d3s.deeco.executor.KnowledgeLockingExecutor#accessKnowledge(cz.cuni.mff.d3s.deeco.knowledge.KnowledgeManager,
+	 * cz.cuni.mff.d3s.deeco.executor.KnowledgeLockingExecutor.KnowledgeAccess)
+	 */
+	@Override
+	public <E extends Exception> void accessKnowledge(KnowledgeManager knowledgeManager, KnowledgeAccess<E> access)
+			throws E {
+		lockKnowledge(knowledgeManager);
+		try {
+			access.access();
+		} finally {
+			unlockKnowledge(knowledgeManager);
+		}
+	}
+
+	private void executeTask(Task task, Trigger trigger) {
+		Exception failure = null;
+
+		KnowledgeManager knowledgeManager = task.getAccessedKnowledgeManager();
+		lockKnowledge(knowledgeManager);
+		try {
+			task.invoke(trigger);
+		} catch (Exception e) {
+			Log.e("Task.invoke() failed", e);
+			failure = e;
+		} finally {
+			unlockKnowledge(knowledgeManager);
+		}
+
+		// notify the listener after releasing the locks, so that it can execute other tasks
+		ExecutionListener listener = this.listener;
+		if (listener != null) {
+			if (failure == null) {
+				listener.executionCompleted(task, trigger);
+			} else {
+				listener.executionFailed(task, trigger, failure);
+			}
+		}
+	}
+
+	/**
+	 * Waits until the knowledge manager can be accessed by the calling thread
+	 * as by a task accessing it, and keeps the other tasks accessing it from
+	 * being executed until {@link #unlockKnowledge(KnowledgeManager)} is
+	 * called.
+	 *
+	 * @param knowledgeManager
+	 *            The knowledge manager to be accessed, or null for accessing
+	 *            any knowledge of the node
+	 */
+	void lockKnowledge(KnowledgeManager knowledgeManager) {
+		if (knowledgeManager == null) {
+			nodeLock.writeLock().lock();
+		} else {
+			nodeLock.readLock().lock();
+			getKnowledgeLock(knowledgeManager).lock();
+		}
+	}
+
+	/**
+	 * Releases the knowledge manager locked by
+	 * {@link #lockKnowledge(KnowledgeManager)}.
+	 */
+	void unlockKnowledge(KnowledgeManager knowledgeManager) {
+		if (knowledgeManager == null) {
+			nodeLock.writeLock().unlock();
+		} else {
+			getKnowledgeLock(knowledgeManager).unlock();
+			nodeLock.readLock().unlock();
+		}
+	}
+
+	private Lock getKnowledgeLock(KnowledgeManager knowledgeManager) {
+		Lock lock = knowledgeLocks.get(knowledgeManager);
+		if (lock == null) {
+			Lock created = new ReentrantLock();
+			lock = knowledgeLocks.putIfAbsent(knowledgeManager, created);
+			if (lock == null) {
+				lock = created;
+			}
+		}
+		return lock;
+	}
+}
@@ -8,6 +8,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -45,9 +46,10 @@ public class BaseKnowledgeManager implements KnowledgeManager {
 	private final Map<KnowledgePath, Object> knowledge;
 	private final Map<KnowledgePath, String> knowledgeAuthors;
 	private final Map<PathNodeField, List<SecurityTag>> securityTags;
-	private final Map<KnowledgeChangeTrigger, List<TriggerListener>> knowledgeChangeListeners;
+	private final KnowledgeChangeTriggerIndex knowledgeChangeListeners;
 	private final Collection<KnowledgePath> localKnowledgePaths;
 	private final Set<KnowledgePath> lockedKnowledgePaths;
+	private final KnowledgeVersions versions;
 	
 	private final ComponentInstance component;
 	private final String id;
@@ -61,11 +63,12 @@ public class BaseKnowledgeManager implements KnowledgeManager {
 			this.roleClasses.addAll(Arrays.asList(roleClasses));
 		}
 		this.knowledge = new HashMap<>();
-		this.knowledgeChangeListeners = new HashMap<>();
-		this.localKnowledgePaths = new LinkedList<>();
+		this.knowledgeChangeListeners = new KnowledgeChangeTriggerIndex();
+		this.localKnowledgePaths = new LinkedHashSet<>();
 		this.securityTags = new HashMap<>();
 		this.knowledgeAuthors = new HashMap<>();
 		this.lockedKnowledgePaths = new HashSet<>();
+		this.versions = new KnowledgeVersions();
 	}
 
 	/* (non-Javadoc)
@@ -94,14 +97,7 @@ public class BaseKnowledgeManager implements KnowledgeManager {
 			throw new IllegalArgumentException("Knowledge path " + knowledgePath.toString() + " is not absolute.");
 		}
 		
-		String author = null;
-		KnowledgePath modifiablePath = KnowledgePathHelper.cloneKnowledgePath(knowledgePath);
-		
-		while ((author = knowledgeAuthors.get(modifiablePath)) == null && modifiablePath.getNodes().size() > 0) {
-			modifiablePath.getNodes().remove(modifiablePath.getNodes().size() - 1);
-		}
-		
-		return author;
+		return getNearestAuthor(knowledgePath);
 	}
 	
 	/*
@@ -115,22 +111,37 @@ public class BaseKnowledgeManager implements KnowledgeManager {
 	public ValueSet get(final Collection<KnowledgePath> knowledgePaths)
 			throws KnowledgeNotFoundException {
 		final ValueSet result = new ValueSet();
-		Object value;
 		for (KnowledgePath kp : knowledgePaths) {
-			try {				
-				value = getKnowledge(kp.getNodes());
-			} catch (KnowledgeNotFoundException knfe) {
-				throw new KnowledgeNotFoundException(kp);
-			}
-			if (knowledge.equals(value))
+			if (kp.getNodes().isEmpty()) {
+				// The empty path refers to the whole knowledge
 				for (KnowledgePath rootKP : knowledge.keySet())
 					result.setValue(rootKP, knowledge.get(rootKP));
-			else
-				result.setValue(kp, value);
+			} else {
+				try {
+					result.setValue(kp, getKnowledge(kp.getNodes()));
+				} catch (KnowledgeNotFoundException knfe) {
+					throw new KnowledgeNotFoundException(kp);
+				}
+			}
 		}
 		return result;
 	}
 
+	/* (non-Javadoc)
+	 * @see cz.cuni.mff.d3s.deeco.knowledge.ReadOnlyKnowledgeManager#get(java.util.Collection, java.util.Map)
+	 */
+	@Override
+	public ValueSet get(final Collection<KnowledgePath> knowledgePaths, Map<KnowledgePath, Long> versions)
+			throws KnowledgeNotFoundException {
+		synchronized (this.versions) {
+			final ValueSet result = get(knowledgePaths);
+			for (KnowledgePath kp : result.getKnowledgePaths()) {
+				versions.put(kp, this.versions.getVersion(kp));
+			}
+			return result;
+		}
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -143,15 +154,7 @@ public class BaseKnowledgeManager implements KnowledgeManager {
 	public void register(Trigger trigger,
 			TriggerListener triggerListener) {
 		if (trigger instanceof KnowledgeChangeTrigger) {
-			final KnowledgeChangeTrigger kct = (KnowledgeChangeTrigger) trigger;
-			List<TriggerListener> listeners;
-			if (knowledgeChangeListeners.containsKey(kct)) {
-				listeners = knowledgeChangeListeners.get(kct);
-			} else {
-				listeners = new LinkedList<>();
-				knowledgeChangeListeners.put(kct, listeners);
-			}
-			listeners.add(triggerListener);
+			knowledgeChangeListeners.register((KnowledgeChangeTrigger) trigger, triggerListener);
 		}
 	}
 
@@ -167,10 +170,7 @@ public class BaseKnowledgeManager implements KnowledgeManager {
 	public void unregister(Trigger trigger,
 			TriggerListener triggerListener) {
 		if (trigger instanceof KnowledgeChangeTrigger) {
-			final KnowledgeChangeTrigger kct = (KnowledgeChangeTrigger) trigger;
-			if (knowledgeChangeListeners.containsKey(kct)) {
-				knowledgeChangeListeners.get(kct).remove(triggerListener);
-			}
+			knowledgeChangeListeners.unregister((KnowledgeChangeTrigger) trigger, triggerListener);
 		}
 	}
 
@@ -191,6 +191,20 @@ public class BaseKnowledgeManager implements KnowledgeManager {
 	 */
 	@Override
 	public void update(final ChangeSet changeSet, String authorId) throws KnowledgeUpdateException {
+		synchronized (versions) {
+			try {
+				applyChangeSet(changeSet, authorId);
+			} finally {
+				updateCompleted();
+			}
+			versions.update(changeSet.getUpdatedReferences(), changeSet.getDeletedReferences());
+		}
+		// Now afeter doing the update and delete - if no exception has been
+		// thrown, we need to notify the listeners about updates done.
+		knowledgeChangeListeners.notifyChanged(changeSet.getUpdatedReferences());
+	}
+
+	private void applyChangeSet(final ChangeSet changeSet, String authorId) throws KnowledgeUpdateException {
 		final Map<KnowledgePath, Object> updated = new HashMap<>();
 		final List<KnowledgePath> added = new LinkedList<>();
 		final Map<KnowledgePath, String> updatedAuthors = new HashMap<>();
@@ -250,16 +264,10 @@ public class BaseKnowledgeManager implements KnowledgeManager {
 			throw new KnowledgeUpdateException(
 					"Update exception - Failed to delete " + invalidDelete);
 		}
-		// Now afeter doing the update and delete - if no exception has been
-		// thrown, we need to notify the listeners about updates done.
-		for (final KnowledgePath knowledgePath : changeSet
-				.getUpdatedReferences()) {
-			notifyKnowledgeChangeListeners(knowledgePath);
-		}
 	}
 	
 	public Map<KnowledgeChangeTrigger, List<TriggerListener>> getKnowledgeChangeListeners() {
-		return knowledgeChangeListeners;
+		return knowledgeChangeListeners.getListeners();
 	}
 
 	/**
@@ -267,19 +275,11 @@ public class BaseKnowledgeManager implements KnowledgeManager {
 	 * @param knowledgePaths
 	 */
 	private void deleteAuthors(Collection<KnowledgePath> knowledgePaths) {
-		List<KnowledgePath> listToRemove = new LinkedList<>();
-		
 		for (KnowledgePath deleteKP : knowledgePaths) {
-			knowledgeAuthors.remove(deleteKP);
+			removeAuthor(deleteKP);
 			// if a parent knowledge was updated, delete obsolete child-entries
-			for (KnowledgePath kp : knowledgeAuthors.keySet()) {
-				if (startsWith(kp.getNodes(), deleteKP.getNodes()) && !kp.equals(deleteKP)) {
-					listToRemove.add(kp);					
-				}
-			}
+			removeDescendantAuthors(deleteKP, null);
 		}
-		
-		knowledgeAuthors.keySet().removeAll(listToRemove);
 	}	
 	
 	/**
@@ -289,21 +289,11 @@ public class BaseKnowledgeManager implements KnowledgeManager {
 	 * @param updatedAuthors
 	 */
 	private void updateAuthors(KnowledgePath updateKP, String authorId, Map<KnowledgePath, String> updatedAuthors) {
-		knowledgeAuthors.put(updateKP, authorId);
+		putAuthor(updateKP, authorId);
 		updatedAuthors.put(updateKP, authorId);
 		
-		List<KnowledgePath> listToRemove = new LinkedList<>();
-		
 		// if a parent knowledge was updated, delete obsolete child-entries
-		// TODO this really needs trie
-		for (KnowledgePath kp : knowledgeAuthors.keySet()) {
-			if (startsWith(kp.getNodes(), updateKP.getNodes()) && !kp.equals(updateKP)) {
-				listToRemove.add(kp);
-				updatedAuthors.put(kp, knowledgeAuthors.get(kp));
-			}
-		}
-		
-		knowledgeAuthors.keySet().removeAll(listToRemove);
+		removeDescendantAuthors(updateKP, updatedAuthors);
 	}
 
 	/*
@@ -333,7 +323,7 @@ public class BaseKnowledgeManager implements KnowledgeManager {
 	}
 
 	/**
-	 * Retrieves data from knowledge for a single path.
+	 * Retrieves data from knowledge for a single non-empty path.
 	 * 
 	 * @param knowledgePath
 	 *            path to the requested data
@@ -344,40 +334,38 @@ public class BaseKnowledgeManager implements KnowledgeManager {
 	protected Object getKnowledge(final List<PathNode> knowledgePath)
 			throws KnowledgeNotFoundException {
 		assert knowledgePath != null;
-		Object result = null;
-		// If the path points to root knowledge, then we should return the
-		// reference knowledge
 		if (knowledgePath.isEmpty()) {
-			result = knowledge;
-		} else {
+			throw new KnowledgeNotFoundException();
+		}
 		// handle ID separately
 		if ((knowledgePath.size() == 1) && (knowledgePath.get(0) instanceof PathNodeComponentId))
 			return id;
-			// Otherwise we should go through each knowledge entry, find the
-			// partial path matching and try to retrieve the data from the
-			// matched node in the knowledge
-			boolean wasFound = false;
-			for (final KnowledgePath kPath : knowledge.keySet()) {
-				try {
-					List<PathNode> kPathNodes = kPath.getNodes();
+		// Otherwise we should find the knowledge entry matching a prefix of
+		// the path and try to retrieve the data from the matched node
+		final KnowledgePath entryPath = getEntryPath(knowledgePath);
+		if (entryPath == null) {
+			throw new KnowledgeNotFoundException();
+		}
+		final int entryDepth = entryPath.getNodes().size();
+		return getKnowledgeFromNode(knowledgePath.subList(entryDepth,
+				knowledgePath.size()), knowledge.get(entryPath));
+	}
 					
-					if (startsWith(knowledgePath, kPathNodes)) {
-						result = getKnowledgeFromNode(knowledgePath.subList(
-								kPathNodes.size(), knowledgePath.size()),
-								knowledge.get(kPath));
-						wasFound = true;
-						break;
+	/**
+	 * Retrieves the object whose member is about to be updated or deleted in
+	 * place. Subclasses may return a copy of the object after making it a part
+	 * of the knowledge.
+	 */
+	protected Object getKnowledgeForUpdate(final List<PathNode> knowledgePath)
+			throws KnowledgeNotFoundException {
+		return getKnowledge(knowledgePath);
+	}
 						
-					}
-				} catch (KnowledgeNotFoundException knfe) {
-					continue;
-				}
-			}
-			if (!wasFound) {
-				throw new KnowledgeNotFoundException();
-			}
-		}
-		return result;
+	/**
+	 * Called when the knowledge has been modified by an update (successful or
+	 * not), before the listeners are notified.
+	 */
+	protected void updateCompleted() {
 	}
 
 	// TB: FIXME - This method is supposedly buggy. Assume that someone puts a.b.c and then tries to put a.b 
@@ -396,16 +384,22 @@ public class BaseKnowledgeManager implements KnowledgeManager {
 	 */
 	protected void updateKnowledge(final KnowledgePath knowledgePath,
 			final Object value) throws KnowledgeUpdateException {
-		if (noPathOverlapWithAny(knowledgePath, knowledge.keySet())) {
+		if (!overlapsEntry(knowledgePath.getNodes())) {
+			putEntry(knowledgePath, value);
+		} else if (knowledge.containsKey(knowledgePath)) {
 			knowledge.put(knowledgePath, value);
 		} else {
-			final List<PathNode> pathNodesToParent = new LinkedList<>(
-					knowledgePath.getNodes());
-			final String fieldName = ((PathNodeField) pathNodesToParent
-					.remove(pathNodesToParent.size() - 1)).getName();
+			final List<PathNode> pathNodes = knowledgePath.getNodes();
+			final List<PathNode> pathNodesToParent = pathNodes.subList(0, pathNodes.size() - 1);
+			if (pathNodesToParent.isEmpty()) {
+				throw new KnowledgeUpdateException(
+						"Forbidden update: path overlaps - "
+								+ knowledgePath);
+			}
+			final String fieldName = ((PathNodeField) pathNodes.get(pathNodes.size() - 1)).getName();
 			Object parent = null;
 			try {
-				parent = getKnowledge(pathNodesToParent);
+				parent = getKnowledgeForUpdate(pathNodesToParent);
 			} catch (KnowledgeNotFoundException e) {
 				throw new KnowledgeUpdateException(
 						"Forbidden update: knowledge does not exist - "
@@ -414,17 +408,7 @@ public class BaseKnowledgeManager implements KnowledgeManager {
 			if (parent instanceof List<?>) {
 				((List<Object>) parent).set(Integer.parseInt(fieldName), value);
 			} else if (parent instanceof Map<?, ?>) {
-				if (parent.equals(knowledge)) {
-					if (knowledge.containsKey(knowledgePath)) {
-						knowledge.put(knowledgePath, value);
-					} else {
-						throw new KnowledgeUpdateException(
-								"Forbidden update: path overlaps - "
-										+ knowledgePath);
-					}
-				} else {
-					((Map<String, Object>) parent).put(fieldName, value);
-				}
+				((Map<String, Object>) parent).put(fieldName, value);
 			} else {
 				try {
 					final Field field = parent.getClass().getField(fieldName);
@@ -438,26 +422,106 @@ public class BaseKnowledgeManager implements KnowledgeManager {
 	}
 
 	/**
-	 * Checks whether the given knowledge path overlaps in any way with any of
-	 * path from the collection given in the parameter lists.
+	 * Gets the path of the (first level) knowledge entry containing the given
+	 * path, or null if there is no such entry. As the entries never overlap,
+	 * there is at most one of them.
 	 * 
-	 * @param path
+	 * @param knowledgePath
+	 *            non-empty path to the knowledge
+	 * @return path of the knowledge entry
+	 */
+	protected KnowledgePath getEntryPath(final List<PathNode> knowledgePath) {
+		for (final KnowledgePath kPath : knowledge.keySet()) {
+			if (startsWith(knowledgePath, kPath.getNodes())) {
+				return kPath;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Checks whether the given knowledge path overlaps in any way with any of
+	 * the (first level) knowledge entries.
+	 *
+	 * @param knowledgePath
 	 *            knowledge path to be checked
-	 * @param paths
-	 *            collection of knowledge paths
-	 * @return true in case there is no overlap or false otherwise.
-	 */
-	private boolean noPathOverlapWithAny(final KnowledgePath path,
-			final Collection<KnowledgePath> paths) {
-		boolean result = true;
-		for (final KnowledgePath p : paths) {
-			if (startsWith(p.getNodes(), path.getNodes())
-					|| startsWith(path.getNodes(), p.getNodes())) {
-				result = false;
-				break;
+	 * @return true in case there is an overlap or false otherwise.
+	 */
+	protected boolean overlapsEntry(final List<PathNode> knowledgePath) {
+		for (final KnowledgePath p : knowledge.keySet()) {
+			if (startsWith(p.getNodes(), knowledgePath)
+					|| startsWith(knowledgePath, p.getNodes())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Adds a new (first level) knowledge entry, which does not overlap with
+	 * any of the existing ones.
+	 */
+	protected void putEntry(final KnowledgePath knowledgePath, final Object value) {
+		knowledge.put(knowledgePath, value);
+	}
+
+	/**
+	 * Removes the (first level) knowledge entry.
+	 */
+	protected void removeEntry(final KnowledgePath knowledgePath) {
+		knowledge.remove(knowledgePath);
+	}
+
+	/**
+	 * Gets the author of the given path or of its nearest ancestor having one.
+	 */
+	protected String getNearestAuthor(final KnowledgePath knowledgePath) {
+		String author = null;
+		KnowledgePath modifiablePath = KnowledgePathHelper.cloneKnowledgePath(knowledgePath);
+
+		while ((author = knowledgeAuthors.get(modifiablePath)) == null && modifiablePath.getNodes().size() > 0) {
+			modifiablePath.getNodes().remove(modifiablePath.getNodes().size() - 1);
+		}
+
+		return author;
+	}
+
+	/**
+	 * Sets the author of the given path.
+	 */
+	protected void putAuthor(final KnowledgePath knowledgePath, final String authorId) {
+		knowledgeAuthors.put(knowledgePath, authorId);
+	}
+
+	/**
+	 * Removes the author of the given path.
+	 */
+	protected void removeAuthor(final KnowledgePath knowledgePath) {
+		knowledgeAuthors.remove(knowledgePath);
+	}
+
+	/**
+	 * Removes the authors of all the sub-paths of the given path (excluding the
+	 * path itself).
+	 *
+	 * @param knowledgePath
+	 *            path whose sub-paths are considered
+	 * @param removed
+	 *            map the removed authors are put to, or null
+	 */
+	protected void removeDescendantAuthors(final KnowledgePath knowledgePath,
+			final Map<KnowledgePath, String> removed) {
+		Iterator<Map.Entry<KnowledgePath, String>> it = knowledgeAuthors.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<KnowledgePath, String> entry = it.next();
+			KnowledgePath kp = entry.getKey();
+			if (startsWith(kp.getNodes(), knowledgePath.getNodes()) && !kp.equals(knowledgePath)) {
+				if (removed != null) {
+					removed.put(kp, entry.getValue());
+				}
+				it.remove();
 			}
 		}
-		return result;
 	}
 
 	/**
@@ -469,33 +533,30 @@ public class BaseKnowledgeManager implements KnowledgeManager {
 	 *         knowledge entry, map entry or list entry
 	 */
 	private boolean isValidDeletePath(final KnowledgePath knowledgePath) {
-		boolean result = false;
 		// If the path refers to one of the first level in the knowledge
 		if (knowledge.containsKey(knowledgePath)) {
-			result = true;
-		} else {
-			// Otherwise, get the path to the parent (owner) of the object being
-			// deleted.
-			final List<PathNode> pathNodesToParent = new LinkedList<>(
-					knowledgePath.getNodes());
-			final String fieldName = ((PathNodeField) pathNodesToParent
-					.remove(pathNodesToParent.size() - 1)).getName();
-			Object parent = null;
-			try {
-				parent = getKnowledge(pathNodesToParent);
-				// And check if it is a Map or a List and if it consists element
-				// being deleted
-				if (parent instanceof Map) {
-					result = ((Map<String, ?>) parent).containsKey(fieldName);
-				} else if (parent instanceof List<?>) {
-					result = ((List<?>) parent).size() > Integer
-							.parseInt(fieldName);
-				}
-			} catch (KnowledgeNotFoundException e) {
-				result = false;
+			return true;
+		}
+		final List<PathNode> pathNodes = knowledgePath.getNodes();
+		if (pathNodes.isEmpty()) {
+			return false;
+		}
+		// Otherwise, get the parent (owner) of the object being deleted.
+		final String fieldName = ((PathNodeField) pathNodes.get(pathNodes.size() - 1)).getName();
+		try {
+			final Object parent = getKnowledge(pathNodes.subList(0, pathNodes.size() - 1));
+			// And check if it is a Map or a List and if it consists element
+			// being deleted
+			if (parent instanceof Map) {
+				return ((Map<String, ?>) parent).containsKey(fieldName);
+			} else if (parent instanceof List<?>) {
+				return ((List<?>) parent).size() > Integer
+						.parseInt(fieldName);
 			}
+		} catch (KnowledgeNotFoundException e) {
+			// fall through
 		}
-		return result;
+		return false;
 	}
 
 	/**
@@ -519,6 +580,9 @@ public class BaseKnowledgeManager implements KnowledgeManager {
 			// For each path node in the knowledge path, we need to go deeper
 			// into object structure using reflection
 			for (final PathNode pn : knowledgePath) {
+				if (currentObject == null) {
+					throw new KnowledgeNotFoundException();
+				}
 				try {
 					fieldName = ((PathNodeField) pn).getName();
 					currentField = currentObject.getClass().getField(fieldName);
@@ -540,7 +604,8 @@ public class BaseKnowledgeManager implements KnowledgeManager {
 					}
 				}
 			}
-		} catch (final IllegalAccessException e) {
+		} catch (final IllegalAccessException | ClassCastException | IndexOutOfBoundsException
+				| NumberFormatException e) {
 			throw new KnowledgeNotFoundException();
 		}
 		return currentObject;
@@ -552,45 +617,33 @@ public class BaseKnowledgeManager implements KnowledgeManager {
 	 * of index in case of lists.
 	 * 
 	 * @param knowledgePaths
-	 * @return
-	 */
-	private Map<KnowledgePath, Object> deleteKnowledge(
-			final Collection<KnowledgePath> knowledgePaths) {
-		final Map<KnowledgePath, Object> deleted = new HashMap<>();
-		// First lets delete free (root) nodes
-		final List<KnowledgePath> reducedKnowledgePaths = new LinkedList<>(
-				knowledgePaths);
-		for (final KnowledgePath kp : knowledgePaths) {
-			if (knowledge.containsKey(kp)) {
-				deleted.put(kp, knowledge.get(kp));
-				knowledge.remove(kp);
-				reducedKnowledgePaths.remove(kp);
-			}
-		}
-		// As roots has been removed, lets go and check inner knowledge. In that
-		// case we consider only lists and maps.
-		List<PathNode> pathNodesToParent;
+	 */
+	private void deleteKnowledge(final Collection<KnowledgePath> knowledgePaths) {
 		String fieldName;
-		Object parent;
 		final Map<Object, List<String>> parentsToPaths = new HashMap<>();
 		List<String> keysToDelete;
-		// We need to go through the remaining paths and collect paths to
-		// the owners of the objects being deleted.
-		for (final KnowledgePath kp : reducedKnowledgePaths) {
+		for (final KnowledgePath kp : knowledgePaths) {
+			// Free (root) nodes are deleted right away
+			if (knowledge.containsKey(kp)) {
+				removeEntry(kp);
+				continue;
+			}
+			// For the inner knowledge we consider only lists and maps. We need
+			// to collect the owners of the objects being deleted.
+			final List<PathNode> pathNodes = kp.getNodes();
+			if (pathNodes.isEmpty()) {
+				continue;
+			}
 			try {
-				// Retrieve path to the owner of the object being deleted
-				// but keep the name of object being deleted.
-				pathNodesToParent = new LinkedList<>(kp.getNodes());
-				fieldName = ((PathNodeField) pathNodesToParent
-						.remove(pathNodesToParent.size() - 1)).getName();
-				parent = getKnowledge(pathNodesToParent);
-				if (parentsToPaths.containsKey(parent)) {
-					keysToDelete = parentsToPaths.get(parent);
-				} else {
+				// Retrieve the owner of the object being deleted but keep the
+				// name of object being deleted.
+				final Object parent = getKnowledgeForUpdate(pathNodes.subList(0, pathNodes.size() - 1));
+				keysToDelete = parentsToPaths.get(parent);
+				if (keysToDelete == null) {
 					keysToDelete = new LinkedList<>();
 					parentsToPaths.put(parent, keysToDelete);
 				}
-				keysToDelete.add(fieldName);
+				keysToDelete.add(((PathNodeField) pathNodes.get(pathNodes.size() - 1)).getName());
 			} catch (final KnowledgeNotFoundException e) {
 				continue;
 			}
@@ -613,40 +666,7 @@ public class BaseKnowledgeManager implements KnowledgeManager {
 				}
 			}
 		}
-		return deleted;
-	}
-
-	/**
-	 * Notifies knowledge listeners about the change in a particular knowledge
-	 * path
-	 * 
-	 * @param knowledgePath
-	 *            knowledge path for which knowledge value has changed.
-	 */
-	private void notifyKnowledgeChangeListeners(
-			final KnowledgePath knowledgePath) {
-		List<PathNode> kctNodes;
-		final List<PathNode> kpNodes = knowledgePath.getNodes();
-		// Go through each knowledge change trigger
-		for (final KnowledgeChangeTrigger kct : knowledgeChangeListeners.keySet()) {
-			kctNodes = kct.getKnowledgePath().getNodes();
-			// Now we need to check if the knowledge change trigger matches
-			// the knowledge path that has changed.
-			// There can be diffferent path prefixing that we need to consider.
-			// Examples:
-			// knowledgePath: a.b.c, kct: a.b
-			// knowledgePath : a.b, kct: a.b.c
-			if (startsWith(kpNodes, kctNodes)
-					|| startsWith(kctNodes, kpNodes)) {
-				// If the knowledge change trigger matches then we need to
-				// notify its listeners about the change
-				for (final TriggerListener listener : knowledgeChangeListeners.get(kct)) {
-					listener.triggered(kct);
-				}
-			}
-		}
 	}
-
 	
 	/**
 	 * Checks whether the list longerNodes starts with the list of shorterNodes.
@@ -697,7 +717,7 @@ public class BaseKnowledgeManager implements KnowledgeManager {
 		// Revert adding new nodes to the knowledge
 		deleteKnowledge(added);
 		for (final KnowledgePath revertKP : updatedAuthors.keySet()) {
-			knowledgeAuthors.put(revertKP, updatedAuthors.get(revertKP));			
+			putAuthor(revertKP, updatedAuthors.get(revertKP));
 		}
 	}
 
@@ -759,6 +779,9 @@ public class BaseKnowledgeManager implements KnowledgeManager {
 		}
 		
 		securityTags.get(pathNode).add(newSecurityTag);	
+		synchronized (versions) {
+			versions.update(knowledgePath);
+		}
 	}
 	
 	/* (non-Javadoc)
@@ -777,6 +800,9 @@ public class BaseKnowledgeManager implements KnowledgeManager {
 		
 		securityTags.put(pathNode, new ArrayList<>());
 		securityTags.get(pathNode).addAll(newSecurityTags);	
+		synchronized (versions) {
+			versions.update(knowledgePath);
+		}
 	}
 	
 	/* (non-Javadoc)
@@ -805,6 +831,16 @@ public class BaseKnowledgeManager implements KnowledgeManager {
 		}
 	}
 
+	/* (non-Javadoc)
+	 * @see cz.cuni.mff.d3s.deeco.knowledge.ReadOnlyKnowledgeManager#getVersion(cz.cuni.mff.d3s.deeco.model.runtime.api.KnowledgePath)
+	 */
+	@Override
+	public long getVersion(KnowledgePath knowledgePath) {
+		synchronized (versions) {
+			return versions.getVersion(knowledgePath);
+		}
+	}
+
 	/* (non-Javadoc)
 	 * @see cz.cuni.mff.d3s.deeco.knowledge.ReadOnlyKnowledgeManager#isLocked(cz.cuni.mff.d3s.deeco.model.runtime.api.KnowledgePath)
 	 */
@@ -0,0 +1,46 @@
+package cz.cuni.mff.d3s.deeco.knowledge;
+
+import java.util.Collection;
+
+import com.rits.cloning.Cloner;
+
+import cz.cuni.mff.d3s.deeco.model.runtime.api.ComponentInstance;
+import cz.cuni.mff.d3s.deeco.model.runtime.api.KnowledgePath;
+
+/**
+ * A {@link TrieKnowledgeManager} that clones the retrieved non-local values in
+ * the same way as {@link CloningKnowledgeManager} does.
+ */
+public class CloningTrieKnowledgeManager extends TrieKnowledgeManager {
+
+	private final Cloner c;
+
+	public CloningTrieKnowledgeManager(String id, ComponentInstance component, Class<?>[] roleClasses) {
+		super(id, component, roleClasses);
+		c = new Cloner();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * cz.cuni.mff.d3s.deeco.knowledge.BaseKnowledgeManager#get(java.util.Collection
+	 * )
+	 */
+	@Override
+	public ValueSet get(Collection<KnowledgePath> knowledgePaths)
+			throws KnowledgeNotFoundException {
+		ValueSet values = super.get(knowledgePaths);
+		ValueSet result = new ValueSet();
+		// only values need to be cloned (cloning KnowledgePaths in a full model
+		// causes a loopback in the cloner)
+		for (KnowledgePath p: values.getKnowledgePaths()) {
+			if (isLocal(p)) {
+				result.setValue(p, values.getValue(p));
+			} else {
+				result.setValue(p, c.deepClone(values.getValue(p)));
+			}
+		}
+		return result;
+	}
+}
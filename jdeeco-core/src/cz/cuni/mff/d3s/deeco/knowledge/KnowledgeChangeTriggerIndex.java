@@ -0,0 +1,127 @@
+package cz.cuni.mff.d3s.deeco.knowledge;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import cz.cuni.mff.d3s.deeco.model.runtime.api.KnowledgeChangeTrigger;
+import cz.cuni.mff.d3s.deeco.model.runtime.api.KnowledgePath;
+
+/**
+ * Keeps the {@link TriggerListener}s registered for {@link KnowledgeChangeTrigger}s
+ * within a knowledge manager and indexes the triggers by their knowledge paths.
+ *
+ * <p>
+ * A trigger matches a changed knowledge path if one of the paths is a prefix
+ * of the other one. Using the index, finding the matching triggers only visits
+ * the triggers on the changed path and below it, instead of all the registered
+ * triggers.
+ * </p>
+ *
+ * <p>
+ * All the paths changed by a single {@link ChangeSet} are notified at once, so
+ * that each listener is triggered at most once per trigger and update.
+ * </p>
+ *
+ * <p>
+ * The listeners may be registered by the scheduler while the knowledge is
+ * updated by a task executed in another thread, so the index is guarded by
+ * itself. The listeners are notified outside of the lock.
+ * </p>
+ */
+public class KnowledgeChangeTriggerIndex {
+
+	private final Map<KnowledgeChangeTrigger, List<TriggerListener>> listeners = new HashMap<>();
+	private final KnowledgePathTrie<KnowledgeChangeTrigger> triggers = new KnowledgePathTrie<>();
+
+	/**
+	 * Registers the listener for the given trigger.
+	 */
+	public synchronized void register(KnowledgeChangeTrigger trigger, TriggerListener listener) {
+		List<TriggerListener> triggerListeners = listeners.get(trigger);
+		if (triggerListeners == null) {
+			triggerListeners = new LinkedList<>();
+			listeners.put(trigger, triggerListeners);
+			triggers.put(trigger.getKnowledgePath(), trigger);
+		}
+		triggerListeners.add(listener);
+	}
+
+	/**
+	 * Unregisters the listener from the given trigger. The trigger is removed
+	 * from the index once it has no listeners.
+	 */
+	public synchronized void unregister(KnowledgeChangeTrigger trigger, TriggerListener listener) {
+		List<TriggerListener> triggerListeners = listeners.get(trigger);
+		if (triggerListeners != null) {
+			triggerListeners.remove(listener);
+			if (triggerListeners.isEmpty()) {
+				listeners.remove(trigger);
+				triggers.remove(trigger.getKnowledgePath().getNodes());
+			}
+		}
+	}
+
+	/**
+	 * Returns a read-only copy of the registered triggers and their listeners.
+	 */
+	public synchronized Map<KnowledgeChangeTrigger, List<TriggerListener>> getListeners() {
+		Map<KnowledgeChangeTrigger, List<TriggerListener>> result = new HashMap<>();
+		for (Map.Entry<KnowledgeChangeTrigger, List<TriggerListener>> entry : listeners.entrySet()) {
+			result.put(entry.getKey(), Collections.unmodifiableList(new ArrayList<>(entry.getValue())));
+		}
+		return Collections.unmodifiableMap(result);
+	}
+
+	/**
+	 * Collects the triggers matching any of the changed knowledge paths.
+	 */
+	public synchronized Set<KnowledgeChangeTrigger> getMatchingTriggers(Collection<KnowledgePath> changedPaths) {
+		final Set<KnowledgeChangeTrigger> result = new LinkedHashSet<>();
+		if (listeners.isEmpty()) {
+			return result;
+		}
+		for (KnowledgePath changedPath : changedPaths) {
+			// knowledgePath: a.b.c, kct: a.b
+			triggers.forEachAncestor(changedPath.getNodes(), (path, trigger) -> result.add(trigger));
+			// knowledgePath : a.b, kct: a.b.c
+			triggers.forEachDescendant(changedPath.getNodes(), (path, trigger) -> result.add(trigger));
+		}
+		return result;
+	}
+
+	/**
+	 * Notifies the listeners of all the triggers matching any of the changed
+	 * knowledge paths. Each listener is notified once per matching trigger.
+	 */
+	public void notifyChanged(Collection<KnowledgePath> changedPaths) {
+		List<KnowledgeChangeTrigger> notifiedTriggers;
+		List<TriggerListener> notifiedListeners;
+		synchronized (this) {
+			Set<KnowledgeChangeTrigger> matching = getMatchingTriggers(changedPaths);
+			if (matching.isEmpty()) {
+				return;
+			}
+			notifiedTriggers = new ArrayList<>();
+			notifiedListeners = new ArrayList<>();
+			for (KnowledgeChangeTrigger trigger : matching) {
+				List<TriggerListener> triggerListeners = listeners.get(trigger);
+				if (triggerListeners != null) {
+					for (TriggerListener listener : triggerListeners) {
+						notifiedTriggers.add(trigger);
+						notifiedListeners.add(listener);
+					}
+				}
+			}
+		}
+		for (int i = 0; i < notifiedTriggers.size(); i++) {
+			notifiedListeners.get(i).triggered(notifiedTriggers.get(i));
+		}
+	}
+}
@@ -62,7 +62,7 @@ public class KnowledgeManagerContainer  {
 		if (locals.containsKey(id))
 			return locals.get(id);
 		
-		KnowledgeManager result = new CloningKnowledgeManager(id, component, roleClasses);
+		KnowledgeManager result = knowledgeManagerFactory.create(id, component, roleClasses);
 		locals.put(id, result);
 		
 		for (LocalListener listener : localListeners) {
@@ -201,7 +201,7 @@ public class KnowledgeManagerContainer  {
 		} else {
 			replicas.put(id, new HashMap<>());
 			for (ComponentInstance component : runtimeModel.getComponentInstances()) {
-				KnowledgeManager result = new CloningKnowledgeManager(id, component, roles);
+				KnowledgeManager result = knowledgeManagerFactory.create(id, component, roles);
 				replicas.get(id).put(component, result);
 				for (ReplicaListener listener : replicaListeners) {
 					listener.replicaRegistered(result, this);
@@ -0,0 +1,286 @@
+package cz.cuni.mff.d3s.deeco.knowledge;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+import cz.cuni.mff.d3s.deeco.model.runtime.api.KnowledgePath;
+import cz.cuni.mff.d3s.deeco.model.runtime.api.PathNode;
+
+/**
+ * A trie indexed by the {@link PathNode}s of {@link KnowledgePath}s. Each trie
+ * node corresponds to a path prefix and may hold a value. Lookups of a path,
+ * of its ancestors and of its descendants are linear in the depth of the path
+ * and independent of the number of paths stored.
+ *
+ * <p>
+ * A {@code null} value is treated as no value, i.e. storing {@code null}
+ * removes the entry.
+ * </p>
+ *
+ * @param <V>
+ *            type of the values stored in the trie
+ */
+public class KnowledgePathTrie<V> {
+
+	private static class Node<V> {
+		final Node<V> parent;
+		final PathNode key;
+		Map<PathNode, Node<V>> children;
+		KnowledgePath path;
+		V value;
+		/** Number of values stored in the subtree rooted at this node (including the node itself). */
+		int count;
+
+		Node(Node<V> parent, PathNode key) {
+			this.parent = parent;
+			this.key = key;
+		}
+
+		Node<V> getChild(PathNode pathNode) {
+			return children == null ? null : children.get(pathNode);
+		}
+	}
+
+	private final Node<V> root = new Node<>(null, null);
+
+	/**
+	 * Returns the number of values stored in the trie.
+	 */
+	public int size() {
+		return root.count;
+	}
+
+	/**
+	 * Returns the value stored exactly at the given path, or {@code null} if
+	 * there is none.
+	 */
+	public V get(List<PathNode> pathNodes) {
+		Node<V> node = find(pathNodes);
+		return node == null ? null : node.value;
+	}
+
+	/**
+	 * Returns the value stored at the longest prefix of the given path
+	 * (including the path itself) that holds a value, or {@code null} if there
+	 * is none.
+	 */
+	public V getNearestAncestor(List<PathNode> pathNodes) {
+		Node<V> node = root;
+		V result = root.value;
+		for (PathNode pathNode : pathNodes) {
+			node = node.getChild(pathNode);
+			if (node == null) {
+				break;
+			}
+			if (node.value != null) {
+				result = node.value;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the value stored at the shortest prefix of the given path
+	 * (including the path itself) that holds a value, or {@code null} if there
+	 * is none.
+	 */
+	public V getFirstAncestor(List<PathNode> pathNodes) {
+		Node<V> node = root;
+		if (root.value != null) {
+			return root.value;
+		}
+		for (PathNode pathNode : pathNodes) {
+			node = node.getChild(pathNode);
+			if (node == null) {
+				return null;
+			}
+			if (node.value != null) {
+				return node.value;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Checks whether the given path is a prefix of any stored path or any
+	 * stored path is a prefix of the given path.
+	 */
+	public boolean overlaps(List<PathNode> pathNodes) {
+		Node<V> node = root;
+		if (root.value != null) {
+			return true;
+		}
+		for (PathNode pathNode : pathNodes) {
+			node = node.getChild(pathNode);
+			if (node == null) {
+				return false;
+			}
+			if (node.value != null) {
+				return true;
+			}
+		}
+		return node.count > 0;
+	}
+
+	/**
+	 * Checks whether there is a value stored strictly below the given path.
+	 */
+	public boolean hasDescendants(List<PathNode> pathNodes) {
+		Node<V> node = find(pathNodes);
+		return node != null && node.count > (node.value == null ? 0 : 1);
+	}
+
+	/**
+	 * Stores the value at the given path. Storing {@code null} removes the
+	 * value.
+	 *
+	 * @return the previous value stored at the path
+	 */
+	public V put(KnowledgePath path, V value) {
+		if (value == null) {
+			return remove(path.getNodes());
+		}
+		Node<V> node = root;
+		for (PathNode pathNode : path.getNodes()) {
+			Node<V> child = node.getChild(pathNode);
+			if (child == null) {
+				if (node.children == null) {
+					node.children = new HashMap<>();
+				}
+				child = new Node<>(node, pathNode);
+				node.children.put(pathNode, child);
+			}
+			node = child;
+		}
+		V original = node.value;
+		node.path = path;
+		node.value = value;
+		if (original == null) {
+			adjustCount(node, 1);
+		}
+		return original;
+	}
+
+	/**
+	 * Removes the value stored at the given path (values stored below the path
+	 * are kept).
+	 *
+	 * @return the removed value or {@code null} if there was none
+	 */
+	public V remove(List<PathNode> pathNodes) {
+		Node<V> node = find(pathNodes);
+		if (node == null || node.value == null) {
+			return null;
+		}
+		V original = node.value;
+		node.value = null;
+		node.path = null;
+		adjustCount(node, -1);
+		return original;
+	}
+
+	/**
+	 * Removes all values stored strictly below the given path.
+	 *
+	 * @param removed
+	 *            called for each removed path and value, may be {@code null}
+	 */
+	public void removeDescendants(List<PathNode> pathNodes, BiConsumer<KnowledgePath, V> removed) {
+		Node<V> node = find(pathNodes);
+		if (node == null || node.children == null) {
+			return;
+		}
+		int removedCount = node.count - (node.value == null ? 0 : 1);
+		if (removed != null) {
+			for (Node<V> child : node.children.values()) {
+				visit(child, removed);
+			}
+		}
+		node.children = null;
+		adjustCount(node, -removedCount);
+	}
+
+	/**
+	 * Calls the consumer for each value stored at a prefix of the given path
+	 * (including the path itself), starting from the shortest one.
+	 */
+	public void forEachAncestor(List<PathNode> pathNodes, BiConsumer<KnowledgePath, V> consumer) {
+		Node<V> node = root;
+		if (root.value != null) {
+			consumer.accept(root.path, root.value);
+		}
+		for (PathNode pathNode : pathNodes) {
+			node = node.getChild(pathNode);
+			if (node == null) {
+				return;
+			}
+			if (node.value != null) {
+				consumer.accept(node.path, node.value);
+			}
+		}
+	}
+
+	/**
+	 * Calls the consumer for each value stored strictly below the given path.
+	 */
+	public void forEachDescendant(List<PathNode> pathNodes, BiConsumer<KnowledgePath, V> consumer) {
+		Node<V> node = find(pathNodes);
+		if (node == null || node.children == null || node.count == 0) {
+			return;
+		}
+		for (Node<V> child : new ArrayList<>(node.children.values())) {
+			visit(child, consumer);
+		}
+	}
+
+	/**
+	 * Calls the consumer for each value stored in the trie.
+	 */
+	public void forEach(BiConsumer<KnowledgePath, V> consumer) {
+		if (root.count > 0) {
+			visit(root, consumer);
+		}
+	}
+
+	private void visit(Node<V> node, BiConsumer<KnowledgePath, V> consumer) {
+		if (node.value != null) {
+			consumer.accept(node.path, node.value);
+		}
+		if (node.children != null) {
+			for (Node<V> child : node.children.values()) {
+				if (child.count > 0) {
+					visit(child, consumer);
+				}
+			}
+		}
+	}
+
+	private Node<V> find(List<PathNode> pathNodes) {
+		Node<V> node = root;
+		for (PathNode pathNode : pathNodes) {
+			node = node.getChild(pathNode);
+			if (node == null) {
+				return null;
+			}
+		}
+		return node;
+	}
+
+	/**
+	 * Propagates the change of the number of stored values from the node up to
+	 * the root and prunes the nodes that became empty.
+	 */
+	private void adjustCount(Node<V> node, int delta) {
+		Node<V> current = node;
+		while (current != null) {
+			current.count += delta;
+			if (current.count == 0 && current.parent != null) {
+				current.parent.children.remove(current.key);
+			}
+			current = current.parent;
+		}
+	}
+}
@@ -0,0 +1,313 @@
+package cz.cuni.mff.d3s.deeco.knowledge;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+
+/**
+ * Immutable representation of the knowledge values used by the
+ * {@link SnapshotKnowledgeManager}.
+ *
+ * Lists and maps consisting only of immutable values are stored frozen
+ * ({@link FrozenList}, {@link FrozenMap}) and never modified. They are read
+ * through copy-on-write views ({@link SnapshotList}, {@link SnapshotMap}),
+ * which copy a single level of the structure when it is modified or when a
+ * nested list or map is accessed. Freezing a view copies only the levels which
+ * have been copied by the view, the rest of the structure is shared with the
+ * original frozen value.
+ */
+final class KnowledgeSnapshots {
+
+	private KnowledgeSnapshots() {
+	}
+
+	/**
+	 * Checks whether the value can be shared without copying.
+	 */
+	static boolean isFrozen(Object value) {
+		return value == null || value instanceof String || value instanceof Integer || value instanceof Long
+				|| value instanceof Double || value instanceof Boolean || value instanceof Float
+				|| value instanceof Short || value instanceof Byte || value instanceof Character
+				|| value instanceof Enum<?> || value instanceof BigInteger || value instanceof BigDecimal
+				|| value instanceof FrozenList || value instanceof FrozenMap;
+	}
+
+	/**
+	 * Converts the value to its frozen representation.
+	 *
+	 * @return the frozen value, or the given value if it contains anything else
+	 *         than lists, maps and immutable values
+	 */
+	static Object freeze(Object value) {
+		if (isFrozen(value)) {
+			return value;
+		} else if (value instanceof SnapshotList) {
+			return ((SnapshotList) value).freeze();
+		} else if (value instanceof SnapshotMap) {
+			return ((SnapshotMap) value).freeze();
+		} else if (value instanceof List<?>) {
+			List<?> list = (List<?>) value;
+			Object[] elements = new Object[list.size()];
+			int i = 0;
+			for (Object element : list) {
+				elements[i] = freeze(element);
+				if (!isFrozen(elements[i++])) {
+					return value;
+				}
+			}
+			return new FrozenList(elements);
+		} else if (value instanceof Map<?, ?>) {
+			Map<?, ?> map = (Map<?, ?>) value;
+			Map<Object, Object> entries = new LinkedHashMap<>(Math.max(16, map.size() * 4 / 3 + 1));
+			for (Map.Entry<?, ?> entry : map.entrySet()) {
+				Object frozen = freeze(entry.getValue());
+				if (!isFrozen(entry.getKey()) || !isFrozen(frozen)) {
+					return value;
+				}
+				entries.put(entry.getKey(), frozen);
+			}
+			return new FrozenMap(entries);
+		}
+		return value;
+	}
+
+	/**
+	 * Gets a modifiable view of a frozen value; other values are returned as
+	 * they are.
+	 */
+	static Object view(Object value) {
+		if (value instanceof FrozenList) {
+			return new SnapshotList((FrozenList) value);
+		} else if (value instanceof FrozenMap) {
+			return new SnapshotMap((FrozenMap) value);
+		}
+		return value;
+	}
+
+	private static boolean isStructure(Object value) {
+		return value instanceof FrozenList || value instanceof FrozenMap;
+	}
+
+	/**
+	 * Immutable list shared by the versions of the knowledge.
+	 */
+	static final class FrozenList extends AbstractList<Object> implements RandomAccess, Serializable {
+		private static final long serialVersionUID = 1L;
+
+		final Object[] elements;
+
+		FrozenList(Object[] elements) {
+			this.elements = elements;
+		}
+
+		@Override
+		public Object get(int index) {
+			if (index < 0 || index >= elements.length) {
+				throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + elements.length);
+			}
+			return elements[index];
+		}
+
+		@Override
+		public int size() {
+			return elements.length;
+		}
+
+		private Object writeReplace() {
+			return new ArrayList<>(this);
+		}
+	}
+
+	/**
+	 * Immutable map shared by the versions of the knowledge.
+	 */
+	static final class FrozenMap extends AbstractMap<Object, Object> implements Serializable {
+		private static final long serialVersionUID = 1L;
+
+		final Map<Object, Object> entries;
+
+		FrozenMap(Map<Object, Object> entries) {
+			this.entries = entries;
+		}
+
+		@Override
+		public Object get(Object key) {
+			return entries.get(key);
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return entries.containsKey(key);
+		}
+
+		@Override
+		public int size() {
+			return entries.size();
+		}
+
+		@Override
+		public Set<Map.Entry<Object, Object>> entrySet() {
+			return Collections.unmodifiableMap(entries).entrySet();
+		}
+
+		private Object writeReplace() {
+			return new LinkedHashMap<>(this);
+		}
+	}
+
+	/**
+	 * Copy-on-write view of a {@link FrozenList}.
+	 */
+	static final class SnapshotList extends AbstractList<Object> implements RandomAccess, Serializable {
+		private static final long serialVersionUID = 1L;
+
+		private final FrozenList frozen;
+		/** The copy of the list, null until the list is modified */
+		private ArrayList<Object> copy;
+
+		SnapshotList(FrozenList frozen) {
+			this.frozen = frozen;
+		}
+
+		@Override
+		public Object get(int index) {
+			if (copy != null) {
+				return copy.get(index);
+			}
+			Object element = frozen.get(index);
+			if (isStructure(element)) {
+				// the nested list or map may be modified, so it has to be a part of the copy
+				return copy().get(index);
+			}
+			return element;
+		}
+
+		@Override
+		public int size() {
+			return copy != null ? copy.size() : frozen.size();
+		}
+
+		@Override
+		public Object set(int index, Object element) {
+			return copy().set(index, element);
+		}
+
+		@Override
+		public void add(int index, Object element) {
+			copy().add(index, element);
+			modCount++;
+		}
+
+		@Override
+		public Object remove(int index) {
+			Object removed = copy().remove(index);
+			modCount++;
+			return removed;
+		}
+
+		private ArrayList<Object> copy() {
+			if (copy == null) {
+				copy = new ArrayList<>(frozen.size());
+				for (Object element : frozen.elements) {
+					copy.add(view(element));
+				}
+			}
+			return copy;
+		}
+
+		Object freeze() {
+			if (copy == null) {
+				return frozen;
+			}
+			return KnowledgeSnapshots.freeze(new ArrayList<>(copy));
+		}
+
+		private Object writeReplace() {
+			return new ArrayList<>(this);
+		}
+	}
+
+	/**
+	 * Copy-on-write view of a {@link FrozenMap}.
+	 */
+	static final class SnapshotMap extends AbstractMap<Object, Object> implements Serializable {
+		private static final long serialVersionUID = 1L;
+
+		private final FrozenMap frozen;
+		/** The copy of the map, null until the map is modified or iterated */
+		private LinkedHashMap<Object, Object> copy;
+
+		SnapshotMap(FrozenMap frozen) {
+			this.frozen = frozen;
+		}
+
+		@Override
+		public Object get(Object key) {
+			if (copy != null) {
+				return copy.get(key);
+			}
+			Object value = frozen.get(key);
+			if (isStructure(value)) {
+				// the nested list or map may be modified, so it has to be a part of the copy
+				return copy().get(key);
+			}
+			return value;
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return copy != null ? copy.containsKey(key) : frozen.containsKey(key);
+		}
+
+		@Override
+		public int size() {
+			return copy != null ? copy.size() : frozen.size();
+		}
+
+		@Override
+		public Object put(Object key, Object value) {
+			return copy().put(key, value);
+		}
+
+		@Override
+		public Object remove(Object key) {
+			return copy().remove(key);
+		}
+
+		@Override
+		public Set<Map.Entry<Object, Object>> entrySet() {
+			// the entries may be modified through the set
+			return copy().entrySet();
+		}
+
+		private LinkedHashMap<Object, Object> copy() {
+			if (copy == null) {
+				copy = new LinkedHashMap<>(Math.max(16, frozen.size() * 4 / 3 + 1));
+				for (Map.Entry<Object, Object> entry : frozen.entries.entrySet()) {
+					copy.put(entry.getKey(), view(entry.getValue()));
+				}
+			}
+			return copy;
+		}
+
+		Object freeze() {
+			if (copy == null) {
+				return frozen;
+			}
+			return KnowledgeSnapshots.freeze(new LinkedHashMap<>(copy));
+		}
+
+		private Object writeReplace() {
+			return new LinkedHashMap<>(this);
+		}
+	}
+}
@@ -0,0 +1,64 @@
+package cz.cuni.mff.d3s.deeco.knowledge;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import cz.cuni.mff.d3s.deeco.model.runtime.api.KnowledgePath;
+import cz.cuni.mff.d3s.deeco.model.runtime.api.PathNode;
+
+/**
+ * Keeps the versions of the knowledge within a knowledge manager.
+ *
+ * <p>
+ * The versions are tracked per top-level knowledge field, which is also the
+ * granularity of the security tags. Each successful update gets the next
+ * version, which is assigned to all the fields it updated or deleted, so the
+ * version of a path changes whenever its value may have changed. The same
+ * applies to changes of the security tags of a field. Fields that have never
+ * been updated have version 0.
+ * </p>
+ */
+class KnowledgeVersions {
+
+	private final Map<PathNode, Long> versions = new HashMap<>();
+	private long lastVersion;
+
+	/**
+	 * Provides the version of the knowledge at the given path.
+	 */
+	long getVersion(KnowledgePath knowledgePath) {
+		if (knowledgePath.getNodes().isEmpty()) {
+			return lastVersion;
+		}
+		Long version = versions.get(knowledgePath.getNodes().get(0));
+		return version == null ? 0 : version;
+	}
+
+	/**
+	 * Assigns a new version to the fields of the given updated and deleted paths.
+	 */
+	void update(Collection<KnowledgePath> updatedReferences, Collection<KnowledgePath> deletedReferences) {
+		lastVersion++;
+		update(updatedReferences);
+		update(deletedReferences);
+	}
+
+	/**
+	 * Assigns a new version to the field of the given path, e.g. when its security tags change.
+	 */
+	void update(KnowledgePath knowledgePath) {
+		update(Collections.singletonList(knowledgePath), Collections.emptyList());
+	}
+
+	private void update(Collection<KnowledgePath> knowledgePaths) {
+		for (KnowledgePath knowledgePath : knowledgePaths) {
+			if (knowledgePath.getNodes().isEmpty()) {
+				versions.replaceAll((field, version) -> lastVersion);
+			} else {
+				versions.put(knowledgePath.getNodes().get(0), lastVersion);
+			}
+		}
+	}
+}
@@ -2,6 +2,7 @@ package cz.cuni.mff.d3s.deeco.knowledge;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import cz.cuni.mff.d3s.deeco.annotations.Local;
 import cz.cuni.mff.d3s.deeco.model.runtime.api.ComponentInstance;
@@ -36,6 +37,22 @@ public interface ReadOnlyKnowledgeManager {
 	public ValueSet get(Collection<KnowledgePath> knowledgeReferenceList)
 			throws KnowledgeNotFoundException;
 
+	/**
+	 * Retrieves values for the collection of the {@link KnowledgePath} objects
+	 * along with their {@link #getVersion(KnowledgePath) versions}, read
+	 * atomically with respect to the updates of the knowledge.
+	 * 
+	 * @param knowledgeReferenceList
+	 * @param versions
+	 *            map to be filled with the versions of the retrieved knowledge paths
+	 * @return {@link ValueSet} object containing values for the specified
+	 *         knowledge paths
+	 * @throws KnowledgeNotExistentException
+	 *             when there is no value for at least one knowledge path
+	 */
+	public ValueSet get(Collection<KnowledgePath> knowledgeReferenceList, Map<KnowledgePath, Long> versions)
+			throws KnowledgeNotFoundException;
+
 	/**
 	 * Registers the specified trigger and its listener within this knowledge
 	 * manager.
@@ -112,6 +129,14 @@ public interface ReadOnlyKnowledgeManager {
 	 */
 	String getAuthor(KnowledgePath knowledgePath);
 	
+	/**
+	 * Returns the version of the knowledge at the given path. The version changes whenever
+	 * the top-level field of the path is updated or deleted, or its security tags change.
+	 * @param knowledgePath
+	 * @return the version of the knowledge, 0 if it has never been updated
+	 */
+	long getVersion(KnowledgePath knowledgePath);
+	
 	/**
 	 * Returns true if given knowledge path is a parameter of some security role and therefore its value cannot be modified
 	 * @param knowledgePath
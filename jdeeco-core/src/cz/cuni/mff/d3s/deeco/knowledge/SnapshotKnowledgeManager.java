@@ -0,0 +1,107 @@
+package cz.cuni.mff.d3s.deeco.knowledge;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.rits.cloning.Cloner;
+
+import cz.cuni.mff.d3s.deeco.model.runtime.api.ComponentInstance;
+import cz.cuni.mff.d3s.deeco.model.runtime.api.KnowledgePath;
+import cz.cuni.mff.d3s.deeco.model.runtime.api.PathNode;
+
+/**
+ * A {@link TrieKnowledgeManager} providing the retrieved values isolated from
+ * the later updates of the knowledge without cloning them.
+ *
+ * Lists and maps of immutable values (strings, numbers, enums and nested lists
+ * and maps of them) are stored as immutable structures. Retrieving such a value
+ * returns a copy-on-write view of the stored structure in constant time;
+ * modifying the view copies only the modified levels of the structure. An
+ * update replaces the stored structure by a new one sharing the unmodified
+ * parts with the previous one, so the views retrieved before keep seeing the
+ * previous version. Other values are cloned when retrieved in the same way as
+ * in {@link CloningKnowledgeManager}.
+ *
+ * The retrieved lists and maps are not instances of the classes stored in the
+ * knowledge, so the parameters of the processes and ensembles have to be
+ * declared as {@link List} and {@link java.util.Map}.
+ *
+ * @see SnapshotKnowledgeManagerFactory
+ */
+public class SnapshotKnowledgeManager extends TrieKnowledgeManager {
+
+	private final Cloner c;
+	/** Entries replaced by views to be modified in place during the current update */
+	private final Set<KnowledgePath> copiedEntries;
+
+	public SnapshotKnowledgeManager(String id, ComponentInstance component, Class<?>[] roleClasses) {
+		super(id, component, roleClasses);
+		c = new Cloner();
+		copiedEntries = new HashSet<>();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * cz.cuni.mff.d3s.deeco.knowledge.BaseKnowledgeManager#get(java.util.Collection
+	 * )
+	 */
+	@Override
+	public ValueSet get(Collection<KnowledgePath> knowledgePaths) throws KnowledgeNotFoundException {
+		ValueSet values = super.get(knowledgePaths);
+		ValueSet result = new ValueSet();
+		for (KnowledgePath p : values.getKnowledgePaths()) {
+			Object value = values.getValue(p);
+			if (KnowledgeSnapshots.isFrozen(value)) {
+				result.setValue(p, KnowledgeSnapshots.view(value));
+			} else if (isLocal(p)) {
+				result.setValue(p, value);
+			} else {
+				result.setValue(p, c.deepClone(value));
+			}
+		}
+		return result;
+	}
+
+	@Override
+	protected void updateKnowledge(KnowledgePath knowledgePath, Object value) throws KnowledgeUpdateException {
+		super.updateKnowledge(knowledgePath, KnowledgeSnapshots.freeze(value));
+	}
+
+	/**
+	 * Replaces the frozen entry containing the object by its view, which is
+	 * frozen again when the update completes.
+	 */
+	@Override
+	protected Object getKnowledgeForUpdate(List<PathNode> knowledgePath) throws KnowledgeNotFoundException {
+		KnowledgePath entryPath = getEntryPath(knowledgePath);
+		if (entryPath != null && !copiedEntries.contains(entryPath)) {
+			Object entry = getKnowledge(entryPath.getNodes());
+			Object view = KnowledgeSnapshots.view(entry);
+			if (view != entry) {
+				try {
+					super.updateKnowledge(entryPath, view);
+				} catch (KnowledgeUpdateException e) {
+					throw new KnowledgeNotFoundException(entryPath);
+				}
+				copiedEntries.add(entryPath);
+			}
+		}
+		return super.getKnowledgeForUpdate(knowledgePath);
+	}
+
+	@Override
+	protected void updateCompleted() {
+		for (KnowledgePath entryPath : copiedEntries) {
+			try {
+				super.updateKnowledge(entryPath, KnowledgeSnapshots.freeze(getKnowledge(entryPath.getNodes())));
+			} catch (KnowledgeNotFoundException | KnowledgeUpdateException e) {
+				// the entry has been deleted by the update
+			}
+		}
+		copiedEntries.clear();
+	}
+}
@@ -0,0 +1,16 @@
+package cz.cuni.mff.d3s.deeco.knowledge;
+
+import cz.cuni.mff.d3s.deeco.model.runtime.api.ComponentInstance;
+
+/**
+ * Creates knowledge managers providing copy-on-write snapshots of the knowledge
+ * ({@link SnapshotKnowledgeManager}).
+ */
+public class SnapshotKnowledgeManagerFactory implements KnowledgeManagerFactory {
+
+	@Override
+	public KnowledgeManager create(String id, ComponentInstance component, Class<?>[] roleClasses) {
+		return new SnapshotKnowledgeManager(id, component, roleClasses);
+	}
+
+}
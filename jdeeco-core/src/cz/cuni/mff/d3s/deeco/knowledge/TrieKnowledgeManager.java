@@ -0,0 +1,113 @@
+package cz.cuni.mff.d3s.deeco.knowledge;
+
+import java.util.List;
+import java.util.Map;
+
+import cz.cuni.mff.d3s.deeco.model.runtime.api.ComponentInstance;
+import cz.cuni.mff.d3s.deeco.model.runtime.api.KnowledgePath;
+import cz.cuni.mff.d3s.deeco.model.runtime.api.PathNode;
+
+/**
+ * Implementation of the {@link KnowledgeManager} interface with the same
+ * semantics as {@link BaseKnowledgeManager}, which indexes the knowledge
+ * entries and their authors by a {@link KnowledgePathTrie}. Retrieving a
+ * value, resolving its author and invalidating the authors of a subtree are
+ * therefore linear in the depth of the knowledge path instead of in the number
+ * of knowledge entries.
+ *
+ * @see TrieKnowledgeManagerFactory
+ */
+public class TrieKnowledgeManager extends BaseKnowledgeManager {
+
+	/** Index of the top-level knowledge entries; each value is the path of the entry. */
+	private final KnowledgePathTrie<KnowledgePath> knowledgeIndex;
+	private final KnowledgePathTrie<String> knowledgeAuthors;
+
+	public TrieKnowledgeManager(String id, ComponentInstance component, Class<?>[] roleClasses) {
+		super(id, component, roleClasses);
+		this.knowledgeIndex = new KnowledgePathTrie<>();
+		this.knowledgeAuthors = new KnowledgePathTrie<>();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see cz.cuni.mff.d3s.deeco.knowledge.BaseKnowledgeManager#getEntryPath(java.util.List)
+	 */
+	@Override
+	protected KnowledgePath getEntryPath(List<PathNode> knowledgePath) {
+		return knowledgeIndex.getFirstAncestor(knowledgePath);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see cz.cuni.mff.d3s.deeco.knowledge.BaseKnowledgeManager#overlapsEntry(java.util.List)
+	 */
+	@Override
+	protected boolean overlapsEntry(List<PathNode> knowledgePath) {
+		return knowledgeIndex.overlaps(knowledgePath);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see cz.cuni.mff.d3s.deeco.knowledge.BaseKnowledgeManager#putEntry(cz.cuni.mff.d3s.deeco.model.runtime.api.KnowledgePath, java.lang.Object)
+	 */
+	@Override
+	protected void putEntry(KnowledgePath knowledgePath, Object value) {
+		super.putEntry(knowledgePath, value);
+		knowledgeIndex.put(knowledgePath, knowledgePath);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see cz.cuni.mff.d3s.deeco.knowledge.BaseKnowledgeManager#removeEntry(cz.cuni.mff.d3s.deeco.model.runtime.api.KnowledgePath)
+	 */
+	@Override
+	protected void removeEntry(KnowledgePath knowledgePath) {
+		super.removeEntry(knowledgePath);
+		knowledgeIndex.remove(knowledgePath.getNodes());
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see cz.cuni.mff.d3s.deeco.knowledge.BaseKnowledgeManager#getNearestAuthor(cz.cuni.mff.d3s.deeco.model.runtime.api.KnowledgePath)
+	 */
+	@Override
+	protected String getNearestAuthor(KnowledgePath knowledgePath) {
+		return knowledgeAuthors.getNearestAncestor(knowledgePath.getNodes());
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see cz.cuni.mff.d3s.deeco.knowledge.BaseKnowledgeManager#putAuthor(cz.cuni.mff.d3s.deeco.model.runtime.api.KnowledgePath, java.lang.String)
+	 */
+	@Override
+	protected void putAuthor(KnowledgePath knowledgePath, String authorId) {
+		knowledgeAuthors.put(knowledgePath, authorId);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see cz.cuni.mff.d3s.deeco.knowledge.BaseKnowledgeManager#removeAuthor(cz.cuni.mff.d3s.deeco.model.runtime.api.KnowledgePath)
+	 */
+	@Override
+	protected void removeAuthor(KnowledgePath knowledgePath) {
+		knowledgeAuthors.remove(knowledgePath.getNodes());
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see cz.cuni.mff.d3s.deeco.knowledge.BaseKnowledgeManager#removeDescendantAuthors(cz.cuni.mff.d3s.deeco.model.runtime.api.KnowledgePath, java.util.Map)
+	 */
+	@Override
+	protected void removeDescendantAuthors(KnowledgePath knowledgePath, Map<KnowledgePath, String> removed) {
+		knowledgeAuthors.removeDescendants(knowledgePath.getNodes(), removed == null ? null : removed::put);
+	}
+}
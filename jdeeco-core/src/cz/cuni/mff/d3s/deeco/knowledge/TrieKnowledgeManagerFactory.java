@@ -0,0 +1,15 @@
+package cz.cuni.mff.d3s.deeco.knowledge;
+
+import cz.cuni.mff.d3s.deeco.model.runtime.api.ComponentInstance;
+
+/**
+ * Creates trie-indexed knowledge managers ({@link CloningTrieKnowledgeManager}).
+ */
+public class TrieKnowledgeManagerFactory implements KnowledgeManagerFactory {
+
+	@Override
+	public KnowledgeManager create(String id, ComponentInstance component, Class<?>[] roleClasses) {
+		return new CloningTrieKnowledgeManager(id, component, roleClasses);
+	}
+
+}
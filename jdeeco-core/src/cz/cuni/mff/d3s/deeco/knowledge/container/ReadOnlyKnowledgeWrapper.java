@@ -9,7 +9,6 @@ import java.util.Map;
 
 import cz.cuni.mff.d3s.deeco.annotations.PlaysRole;
 import cz.cuni.mff.d3s.deeco.annotations.Role;
-import cz.cuni.mff.d3s.deeco.annotations.checking.RoleAnnotationsHelper;
 import cz.cuni.mff.d3s.deeco.annotations.pathparser.ParseException;
 import cz.cuni.mff.d3s.deeco.annotations.pathparser.PathOrigin;
 import cz.cuni.mff.d3s.deeco.annotations.processor.AnnotationProcessorException;
@@ -91,25 +90,14 @@ public class ReadOnlyKnowledgeWrapper {
 					roleClass.getName(), getComponentId()));
 		}
 		
-		try {
-			result = roleClass.newInstance();
-		} catch (InstantiationException | IllegalAccessException e) {
-			throw new RoleClassException(String.format("The role class '%s' could not be instantiated.", roleClass.getName()), e);
-		}
+		// the fields and their knowledge paths are looked up only once per role class
+		RoleClassAccessor accessor = RoleClassAccessor.forClass(roleClass);
+		result = roleClass.cast(accessor.newInstance());
 		
 		try {
-			List<Field> knowledgeFields = RoleAnnotationsHelper.getNonLocalKnowledgeFields(roleClass, false);
-			Map<Field, KnowledgePath> fieldKnowledgePaths = getFieldKnowledgePaths(knowledgeFields);
-			ValueSet knowledgeValues;
-			knowledgeValues = knowledgeManager.get(fieldKnowledgePaths.values());
-			for (Field knowledgeField : knowledgeFields) {
-				try {
-					Object fieldValue = knowledgeValues.getValue(fieldKnowledgePaths.get(knowledgeField));
-					knowledgeField.set(result, fieldValue);
-				} catch (IllegalArgumentException | IllegalAccessException e) {
-					throw new RoleClassException(String.format("Failed to set the value to the field '%s' of the role class '%s'.",
-							knowledgeField.getName(), roleClass.getName()), e);
-				}
+			ValueSet knowledgeValues = knowledgeManager.get(accessor.getKnowledgePaths());
+			for (RoleClassAccessor.KnowledgeField knowledgeField : accessor.getKnowledgeFields()) {
+				knowledgeField.set(result, knowledgeValues.getValue(knowledgeField.getKnowledgePath()));
 			}
 		} catch (KnowledgeNotFoundException e) {
 			throw new KnowledgeAccessException(String.format("The knowledge path '%s' could not be found in the knowledge manager of the component '%s' (though the knowledge declares that it supports the role '%s').",
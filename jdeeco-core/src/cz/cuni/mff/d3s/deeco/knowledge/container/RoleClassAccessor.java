@@ -0,0 +1,233 @@
+package cz.cuni.mff.d3s.deeco.knowledge.container;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import cz.cuni.mff.d3s.deeco.annotations.checking.RoleAnnotationsHelper;
+import cz.cuni.mff.d3s.deeco.annotations.pathparser.ParseException;
+import cz.cuni.mff.d3s.deeco.annotations.pathparser.PathOrigin;
+import cz.cuni.mff.d3s.deeco.annotations.processor.AnnotationProcessorException;
+import cz.cuni.mff.d3s.deeco.model.runtime.api.KnowledgePath;
+import cz.cuni.mff.d3s.deeco.task.KnowledgePathHelper;
+
+/**
+ * Instantiates a role class and accesses its knowledge fields on behalf of the knowledge wrappers.
+ * The knowledge fields, their knowledge paths and the method handles used for the access are looked up
+ * once per role class, so that the wrappers do not introspect the class and parse the knowledge paths
+ * of its fields for every component they read or commit.
+ *
+ * The access rights are checked for this package, as they were when the wrappers used reflection directly.
+ * The cached knowledge paths are shared by all the wrappers, so only their copies are passed to the knowledge managers.
+ *
+ * @see ReadOnlyKnowledgeWrapper#getUntrackedRoleKnowledge(Class)
+ * @see TrackingKnowledgeWrapper#commitChanges()
+ */
+class RoleClassAccessor {
+
+	private static final ClassValue<RoleClassAccessor> accessors = new ClassValue<RoleClassAccessor>() {
+		@Override
+		protected RoleClassAccessor computeValue(Class<?> roleClass) {
+			return new RoleClassAccessor(roleClass);
+		}
+	};
+
+	private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class);
+	private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+	private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+	private final Class<?> roleClass;
+	private final MethodHandle constructor;
+	private final ReflectiveOperationException constructorException;
+	private final List<KnowledgeField> knowledgeFields;
+	private final List<KnowledgePath> knowledgePaths;
+	private final Field invalidField;
+	private final Exception knowledgePathException;
+
+	/**
+	 * Gets the accessor of the given role class, which is created on the first call for the class.
+	 */
+	static RoleClassAccessor forClass(Class<?> roleClass) {
+		return accessors.get(roleClass);
+	}
+
+	private RoleClassAccessor(Class<?> roleClass) {
+		MethodHandles.Lookup lookup = MethodHandles.lookup();
+		this.roleClass = roleClass;
+
+		MethodHandle constructor = null;
+		ReflectiveOperationException constructorException = null;
+		try {
+			constructor = lookup.unreflectConstructor(roleClass.getDeclaredConstructor()).asType(CONSTRUCTOR_TYPE);
+		} catch (ReflectiveOperationException e) {
+			constructorException = e;
+		}
+		this.constructor = constructor;
+		this.constructorException = constructorException;
+
+		List<KnowledgeField> knowledgeFields = new ArrayList<>();
+		List<KnowledgePath> knowledgePaths = new ArrayList<>();
+		Field invalidField = null;
+		Exception knowledgePathException = null;
+		for (Field field : RoleAnnotationsHelper.getNonLocalKnowledgeFields(roleClass, false)) {
+			KnowledgePath knowledgePath;
+			try {
+				knowledgePath = KnowledgePathHelper.createKnowledgePath(field.getName(), PathOrigin.COMPONENT);
+			} catch (ParseException | AnnotationProcessorException e) {
+				invalidField = field;
+				knowledgePathException = e;
+				break;
+			}
+			knowledgeFields.add(new KnowledgeField(lookup, roleClass, field, knowledgePath));
+			knowledgePaths.add(knowledgePath);
+		}
+		this.knowledgeFields = Collections.unmodifiableList(knowledgeFields);
+		this.knowledgePaths = Collections.unmodifiableList(knowledgePaths);
+		this.invalidField = invalidField;
+		this.knowledgePathException = knowledgePathException;
+	}
+
+	/**
+	 * Creates a new instance of the role class using its parameterless constructor.
+	 * @throws RoleClassException Thrown when the role class cannot be instantiated.
+	 */
+	Object newInstance() throws RoleClassException {
+		if (constructor == null) {
+			throw new RoleClassException(String.format("The role class '%s' could not be instantiated.", roleClass.getName()), constructorException);
+		}
+
+		try {
+			return constructor.invokeExact();
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new RoleClassException(String.format("The role class '%s' could not be instantiated.", roleClass.getName()), e);
+		}
+	}
+
+	/**
+	 * Gets the non-local knowledge fields of the role class.
+	 * @throws KnowledgeAccessException Thrown when the knowledge path of a field cannot be created.
+	 */
+	List<KnowledgeField> getKnowledgeFields() throws KnowledgeAccessException {
+		checkKnowledgePaths();
+		return knowledgeFields;
+	}
+
+	/**
+	 * Gets copies of the knowledge paths of the non-local knowledge fields, in the order of {@link #getKnowledgeFields()}.
+	 * @throws KnowledgeAccessException Thrown when the knowledge path of a field cannot be created.
+	 */
+	List<KnowledgePath> getKnowledgePaths() throws KnowledgeAccessException {
+		checkKnowledgePaths();
+		List<KnowledgePath> result = new ArrayList<>(knowledgePaths.size());
+		for (KnowledgePath knowledgePath : knowledgePaths) {
+			result.add(KnowledgePathHelper.cloneKnowledgePath(knowledgePath));
+		}
+		return result;
+	}
+
+	private void checkKnowledgePaths() throws KnowledgeAccessException {
+		if (knowledgePathException != null) {
+			throw new KnowledgeAccessException(String.format("The knowledge path for the field '%s.%s' could not be created.",
+					invalidField.getDeclaringClass().getName(), invalidField.getName()), knowledgePathException);
+		}
+	}
+
+	/**
+	 * A knowledge field of a role class along with its knowledge path. The field is accessed through
+	 * method handles, or through reflection when the handles are not available, which then reports
+	 * the reason the field cannot be accessed.
+	 */
+	static class KnowledgeField {
+
+		private final Class<?> roleClass;
+		private final Field field;
+		private final KnowledgePath knowledgePath;
+		private final MethodHandle getter;
+		private final MethodHandle setter;
+
+		private KnowledgeField(MethodHandles.Lookup lookup, Class<?> roleClass, Field field, KnowledgePath knowledgePath) {
+			this.roleClass = roleClass;
+			this.field = field;
+			this.knowledgePath = knowledgePath;
+
+			MethodHandle getter;
+			try {
+				getter = lookup.unreflectGetter(field).asType(GETTER_TYPE);
+			} catch (IllegalAccessException e) {
+				getter = null;
+			}
+			this.getter = getter;
+
+			MethodHandle setter;
+			try {
+				setter = lookup.unreflectSetter(field).asType(SETTER_TYPE);
+			} catch (IllegalAccessException e) {
+				setter = null;
+			}
+			this.setter = setter;
+		}
+
+		String getName() {
+			return field.getName();
+		}
+
+		/**
+		 * Gets the knowledge path of the field, which must not be modified nor passed to a knowledge manager.
+		 */
+		KnowledgePath getKnowledgePath() {
+			return knowledgePath;
+		}
+
+		/**
+		 * Gets a copy of the knowledge path of the field.
+		 */
+		KnowledgePath copyKnowledgePath() {
+			return KnowledgePathHelper.cloneKnowledgePath(knowledgePath);
+		}
+
+		/**
+		 * Gets the value of the field of the given role class instance.
+		 * @throws RoleClassException Thrown when the field cannot be read.
+		 */
+		Object get(Object instance) throws RoleClassException {
+			try {
+				if (getter == null) {
+					return field.get(instance);
+				}
+				return getter.invokeExact(instance);
+			} catch (Throwable e) {
+				if (e instanceof Error) {
+					throw (Error) e;
+				}
+				throw new RoleClassException(String.format("Failed to get the value of the field '%s' of the role class '%s'.",
+						field.getName(), field.getDeclaringClass().getName()), e);
+			}
+		}
+
+		/**
+		 * Sets the value of the field of the given role class instance.
+		 * @throws RoleClassException Thrown when the value cannot be assigned to the field.
+		 */
+		void set(Object instance, Object value) throws RoleClassException {
+			try {
+				if (setter == null) {
+					field.set(instance, value);
+				} else {
+					setter.invokeExact(instance, value);
+				}
+			} catch (Throwable e) {
+				if (e instanceof Error) {
+					throw (Error) e;
+				}
+				throw new RoleClassException(String.format("Failed to set the value to the field '%s' of the role class '%s'.",
+						field.getName(), roleClass.getName()), e);
+			}
+		}
+	}
+}
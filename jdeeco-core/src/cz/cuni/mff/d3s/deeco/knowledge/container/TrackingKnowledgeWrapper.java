@@ -1,20 +1,19 @@
 package cz.cuni.mff.d3s.deeco.knowledge.container;
 
-import java.lang.reflect.Field;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import cz.cuni.mff.d3s.deeco.annotations.PlaysRole;
 import cz.cuni.mff.d3s.deeco.annotations.Role;
-import cz.cuni.mff.d3s.deeco.annotations.checking.RoleAnnotationsHelper;
 import cz.cuni.mff.d3s.deeco.knowledge.ChangeSet;
 import cz.cuni.mff.d3s.deeco.knowledge.KnowledgeManager;
 import cz.cuni.mff.d3s.deeco.knowledge.KnowledgeUpdateException;
 import cz.cuni.mff.d3s.deeco.knowledge.ReadOnlyKnowledgeManager;
-import cz.cuni.mff.d3s.deeco.model.runtime.api.KnowledgePath;
 
 /**
  * A knowledge wrapper wraps a single component knowledge manager and allows for accessing the knowledge in
@@ -43,8 +42,12 @@ import cz.cuni.mff.d3s.deeco.model.runtime.api.KnowledgePath;
  */
 public class TrackingKnowledgeWrapper extends ReadOnlyKnowledgeWrapper {
 
+	private static final Set<Class<?>> IMMUTABLE_TYPES = new HashSet<>(Arrays.asList(String.class, Boolean.class, Character.class,
+			Byte.class, Short.class, Integer.class, Long.class, Float.class, Double.class));
+	
 	private final KnowledgeManager knowledgeManager;
 	private Map<Class<?>, Object> trackedInstances;
+	private Map<Class<?>, Object[]> trackedValues;
 	private final RoleDisjointednessChecker roleDisjointednessChecker;
 	
 	/**
@@ -56,6 +59,7 @@ public class TrackingKnowledgeWrapper extends ReadOnlyKnowledgeWrapper {
 		super(km);
 		knowledgeManager = km;
 		trackedInstances = new HashMap<Class<?>, Object>();
+		trackedValues = new HashMap<Class<?>, Object[]>();
 		this.roleDisjointednessChecker = roleDisjointednessChecker;
 	}
 	
@@ -82,6 +86,7 @@ public class TrackingKnowledgeWrapper extends ReadOnlyKnowledgeWrapper {
 		
 		TRole result = super.getUntrackedRoleKnowledge(roleClass);
 		trackedInstances.put(roleClass, result);
+		trackedValues.put(roleClass, getValues(RoleClassAccessor.forClass(roleClass).getKnowledgeFields(), result));
 		return result;
 	}
 	
@@ -91,6 +96,7 @@ public class TrackingKnowledgeWrapper extends ReadOnlyKnowledgeWrapper {
 	 */
 	public void resetTracking() {
 		trackedInstances.clear();
+		trackedValues.clear();
 	}
 	
 	/**
@@ -102,6 +108,11 @@ public class TrackingKnowledgeWrapper extends ReadOnlyKnowledgeWrapper {
 	 * Overlapping member fields could cause conflicts when committing to the knowledge manager and the behavior
 	 * in the case of overlapping roles is not defined.
 	 * 
+	 * Only the fields that may have changed since the instance was acquired are updated, so that the knowledge
+	 * change triggers of the other fields are not fired. A field holding a value of an immutable type (a string,
+	 * a primitive wrapper or an enum) is considered unchanged if its value equals the acquired one. The fields
+	 * holding values of other types may have been modified in place, so they are always updated.
+	 * 
 	 * @throws KnowledgeCommitException
 	 * @throws KnowledgeAccessException
 	 * @throws RoleClassException
@@ -111,11 +122,13 @@ public class TrackingKnowledgeWrapper extends ReadOnlyKnowledgeWrapper {
 		roleDisjointednessChecker.checkRolesAreDisjoint(trackedRoleClasses);
 		
 		for (Object trackedInstance : trackedInstances.values()) {
-			Class<?> roleClass = trackedInstance.getClass();
-			List<Field> knowledgeFields = RoleAnnotationsHelper.getNonLocalKnowledgeFields(roleClass, false);
-			Map<Field, KnowledgePath> fieldKnowledgePaths = getFieldKnowledgePaths(knowledgeFields);
+			RoleClassAccessor accessor = RoleClassAccessor.forClass(trackedInstance.getClass());
+			Object[] acquiredValues = trackedValues.get(trackedInstance.getClass());
+			ChangeSet changeSet = createChangeSet(accessor.getKnowledgeFields(), trackedInstance, acquiredValues);
+			if (changeSet.getUpdatedReferences().isEmpty()) {
+				continue;
+			}
 			
-			ChangeSet changeSet = createChangeSet(fieldKnowledgePaths, trackedInstance);
 			try {
 				knowledgeManager.update(changeSet);
 			} catch (KnowledgeUpdateException e) {
@@ -125,25 +138,46 @@ public class TrackingKnowledgeWrapper extends ReadOnlyKnowledgeWrapper {
 		}
 	}
 	
-	private ChangeSet createChangeSet(Map<Field, KnowledgePath> fieldKnowledgePaths, Object trackedInstance) throws RoleClassException {
+	private ChangeSet createChangeSet(List<RoleClassAccessor.KnowledgeField> knowledgeFields, Object trackedInstance,
+			Object[] acquiredValues) throws RoleClassException {
 		ChangeSet result = new ChangeSet();
 		
-		for (Entry<Field, KnowledgePath> fieldAndValue : fieldKnowledgePaths.entrySet()) {			
-			Field field = fieldAndValue.getKey();
-			KnowledgePath knowledgePath = fieldAndValue.getValue();
+		for (int i = 0; i < knowledgeFields.size(); i++) {
+			RoleClassAccessor.KnowledgeField field = knowledgeFields.get(i);
 			if (field.getName().equals("id")) {
 				continue;
 			}
 			
-			try {
-				result.setValue(knowledgePath, field.get(trackedInstance));
-			} catch (IllegalArgumentException | IllegalAccessException e) {
-				throw new RoleClassException(String.format("Failed to get the value of the field '%s' of the role class '%s'.",
-						field.getName(), field.getDeclaringClass().getName()), e);
+			Object value = field.get(trackedInstance);
+			if (isUnchanged(value, acquiredValues[i])) {
+				continue;
 			}
+			
+			result.setValue(field.copyKnowledgePath(), value);
 		}
 		
 		return result;
 	}
+	
+	private Object[] getValues(List<RoleClassAccessor.KnowledgeField> knowledgeFields, Object instance) throws RoleClassException {
+		Object[] result = new Object[knowledgeFields.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = knowledgeFields.get(i).get(instance);
+		}
+		return result;
+	}
+	
+	private static boolean isUnchanged(Object value, Object acquiredValue) {
+		if (value == null) {
+			return acquiredValue == null;
+		}
+		
+		// values of other types may have been changed without replacing them
+		return isImmutable(value) && value.equals(acquiredValue);
+	}
+	
+	private static boolean isImmutable(Object value) {
+		return IMMUTABLE_TYPES.contains(value.getClass()) || value instanceof Enum;
+	}
 
 }
\ No newline at end of file
@@ -1,7 +1,9 @@
 package cz.cuni.mff.d3s.deeco.network;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 
 /**
@@ -17,6 +19,10 @@ public class KnowledgeMetaData implements Serializable {
 	public transient double rssi;
 	public long createdAt; 
 	public int hopCount;
+	//if not -1 then the knowledge holds only the values changed since the version baseVersionId
+	public long baseVersionId = -1;
+	//if not null then the knowledge paths deleted since the version baseVersionId
+	public List<String> deletedPaths;
 	
 	public byte[] encryptedKey;
 	public String encryptedKeyAlgorithm;
@@ -42,7 +48,20 @@ public class KnowledgeMetaData implements Serializable {
 	}
 	
 	public KnowledgeMetaData clone() {
-		return new KnowledgeMetaData(componentId, versionId, sender, createdAt, hopCount, encryptedKey, encryptedKeyAlgorithm, targetRoleHash, signature);
+		KnowledgeMetaData result = new KnowledgeMetaData(componentId, versionId, sender, createdAt, hopCount, encryptedKey, encryptedKeyAlgorithm, targetRoleHash, signature);
+		result.baseVersionId = baseVersionId;
+		if (deletedPaths != null) {
+			result.deletedPaths = new ArrayList<>(deletedPaths);
+		}
+		return result;
+	}
+	
+	/**
+	 * Checks whether the knowledge is a delta, i.e. it holds only the values changed since
+	 * the version {@link #baseVersionId} rather than the complete knowledge of the component.
+	 */
+	public boolean isDelta() {
+		return baseVersionId != -1;
 	}
 		
 	@Override
@@ -58,6 +77,8 @@ public class KnowledgeMetaData implements Serializable {
 		result = prime * result + (int) (temp ^ (temp >>> 32));
 		result = prime * result + ((sender == null) ? 0 : sender.hashCode());
 		result = prime * result + (int) (versionId ^ (versionId >>> 32));
+		result = prime * result + (int) (baseVersionId ^ (baseVersionId >>> 32));
+		result = prime * result + ((deletedPaths == null) ? 0 : deletedPaths.hashCode());
 		return result;
 	}
 
@@ -90,6 +111,13 @@ public class KnowledgeMetaData implements Serializable {
 			return false;
 		if (versionId != other.versionId)
 			return false;
+		if (baseVersionId != other.baseVersionId)
+			return false;
+		if (deletedPaths == null) {
+			if (other.deletedPaths != null)
+				return false;
+		} else if (!deletedPaths.equals(other.deletedPaths))
+			return false;
 		if (encryptedKeyAlgorithm == null) {
 			if (other.encryptedKeyAlgorithm != null)
 				return false;
@@ -16,6 +16,8 @@ import cz.cuni.mff.d3s.jdeeco.simulation.SimulationProvider;
 /**
  * Main entry for launching DEECo simulations.
  * 
+ * The nodes can be simulated in parallel by passing a {@link cz.cuni.mff.d3s.deeco.timer.ParallelDiscreteEventTimer}.
+ * 
  * @author Ilias Gerostathopoulos <iliasg@d3s.mff.cuni.cz>
  */
 public class DEECoSimulation {
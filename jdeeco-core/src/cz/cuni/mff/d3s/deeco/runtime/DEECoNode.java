@@ -14,6 +14,7 @@ import cz.cuni.mff.d3s.deeco.annotations.processor.AnnotationProcessor;
 import cz.cuni.mff.d3s.deeco.annotations.processor.AnnotationProcessorException;
 import cz.cuni.mff.d3s.deeco.ensembles.EnsembleFactory;
 import cz.cuni.mff.d3s.deeco.executor.Executor;
+import cz.cuni.mff.d3s.deeco.executor.MultiThreadedExecutor;
 import cz.cuni.mff.d3s.deeco.executor.SameThreadExecutor;
 import cz.cuni.mff.d3s.deeco.knowledge.CloningKnowledgeManagerFactory;
 import cz.cuni.mff.d3s.deeco.knowledge.KnowledgeManagerContainer;
@@ -25,6 +26,7 @@ import cz.cuni.mff.d3s.deeco.model.runtime.api.RuntimeMetadata;
 import cz.cuni.mff.d3s.deeco.model.runtime.custom.RuntimeMetadataFactoryExt;
 import cz.cuni.mff.d3s.deeco.runtimelog.RuntimeLogWriters;
 import cz.cuni.mff.d3s.deeco.runtimelog.RuntimeLogger;
+import cz.cuni.mff.d3s.deeco.scheduler.MultiThreadedScheduler;
 import cz.cuni.mff.d3s.deeco.scheduler.Scheduler;
 import cz.cuni.mff.d3s.deeco.scheduler.SingleThreadedScheduler;
 import cz.cuni.mff.d3s.deeco.timer.Timer;
@@ -116,6 +118,29 @@ public class DEECoNode implements DEECoContainer {
 		initializePlugins(plugins);
 	}
 
+	/**
+	 * Creates new instance of {@link DEECoNode} executing the tasks by the given {@link Executor}. The
+	 * {@link MultiThreadedExecutor} is scheduled by the {@link MultiThreadedScheduler}, the other executors are expected
+	 * to execute the tasks in the thread of the timer and are scheduled by the {@link SingleThreadedScheduler}.
+	 * @param timer is the {@link Timer} that will be used in the created {@link DEECoNode} instance.
+	 * @param factory is the {@link KnowledgeManagerFactory} creating the knowledge managers of the components.
+	 * @param runtimeLogWriters is the {@link RuntimeLogWriters} for the instance, or null to use the default ones.
+	 * @param executor is the {@link Executor} that will execute the tasks of the created {@link DEECoNode} instance.
+	 * @param plugins are the plugins that will be loaded into the {@link DEECoNode} instance.
+	 * @throws DEECoException Thrown if the construction of {@link DEECoNode} fails. In such case
+	 * please see the error output and log file for further information about the failure.
+	 */
+	public DEECoNode(int id, Timer timer, KnowledgeManagerFactory factory, RuntimeLogWriters runtimeLogWriters,
+			Executor executor, DEECoPlugin... plugins) throws DEECoException {
+		this.nodeId = id;
+		model = RuntimeMetadataFactoryExt.eINSTANCE.createRuntimeMetadata();
+		knowledgeManagerFactory = factory;
+		processor = new AnnotationProcessor(RuntimeMetadataFactoryExt.eINSTANCE, model, knowledgeManagerFactory);
+
+		initializeRuntime(timer, runtimeLogWriters, executor);
+		initializePlugins(plugins);
+	}
+
 	/**
 	 * Creates new instance of {@link DEECoNode} with the specified instance of {@link RuntimeLogger}.
 	 * Make sure that the {@link RuntimeLogger#init} method is called after this constructor returns.
@@ -159,8 +184,27 @@ public class DEECoNode implements DEECoContainer {
 	 * please see the error output and log file for further information about the failure.
 	 */
 	private void initializeRuntime(Timer timer, RuntimeLogWriters writers) throws DEECoException {
-		Executor executor = new SameThreadExecutor();
-		Scheduler scheduler = new SingleThreadedScheduler(executor, timer, this);
+		initializeRuntime(timer, writers, null);
+	}
+
+	/**
+	 * Initialize the runtime contained in the instance of {@link DEECoNode}.
+	 * @param timer is the {@link Timer} that will be used in the {@link RuntimeFramework}
+	 * specific to the instance of {@link DEECoNode}. 
+	 * @param executor is the {@link Executor} of the tasks, null for executing them in the thread of the timer.
+	 * @throws DEECoException Thrown if the construction of {@link DEECoNode} fails. In such case
+	 * please see the error output and log file for further information about the failure.
+	 */
+	private void initializeRuntime(Timer timer, RuntimeLogWriters writers, Executor executor) throws DEECoException {
+		Scheduler scheduler;
+		if (executor == null) {
+			executor = new SameThreadExecutor();
+		}
+		if (executor instanceof MultiThreadedExecutor) {
+			scheduler = new MultiThreadedScheduler(executor, timer, this);
+		} else {
+			scheduler = new SingleThreadedScheduler(executor, timer, this);
+		}
 		try {
 			if(writers != null){
 				runtimeLogger = new RuntimeLogger(timer, scheduler, writers);
@@ -1,6 +1,7 @@
 package cz.cuni.mff.d3s.deeco.runtime;
 
 import cz.cuni.mff.d3s.deeco.ensembles.EnsembleFactory;
+import cz.cuni.mff.d3s.deeco.executor.Executor;
 import cz.cuni.mff.d3s.deeco.integrity.RatingsManager;
 import cz.cuni.mff.d3s.deeco.knowledge.KnowledgeManagerContainer;
 import cz.cuni.mff.d3s.deeco.scheduler.Scheduler;
@@ -16,6 +17,7 @@ import cz.cuni.mff.d3s.deeco.scheduler.Scheduler;
 public interface RuntimeFramework extends DEECoPlugin {
 
 	Scheduler getScheduler();
+	Executor getExecutor();
 	KnowledgeManagerContainer getContainer();
 	RatingsManager getRatingsManager();
 	void registerEnsembleFactory(EnsembleFactory factory);
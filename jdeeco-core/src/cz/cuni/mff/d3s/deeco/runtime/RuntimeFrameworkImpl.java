@@ -760,6 +760,11 @@ public class RuntimeFrameworkImpl implements RuntimeFramework, ReplicaListener {
 		return scheduler;
 	}
 
+	@Override
+	public Executor getExecutor() {
+		return executor;
+	}
+
 	@Override
 	public KnowledgeManagerContainer getContainer() {
 		return kmContainer;
@@ -0,0 +1,352 @@
+package cz.cuni.mff.d3s.deeco.runtimelog;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import cz.cuni.mff.d3s.deeco.logging.Log;
+
+/**
+ * Encodes the runtime log records by another {@link RuntimeLogEncoder} in a dedicated
+ * writer thread, so the threads logging the records only enqueue them into a lock-free
+ * {@link RingBuffer}. The writer thread writes all the enqueued records in a batch and
+ * flushes the encoder when there are no more records to write.
+ * <p>
+ * When the buffer is full, the record is handled according to the {@link OverflowPolicy}.
+ * The records written with an index entry are never dropped, the logging thread waits for
+ * a free slot instead. The numbers of the written and dropped records are counted.
+ * </p>
+ * <p>
+ * The records are encoded after {@link #writeRecord(long, RuntimeLogRecord)} returns, so
+ * they must not be modified after they are logged. The offsets of the records are not
+ * known when they are enqueued, the methods writing them return -1. An {@link IOException}
+ * thrown by the encoder in the writer thread is rethrown by the following call of any of
+ * the writing methods; records rejected by the encoder for their values are counted as
+ * dropped.
+ * </p>
+ *
+ * @see RuntimeLogWriters#setAsynchronous(int, OverflowPolicy, int)
+ */
+public class AsyncRuntimeLogEncoder extends RuntimeLogEncoder {
+
+	/**
+	 * The way of handling the records logged when the buffer is full.
+	 */
+	public enum OverflowPolicy {
+		/**
+		 * The logging thread waits until there is a free slot in the buffer.
+		 */
+		BLOCK,
+		/**
+		 * The record is dropped.
+		 */
+		DROP,
+		/**
+		 * Every n-th of the records overflowing the buffer is kept as with {@link #BLOCK},
+		 * the rest is dropped.
+		 */
+		SAMPLE
+	}
+
+	/**
+	 * The longest time the writer thread sleeps when there are no records to write.
+	 */
+	private static final long IDLE_WAIT = TimeUnit.MILLISECONDS.toNanos(10);
+
+	/**
+	 * The time the logging thread sleeps between attempts to enqueue a record into
+	 * the full buffer or when waiting for the records to be written.
+	 */
+	private static final long FULL_WAIT = TimeUnit.MICROSECONDS.toNanos(50);
+
+	/**
+	 * A record waiting for the writer thread.
+	 */
+	private static final class Entry {
+		final long time;
+		final RuntimeLogRecord record;
+		final boolean indexed;
+
+		Entry(long time, RuntimeLogRecord record, boolean indexed) {
+			this.time = time;
+			this.record = record;
+			this.indexed = indexed;
+		}
+	}
+
+	private final RuntimeLogEncoder encoder;
+	private final RingBuffer<Entry> buffer;
+	private final OverflowPolicy policy;
+	private final int samplingPeriod;
+	private final Thread writerThread;
+
+	/**
+	 * The number of records enqueued into the {@link #buffer}.
+	 */
+	private final AtomicLong enqueued = new AtomicLong();
+	/**
+	 * The number of records taken from the {@link #buffer} by the writer thread.
+	 */
+	private volatile long processed;
+	private volatile long written;
+	private final AtomicLong dropped = new AtomicLong();
+	/**
+	 * The number of records that found the buffer full, used for sampling them.
+	 */
+	private final AtomicLong overflowing = new AtomicLong();
+
+	private volatile long lastIndexTime;
+	private volatile boolean sleeping;
+	private volatile boolean closed;
+	private volatile IOException failure;
+
+	/**
+	 * Creates the encoder and starts its writer thread.
+	 *
+	 * @param encoder
+	 *            The encoder writing the records.
+	 * @param capacity
+	 *            The number of records the buffer can hold, rounded up to a power of two.
+	 * @param policy
+	 *            The way of handling the records logged when the buffer is full.
+	 * @param samplingPeriod
+	 *            Every how many records overflowing the buffer one is kept with the
+	 *            {@link OverflowPolicy#SAMPLE} policy.
+	 * @throws IllegalArgumentException
+	 *             Thrown if the encoder or policy is null, or the capacity or sampling period
+	 *             is not positive.
+	 */
+	public AsyncRuntimeLogEncoder(RuntimeLogEncoder encoder, int capacity, OverflowPolicy policy,
+			int samplingPeriod) {
+		if (encoder == null)
+			throw new IllegalArgumentException(String.format("The argument \"%s\" is null.", "encoder"));
+		if (policy == null)
+			throw new IllegalArgumentException(String.format("The argument \"%s\" is null.", "policy"));
+		if (samplingPeriod <= 0)
+			throw new IllegalArgumentException(String.format(
+					"The argument \"%s\" has to be greater than 0.", "samplingPeriod"));
+
+		this.encoder = encoder;
+		this.buffer = new RingBuffer<>(capacity);
+		this.policy = policy;
+		this.samplingPeriod = samplingPeriod;
+		encoder.incrementReference();
+		lastIndexTime = encoder.getLastIndexTime();
+
+		writerThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				writeRecords();
+			}
+		}, "RuntimeLogWriter");
+		writerThread.setDaemon(true);
+		writerThread.start();
+	}
+
+	/**
+	 * Provides the number of records written by the encoder.
+	 */
+	public long getWrittenRecords() {
+		return written;
+	}
+
+	/**
+	 * Provides the number of records dropped because the buffer was full or the
+	 * encoder rejected them.
+	 */
+	public long getDroppedRecords() {
+		return dropped.get();
+	}
+
+	/**
+	 * Enqueues the record to be written.
+	 *
+	 * @return -1, the offset is not known until the record is written.
+	 */
+	@Override
+	public long writeRecord(long time, RuntimeLogRecord record) throws IOException {
+		checkFailure();
+		enqueue(new Entry(time, record, false), policy);
+		return -1;
+	}
+
+	/**
+	 * Enqueues the record to be written with the index entry, waiting for a free slot
+	 * in the buffer if needed.
+	 *
+	 * @return -1, the offset is not known until the record is written.
+	 */
+	@Override
+	public long writeIndexedRecord(long time, RuntimeLogRecord record) throws IOException {
+		checkFailure();
+		lastIndexTime = time;
+		enqueue(new Entry(time, record, true), OverflowPolicy.BLOCK);
+		return -1;
+	}
+
+	/**
+	 * Writes the index entry after all the records enqueued so far are written.
+	 */
+	@Override
+	public void writeIndex(long time, long dataOffset) throws IOException {
+		awaitWritten();
+		encoder.writeIndex(time, dataOffset);
+		lastIndexTime = time;
+	}
+
+	/**
+	 * Provides the time of the last index entry, including the entries of the records
+	 * not written yet.
+	 */
+	@Override
+	public long getLastIndexTime() {
+		return lastIndexTime;
+	}
+
+	@Override
+	public void writeSnapshotPeriod(long period, Class<? extends RuntimeLogRecord> snapshotType)
+			throws IOException {
+		checkFailure();
+		encoder.writeSnapshotPeriod(period, snapshotType);
+	}
+
+	/**
+	 * Waits until all the records enqueued so far are written and flushes the encoder.
+	 */
+	@Override
+	public void flush() throws IOException {
+		awaitWritten();
+		encoder.flush();
+	}
+
+	/**
+	 * Writes the remaining records, stops the writer thread and closes the encoder.
+	 */
+	@Override
+	protected void closeOutputs() throws IOException {
+		closed = true;
+		LockSupport.unpark(writerThread);
+		boolean interrupted = false;
+		while (writerThread.isAlive()) {
+			try {
+				writerThread.join();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		encoder.close();
+		checkFailure();
+	}
+
+	private void enqueue(Entry entry, OverflowPolicy policy) {
+		if (!buffer.offer(entry)) {
+			if (policy == OverflowPolicy.DROP || closed || (policy == OverflowPolicy.SAMPLE
+					&& overflowing.getAndIncrement() % samplingPeriod != 0)) {
+				dropped.incrementAndGet();
+				return;
+			}
+			while (!buffer.offer(entry)) {
+				if (closed) {
+					dropped.incrementAndGet();
+					return;
+				}
+				LockSupport.unpark(writerThread);
+				LockSupport.parkNanos(this, FULL_WAIT);
+			}
+		}
+		enqueued.incrementAndGet();
+		if (sleeping) {
+			LockSupport.unpark(writerThread);
+		}
+	}
+
+	/**
+	 * Waits until the writer thread processes all the records enqueued so far.
+	 */
+	private void awaitWritten() throws IOException {
+		checkFailure();
+		long target = enqueued.get();
+		while (processed < target && writerThread.isAlive()) {
+			LockSupport.unpark(writerThread);
+			LockSupport.parkNanos(this, FULL_WAIT);
+		}
+		checkFailure();
+	}
+
+	private void checkFailure() throws IOException {
+		IOException e = failure;
+		if (e != null) {
+			throw e;
+		}
+	}
+
+	/**
+	 * The loop of the writer thread, writing the records until the encoder is closed.
+	 */
+	private void writeRecords() {
+		boolean unflushed = false;
+		for (;;) {
+			Entry entry = buffer.poll();
+			if (entry == null) {
+				if (unflushed) {
+					// the end of the batch
+					flushEncoder();
+					unflushed = false;
+					continue;
+				}
+				sleeping = true;
+				entry = buffer.poll();
+				if (entry == null) {
+					if (closed) {
+						sleeping = false;
+						return;
+					}
+					LockSupport.parkNanos(this, IDLE_WAIT);
+					sleeping = false;
+					continue;
+				}
+				sleeping = false;
+			}
+			write(entry);
+			unflushed = true;
+		}
+	}
+
+	private void write(Entry entry) {
+		try {
+			if (entry.indexed) {
+				encoder.writeIndexedRecord(entry.time, entry.record);
+			} else {
+				encoder.writeRecord(entry.time, entry.record);
+			}
+			written++;
+		} catch (IOException e) {
+			fail(e);
+			dropped.incrementAndGet();
+		} catch (RuntimeException e) {
+			Log.e("Failed to log the record " + entry.record.getId(), e);
+			dropped.incrementAndGet();
+		} finally {
+			processed++;
+		}
+	}
+
+	private void flushEncoder() {
+		try {
+			encoder.flush();
+		} catch (IOException e) {
+			fail(e);
+		}
+	}
+
+	private void fail(IOException e) {
+		if (failure == null) {
+			Log.e("Failed to write the runtime log", e);
+			failure = e;
+		}
+	}
+}
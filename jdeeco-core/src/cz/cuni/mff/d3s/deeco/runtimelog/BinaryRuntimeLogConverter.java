@@ -0,0 +1,136 @@
+package cz.cuni.mff.d3s.deeco.runtimelog;
+
+import static cz.cuni.mff.d3s.deeco.runtimelog.BinaryRuntimeLogFormat.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Converts the binary runtime log written by the {@link BinaryRuntimeLogEncoder}
+ * to the <a href="http://en.wikipedia.org/wiki/XML">XML</a> data and index files
+ * as written by the {@link XmlRuntimeLogEncoder}. The offsets in the index are
+ * translated to the offsets of the records in the converted data file. The
+ * snapshot period file has the same format in both logs and is left as is.
+ * <p>
+ * Run from the command line with the directory of the log files as the only
+ * argument, {@value RuntimeLogWriters#DEFAULT_LOG_PATH} by default.
+ * </p>
+ */
+public final class BinaryRuntimeLogConverter {
+
+	private BinaryRuntimeLogConverter() {
+	}
+
+	/**
+	 * Converts the binary log in the given directory to the
+	 * <a href="http://en.wikipedia.org/wiki/XML">XML</a> files in the same directory.
+	 *
+	 * @param logPath
+	 *            The directory of the log files.
+	 * @throws IOException
+	 *             Thrown if the log cannot be read or the files cannot be written.
+	 */
+	public static void convert(String logPath) throws IOException {
+		try (FileChannel dataIn = FileChannel.open(new File(logPath + DEFAULT_DATA_FILE_PATH).toPath(),
+				StandardOpenOption.READ);
+				FileChannel indexIn = FileChannel.open(new File(logPath + DEFAULT_INDEX_FILE_PATH).toPath(),
+						StandardOpenOption.READ)) {
+			Writer dataOut = new OutputStreamWriter(
+					new FileOutputStream(logPath + RuntimeLogWriters.DEFAULT_DATA_FILE_PATH),
+					RuntimeLogWriters.CHARSET_NAME);
+			Writer indexOut = new OutputStreamWriter(
+					new FileOutputStream(logPath + RuntimeLogWriters.DEFAULT_INDEX_FILE_PATH),
+					RuntimeLogWriters.CHARSET_NAME);
+			convert(dataIn, indexIn, new RuntimeLogWriters(logPath, dataOut, indexOut, new StringWriter()));
+		}
+	}
+
+	/**
+	 * Converts the binary log read from the given channels. The data and index are
+	 * written into the given <em>writers</em>, which are closed afterwards.
+	 *
+	 * @param dataIn
+	 *            The channel of the binary data, positioned at the beginning.
+	 * @param indexIn
+	 *            The channel of the binary index, positioned at the beginning.
+	 * @param writers
+	 *            The writers of the <a href="http://en.wikipedia.org/wiki/XML">XML</a> files.
+	 * @throws IOException
+	 *             Thrown if the log cannot be read or written.
+	 */
+	public static void convert(ReadableByteChannel dataIn, ReadableByteChannel indexIn, RuntimeLogWriters writers)
+			throws IOException {
+		XmlRuntimeLogEncoder encoder = new XmlRuntimeLogEncoder(writers);
+		encoder.incrementReference();
+		try {
+			BinaryRuntimeLogReader reader = new BinaryRuntimeLogReader(dataIn);
+			IndexReader index = new IndexReader(indexIn);
+			boolean hasIndex = index.next();
+			while (reader.next()) {
+				long xmlOffset = encoder.writeRecord(reader.getTime(), reader.getId(), reader.getEventType(),
+						reader.getValues());
+				// skip the entries not pointing to any record
+				while (hasIndex && index.offset < reader.getOffset()) {
+					hasIndex = index.next();
+				}
+				while (hasIndex && index.offset == reader.getOffset()) {
+					encoder.writeIndex(index.time, xmlOffset);
+					hasIndex = index.next();
+				}
+			}
+		} finally {
+			encoder.close();
+		}
+	}
+
+	/**
+	 * Reads the entries of the binary index one by one.
+	 */
+	private static class IndexReader {
+		private final ReadableByteChannel channel;
+		private final ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY_SIZE);
+		long time;
+		long offset;
+
+		IndexReader(ReadableByteChannel channel) throws IOException {
+			this.channel = channel;
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			if (!read(header) || header.getInt() != MAGIC || header.get() != VERSION) {
+				throw new IOException("The index is not an index of a binary runtime log.");
+			}
+		}
+
+		boolean next() throws IOException {
+			((Buffer) entry).clear();
+			if (!read(entry)) {
+				return false;
+			}
+			time = entry.getLong();
+			offset = entry.getLong();
+			return true;
+		}
+
+		private boolean read(ByteBuffer buffer) throws IOException {
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer) < 0) {
+					return false;
+				}
+			}
+			((Buffer) buffer).flip();
+			return true;
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		convert(args.length > 0 ? args[0] : RuntimeLogWriters.DEFAULT_LOG_PATH);
+	}
+}
@@ -0,0 +1,342 @@
+package cz.cuni.mff.d3s.deeco.runtimelog;
+
+import static cz.cuni.mff.d3s.deeco.runtimelog.BinaryRuntimeLogFormat.*;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.HashMap;
+import java.util.Map;
+
+import cz.cuni.mff.d3s.deeco.logging.Log;
+
+/**
+ * Encodes the runtime log records into the compact binary format described by
+ * {@link BinaryRuntimeLogFormat}. The records are encoded straight into bytes,
+ * without formatting them into strings first, and appended into a buffer that
+ * is written to the data channel (e.g. a {@link FileChannel}) when full or when
+ * an index entry is written. Numbers and booleans are stored in their binary
+ * form, other values by their {@link Object#toString()}, as in the
+ * <a href="http://en.wikipedia.org/wiki/XML">XML</a> log. Short strings, such
+ * as the ids, event types and names of the values, are stored once and referred
+ * to by the following records until an indexed record is written.
+ * <p>
+ * The log is written into the {@link BinaryRuntimeLogWriters}, the snapshot periods
+ * in the same text format as by the {@link XmlRuntimeLogEncoder}. The log can be converted to the
+ * <a href="http://en.wikipedia.org/wiki/XML">XML</a> files by the
+ * {@link BinaryRuntimeLogConverter}.
+ * </p>
+ */
+public class BinaryRuntimeLogEncoder extends RuntimeLogEncoder {
+
+	/**
+	 * The size of the buffer of the data channel.
+	 */
+	static final int BUFFER_SIZE = 1 << 16;
+
+	/**
+	 * The initial size of the buffer the records are encoded into.
+	 */
+	private static final int RECORD_BUFFER_SIZE = 1 << 10;
+
+	/**
+	 * The directory of the log files used in the error messages.
+	 */
+	private final String logPath;
+
+	private final BinaryRuntimeLogWriters writers;
+
+	private final WritableByteChannel dataChannel;
+	private final WritableByteChannel indexChannel;
+	private final Writer snapshotPeriodWriter;
+
+	/**
+	 * The data to be written into the {@link #dataChannel}.
+	 */
+	private final ByteBuffer dataBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+	/**
+	 * The record being encoded.
+	 */
+	private ByteBuffer record = ByteBuffer.allocate(RECORD_BUFFER_SIZE);
+	private final ByteBuffer indexEntry = ByteBuffer.allocate(INDEX_ENTRY_SIZE);
+
+	/**
+	 * The indices of the symbols stored in the data since the last record with the
+	 * {@link BinaryRuntimeLogFormat#RESET_SYMBOLS} flag.
+	 */
+	private final Map<String, Integer> symbols = new HashMap<>();
+	/**
+	 * Whether the next record clears the table of symbols.
+	 */
+	private boolean resetSymbols = true;
+
+	/**
+	 * The number of bytes written into the {@link #dataChannel}.
+	 */
+	private long writtenDataBytes;
+	/**
+	 * The time of the last index entry.
+	 */
+	private long lastIndexTime;
+
+	/**
+	 * Creates the encoder writing into the given <em>writers</em>.
+	 *
+	 * @param writers
+	 *            specifies the {@link BinaryRuntimeLogWriters} for the <em>runtime data</em>.
+	 * @throws IOException
+	 *             Thrown if there is a problem using the writers.
+	 * @throws IllegalArgumentException
+	 *             Thrown if the writers argument is null.
+	 */
+	public BinaryRuntimeLogEncoder(BinaryRuntimeLogWriters writers) throws IOException {
+		if (writers == null)
+			throw new IllegalArgumentException(String.format("The argument \"%s\" is null.", "writers"));
+
+		this.writers = writers;
+		logPath = writers.logPath;
+		dataChannel = writers.dataChannel;
+		indexChannel = writers.indexChannel;
+		snapshotPeriodWriter = writers.snapshotPeriodWriter;
+
+		writeHeaders();
+	}
+
+	private void writeHeaders() throws IOException {
+		dataBuffer.putInt(MAGIC).put(VERSION);
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		// the buffers are positioned through Buffer, ByteBuffer overrides these methods only since Java 9
+		((Buffer) header.putInt(MAGIC).put(VERSION)).flip();
+		write(indexChannel, header, DEFAULT_INDEX_FILE_PATH);
+	}
+
+	@Override
+	public synchronized long writeRecord(long time, RuntimeLogRecord logRecord) throws IOException {
+		((Buffer) record).clear();
+		((Buffer) record).position(LENGTH_SIZE);
+		if (resetSymbols || symbols.size() >= MAX_SYMBOLS) {
+			symbols.clear();
+			record.put(RESET_SYMBOLS);
+			resetSymbols = false;
+		} else {
+			record.put((byte) 0);
+		}
+		try {
+			ensure(8);
+			record.putLong(time);
+			putString(logRecord.getId());
+			putString(logRecord.getClass().getCanonicalName());
+			putEntries(logRecord.getValues());
+		} catch (RuntimeException e) {
+			// the symbols of the record are not written
+			resetSymbols = true;
+			throw e;
+		}
+		record.putInt(0, record.position() - LENGTH_SIZE);
+		((Buffer) record).flip();
+
+		long dataOffset = writtenDataBytes + dataBuffer.position();
+		if (record.remaining() > dataBuffer.remaining()) {
+			flushData();
+		}
+		if (record.remaining() > dataBuffer.remaining()) {
+			// larger than the whole buffer
+			writtenDataBytes += write(dataChannel, record, DEFAULT_DATA_FILE_PATH);
+		} else {
+			dataBuffer.put(record);
+		}
+		return dataOffset;
+	}
+
+	/**
+	 * Writes the record clearing the table of symbols, so it can be read without
+	 * the preceding records, and the index entry pointing to it.
+	 */
+	@Override
+	public synchronized long writeIndexedRecord(long time, RuntimeLogRecord logRecord) throws IOException {
+		resetSymbols = true;
+		long dataOffset = writeRecord(time, logRecord);
+		writeIndex(time, dataOffset);
+		return dataOffset;
+	}
+
+	@Override
+	public synchronized void writeIndex(long time, long dataOffset) throws IOException {
+		flushData();
+		((Buffer) indexEntry).clear();
+		((Buffer) indexEntry.putLong(time).putLong(dataOffset)).flip();
+		write(indexChannel, indexEntry, DEFAULT_INDEX_FILE_PATH);
+		lastIndexTime = time;
+	}
+
+	@Override
+	public synchronized long getLastIndexTime() {
+		return lastIndexTime;
+	}
+
+	@Override
+	public synchronized void writeSnapshotPeriod(long period, Class<? extends RuntimeLogRecord> snapshotType)
+			throws IOException {
+		try {
+			snapshotPeriodWriter.write(String.format("%d %s\n", period, snapshotType.getCanonicalName()));
+			snapshotPeriodWriter.flush();
+		} catch (IOException e) {
+			Log.e("Failed to write to the log file " + logPath + RuntimeLogWriters.DEFAULT_PERIOD_FILE_PATH, e);
+			throw e;
+		}
+	}
+
+	@Override
+	public synchronized void flush() throws IOException {
+		flushData();
+		snapshotPeriodWriter.flush();
+	}
+
+	@Override
+	protected synchronized void closeOutputs() throws IOException {
+		flushData();
+		writers.close();
+	}
+
+	/**
+	 * Writes the buffered data into the {@link #dataChannel}.
+	 */
+	private void flushData() throws IOException {
+		((Buffer) dataBuffer).flip();
+		writtenDataBytes += write(dataChannel, dataBuffer, DEFAULT_DATA_FILE_PATH);
+		((Buffer) dataBuffer).clear();
+	}
+
+	private int write(WritableByteChannel channel, ByteBuffer buffer, String fileName) throws IOException {
+		int written = buffer.remaining();
+		try {
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		} catch (IOException e) {
+			Log.e("Failed to write to the log file " + logPath + fileName, e);
+			throw e;
+		}
+		return written;
+	}
+
+	/**
+	 * Ensures the {@link #record} buffer has at least the given number of bytes remaining.
+	 */
+	private void ensure(int bytes) {
+		if (record.remaining() < bytes) {
+			ByteBuffer larger = ByteBuffer.allocate(Math.max(record.capacity() * 2, record.position() + bytes));
+			((Buffer) record).flip();
+			larger.put(record);
+			record = larger;
+		}
+	}
+
+	private void putEntries(Map<?, ?> values) {
+		putVarint(values.size());
+		for (Map.Entry<?, ?> entry : values.entrySet()) {
+			putString(entry.getKey().toString());
+			putValue(entry.getValue());
+		}
+	}
+
+	private void putValue(Object value) {
+		if (value == null) throw new IllegalArgumentException(String.format(
+				"The argument \"%s\" is null.", "knowledge"));
+
+		ensure(9);
+		if (value instanceof Iterable) {
+			record.put(LIST);
+			for (Object item : (Iterable<?>) value) {
+				putValue(item);
+			}
+			ensure(1);
+			record.put(END);
+		} else if (value instanceof Map) {
+			record.put(MAP);
+			putEntries((Map<?, ?>) value);
+		} else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+			record.put(INTEGER);
+			putVarint(zigZag(((Number) value).intValue()));
+		} else if (value instanceof Long) {
+			record.put(LONG);
+			putVarint(zigZag((Long) value));
+		} else if (value instanceof Double) {
+			record.put(DOUBLE).putDouble((Double) value);
+		} else if (value instanceof Float) {
+			record.put(FLOAT).putFloat((Float) value);
+		} else if (value instanceof Boolean) {
+			record.put((Boolean) value ? TRUE : FALSE);
+		} else {
+			record.put(TEXT);
+			putString(value.toString());
+		}
+	}
+
+	private static long zigZag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	private void putVarint(long value) {
+		ensure(10);
+		while ((value & ~0x7fL) != 0) {
+			record.put((byte) ((value & 0x7f) | 0x80));
+			value >>>= 7;
+		}
+		record.put((byte) value);
+	}
+
+	/**
+	 * Writes the reference to the symbol of the string, or the string itself if
+	 * it is not in the table of symbols yet.
+	 */
+	private void putString(String value) {
+		Integer symbol = symbols.get(value);
+		if (symbol != null) {
+			putVarint(FIRST_SYMBOL + symbol);
+			return;
+		}
+		if (value.length() <= MAX_SYMBOL_LENGTH && symbols.size() < MAX_SYMBOLS) {
+			symbols.put(value, symbols.size());
+			putVarint(NEW_SYMBOL);
+		} else {
+			putVarint(LITERAL);
+		}
+		putUtf8(value);
+	}
+
+	/**
+	 * Writes the string in UTF-8 without allocating its bytes. Unpaired
+	 * surrogates are replaced by '?' as by {@link String#getBytes(String)}.
+	 */
+	private void putUtf8(String value) {
+		long length = RuntimeLogWriter.encodedLength(value);
+		putVarint(length);
+		ensure((int) length);
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c < 0x80) {
+				record.put((byte) c);
+			} else if (c < 0x800) {
+				record.put((byte) (0xc0 | (c >> 6)));
+				record.put((byte) (0x80 | (c & 0x3f)));
+			} else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+					&& Character.isLowSurrogate(value.charAt(i + 1))) {
+				int codePoint = Character.toCodePoint(c, value.charAt(++i));
+				record.put((byte) (0xf0 | (codePoint >> 18)));
+				record.put((byte) (0x80 | ((codePoint >> 12) & 0x3f)));
+				record.put((byte) (0x80 | ((codePoint >> 6) & 0x3f)));
+				record.put((byte) (0x80 | (codePoint & 0x3f)));
+			} else if (Character.isSurrogate(c)) {
+				record.put((byte) '?');
+			} else {
+				record.put((byte) (0xe0 | (c >> 12)));
+				record.put((byte) (0x80 | ((c >> 6) & 0x3f)));
+				record.put((byte) (0x80 | (c & 0x3f)));
+			}
+		}
+	}
+}
@@ -0,0 +1,112 @@
+package cz.cuni.mff.d3s.deeco.runtimelog;
+
+/**
+ * Constants of the binary runtime log written by the {@link BinaryRuntimeLogEncoder}
+ * and read by the {@link BinaryRuntimeLogReader}.
+ * <p>
+ * Both the data and the index file start with the {@link #MAGIC} number and the
+ * {@link #VERSION} of the format. All the numbers are big-endian.
+ * </p>
+ * <p>
+ * Each record in the data file is prefixed by its length (4 bytes, not including
+ * the prefix itself), followed by the flags (1 byte), the time (8 bytes), the id
+ * and the event type (strings), the number of values (varint) and the values as
+ * pairs of the name (string) and the value. A value starts with its tag followed by the payload:
+ * </p>
+ * <ul>
+ * <li>{@link #TEXT} - string, the {@link Object#toString()} of values of other types</li>
+ * <li>{@link #INTEGER} - zig-zag varint of {@link Integer}, {@link Short} and {@link Byte} values</li>
+ * <li>{@link #LONG} - zig-zag varint</li>
+ * <li>{@link #DOUBLE}, {@link #FLOAT} - 8 and 4 bytes of IEEE 754</li>
+ * <li>{@link #FALSE}, {@link #TRUE} - no payload</li>
+ * <li>{@link #LIST} - the values of the {@link Iterable} followed by the {@link #END} tag</li>
+ * <li>{@link #MAP} - number of entries (varint) followed by the pairs of name (string) and value</li>
+ * </ul>
+ * <p>
+ * Strings start with a varint reference. The {@link #LITERAL} and {@link #NEW_SYMBOL}
+ * references are followed by the length of the string in bytes (varint) and its
+ * UTF-8 bytes, a {@link #NEW_SYMBOL} is also appended to the table of symbols.
+ * Other references refer to the symbol with the index of the reference minus
+ * {@link #FIRST_SYMBOL} in the table. The table is cleared before reading the
+ * records with the {@link #RESET_SYMBOLS} flag, which includes all the records
+ * referred to by the index, so the data can be read from any of them.
+ * Varint is the unsigned LEB128 encoding, 7 bits per byte with the most significant
+ * bit set in all but the last byte.
+ * </p>
+ * <p>
+ * The index file consists of fixed-size entries of the time and the offset of the
+ * record in the data file (8 bytes each).
+ * </p>
+ */
+final class BinaryRuntimeLogFormat {
+
+	/**
+	 * The first 4 bytes of the binary log files, "DLOG".
+	 */
+	static final int MAGIC = 0x444c4f47;
+
+	/**
+	 * The version of the format following the {@link #MAGIC}.
+	 */
+	static final byte VERSION = 1;
+
+	/**
+	 * The size of the file header.
+	 */
+	static final int HEADER_SIZE = 5;
+
+	/**
+	 * The size of the record length prefix.
+	 */
+	static final int LENGTH_SIZE = 4;
+
+	/**
+	 * The size of an entry in the index file.
+	 */
+	static final int INDEX_ENTRY_SIZE = 16;
+
+	/**
+	 * Specifies the default name of the binary data file.
+	 */
+	static final String DEFAULT_DATA_FILE_PATH = "/runtimeData.bin";
+
+	/**
+	 * Specifies the default name of the binary index file.
+	 */
+	static final String DEFAULT_INDEX_FILE_PATH = "/dataIndex.bin";
+
+	/**
+	 * The flag of the records clearing the table of symbols.
+	 */
+	static final byte RESET_SYMBOLS = 1;
+
+	/**
+	 * The maximum number of symbols in the table, the table is cleared before it
+	 * would be exceeded.
+	 */
+	static final int MAX_SYMBOLS = 4096;
+
+	/**
+	 * The maximum length of the strings stored in the table of symbols, longer
+	 * strings are stored as literals.
+	 */
+	static final int MAX_SYMBOL_LENGTH = 64;
+
+	static final int LITERAL = 0;
+	static final int NEW_SYMBOL = 1;
+	static final int FIRST_SYMBOL = 2;
+
+	static final byte TEXT = 0;
+	static final byte INTEGER = 1;
+	static final byte LONG = 2;
+	static final byte DOUBLE = 3;
+	static final byte FLOAT = 4;
+	static final byte FALSE = 5;
+	static final byte TRUE = 6;
+	static final byte LIST = 7;
+	static final byte MAP = 8;
+	static final byte END = 9;
+
+	private BinaryRuntimeLogFormat() {
+	}
+}
@@ -0,0 +1,145 @@
+package cz.cuni.mff.d3s.deeco.runtimelog;
+
+import static cz.cuni.mff.d3s.deeco.runtimelog.BinaryRuntimeLogFormat.*;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+
+/**
+ * Looks up the entries of the binary runtime log index written by the
+ * {@link BinaryRuntimeLogEncoder}. The entries have a fixed size and are ordered by
+ * time, so they are found by a binary search reading only the visited entries from the
+ * channel, without loading the index. The entries appended to the index while it is
+ * open are found as well.
+ */
+public class BinaryRuntimeLogIndex implements Closeable {
+
+	private final SeekableByteChannel channel;
+	private final ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY_SIZE);
+
+	/**
+	 * The number of the entry in the {@link #entry} buffer, -1 if none.
+	 */
+	private long cachedEntry = -1;
+	private long time;
+	private long offset;
+
+	/**
+	 * Creates the index read from the given channel.
+	 *
+	 * @param indexIn
+	 *            The channel of the index.
+	 * @throws IOException
+	 *             Thrown if the index cannot be read or is not a binary runtime log index.
+	 * @throws IllegalArgumentException
+	 *             Thrown if the indexIn argument is null.
+	 */
+	public BinaryRuntimeLogIndex(SeekableByteChannel indexIn) throws IOException {
+		if (indexIn == null)
+			throw new IllegalArgumentException(String.format("The argument \"%s\" is null.", "indexIn"));
+
+		channel = indexIn;
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		if (!read(header, 0) || header.getInt() != MAGIC || header.get() != VERSION) {
+			throw new IOException("The index is not an index of a binary runtime log.");
+		}
+	}
+
+	/**
+	 * Provides the number of the complete entries in the index.
+	 */
+	public long size() throws IOException {
+		return (channel.size() - HEADER_SIZE) / INDEX_ENTRY_SIZE;
+	}
+
+	/**
+	 * Provides the time of the given entry.
+	 *
+	 * @param index
+	 *            The number of the entry, starting from 0.
+	 * @throws IOException
+	 *             Thrown if the entry cannot be read.
+	 */
+	public long getTime(long index) throws IOException {
+		readEntry(index);
+		return time;
+	}
+
+	/**
+	 * Provides the offset of the record in the data the given entry refers to.
+	 *
+	 * @param index
+	 *            The number of the entry, starting from 0.
+	 * @throws IOException
+	 *             Thrown if the entry cannot be read.
+	 */
+	public long getOffset(long index) throws IOException {
+		readEntry(index);
+		return offset;
+	}
+
+	/**
+	 * Finds the last entry with the time lower than the given one. The records logged
+	 * since the given time follow the record the entry refers to.
+	 *
+	 * @param time
+	 *            The time to search for.
+	 * @return The number of the entry, or -1 if all the entries have a greater or equal time.
+	 * @throws IOException
+	 *             Thrown if the entries cannot be read.
+	 */
+	public long findBefore(long time) throws IOException {
+		long low = 0;
+		long high = size() - 1;
+		while (low <= high) {
+			long middle = (low + high) >>> 1;
+			if (getTime(middle) < time) {
+				low = middle + 1;
+			} else {
+				high = middle - 1;
+			}
+		}
+		return high;
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	private void readEntry(long index) throws IOException {
+		if (index == cachedEntry) {
+			return;
+		}
+		if (index < 0) {
+			throw new IndexOutOfBoundsException("Index entry " + index);
+		}
+		((Buffer) entry).clear();
+		if (!read(entry, HEADER_SIZE + index * INDEX_ENTRY_SIZE)) {
+			throw new EOFException("No index entry " + index);
+		}
+		time = entry.getLong();
+		offset = entry.getLong();
+		cachedEntry = index;
+	}
+
+	/**
+	 * Fills the buffer from the given position of the {@link #channel}.
+	 *
+	 * @return False if the end of the index was reached before.
+	 */
+	private boolean read(ByteBuffer buffer, long position) throws IOException {
+		channel.position(position);
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer) < 0) {
+				return false;
+			}
+		}
+		((Buffer) buffer).flip();
+		return true;
+	}
+}
@@ -0,0 +1,457 @@
+package cz.cuni.mff.d3s.deeco.runtimelog;
+
+import static cz.cuni.mff.d3s.deeco.runtimelog.BinaryRuntimeLogFormat.*;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Queries the binary runtime log written by the {@link BinaryRuntimeLogEncoder} by time.
+ * The {@link BinaryRuntimeLogIndex} is used to seek directly to the first record of the
+ * requested time window, so the time of a query does not depend on the size of the log,
+ * only on the number of records in the window. The records are read lazily while they
+ * are iterated over.
+ * <p>
+ * The state of a component at a given time is reconstructed from the last snapshot of
+ * the component logged before that time and the records of the component logged after it.
+ * The snapshot is searched for since the time given by the period of the snapshot type in
+ * the snapshot period table, as written by the {@link RuntimeLogger#registerSnapshotPeriod(long, Class)}.
+ * </p>
+ * <p>
+ * The records of each component are expected to be logged in the order of their times.
+ * The records of different components are logged in the order of their times by the
+ * sequential timers, but the {@link cz.cuni.mff.d3s.deeco.timer.ParallelDiscreteEventTimer}
+ * executes the events of a window of the simulation in parallel, so their records are
+ * logged in any order within the window. The length of the windows has to be given to the
+ * query of such a log, which then starts reading one window before the requested time
+ * window and stops one window after it. A record logged out of order by more than the
+ * given window is reported by an {@link IOException}.
+ * </p>
+ * <p>
+ * Each iteration over the records reads the data by its own reader, so the iterations
+ * can be interleaved. The query is not thread-safe.
+ * </p>
+ */
+public class BinaryRuntimeLogQuery implements Closeable {
+
+	private final SeekableByteChannel dataIn;
+	private final BinaryRuntimeLogIndex index;
+
+	/**
+	 * The maximal difference between the time of a record and the time of a record logged
+	 * before it.
+	 */
+	private final long disorder;
+
+	/**
+	 * The snapshot periods by the canonical names of the snapshot types.
+	 */
+	private final Map<String, Long> snapshotPeriods = new HashMap<>();
+
+	/**
+	 * Opens the binary log in the given directory, with the records logged in the order
+	 * of their times.
+	 *
+	 * @param logPath
+	 *            The directory of the log files.
+	 * @throws IOException
+	 *             Thrown if the log files cannot be read.
+	 * @throws IllegalArgumentException
+	 *             Thrown if the logPath argument is null.
+	 */
+	public BinaryRuntimeLogQuery(String logPath) throws IOException {
+		this(logPath, 0);
+	}
+
+	/**
+	 * Opens the binary log in the given directory.
+	 *
+	 * @param logPath
+	 *            The directory of the log files.
+	 * @param window
+	 *            The length of the windows of the simulation in which the records were
+	 *            logged in any order, as given by the
+	 *            {@link cz.cuni.mff.d3s.deeco.timer.ParallelDiscreteEventTimer#getLookahead()}.
+	 *            A window of at most 1 ms means the records were logged in the order of their times.
+	 * @throws IOException
+	 *             Thrown if the log files cannot be read.
+	 * @throws IllegalArgumentException
+	 *             Thrown if the logPath argument is null.
+	 */
+	public BinaryRuntimeLogQuery(String logPath, long window) throws IOException {
+		if (logPath == null)
+			throw new IllegalArgumentException(String.format("The argument \"%s\" is null.", "logPath"));
+
+		disorder = Math.max(window - 1, 0);
+		dataIn = FileChannel.open(new File(logPath + DEFAULT_DATA_FILE_PATH).toPath(),
+				StandardOpenOption.READ);
+		try {
+			// checks the header of the data
+			new BinaryRuntimeLogReader(dataIn);
+			index = new BinaryRuntimeLogIndex(FileChannel.open(
+					new File(logPath + DEFAULT_INDEX_FILE_PATH).toPath(), StandardOpenOption.READ));
+		} catch (IOException e) {
+			dataIn.close();
+			throw e;
+		}
+		File periodFile = new File(logPath + RuntimeLogWriters.DEFAULT_PERIOD_FILE_PATH);
+		if (periodFile.exists()) {
+			try (Reader periodIn = new InputStreamReader(new FileInputStream(periodFile),
+					RuntimeLogWriters.CHARSET_NAME)) {
+				readSnapshotPeriods(periodIn);
+			}
+		}
+	}
+
+	/**
+	 * Opens the binary log read from the given channels, with the records logged in the
+	 * order of their times.
+	 *
+	 * @param dataIn
+	 *            The channel of the binary data.
+	 * @param indexIn
+	 *            The channel of the binary index.
+	 * @param periodIn
+	 *            The reader of the snapshot period table, read whole by the constructor.
+	 * @throws IOException
+	 *             Thrown if the log cannot be read.
+	 * @throws IllegalArgumentException
+	 *             Thrown if any of the arguments is null.
+	 */
+	public BinaryRuntimeLogQuery(SeekableByteChannel dataIn, SeekableByteChannel indexIn, Reader periodIn)
+			throws IOException {
+		this(dataIn, indexIn, periodIn, 0);
+	}
+
+	/**
+	 * Opens the binary log read from the given channels.
+	 *
+	 * @param dataIn
+	 *            The channel of the binary data.
+	 * @param indexIn
+	 *            The channel of the binary index.
+	 * @param periodIn
+	 *            The reader of the snapshot period table, read whole by the constructor.
+	 * @param window
+	 *            The length of the windows of the simulation in which the records were
+	 *            logged in any order. A window of at most 1 ms means the records were logged
+	 *            in the order of their times.
+	 * @throws IOException
+	 *             Thrown if the log cannot be read.
+	 * @throws IllegalArgumentException
+	 *             Thrown if any of the arguments is null.
+	 */
+	public BinaryRuntimeLogQuery(SeekableByteChannel dataIn, SeekableByteChannel indexIn, Reader periodIn,
+			long window) throws IOException {
+		if (dataIn == null)
+			throw new IllegalArgumentException(String.format("The argument \"%s\" is null.", "dataIn"));
+		if (indexIn == null)
+			throw new IllegalArgumentException(String.format("The argument \"%s\" is null.", "indexIn"));
+		if (periodIn == null)
+			throw new IllegalArgumentException(String.format("The argument \"%s\" is null.", "periodIn"));
+
+		disorder = Math.max(window - 1, 0);
+		this.dataIn = dataIn;
+		// checks the header of the data
+		new BinaryRuntimeLogReader(dataIn);
+		index = new BinaryRuntimeLogIndex(indexIn);
+		readSnapshotPeriods(periodIn);
+	}
+
+	private void readSnapshotPeriods(Reader periodIn) throws IOException {
+		BufferedReader lines = new BufferedReader(periodIn);
+		for (String line = lines.readLine(); line != null; line = lines.readLine()) {
+			int separator = line.indexOf(' ');
+			if (separator < 0) {
+				continue;
+			}
+			long period;
+			try {
+				period = Long.parseLong(line.substring(0, separator));
+			} catch (NumberFormatException e) {
+				throw new IOException("Malformed snapshot period: " + line, e);
+			}
+			String snapshotType = line.substring(separator + 1).trim();
+			Long registered = snapshotPeriods.get(snapshotType);
+			if (registered == null || registered < period) {
+				snapshotPeriods.put(snapshotType, period);
+			}
+		}
+	}
+
+	/**
+	 * Provides the longest period registered for the given snapshot type.
+	 *
+	 * @return The period in milliseconds, or -1 if the type is not in the snapshot period table.
+	 */
+	public long getSnapshotPeriod(Class<? extends RuntimeLogRecord> snapshotType) {
+		Long period = snapshotPeriods.get(snapshotType.getCanonicalName());
+		return period != null ? period : -1;
+	}
+
+	/**
+	 * Provides the records logged in the given time window.
+	 *
+	 * @param from
+	 *            The time of the first records, inclusive.
+	 * @param to
+	 *            The time of the last records, inclusive.
+	 * @return The records, read from the log while being iterated over. An {@link IOException}
+	 *         is thrown by the iterator as an {@link UncheckedIOException}.
+	 */
+	public Iterable<RuntimeLogEntry> getRecords(long from, long to) {
+		return getRecords(from, to, null);
+	}
+
+	/**
+	 * Provides the records of the given type logged in the given time window.
+	 *
+	 * @param from
+	 *            The time of the first records, inclusive.
+	 * @param to
+	 *            The time of the last records, inclusive.
+	 * @param type
+	 *            The type of the records, including its subtypes available to its class loader,
+	 *            or null for all the records.
+	 * @return The records, read from the log while being iterated over. An {@link IOException}
+	 *         is thrown by the iterator as an {@link UncheckedIOException}.
+	 */
+	public Iterable<RuntimeLogEntry> getRecords(final long from, final long to,
+			final Class<? extends RuntimeLogRecord> type) {
+		return new Iterable<RuntimeLogEntry>() {
+			@Override
+			public Iterator<RuntimeLogEntry> iterator() {
+				return new RecordIterator(from, to, type == null ? null : new TypeFilter(type));
+			}
+		};
+	}
+
+	/**
+	 * Reconstructs the state of the component at the given time.
+	 *
+	 * @param id
+	 *            The {@link RuntimeLogRecord#getId()} of the component.
+	 * @param time
+	 *            The time of the state.
+	 * @param snapshotType
+	 *            The type of the snapshots of the component. If it is not in the snapshot
+	 *            period table, the log is read from the beginning.
+	 * @return The state, or null if no snapshot of the component was logged before the time.
+	 * @throws IOException
+	 *             Thrown if the log cannot be read.
+	 * @throws IllegalArgumentException
+	 *             Thrown if the id or snapshotType argument is null.
+	 */
+	public ComponentState getState(String id, long time, Class<? extends RuntimeLogRecord> snapshotType)
+			throws IOException {
+		if (id == null)
+			throw new IllegalArgumentException(String.format("The argument \"%s\" is null.", "id"));
+		if (snapshotType == null)
+			throw new IllegalArgumentException(String.format("The argument \"%s\" is null.", "snapshotType"));
+
+		long period = getSnapshotPeriod(snapshotType);
+		long from = period >= 0 ? time - period : Long.MIN_VALUE;
+		TypeFilter snapshots = new TypeFilter(snapshotType);
+		RuntimeLogEntry snapshot = null;
+		List<RuntimeLogEntry> events = new ArrayList<>();
+		try {
+			for (RuntimeLogEntry entry : getRecords(from, time)) {
+				if (!id.equals(entry.getId())) {
+					continue;
+				}
+				if (snapshots.matches(entry.getEventType())) {
+					snapshot = entry;
+					events.clear();
+				} else if (snapshot != null) {
+					events.add(entry);
+				}
+			}
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		return snapshot != null ? new ComponentState(snapshot, events) : null;
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			dataIn.close();
+		} finally {
+			index.close();
+		}
+	}
+
+	/**
+	 * The state of a component reconstructed from the log.
+	 */
+	public static class ComponentState {
+		private final RuntimeLogEntry snapshot;
+		private final List<RuntimeLogEntry> events;
+
+		ComponentState(RuntimeLogEntry snapshot, List<RuntimeLogEntry> events) {
+			this.snapshot = snapshot;
+			this.events = Collections.unmodifiableList(events);
+		}
+
+		/**
+		 * Provides the last snapshot of the component.
+		 */
+		public RuntimeLogEntry getSnapshot() {
+			return snapshot;
+		}
+
+		/**
+		 * Provides the records of the component logged after the snapshot.
+		 */
+		public List<RuntimeLogEntry> getEvents() {
+			return events;
+		}
+
+		/**
+		 * Provides the values of the snapshot overwritten by the values of the following
+		 * records in the order they were logged.
+		 */
+		public Map<String, Object> getValues() {
+			Map<String, Object> values = new LinkedHashMap<>(snapshot.getValues());
+			for (RuntimeLogEntry event : events) {
+				values.putAll(event.getValues());
+			}
+			return values;
+		}
+	}
+
+	/**
+	 * Matches the event types of the records to the given type and its subtypes.
+	 */
+	private static class TypeFilter {
+		private final Class<? extends RuntimeLogRecord> type;
+		private final Map<String, Boolean> matches = new HashMap<>();
+
+		TypeFilter(Class<? extends RuntimeLogRecord> type) {
+			this.type = type;
+		}
+
+		boolean matches(String eventType) {
+			Boolean match = matches.get(eventType);
+			if (match == null) {
+				match = eventType.equals(type.getCanonicalName()) || isSubtype(eventType);
+				matches.put(eventType, match);
+			}
+			return match;
+		}
+
+		private boolean isSubtype(String eventType) {
+			String className = eventType;
+			for (;;) {
+				try {
+					return type.isAssignableFrom(Class.forName(className, false, type.getClassLoader()));
+				} catch (ClassNotFoundException e) {
+					// the canonical name of a nested class differs from its binary name
+					int separator = className.lastIndexOf('.');
+					if (separator < 0) {
+						return false;
+					}
+					className = className.substring(0, separator) + '$' + className.substring(separator + 1);
+				} catch (LinkageError e) {
+					return false;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reads the records of a time window from the log.
+	 */
+	private class RecordIterator implements Iterator<RuntimeLogEntry> {
+		private final long from;
+		private final long to;
+		private final TypeFilter filter;
+		private final BinaryRuntimeLogReader reader;
+
+		/**
+		 * The greatest time of the records read.
+		 */
+		private long lastTime = Long.MIN_VALUE;
+		private RuntimeLogEntry next;
+		private boolean finished;
+
+		RecordIterator(long from, long to, TypeFilter filter) {
+			this.from = from;
+			this.to = to;
+			this.filter = filter;
+			try {
+				// the records preceding the indexed one are logged at most the disorder after it
+				long entry = index.findBefore(Math.max(from, Long.MIN_VALUE + disorder) - disorder);
+				reader = new BinaryRuntimeLogReader(dataIn, entry >= 0 ? index.getOffset(entry) : HEADER_SIZE);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (next == null && !finished) {
+				try {
+					advance();
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+			return next != null;
+		}
+
+		@Override
+		public RuntimeLogEntry next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			RuntimeLogEntry entry = next;
+			next = null;
+			return entry;
+		}
+
+		private void advance() throws IOException {
+			while (reader.next()) {
+				long time = reader.getTime();
+				if (time < lastTime && lastTime - time > disorder) {
+					throw new IOException(String.format(
+							"The record at the offset %d is logged after the time %d, out of the window.",
+							reader.getOffset(), lastTime));
+				}
+				lastTime = Math.max(lastTime, time);
+				// the following records are logged at most the disorder before this one
+				if (time - disorder > to) {
+					break;
+				}
+				if (time >= from && time <= to && (filter == null || filter.matches(reader.getEventType()))) {
+					next = new RuntimeLogEntry(time, reader.getId(), reader.getEventType(), reader.getValues(),
+							reader.getOffset());
+					return;
+				}
+			}
+			finished = true;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
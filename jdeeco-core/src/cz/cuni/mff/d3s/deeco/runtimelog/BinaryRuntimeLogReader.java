@@ -0,0 +1,314 @@
+package cz.cuni.mff.d3s.deeco.runtimelog;
+
+import static cz.cuni.mff.d3s.deeco.runtimelog.BinaryRuntimeLogFormat.*;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads the records of the binary runtime log written by the {@link BinaryRuntimeLogEncoder}
+ * one by one. The values of a record are decoded into {@link String}s, {@link Number}s,
+ * {@link Boolean}s, {@link List}s and {@link Map}s preserving the order of the entries.
+ * Values stored as text by the encoder are read as {@link String}s, so the
+ * {@link Object#toString()} of each value is the same as of the logged one.
+ * <p>
+ * The reader of a {@link SeekableByteChannel} can {@link #seek(long)} to the records
+ * referred to by the index, e.g. found by the {@link BinaryRuntimeLogIndex}. Such a reader
+ * keeps its own position in the data, so several readers of the same channel can be used
+ * alternately.
+ * </p>
+ */
+public class BinaryRuntimeLogReader implements Closeable {
+
+	private final ReadableByteChannel channel;
+
+	/**
+	 * The bytes read from the {@link #channel} and not processed yet.
+	 */
+	private ByteBuffer buffer = ByteBuffer.allocate(BinaryRuntimeLogEncoder.BUFFER_SIZE);
+
+	/**
+	 * The offset of the first byte in the {@link #buffer} in the data.
+	 */
+	private long bufferOffset;
+
+	/**
+	 * The strings stored in the table of symbols.
+	 */
+	private final List<String> symbols = new ArrayList<>();
+
+	private long offset;
+	private long time;
+	private String id;
+	private String eventType;
+	private Map<String, Object> values;
+
+	/**
+	 * Creates the reader of the data read from the given channel. The channel has to be
+	 * positioned at the beginning of the data.
+	 *
+	 * @param dataIn
+	 *            The channel of the data.
+	 * @throws IOException
+	 *             Thrown if the data cannot be read or are not a binary runtime log.
+	 * @throws IllegalArgumentException
+	 *             Thrown if the dataIn argument is null.
+	 */
+	public BinaryRuntimeLogReader(ReadableByteChannel dataIn) throws IOException {
+		if (dataIn == null)
+			throw new IllegalArgumentException(String.format("The argument \"%s\" is null.", "dataIn"));
+
+		channel = dataIn;
+		((Buffer) buffer).flip();
+		if (!fill(HEADER_SIZE) || buffer.getInt() != MAGIC) {
+			throw new IOException("The data are not a binary runtime log.");
+		}
+		byte version = buffer.get();
+		if (version != VERSION) {
+			throw new IOException("Unsupported version of the binary runtime log: " + version);
+		}
+	}
+
+	/**
+	 * Creates the reader of the data read from the given channel, positioned at the record
+	 * at the given offset as by {@link #seek(long)}. The header of the data is not checked.
+	 *
+	 * @param dataIn
+	 *            The channel of the data.
+	 * @param dataOffset
+	 *            The offset of the record in the data.
+	 * @throws IllegalArgumentException
+	 *             Thrown if the dataIn argument is null.
+	 */
+	public BinaryRuntimeLogReader(SeekableByteChannel dataIn, long dataOffset) {
+		if (dataIn == null)
+			throw new IllegalArgumentException(String.format("The argument \"%s\" is null.", "dataIn"));
+
+		channel = dataIn;
+		((Buffer) buffer).flip();
+		bufferOffset = dataOffset;
+	}
+
+	/**
+	 * Reads the next record.
+	 *
+	 * @return True if a record was read, false at the end of the data.
+	 * @throws IOException
+	 *             Thrown if the data cannot be read or the record is truncated.
+	 */
+	public boolean next() throws IOException {
+		if (!fill(LENGTH_SIZE)) {
+			if (buffer.hasRemaining()) {
+				throw new EOFException("Truncated record length at the offset " + position());
+			}
+			return false;
+		}
+		offset = position();
+		int length = buffer.getInt();
+		if (!fill(length)) {
+			throw new EOFException("Truncated record at the offset " + offset);
+		}
+		int end = buffer.position() + length;
+		if ((buffer.get() & RESET_SYMBOLS) != 0) {
+			symbols.clear();
+		}
+		time = buffer.getLong();
+		id = getString();
+		eventType = getString();
+		values = getEntries();
+		if (buffer.position() != end) {
+			throw new IOException("Malformed record at the offset " + offset);
+		}
+		return true;
+	}
+
+	/**
+	 * Moves the reader to the record at the given offset, so it is read by the following
+	 * {@link #next()}. The record has to be readable without the preceding ones, which
+	 * holds for all the records referred to by the index and the first record.
+	 *
+	 * @param dataOffset
+	 *            The offset of the record in the data.
+	 * @throws IOException
+	 *             Thrown if the data channel is not a {@link SeekableByteChannel} or
+	 *             cannot be positioned.
+	 */
+	public void seek(long dataOffset) throws IOException {
+		if (!(channel instanceof SeekableByteChannel)) {
+			throw new IOException("The data channel is not seekable.");
+		}
+		if (dataOffset >= bufferOffset && dataOffset <= bufferOffset + buffer.limit()) {
+			// already read into the buffer
+			((Buffer) buffer).position((int) (dataOffset - bufferOffset));
+		} else {
+			// the channel is positioned by the following fill
+			((Buffer) buffer).clear().flip();
+			bufferOffset = dataOffset;
+		}
+		symbols.clear();
+	}
+
+	/**
+	 * Provides the offset of the current record in the data, as referred to by the index.
+	 */
+	public long getOffset() {
+		return offset;
+	}
+
+	/**
+	 * Provides the time of the current record.
+	 */
+	public long getTime() {
+		return time;
+	}
+
+	/**
+	 * Provides the {@link RuntimeLogRecord#getId()} of the current record.
+	 */
+	public String getId() {
+		return id;
+	}
+
+	/**
+	 * Provides the canonical name of the class of the current record.
+	 */
+	public String getEventType() {
+		return eventType;
+	}
+
+	/**
+	 * Provides the {@link RuntimeLogRecord#getValues()} of the current record.
+	 */
+	public Map<String, Object> getValues() {
+		return values;
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	private long position() {
+		return bufferOffset + buffer.position();
+	}
+
+	/**
+	 * Reads from the {@link #channel} until the {@link #buffer} has at least the given
+	 * number of bytes remaining.
+	 *
+	 * @return False if the end of the data was reached before.
+	 */
+	private boolean fill(int bytes) throws IOException {
+		if (buffer.remaining() >= bytes) {
+			return true;
+		}
+		bufferOffset += buffer.position();
+		if (buffer.capacity() < bytes) {
+			ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, bytes));
+			larger.put(buffer);
+			buffer = larger;
+		} else {
+			buffer.compact();
+		}
+		if (channel instanceof SeekableByteChannel) {
+			// the channel may have been read by another reader
+			((SeekableByteChannel) channel).position(position());
+		}
+		while (buffer.position() < bytes) {
+			if (channel.read(buffer) < 0) {
+				((Buffer) buffer).flip();
+				return false;
+			}
+		}
+		((Buffer) buffer).flip();
+		return true;
+	}
+
+	private Map<String, Object> getEntries() throws IOException {
+		int size = (int) getVarint();
+		Map<String, Object> entries = new LinkedHashMap<>(size * 2);
+		for (int i = 0; i < size; i++) {
+			String key = getString();
+			entries.put(key, getValue(buffer.get()));
+		}
+		return entries;
+	}
+
+	private Object getValue(byte tag) throws IOException {
+		switch (tag) {
+		case TEXT:
+			return getString();
+		case INTEGER:
+			return (int) unZigZag(getVarint());
+		case LONG:
+			return unZigZag(getVarint());
+		case DOUBLE:
+			return buffer.getDouble();
+		case FLOAT:
+			return buffer.getFloat();
+		case FALSE:
+			return false;
+		case TRUE:
+			return true;
+		case LIST:
+			List<Object> items = new ArrayList<>();
+			for (byte itemTag = buffer.get(); itemTag != END; itemTag = buffer.get()) {
+				items.add(getValue(itemTag));
+			}
+			return items;
+		case MAP:
+			return getEntries();
+		default:
+			throw new IOException("Unknown value tag " + tag + " in the record at the offset " + offset);
+		}
+	}
+
+	private static long unZigZag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	private long getVarint() {
+		long value = 0;
+		for (int shift = 0;; shift += 7) {
+			byte b = buffer.get();
+			value |= (long) (b & 0x7f) << shift;
+			if (b >= 0) {
+				return value;
+			}
+		}
+	}
+
+	private String getString() throws IOException {
+		int reference = (int) getVarint();
+		if (reference >= FIRST_SYMBOL) {
+			if (reference - FIRST_SYMBOL >= symbols.size()) {
+				throw new IOException("Unknown symbol in the record at the offset " + offset
+						+ ", the record cannot be read without the preceding ones.");
+			}
+			return symbols.get(reference - FIRST_SYMBOL);
+		}
+		String value = getUtf8();
+		if (reference == NEW_SYMBOL) {
+			symbols.add(value);
+		}
+		return value;
+	}
+
+	private String getUtf8() {
+		int length = (int) getVarint();
+		String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length,
+				StandardCharsets.UTF_8);
+		((Buffer) buffer).position(buffer.position() + length);
+		return value;
+	}
+}
@@ -0,0 +1,124 @@
+package cz.cuni.mff.d3s.deeco.runtimelog;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+
+import cz.cuni.mff.d3s.deeco.logging.Log;
+
+/**
+ * The {@link RuntimeLogWriters} writing the runtime data and index in the compact
+ * binary format by the {@link BinaryRuntimeLogEncoder}. The data and index are
+ * written into {@link WritableByteChannel}s, by default the {@link FileChannel}s of
+ * the {@link BinaryRuntimeLogFormat#DEFAULT_DATA_FILE_PATH} and
+ * {@link BinaryRuntimeLogFormat#DEFAULT_INDEX_FILE_PATH} files. The snapshot periods
+ * are written as text, the same as by the {@link RuntimeLogWriters}.
+ * <p>
+ * All the {@link RuntimeLogger}s constructed with one instance share its encoder.
+ * </p>
+ */
+public class BinaryRuntimeLogWriters extends RuntimeLogWriters {
+
+	/**
+	 * The channel of the file for the runtime events being logged.
+	 */
+	final WritableByteChannel dataChannel;
+	/**
+	 * The channel of the file where the index of the log records is stored.
+	 */
+	final WritableByteChannel indexChannel;
+
+	/**
+	 * The encoder shared by the {@link RuntimeLogger}s, created on the first request.
+	 */
+	private BinaryRuntimeLogEncoder encoder;
+
+	/**
+	 * Create a new instance of {@link BinaryRuntimeLogWriters} writing into the default directory.
+	 *
+	 * @throws IOException
+	 *             Thrown if there is a problem opening the log files.
+	 */
+	public BinaryRuntimeLogWriters() throws IOException {
+		this(DEFAULT_LOG_PATH);
+	}
+
+	/**
+	 * Create a new instance of {@link BinaryRuntimeLogWriters} writing into the given directory.
+	 *
+	 * @param logPath
+	 *        The directory where the logging files will be created.
+	 * @throws IOException
+	 *             Thrown if there is a problem opening the log files.
+	 * @throws IllegalArgumentException
+	 *             Thrown if the logPath argument is null.
+	 */
+	public BinaryRuntimeLogWriters(String logPath) throws IOException {
+		super(checkNotNull(logPath, "logPath"), null);
+		dataChannel = openChannel(new File(logPath + BinaryRuntimeLogFormat.DEFAULT_DATA_FILE_PATH));
+		indexChannel = openChannel(new File(logPath + BinaryRuntimeLogFormat.DEFAULT_INDEX_FILE_PATH));
+	}
+
+	/**
+	 * Create a new instance of {@link BinaryRuntimeLogWriters} with given outputs.
+	 *
+	 * @param dataOut
+	 *            The channel for data.
+	 * @param indexOut
+	 *            The channel for index.
+	 * @param periodOut
+	 *            The writer for snapshot periods.
+	 * @throws IOException
+	 *             Thrown if there is a problem using the outputs.
+	 * @throws IllegalArgumentException
+	 *             Thrown if any of the given argument is null.
+	 */
+	public BinaryRuntimeLogWriters(WritableByteChannel dataOut, WritableByteChannel indexOut, Writer periodOut)
+			throws IOException {
+		super(DEFAULT_LOG_PATH, checkNotNull(periodOut, "periodOut"));
+		dataChannel = checkNotNull(dataOut, "dataOut");
+		indexChannel = checkNotNull(indexOut, "indexOut");
+	}
+
+	private static <T> T checkNotNull(T argument, String name) {
+		if (argument == null)
+			throw new IllegalArgumentException(String.format("The argument \"%s\" is null.", name));
+		return argument;
+	}
+
+	private static FileChannel openChannel(File file) throws IOException {
+		try {
+			return FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING);
+		} catch (IOException e) {
+			Log.e("Simulation logging not enabled. Failed to open the log file " + file.getAbsolutePath(), e);
+			throw e;
+		}
+	}
+
+	/**
+	 * Provides the {@link BinaryRuntimeLogEncoder} shared by all the {@link RuntimeLogger}s
+	 * using these writers.
+	 */
+	@Override
+	protected synchronized RuntimeLogEncoder getEncoder() throws IOException {
+		if (encoder == null) {
+			encoder = new BinaryRuntimeLogEncoder(this);
+		}
+		return encoder;
+	}
+
+	/**
+	 * Close the {@link #dataChannel}, {@link #indexChannel} and the
+	 * {@link #snapshotPeriodWriter}.
+	 */
+	@Override
+	void close() throws IOException {
+		dataChannel.close();
+		indexChannel.close();
+		snapshotPeriodWriter.close();
+	}
+}
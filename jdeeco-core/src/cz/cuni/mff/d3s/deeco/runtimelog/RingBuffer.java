@@ -0,0 +1,103 @@
+package cz.cuni.mff.d3s.deeco.runtimelog;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free queue of items offered by any number of threads and polled
+ * by a single thread.
+ * <p>
+ * Each slot of the ring has a sequence number telling whether it is free for the
+ * producer claiming the given position or full for the consumer at the given
+ * position, so the producers only contend on claiming the position by a CAS and
+ * neither side ever blocks.
+ * </p>
+ *
+ * @param <E>
+ *            Type of the items
+ */
+class RingBuffer<E> {
+	private final int mask;
+	private final AtomicReferenceArray<E> items;
+	/**
+	 * The slot at the index i is free for the producer at the position p if its
+	 * sequence is p, and full for the consumer at the position p if it is p + 1.
+	 */
+	private final AtomicLongArray sequences;
+	/**
+	 * The position of the next item to be offered.
+	 */
+	private final AtomicLong tail = new AtomicLong();
+	/**
+	 * The position of the next item to be polled, accessed by the consumer only.
+	 */
+	private long head;
+
+	/**
+	 * Creates the buffer
+	 *
+	 * @param capacity
+	 *            Minimum number of items in the buffer, rounded up to a power of two
+	 */
+	RingBuffer(int capacity) {
+		if (capacity <= 0 || capacity > 1 << 30) {
+			throw new IllegalArgumentException("Capacity has to be between 1 and 2^30: " + capacity);
+		}
+		int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+		mask = size - 1;
+		items = new AtomicReferenceArray<>(size);
+		sequences = new AtomicLongArray(size);
+		for (int i = 0; i < size; i++) {
+			sequences.set(i, i);
+		}
+	}
+
+	/**
+	 * Adds the item to the buffer if it is not full
+	 *
+	 * @return False if the buffer is full
+	 */
+	boolean offer(E item) {
+		for (;;) {
+			long position = tail.get();
+			int index = (int) position & mask;
+			long difference = sequences.get(index) - position;
+			if (difference == 0) {
+				if (tail.compareAndSet(position, position + 1)) {
+					items.lazySet(index, item);
+					sequences.set(index, position + 1);
+					return true;
+				}
+			} else if (difference < 0) {
+				// the slot was not polled since the previous round
+				return false;
+			}
+			// otherwise another producer claimed the position
+		}
+	}
+
+	/**
+	 * Removes the oldest item from the buffer, to be called by the consumer thread only
+	 *
+	 * @return The item, or null if the buffer is empty
+	 */
+	E poll() {
+		int index = (int) head & mask;
+		if (sequences.get(index) != head + 1) {
+			return null;
+		}
+		E item = items.get(index);
+		items.lazySet(index, null);
+		sequences.set(index, head + mask + 1);
+		head++;
+		return item;
+	}
+
+	/**
+	 * Gets the capacity of the buffer
+	 */
+	int capacity() {
+		return mask + 1;
+	}
+}
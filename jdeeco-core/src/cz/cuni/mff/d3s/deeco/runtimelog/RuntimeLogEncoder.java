@@ -0,0 +1,134 @@
+package cz.cuni.mff.d3s.deeco.runtimelog;
+
+import java.io.IOException;
+
+/**
+ * Encodes the records logged by the {@link RuntimeLogger} into the runtime log.
+ * The encoder writes the <em>data</em> with the logged records, the <em>index</em>
+ * pointing to the snapshots in the data and the <em>snapshot periods</em>.
+ * <p>
+ * The encoder is provided to the {@link RuntimeLogger} by the {@link RuntimeLogWriters}
+ * it is constructed with. One encoder can be shared by several {@link RuntimeLogger}s,
+ * the encoder is closed when the last of them is closed. The methods of the encoder
+ * may be called concurrently.
+ * </p>
+ *
+ * @see XmlRuntimeLogEncoder
+ * @see BinaryRuntimeLogEncoder
+ */
+public abstract class RuntimeLogEncoder {
+
+	/**
+	 * The counter of {@link RuntimeLogger}s using this encoder.
+	 */
+	private int referenceCounter = 0;
+
+	/**
+	 * Writes the given <em>record</em> into the data.
+	 *
+	 * @param time
+	 *            is the time of the record in milliseconds.
+	 * @param record
+	 *            is the record to be written.
+	 * @return The offset of the record in the data, to be referred to by the
+	 *         index, or -1 if the record is written asynchronously.
+	 * @throws IOException
+	 *             Thrown if the record cannot be written.
+	 * @throws IllegalArgumentException
+	 *             Thrown if the record contains a null value.
+	 */
+	public abstract long writeRecord(long time, RuntimeLogRecord record) throws IOException;
+
+	/**
+	 * Writes the given <em>record</em> into the data and the index entry pointing to it.
+	 *
+	 * @param time
+	 *            is the time of the record in milliseconds.
+	 * @param record
+	 *            is the record to be written.
+	 * @return The offset of the record in the data, or -1 if the record is
+	 *         written asynchronously.
+	 * @throws IOException
+	 *             Thrown if the record or the index entry cannot be written.
+	 * @throws IllegalArgumentException
+	 *             Thrown if the record contains a null value.
+	 */
+	public long writeIndexedRecord(long time, RuntimeLogRecord record) throws IOException {
+		long dataOffset = writeRecord(time, record);
+		writeIndex(time, dataOffset);
+		return dataOffset;
+	}
+
+	/**
+	 * Writes the index entry pointing to a record in the data. The data written
+	 * so far are flushed before the index entry is written.
+	 *
+	 * @param time
+	 *            is the time of the record.
+	 * @param dataOffset
+	 *            is the offset of the record returned by
+	 *            {@link #writeRecord(long, RuntimeLogRecord)}.
+	 * @throws IOException
+	 *             Thrown if the index entry cannot be written.
+	 */
+	public abstract void writeIndex(long time, long dataOffset) throws IOException;
+
+	/**
+	 * Provides the time of the last entry written into the index.
+	 *
+	 * @return The time of the last index entry, 0 if there is none.
+	 */
+	public abstract long getLastIndexTime();
+
+	/**
+	 * Writes the snapshot period of the given record type.
+	 *
+	 * @param period
+	 *            is the period of the snapshots.
+	 * @param snapshotType
+	 *            is the type of the snapshot records.
+	 * @throws IOException
+	 *             Thrown if the snapshot period cannot be written.
+	 */
+	public abstract void writeSnapshotPeriod(long period, Class<? extends RuntimeLogRecord> snapshotType)
+			throws IOException;
+
+	/**
+	 * Flushes the data, index and snapshot periods.
+	 *
+	 * @throws IOException
+	 *             Thrown if any of the outputs cannot be flushed.
+	 */
+	public abstract void flush() throws IOException;
+
+	/**
+	 * Closes the data, index and snapshot period outputs. Called once the
+	 * encoder is closed by all its users.
+	 *
+	 * @throws IOException
+	 *             Thrown if any of the outputs cannot be closed.
+	 */
+	protected abstract void closeOutputs() throws IOException;
+
+	/**
+	 * Increment reference counter when this encoder is passed to a {@link RuntimeLogger}.
+	 * @return The number of references to this encoder.
+	 */
+	synchronized int incrementReference() {
+		return ++referenceCounter;
+	}
+
+	/**
+	 * Releases the encoder by one of its users, the outputs are closed when it
+	 * is released by the last one.
+	 *
+	 * @throws IOException
+	 *             Thrown if any of the outputs cannot be closed.
+	 */
+	public final synchronized void close() throws IOException {
+		if (--referenceCounter > 0) {
+			return;
+		}
+		closeOutputs();
+	}
+}
@@ -0,0 +1,61 @@
+package cz.cuni.mff.d3s.deeco.runtimelog;
+
+import java.util.Map;
+
+/**
+ * A {@link RuntimeLogRecord} read back from the runtime log, along with the time it was
+ * logged at and the type of the logged record.
+ */
+public class RuntimeLogEntry extends RuntimeLogRecord {
+
+	private final long time;
+	private final String eventType;
+	private final long offset;
+
+	/**
+	 * Constructs the entry of the record read from the log.
+	 *
+	 * @param time
+	 *            is the time of the record in milliseconds.
+	 * @param id
+	 *            is the {@link RuntimeLogRecord#getId()} of the record.
+	 * @param eventType
+	 *            is the canonical name of the class of the record.
+	 * @param values
+	 *            are the {@link RuntimeLogRecord#getValues()} of the record.
+	 * @param offset
+	 *            is the offset of the record in the data.
+	 */
+	public RuntimeLogEntry(long time, String id, String eventType, Map<String, Object> values, long offset) {
+		super(id, values);
+		this.time = time;
+		this.eventType = eventType;
+		this.offset = offset;
+	}
+
+	/**
+	 * Provides the time of the record in milliseconds.
+	 */
+	public long getTime() {
+		return time;
+	}
+
+	/**
+	 * Provides the canonical name of the class of the record.
+	 */
+	public String getEventType() {
+		return eventType;
+	}
+
+	/**
+	 * Provides the offset of the record in the data.
+	 */
+	public long getOffset() {
+		return offset;
+	}
+
+	@Override
+	public String toString() {
+		return time + " " + getId() + " " + eventType + " " + getValues();
+	}
+}
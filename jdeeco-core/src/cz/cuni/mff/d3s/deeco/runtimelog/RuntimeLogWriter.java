@@ -123,13 +123,45 @@ class RuntimeLogWriter {
 	public synchronized void writeData(String entry) throws IOException {
 		try {
 			writers.dataWriter.write(entry);
-			currentDataOffset += entry.getBytes(RuntimeLogWriters.CHARSET_NAME).length;
+			currentDataOffset += encodedLength(entry);
 		} catch (IOException e) {
 			Log.e("Failed to write to the log file " + writers.logPath + RuntimeLogWriters.DEFAULT_DATA_FILE_PATH, e);
 			throw e;
 		}
 	}
 
+	/**
+	 * Counts the bytes of the given <em>entry</em> encoded in UTF-8, the
+	 * {@link RuntimeLogWriters#CHARSET_NAME} of the log files, without encoding
+	 * it.
+	 * 
+	 * @param entry
+	 *            The data to be measured.
+	 * @return The number of bytes of the encoded data.
+	 */
+	static long encodedLength(String entry) {
+		long length = entry.length();
+		for (int i = 0; i < entry.length(); i++) {
+			char c = entry.charAt(i);
+			if (c < 0x80) {
+				continue;
+			} else if (c < 0x800) {
+				length += 1;
+			} else if (Character.isHighSurrogate(c) && i + 1 < entry.length()
+					&& Character.isLowSurrogate(entry.charAt(i + 1))) {
+				// the pair of chars is encoded into 4 bytes
+				length += 2;
+				i++;
+			} else if (Character.isSurrogate(c)) {
+				// an unpaired surrogate is replaced by '?'
+				continue;
+			} else {
+				length += 2;
+			}
+		}
+		return length;
+	}
+
 	/**
 	 * Flush the data file.
 	 * 
@@ -55,6 +55,19 @@ public class RuntimeLogWriters {
 	 * The counter of DEECo nodes using these writers.
 	 */
 	private int referenceCounter = 0;
+
+	/**
+	 * The policy of the {@link AsyncRuntimeLogEncoder}, null if the log is written
+	 * by the threads logging the records.
+	 */
+	private AsyncRuntimeLogEncoder.OverflowPolicy overflowPolicy;
+	private int bufferCapacity;
+	private int samplingPeriod;
+	/**
+	 * The encoder shared by all the {@link RuntimeLogger}s using these writers when
+	 * the log is written asynchronously.
+	 */
+	private AsyncRuntimeLogEncoder asyncEncoder;
 	
 	/**
 	 * This {@link Writer} is used to write into the file for the runtime events
@@ -182,6 +195,85 @@ public class RuntimeLogWriters {
 		snapshotPeriodWriter = new BufferedWriter(periodOut);
 	}
 	
+	/**
+	 * Create a new instance of {@link RuntimeLogWriters} writing only the snapshot periods
+	 * as text, the data and the index are written by a subclass.
+	 *
+	 * @param logPath
+	 *        The directory where the logging files will be created.
+	 * @param periodOut
+	 *            The writer for snapshot periods, or null to open the default file in the logPath.
+	 * @throws IOException
+	 *             Thrown if there is a problem opening the snapshot period file.
+	 */
+	RuntimeLogWriters(String logPath, Writer periodOut) throws IOException {
+		this.logPath = logPath;
+		createLogDir();
+		dataWriter = null;
+		indexWriter = null;
+		snapshotPeriodWriter = new BufferedWriter(periodOut != null ? periodOut
+				: openStream(new File(logPath + DEFAULT_PERIOD_FILE_PATH)));
+	}
+
+	/**
+	 * Provides the {@link RuntimeLogEncoder} writing the runtime log into these writers.
+	 * Called by each {@link RuntimeLogger} constructed with these writers.
+	 *
+	 * @return The {@link XmlRuntimeLogEncoder} writing into the {@link #dataWriter},
+	 *         {@link #indexWriter} and {@link #snapshotPeriodWriter}.
+	 * @throws IOException
+	 *             Thrown if there is a problem using the writers.
+	 */
+	protected RuntimeLogEncoder getEncoder() throws IOException {
+		return new XmlRuntimeLogEncoder(this);
+	}
+
+	/**
+	 * Makes the {@link RuntimeLogger}s constructed with these writers from now on write the
+	 * log by a dedicated thread, so logging a record only enqueues it into a buffer.
+	 *
+	 * @param capacity
+	 *            is the number of records the buffer can hold.
+	 * @param policy
+	 *            is the way of handling the records logged when the buffer is full.
+	 * @param samplingPeriod
+	 *            is every how many records overflowing the buffer one is kept with the
+	 *            {@link AsyncRuntimeLogEncoder.OverflowPolicy#SAMPLE} policy.
+	 * @throws IllegalArgumentException
+	 *             Thrown if the policy is null, or the capacity or sampling period is not positive.
+	 * @see AsyncRuntimeLogEncoder
+	 */
+	public synchronized void setAsynchronous(int capacity, AsyncRuntimeLogEncoder.OverflowPolicy policy,
+			int samplingPeriod) {
+		if (policy == null)
+			throw new IllegalArgumentException(String.format("The argument \"%s\" is null.", "policy"));
+		if (capacity <= 0)
+			throw new IllegalArgumentException(String.format(
+					"The argument \"%s\" has to be greater than 0.", "capacity"));
+		if (samplingPeriod <= 0)
+			throw new IllegalArgumentException(String.format(
+					"The argument \"%s\" has to be greater than 0.", "samplingPeriod"));
+
+		overflowPolicy = policy;
+		bufferCapacity = capacity;
+		this.samplingPeriod = samplingPeriod;
+	}
+
+	/**
+	 * Provides the encoder for a {@link RuntimeLogger}, either the one returned by
+	 * {@link #getEncoder()} or the {@link AsyncRuntimeLogEncoder} wrapping it.
+	 */
+	final synchronized RuntimeLogEncoder openEncoder() throws IOException {
+		if (overflowPolicy == null) {
+			return getEncoder();
+		}
+		if (asyncEncoder == null) {
+			asyncEncoder = new AsyncRuntimeLogEncoder(getEncoder(), bufferCapacity, overflowPolicy,
+					samplingPeriod);
+		}
+		return asyncEncoder;
+	}
+
 	/**
 	 * Increment reference counter when this instance is passed to a DEECo node.
 	 * @return The number of references to this {@link RuntimeLogWriters} instance.
@@ -223,7 +315,7 @@ public class RuntimeLogWriters {
 	 *             Thrown is the {@link Writer} cannot be opened for the given
 	 *             <em>file</em>.
 	 */
-	private static Writer openStream(File file) throws IOException {
+	static Writer openStream(File file) throws IOException {
 		try {
 			return new OutputStreamWriter(new FileOutputStream(file), CHARSET_NAME);
 		} catch (IOException e) {
@@ -3,8 +3,6 @@ package cz.cuni.mff.d3s.deeco.runtimelog;
 import java.io.IOException;
 import java.io.Writer;
 import java.util.HashSet;
-import java.util.List;
-import java.util.Map;
 import java.util.Set;
 
 import cz.cuni.mff.d3s.deeco.scheduler.Scheduler;
@@ -49,6 +47,13 @@ import cz.cuni.mff.d3s.deeco.timer.CurrentTimeProvider;
  * file is the minimum time offset where to start the computation of the system information
  * to be able to deliver the consistent system state for the specified time. This file contains
  * individual provided time offsets. Each line holds one single number and type of the corresponding record.
+ * <p> The files are written by the {@link RuntimeLogEncoder} provided by the {@link RuntimeLogWriters},
+ * the {@link XmlRuntimeLogEncoder} by default. The {@link BinaryRuntimeLogWriters} provide the
+ * {@link BinaryRuntimeLogEncoder} writing the data and index in a compact binary format instead.
+ * The binary log can be converted to the XML files by the {@link BinaryRuntimeLogConverter}
+ * and queried by time by the {@link BinaryRuntimeLogQuery}.
+ * With {@link RuntimeLogWriters#setAsynchronous(int, AsyncRuntimeLogEncoder.OverflowPolicy, int)}
+ * the records are written by the {@link AsyncRuntimeLogEncoder} in a dedicated thread.</p>
  * 
  * @author Dominik Skoda <skoda@d3s.mff.cuni.cz>
  */
@@ -73,40 +78,9 @@ public class RuntimeLogger {
 	private final Scheduler scheduler;
 
 	/**
-	 * The runtime log writer used by the instance of {@link RuntimeLogger}.
+	 * The encoder of the runtime log used by the instance of {@link RuntimeLogger}.
 	 */
-	private final RuntimeLogWriter writer;
-	
-	/**
-	 * The name of the <a href="http://en.wikipedia.org/wiki/XML">XML</a> element
-	 * used for storing the events being logged.
-	 */
-	private static final String EVENT_RECORD_NAME = "event";
-	/**
-	 * The name of the <a href="http://en.wikipedia.org/wiki/XML">XML</a> element
-	 * that holds a single value from a collection.
-	 */
-	private static final String COLLECION_VALUE_ENCLOSURE = "value";
-	/**
-	 * The name of the <a href="http://en.wikipedia.org/wiki/XML">XML</a> element attribute
-	 * that is used for the ID of the component that is logging the event.
-	 */
-	private static final String RECORD_ID = "id";
-	/**
-	 * The name of the <a href="http://en.wikipedia.org/wiki/XML">XML</a> element attribute
-	 * that is used for the type of the event that is being logged.
-	 */
-	private static final String RECORD_TYPE = "eventType";
-	/**
-	 * The name of the <a href="http://en.wikipedia.org/wiki/XML">XML</a> element attribute
-	 * that is used for the time of the event being logged.
-	 */
-	private static final String RECORD_TIME = "time";
-	/**
-	 * The name of the <a href="http://en.wikipedia.org/wiki/XML">XML</a> element attribute
-	 * that is used for the byte offset when an index record is being written.
-	 */
-	private static final String RECORD_OFFSET = "offset";
+	private final RuntimeLogEncoder encoder;
 	
 	/**
 	 * The minimum time difference between records in the {@link RuntimeLogWriter#DATA_INDEX_FILE}.
@@ -140,7 +114,8 @@ public class RuntimeLogger {
 		timeProvider = currentTimeProvider;
 		this.scheduler = scheduler;
 		
-		writer = new RuntimeLogWriter(writers);
+		encoder = writers.openEncoder();
+		encoder.incrementReference();
 	}
 	
 	/**
@@ -166,7 +141,8 @@ public class RuntimeLogger {
 		timeProvider = currentTimeProvider;
 		this.scheduler = scheduler;
 		
-		writer = RuntimeLogWriter.getDefaultWriter();
+		encoder = new XmlRuntimeLogEncoder(RuntimeLogWriter.getDefaultWriter());
+		encoder.incrementReference();
 	}
 
 	/**
@@ -197,122 +173,19 @@ public class RuntimeLogger {
 				"The %s method invoked on the %s argument returns null.", "getValues()", "record"));
 		
 		
-		StringBuilder recordBuilder = new StringBuilder();
-		long dataOffset = writer.getCurrentDataOffset();
 		long currentTime = timeProvider.getCurrentMilliseconds(); 
 
-		// Open the record tag
-		recordBuilder.append("<").append(EVENT_RECORD_NAME).append(" ")
-				.append(RECORD_TIME).append("=\"")
-				.append(currentTime).append("\" ")
-				.append(RECORD_ID).append("=\"")
-				.append(record.getId()).append("\" ")
-				.append(RECORD_TYPE).append("=\"")
-				.append(record.getClass().getCanonicalName()).append("\" >\n");
-
-		// Write the knowledge
-		Map<String, Object> values = record.getValues();
-		for (String valueKey : values.keySet()) {
-			recordBuilder.append("\t<")
-				.append(valueKey)
-				.append(">");
-			writeKnowledge(recordBuilder, values.get(valueKey));
-			recordBuilder.append("</")
-				.append(valueKey)
-				.append(">\n");
-		}
-
-		// Close the record tag
-		recordBuilder.append("</").append(EVENT_RECORD_NAME).append(">\n");
-
-		String compiledRecord = recordBuilder.toString();
-		writer.writeData(compiledRecord);
-
 		// If a snapshot is being logged and there passed enough time since the last index was written
-		if (snapshotTypes.contains(record.getClass())
-				&& currentTime - writer.getLastIndexTime() >= INDEX_MIN_PERIOD) {
-			logIndex(currentTime, dataOffset);
-		}
-	}
-	
-	/**
-	 * Write the <em>currentTime</em> and the <em>dataOffset</em> into the {@link RuntimeLogWriter#indexWriter}
-	 * and flush both the {@link RuntimeLogWriter#dataWriter} and the {@link RuntimeLogWriter#indexWriter}.
-	 * <p> The <em>index</em> file has a format of <a href="http://en.wikipedia.org/wiki/XML">XML</a>. 
-	 * Each <a href="http://en.wikipedia.org/wiki/XML">XML</a> element contains <em>currentTime</em>
-	 * and <em>dataOffset</em> in its attributes. </p>
-	 * @param currentTime is the time to be logged into the {@link RuntimeLogWriter#indexWriter}.
-	 * @param dataOffset is the byte offset in the <em>data</em> file corresponding to the <em>currentTime</em>. 
-	 * @throws IOException Thrown if there is a problem writing into the {@link RuntimeLogWriter#indexWriter}
-	 * or flushing the {@link RuntimeLogWriter#indexWriter} or the {@link RuntimeLogWriter#dataWriter}.
-	 */
-	private void logIndex(long currentTime, long dataOffset) throws IOException
-	{
-		StringBuilder indexBuilder = new StringBuilder();
-
-		indexBuilder.append("<").append(EVENT_RECORD_NAME)
-				.append(" ").append(RECORD_TIME).append("=\"")
-				.append(currentTime)
-				.append("\" ").append(RECORD_OFFSET).append("=\"")
-				.append(dataOffset).append("\" />\n");
-
-		writer.flushData();
-		writer.writeIndex(indexBuilder.toString(), currentTime);
-		writer.flushIndex();
-	}
-	
-	/**
-	 * Structure and transform the given <em>knowledge</em> into a <a href="http://en.wikipedia.org/wiki/XML">XML</a>
-	 * representation. The <a href="http://en.wikipedia.org/wiki/XML">XML</a> knowledge representation is appended
-	 * into the given <em>builder</em>. The internal pieces of the <em>knowledge</em> are allowed to be one of the
-	 * following form:
-	 * <ul>
-	 * <li>{@link Iterable} - A collection of <em>knowledge</em> (e.g. {@link List}).</li>
-	 * <li>{@link Map} - A collection of pairs <em>name</em> - <em>knowledge</em>.</li>
-	 * <li>Value - A <em>knowledge</em> value that is directly transformed into a string.</li>
-	 * </ul>
-	 * @param builder is the target where the <a href="http://en.wikipedia.org/wiki/XML">XML</a> representation
-	 * of <em>knowledge</em> is appended.
-	 * @param knowledge contains the data that will be transformed.
-	 * @throws IllegalArgumentException Thrown if either the <em>builder</em> or the <em>knowledge</em>
-	 * argument is null.
-	 */
-	@SuppressWarnings("unchecked")
-	private void writeKnowledge(StringBuilder builder, Object knowledge)
-	{
-		if(builder == null) throw new IllegalArgumentException(String.format(
-				"The argument \"%s\" is null.", "builder"));
-		if(knowledge == null) throw new IllegalArgumentException(String.format(
-				"The argument \"%s\" is null.", "knowledge"));
-		
-		if(knowledge instanceof Iterable)
-		{
-			Iterable<Object> collection = (Iterable<Object>) knowledge;
-			for(Object item : collection)
-			{
-				builder.append("<").append(COLLECION_VALUE_ENCLOSURE).append(">");
-				writeKnowledge(builder, item);
-				builder.append("</").append(COLLECION_VALUE_ENCLOSURE).append(">");
+		if (snapshotTypes.contains(record.getClass())) {
+			// The records may be logged by tasks executed concurrently and the encoder may be shared
+			synchronized (encoder) {
+				if (currentTime - encoder.getLastIndexTime() >= INDEX_MIN_PERIOD) {
+					encoder.writeIndexedRecord(currentTime, record);
+					return;
+				}
 			}
 		}
-		else if(knowledge instanceof Map)
-		{
-			Map<String, Object> map = (Map<String, Object>) knowledge;
-			for(String valueKey : map.keySet())
-			{
-				builder.append("<")
-					.append(valueKey)
-					.append(">");
-				writeKnowledge(builder, map.get(valueKey));
-				builder.append("</")
-					.append(valueKey)
-					.append(">");
-			}
-		}
-		else
-		{
-			builder.append(knowledge.toString());
-		}
+		encoder.writeRecord(currentTime, record);
 	}
 
 	/**
@@ -365,8 +238,7 @@ public class RuntimeLogger {
 		if(snapshotType == null) throw new IllegalArgumentException(String.format(
 				"The argument \"%s\" is null.", "snapshotType")); 
 		// Register task for the snapshot provider
-		writer.writeSnapshotPeriod(String.format("%d %s\n", period, snapshotType.getCanonicalName()));
-		writer.flushSnapshotPeriod();
+		encoder.writeSnapshotPeriod(period, snapshotType);
 		
 		snapshotTypes.add(snapshotType);
 	}
@@ -381,11 +253,15 @@ public class RuntimeLogger {
 	 * @throws IOException Thrown if any of the {@link Writer}s cannot be flushed.
 	 */
 	public void flush() throws IOException {
-		if (writer != null) {
-			writer.flushData();
-			writer.flushIndex();
-			writer.flushSnapshotPeriod();
-		}
+		encoder.flush();
+	}
+
+	/**
+	 * Provides the encoder of the runtime log, e.g. to read the counters of the
+	 * {@link AsyncRuntimeLogEncoder}.
+	 */
+	public RuntimeLogEncoder getEncoder() {
+		return encoder;
 	}
 
 	/**
@@ -398,9 +274,7 @@ public class RuntimeLogger {
 	 * @throws IOException Thrown if any of the {@link Writer}s cannot be closed.
 	 */
 	public void close() throws IOException {
-		if (writer != null) {
-			writer.closeWriters();
-		}
+		encoder.close();
 	}
 
 	/**
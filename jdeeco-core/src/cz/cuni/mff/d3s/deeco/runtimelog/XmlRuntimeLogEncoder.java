@@ -0,0 +1,232 @@
+package cz.cuni.mff.d3s.deeco.runtimelog;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes the runtime log records into the <a href="http://en.wikipedia.org/wiki/XML">XML</a>
+ * files written by the {@link RuntimeLogWriter}. Each record is written as an
+ * <em>event</em> element with the <em>time</em>, <em>id</em> and <em>eventType</em>
+ * attributes and the values of the record stored hierarchically under it.
+ * Each index entry is an <em>event</em> element with the <em>time</em> and the
+ * <em>offset</em> (number of bytes) of the record in the data file.
+ *
+ * @see RuntimeLogger
+ */
+public class XmlRuntimeLogEncoder extends RuntimeLogEncoder {
+
+	/**
+	 * The name of the <a href="http://en.wikipedia.org/wiki/XML">XML</a> element
+	 * used for storing the events being logged.
+	 */
+	private static final String EVENT_RECORD_NAME = "event";
+	/**
+	 * The name of the <a href="http://en.wikipedia.org/wiki/XML">XML</a> element
+	 * that holds a single value from a collection.
+	 */
+	private static final String COLLECION_VALUE_ENCLOSURE = "value";
+	/**
+	 * The name of the <a href="http://en.wikipedia.org/wiki/XML">XML</a> element attribute
+	 * that is used for the ID of the component that is logging the event.
+	 */
+	private static final String RECORD_ID = "id";
+	/**
+	 * The name of the <a href="http://en.wikipedia.org/wiki/XML">XML</a> element attribute
+	 * that is used for the type of the event that is being logged.
+	 */
+	private static final String RECORD_TYPE = "eventType";
+	/**
+	 * The name of the <a href="http://en.wikipedia.org/wiki/XML">XML</a> element attribute
+	 * that is used for the time of the event being logged.
+	 */
+	private static final String RECORD_TIME = "time";
+	/**
+	 * The name of the <a href="http://en.wikipedia.org/wiki/XML">XML</a> element attribute
+	 * that is used for the byte offset when an index record is being written.
+	 */
+	private static final String RECORD_OFFSET = "offset";
+
+	/**
+	 * The writer of the log files.
+	 */
+	private final RuntimeLogWriter writer;
+
+	/**
+	 * Creates the encoder writing into the given <em>writers</em>.
+	 *
+	 * @param writers
+	 *            specifies the {@link RuntimeLogWriters} for the <em>runtime data</em>.
+	 * @throws IOException
+	 *             Thrown if there is a problem using the writers.
+	 * @throws IllegalArgumentException
+	 *             Thrown if the writers argument is null.
+	 */
+	public XmlRuntimeLogEncoder(RuntimeLogWriters writers) throws IOException {
+		this(new RuntimeLogWriter(writers));
+	}
+
+	/**
+	 * Creates the encoder writing by the given <em>writer</em>.
+	 */
+	XmlRuntimeLogEncoder(RuntimeLogWriter writer) {
+		this.writer = writer;
+	}
+
+	/**
+	 * Writes the record as an <a href="http://en.wikipedia.org/wiki/XML">XML</a>
+	 * element. The record is formatted before the writer is locked, so the records
+	 * may be formatted concurrently.
+	 */
+	@Override
+	public long writeRecord(long time, RuntimeLogRecord record) throws IOException {
+		return writeRecord(time, record.getId(), record.getClass().getCanonicalName(), record.getValues());
+	}
+
+	/**
+	 * Writes the record with the given <em>time</em>, <em>id</em>, <em>eventType</em> and <em>values</em>.
+	 *
+	 * @return The offset of the record in the data file.
+	 */
+	long writeRecord(long time, String id, String eventType, Map<String, Object> values) throws IOException {
+		StringBuilder recordBuilder = new StringBuilder();
+		appendRecord(recordBuilder, time, id, eventType, values);
+		String compiledRecord = recordBuilder.toString();
+
+		synchronized (writer) {
+			long dataOffset = writer.getCurrentDataOffset();
+			writer.writeData(compiledRecord);
+			return dataOffset;
+		}
+	}
+
+	/**
+	 * Writes the <em>time</em> and the <em>dataOffset</em> as an <a href="http://en.wikipedia.org/wiki/XML">XML</a>
+	 * element and flushes both the data and the index.
+	 */
+	@Override
+	public void writeIndex(long time, long dataOffset) throws IOException {
+		StringBuilder indexBuilder = new StringBuilder();
+		appendIndex(indexBuilder, time, dataOffset);
+
+		writer.flushData();
+		writer.writeIndex(indexBuilder.toString(), time);
+		writer.flushIndex();
+	}
+
+	@Override
+	public long getLastIndexTime() {
+		return writer.getLastIndexTime();
+	}
+
+	@Override
+	public void writeSnapshotPeriod(long period, Class<? extends RuntimeLogRecord> snapshotType) throws IOException {
+		writer.writeSnapshotPeriod(String.format("%d %s\n", period, snapshotType.getCanonicalName()));
+		writer.flushSnapshotPeriod();
+	}
+
+	@Override
+	public void flush() throws IOException {
+		writer.flushData();
+		writer.flushIndex();
+		writer.flushSnapshotPeriod();
+	}
+
+	@Override
+	protected void closeOutputs() throws IOException {
+		writer.closeWriters();
+	}
+
+	/**
+	 * Appends the <a href="http://en.wikipedia.org/wiki/XML">XML</a> element of the record
+	 * with the given <em>time</em>, <em>id</em>, <em>eventType</em> and <em>values</em>.
+	 */
+	private static void appendRecord(StringBuilder recordBuilder, long time, String id, String eventType,
+			Map<String, Object> values) {
+		// Open the record tag
+		recordBuilder.append("<").append(EVENT_RECORD_NAME).append(" ")
+				.append(RECORD_TIME).append("=\"")
+				.append(time).append("\" ")
+				.append(RECORD_ID).append("=\"")
+				.append(id).append("\" ")
+				.append(RECORD_TYPE).append("=\"")
+				.append(eventType).append("\" >\n");
+
+		// Write the knowledge
+		for (Map.Entry<String, Object> value : values.entrySet()) {
+			recordBuilder.append("\t<")
+				.append(value.getKey())
+				.append(">");
+			appendKnowledge(recordBuilder, value.getValue());
+			recordBuilder.append("</")
+				.append(value.getKey())
+				.append(">\n");
+		}
+
+		// Close the record tag
+		recordBuilder.append("</").append(EVENT_RECORD_NAME).append(">\n");
+	}
+
+	/**
+	 * Appends the <a href="http://en.wikipedia.org/wiki/XML">XML</a> element of the index
+	 * entry with the given <em>time</em> and <em>dataOffset</em>.
+	 */
+	private static void appendIndex(StringBuilder indexBuilder, long time, long dataOffset) {
+		indexBuilder.append("<").append(EVENT_RECORD_NAME)
+				.append(" ").append(RECORD_TIME).append("=\"")
+				.append(time)
+				.append("\" ").append(RECORD_OFFSET).append("=\"")
+				.append(dataOffset).append("\" />\n");
+	}
+
+	/**
+	 * Structure and transform the given <em>knowledge</em> into a <a href="http://en.wikipedia.org/wiki/XML">XML</a>
+	 * representation. The <a href="http://en.wikipedia.org/wiki/XML">XML</a> knowledge representation is appended
+	 * into the given <em>builder</em>. The internal pieces of the <em>knowledge</em> are allowed to be one of the
+	 * following form:
+	 * <ul>
+	 * <li>{@link Iterable} - A collection of <em>knowledge</em> (e.g. {@link List}).</li>
+	 * <li>{@link Map} - A collection of pairs <em>name</em> - <em>knowledge</em>.</li>
+	 * <li>Value - A <em>knowledge</em> value that is directly transformed into a string.</li>
+	 * </ul>
+	 * @param builder is the target where the <a href="http://en.wikipedia.org/wiki/XML">XML</a> representation
+	 * of <em>knowledge</em> is appended.
+	 * @param knowledge contains the data that will be transformed.
+	 * @throws IllegalArgumentException Thrown if the <em>knowledge</em> argument is null.
+	 */
+	@SuppressWarnings("unchecked")
+	private static void appendKnowledge(StringBuilder builder, Object knowledge)
+	{
+		if(knowledge == null) throw new IllegalArgumentException(String.format(
+				"The argument \"%s\" is null.", "knowledge"));
+
+		if(knowledge instanceof Iterable)
+		{
+			Iterable<Object> collection = (Iterable<Object>) knowledge;
+			for(Object item : collection)
+			{
+				builder.append("<").append(COLLECION_VALUE_ENCLOSURE).append(">");
+				appendKnowledge(builder, item);
+				builder.append("</").append(COLLECION_VALUE_ENCLOSURE).append(">");
+			}
+		}
+		else if(knowledge instanceof Map)
+		{
+			Map<String, Object> map = (Map<String, Object>) knowledge;
+			for(Map.Entry<String, Object> entry : map.entrySet())
+			{
+				builder.append("<")
+					.append(entry.getKey())
+					.append(">");
+				appendKnowledge(builder, entry.getValue());
+				builder.append("</")
+					.append(entry.getKey())
+					.append(">");
+			}
+		}
+		else
+		{
+			builder.append(knowledge.toString());
+		}
+	}
+}
@@ -0,0 +1,84 @@
+package cz.cuni.mff.d3s.deeco.scheduler;
+
+import cz.cuni.mff.d3s.deeco.executor.Executor;
+import cz.cuni.mff.d3s.deeco.executor.MultiThreadedExecutor;
+import cz.cuni.mff.d3s.deeco.logging.Log;
+import cz.cuni.mff.d3s.deeco.model.runtime.api.Trigger;
+import cz.cuni.mff.d3s.deeco.runtime.DEECoNode;
+import cz.cuni.mff.d3s.deeco.task.Task;
+import cz.cuni.mff.d3s.deeco.timer.Timer;
+
+/**
+ * Scheduler to be used with an executor running the tasks concurrently, such
+ * as the {@link MultiThreadedExecutor}.
+ *
+ * The scheduler can be called from the timer and from the threads executing the
+ * tasks at the same time. The tasks triggered by a change in the knowledge are
+ * queued at the current time as by the {@link SingleThreadedScheduler}, and the
+ * timer is woken by an interruption event to pass them to the executor in the
+ * order of the queue. Failures of the tasks are logged and do not stop the
+ * scheduling.
+ *
+ * The scheduler is intended for the real-time deployment; the executor returns
+ * before the tasks complete, so the simulated time would run ahead of them.
+ */
+public class MultiThreadedScheduler extends SingleThreadedScheduler {
+
+	public MultiThreadedScheduler(Executor executor, Timer timer, DEECoNode node) throws NoExecutorAvailableException {
+		super(executor, timer, node);
+	}
+
+	@Override
+	public synchronized void setExecutor(Executor executor) {
+		super.setExecutor(executor);
+	}
+
+	@Override
+	public synchronized void addTask(Task task) {
+		super.addTask(task);
+	}
+
+	@Override
+	public synchronized void removeTask(Task task) {
+		super.removeTask(task);
+	}
+
+	@Override
+	public synchronized void deHibernateTask(Task task) {
+		super.deHibernateTask(task);
+	}
+
+	@Override
+	public synchronized void hibernateTask(Task task) {
+		super.hibernateTask(task);
+	}
+
+	@Override
+	public synchronized void executionCompleted(Task task, Trigger trigger) {
+		super.executionCompleted(task, trigger);
+	}
+
+	@Override
+	public synchronized void executionFailed(Task task, Trigger trigger, Exception e) {
+		// release the trigger, otherwise the task could not be triggered again
+		super.executionCompleted(task, trigger);
+		Log.e(String.format("Execution of the task \"%s\" failed.", task.getName()), e);
+	}
+
+	@Override
+	public synchronized void at(long time) {
+		super.at(time);
+	}
+
+	@Override
+	protected void taskTriggered(Task task, Trigger trigger) {
+		synchronized (this) {
+			if (!acceptTrigger(task, trigger)) {
+				return;
+			}
+			scheduleTriggered(task, trigger);
+		}
+		// the task may be triggered outside the thread of the timer, which may be waiting for a later event
+		timer.interruptionEvent(this, task.getName(), node);
+	}
+}
@@ -43,27 +43,49 @@ public class SchedulerEvent implements Comparable<SchedulerEvent> {
      * Indicator, whether the event is periodic (i.e., fixed-rate execution). 
      * It is set to true only if the trigger is a TimeTrigger with period > 0.
      */
-    public final boolean periodic;
+    public boolean periodic;
     
     /**
      * The actual task to be executed.
      */
-    public final Task executable;
+    public Task executable;
     
     /** 
      * The trigger associated with this event.
      */
-    public final Trigger trigger;
+    public Trigger trigger;
 
-	
+    /**
+     * Position of this event in the {@link EventQueue} heap, or -1 if the
+     * event is not queued.
+     */
+    int queueIndex = -1;
+
+    /**
+     * Order in which the event was added to the {@link EventQueue}. Breaks the
+     * ties among events scheduled at the same time with the same order.
+     */
+    long sequence;
     
 
     /**
      * Creates a new scheduler task.
      */
     public SchedulerEvent(Task task, Trigger trigger) {
+    	reset(task, trigger);
+    }
+
+    /**
+     * Re-initializes the event for the given task and trigger, so that it can be
+     * reused once it has been removed from the queue.
+     */
+    void reset(Task task, Trigger trigger) {
     	this.executable = task;
-    	this.trigger = trigger;    	
+    	this.trigger = trigger;
+    	this.state = VIRGIN;
+    	this.nextExecutionTime = 0;
+    	this.nextPeriodStart = 0;
+    	this.queueIndex = -1;
     	if ((trigger != null) && (trigger instanceof TimeTrigger) && (((TimeTrigger) trigger).getPeriod() > 0)) {
     		periodic = true;
     	} else {
@@ -83,7 +105,7 @@ public class SchedulerEvent implements Comparable<SchedulerEvent> {
 
 			if (thisOrder < thatOrder) return -1;
 			else if (thisOrder > thatOrder) return 1;
-			else return Integer.compare(this.hashCode(), o.hashCode());
+			else return Long.compare(this.sequence, o.sequence);
 		}
 	}
 
@@ -1,12 +1,17 @@
 package cz.cuni.mff.d3s.deeco.scheduler;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
-import java.util.TreeSet;
 
 import cz.cuni.mff.d3s.deeco.executor.Executor;
 import cz.cuni.mff.d3s.deeco.executor.TaskExecutionException;
@@ -21,14 +26,24 @@ import cz.cuni.mff.d3s.deeco.timer.Timer;
  * TODO
  */
 public class SingleThreadedScheduler implements Scheduler {
-	private final DEECoNode node;
-	private Executor executor;
-	private Timer timer;
+	/**
+	 * Maximal number of finished events kept for reuse.
+	 */
+	static final int MAX_POOLED_EVENTS = 1024;
+
+	protected final DEECoNode node;
+	protected Executor executor;
+	protected Timer timer;
 
 	private final EventQueue queue;
 	private final Set<Task> allTasks;
-	private final Map<Task, SchedulerEvent> timeTriggeredEvents;
 	private final Set<Trigger> knowledgeChangeTriggers;
+	private final Deque<SchedulerEvent> eventPool;
+
+	/**
+	 * Event taken from the queue and being passed to the executor, null outside {@link #at(long)}.
+	 */
+	private SchedulerEvent dispatchedEvent;
 
 	public SingleThreadedScheduler(Executor executor, Timer timer, DEECoNode node) throws NoExecutorAvailableException {
 		if (executor == null) {
@@ -40,8 +55,8 @@ public class SingleThreadedScheduler implements Scheduler {
 
 		queue = new EventQueue();
 		allTasks = new HashSet<>();
-		timeTriggeredEvents = new HashMap<>();
 		knowledgeChangeTriggers = new HashSet<>();
+		eventPool = new ArrayDeque<>();
 	}
 
 	@Override
@@ -68,44 +83,68 @@ public class SingleThreadedScheduler implements Scheduler {
 		}
 
 		if (task.getTimeTrigger() != null) {
-			SchedulerEvent event = new SchedulerEvent(task, task.getTimeTrigger());
+			SchedulerEvent event = obtainEvent(task, task.getTimeTrigger());
 			long executionTime = timer.getCurrentMilliseconds() + task.getTimeTrigger().getOffset();
 			event.nextExecutionTime = executionTime;
 			event.nextPeriodStart = executionTime;
 			queue.add(event);
 			updateTimer();
-
-			timeTriggeredEvents.put(task, event);
 		}
 
 		task.setTriggerListener(new TaskTriggerListener() {
 
 			@Override
 			public void triggered(Task task, Trigger trigger) {
-				if (allTasks.contains(task)) {
-					// if the trigger has been already scheduled (i.e., there have been many consecutive
-					// invocations of that trigger in a row), then skip this event
-					if (knowledgeChangeTriggers.contains(trigger)) {
-						Log.w("Attempting to re-schedule knowledge change triggered task.");
-						return;
-					}
-					knowledgeChangeTriggers.add(trigger);
-					// schedule immediately, regardless the actual runtime of the process that triggered this trigger
-					SchedulerEvent event = new SchedulerEvent(task, trigger);
-					long executionTime = timer.getCurrentMilliseconds();
-					event.nextExecutionTime = executionTime;
-					event.nextPeriodStart = executionTime;
-
-					// add event to queue
-					queue.add(event);
-					updateTimer();
-				}
+				taskTriggered(task, trigger);
 			}
 		});
 
 		allTasks.add(task);
 	}
 
+	/**
+	 * Called when a scheduled task has been triggered by a change in the knowledge.
+	 */
+	protected void taskTriggered(Task task, Trigger trigger) {
+		if (acceptTrigger(task, trigger)) {
+			scheduleTriggered(task, trigger);
+		}
+	}
+
+	/**
+	 * Queues the execution of the task triggered by the trigger at the current time.
+	 */
+	protected void scheduleTriggered(Task task, Trigger trigger) {
+		// schedule immediately, regardless the actual runtime of the process that triggered this trigger
+		SchedulerEvent event = obtainEvent(task, trigger);
+		long executionTime = timer.getCurrentMilliseconds();
+		event.nextExecutionTime = executionTime;
+		event.nextPeriodStart = executionTime;
+
+		// add event to queue
+		queue.add(event);
+		updateTimer();
+	}
+
+	/**
+	 * Records the trigger of the task as pending until the task is executed.
+	 * 
+	 * @return false if the task is not scheduled or the trigger is already pending
+	 */
+	protected boolean acceptTrigger(Task task, Trigger trigger) {
+		if (!allTasks.contains(task)) {
+			return false;
+		}
+		// if the trigger has been already scheduled (i.e., there have been many consecutive
+		// invocations of that trigger in a row), then skip this event
+		if (knowledgeChangeTriggers.contains(trigger)) {
+			Log.w("Attempting to re-schedule knowledge change triggered task.");
+			return false;
+		}
+		knowledgeChangeTriggers.add(trigger);
+		return true;
+	}
+
 	@Override
 	public void removeTask(Task task) {
 		if (!allTasks.contains(task)) {
@@ -115,9 +154,15 @@ public class SingleThreadedScheduler implements Scheduler {
 		task.unsetTriggerListener();
 
 		// Remove scheduler events for the task
-		queue.removeAllTaskEvents(task);
+		for (SchedulerEvent event : queue.removeAllTaskEvents(task)) {
+			recycleEvent(event);
+		}
+		// the event being dispatched is not in the queue, it must not be re-queued
+		// even if the task is added again before the dispatching completes
+		if ((dispatchedEvent != null) && (dispatchedEvent.executable == task)) {
+			dispatchedEvent.state = SchedulerEvent.CANCELLED;
+		}
 
-		timeTriggeredEvents.remove(task);
 		allTasks.remove(task);
 	}
 
@@ -165,23 +210,36 @@ public class SingleThreadedScheduler implements Scheduler {
 			SchedulerEvent event = queue.pollFirst();
 
 			if (event.state != SchedulerEvent.HIBERNATED) {
-				executor.execute(event.executable, event.trigger);
+				dispatchedEvent = event;
+				try {
+					executor.execute(event.executable, event.trigger);
+				} finally {
+					dispatchedEvent = null;
+				}
 			}
 
-			if (event.periodic) {
-				// schedule for the next period add a random offset within the period (up to 75% of the period)
-				long period = event.executable.getTimeTrigger().getPeriod();
-				event.nextPeriodStart += period;
-				event.nextExecutionTime = event.nextPeriodStart;
-				queue.add(event);
+			if (event.state == SchedulerEvent.CANCELLED) {
+				// the task has been removed during its execution, possibly added again with new events
+				recycleEvent(event);
+			} else if (event.periodic) {
+				if (allTasks.contains(event.executable)) {
+					// schedule for the next period add a random offset within the period (up to 75% of the period)
+					long period = event.executable.getTimeTrigger().getPeriod();
+					event.nextPeriodStart += period;
+					event.nextExecutionTime = event.nextPeriodStart;
+					queue.add(event);
+				} else {
+					// the task has been removed during its execution
+					recycleEvent(event);
+				}
 			} else {
 				// Check if we can remove the task completely as it has no triggers
 				// This is quite important as we can run out of memory if the owner of the task does not remove it
 				// manually
 				if (queue.getTaskEvents(event.executable).isEmpty()) {
-					timeTriggeredEvents.remove(event.executable);
 					allTasks.remove(event.executable);
 				}
+				recycleEvent(event);
 			}
 		}
 		
@@ -193,27 +251,68 @@ public class SingleThreadedScheduler implements Scheduler {
 	 * Update timer to call us at the next queue event
 	 */
 	private void updateTimer() {
-		timer.notifyAt(queue.first().nextExecutionTime, this, queue.first().executable.getName(), node);
+		if (!queue.isEmpty()) {
+			SchedulerEvent first = queue.first();
+			timer.notifyAt(first.nextExecutionTime, this, first.executable.getName(), node);
+		}
+	}
+
+	/**
+	 * Gets an event for the task and trigger, reusing a pooled one if available
+	 */
+	private SchedulerEvent obtainEvent(Task task, Trigger trigger) {
+		SchedulerEvent event = eventPool.pollFirst();
+		if (event == null) {
+			return new SchedulerEvent(task, trigger);
+		}
+		event.reset(task, trigger);
+		return event;
+	}
+
+	/**
+	 * Returns an event which is no longer queued to the pool
+	 */
+	private void recycleEvent(SchedulerEvent event) {
+		if (eventPool.size() < MAX_POOLED_EVENTS) {
+			// do not keep the task and trigger reachable from the pool
+			event.reset(null, null);
+			eventPool.addFirst(event);
+		}
 	}
 }
 
+/**
+ * Indexed binary min-heap of scheduler events.
+ * 
+ * Each queued event keeps its position in the heap, so any event can be removed
+ * in O(log n) without searching the queue. Events of the same task are indexed
+ * by the task, so that all of them can be removed when the task is removed.
+ */
 class EventQueue {
-	private final TreeSet<SchedulerEvent> queue = new TreeSet<>();
-	private final Map<Task, Set<SchedulerEvent>> queueEvents = new HashMap<>();
+	private SchedulerEvent[] heap = new SchedulerEvent[16];
+	private int size;
+	private long nextSequence;
+	private final Map<Task, List<SchedulerEvent>> queueEvents = new HashMap<>();
 
 	public boolean isEmpty() {
-		return queue.isEmpty();
+		return size == 0;
+	}
+
+	public int size() {
+		return size;
 	}
 
 	public SchedulerEvent pollFirst() {
-		// Remove the event from events for its task
-		SchedulerEvent event = queue.pollFirst();
-		queueEvents.get(event.executable).remove(event);
+		SchedulerEvent event = first();
+		remove(event);
 		return event;
 	}
 
 	public SchedulerEvent first() {
-		return queue.first();
+		if (size == 0) {
+			throw new NoSuchElementException();
+		}
+		return heap[0];
 	}
 
 	/**
@@ -238,32 +337,131 @@ class EventQueue {
 	 * Adds event to queue
 	 * 
 	 * @param event
-	 *            Event to add
-	 * @param task
-	 *            Task owning the event
+	 *            Event to add, must not be queued already
 	 */
 	public void add(final SchedulerEvent event) {
+		if (event.queueIndex >= 0) {
+			throw new IllegalStateException("The event is already queued: " + event);
+		}
+		if (size == heap.length) {
+			heap = Arrays.copyOf(heap, size * 2);
+		}
+		event.sequence = nextSequence++;
+		event.queueIndex = size;
+		heap[size++] = event;
+		siftUp(event.queueIndex);
+
 		Task task = event.executable;
-		queue.add(event);
-		Set<SchedulerEvent> events = queueEvents.get(task);
+		List<SchedulerEvent> events = queueEvents.get(task);
 		if (events == null) {
-			events = new HashSet<>();
+			events = new ArrayList<>(2);
 			queueEvents.put(task, events);
 		}
 		events.add(event);
 	}
 
+	/**
+	 * Removes event from queue
+	 * 
+	 * @param event
+	 *            Event to remove
+	 * 
+	 * @return true if the event was queued
+	 */
+	public boolean remove(final SchedulerEvent event) {
+		if (event.queueIndex < 0) {
+			return false;
+		}
+		removeAt(event.queueIndex);
+
+		List<SchedulerEvent> events = queueEvents.get(event.executable);
+		// compare by identity, events of the same task may be equal
+		for (int i = 0; i < events.size(); i++) {
+			if (events.get(i) == event) {
+				events.remove(i);
+				break;
+			}
+		}
+		if (events.isEmpty()) {
+			queueEvents.remove(event.executable);
+		}
+		return true;
+	}
+
 	/**
 	 * Removes all task events from queue
 	 * 
 	 * @param task
 	 *            Task defining the events to remove
+	 * 
+	 * @return The removed events
 	 */
-	public void removeAllTaskEvents(final Task task) {
-		Set<SchedulerEvent> eventsToBeRemoved = queueEvents.get(task);
-		if (eventsToBeRemoved != null) {
-			queue.removeAll(queueEvents.get(task));
+	public Collection<SchedulerEvent> removeAllTaskEvents(final Task task) {
+		List<SchedulerEvent> eventsToBeRemoved = queueEvents.remove(task);
+		if (eventsToBeRemoved == null) {
+			return Collections.emptyList();
+		}
+		for (SchedulerEvent event : eventsToBeRemoved) {
+			removeAt(event.queueIndex);
 		}
-		queueEvents.remove(task);
+		return eventsToBeRemoved;
 	}
-}
\ No newline at end of file
+
+	private void removeAt(int index) {
+		SchedulerEvent removed = heap[index];
+		removed.queueIndex = -1;
+		size--;
+		if (index == size) {
+			heap[size] = null;
+			return;
+		}
+		SchedulerEvent last = heap[size];
+		heap[size] = null;
+		last.queueIndex = index;
+		heap[index] = last;
+		if (!siftUp(index)) {
+			siftDown(index);
+		}
+	}
+
+	private boolean siftUp(int index) {
+		SchedulerEvent event = heap[index];
+		int start = index;
+		while (index > 0) {
+			int parentIndex = (index - 1) >>> 1;
+			SchedulerEvent parent = heap[parentIndex];
+			if (event.compareTo(parent) >= 0) {
+				break;
+			}
+			heap[index] = parent;
+			parent.queueIndex = index;
+			index = parentIndex;
+		}
+		heap[index] = event;
+		event.queueIndex = index;
+		return index != start;
+	}
+
+	private void siftDown(int index) {
+		SchedulerEvent event = heap[index];
+		int half = size >>> 1;
+		while (index < half) {
+			int childIndex = 2 * index + 1;
+			SchedulerEvent child = heap[childIndex];
+			int rightIndex = childIndex + 1;
+			if (rightIndex < size && heap[rightIndex].compareTo(child) < 0) {
+				childIndex = rightIndex;
+				child = heap[rightIndex];
+			}
+			if (event.compareTo(child) <= 0) {
+				break;
+			}
+			heap[index] = child;
+			child.queueIndex = index;
+			index = childIndex;
+		}
+		heap[index] = event;
+		event.queueIndex = index;
+	}
+}
+
@@ -9,11 +9,13 @@ import java.security.NoSuchAlgorithmException;
 import java.security.SignatureException;
 import java.security.cert.CertificateEncodingException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Objects;
 
 import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
@@ -22,9 +24,11 @@ import javax.crypto.NoSuchPaddingException;
 import javax.crypto.SealedObject;
 import javax.crypto.ShortBufferException;
 
+import cz.cuni.mff.d3s.deeco.DeecoProperties;
 import cz.cuni.mff.d3s.deeco.knowledge.KnowledgeManager;
 import cz.cuni.mff.d3s.deeco.knowledge.KnowledgeNotFoundException;
 import cz.cuni.mff.d3s.deeco.knowledge.ValueSet;
+import cz.cuni.mff.d3s.deeco.model.runtime.api.ComponentInstance;
 import cz.cuni.mff.d3s.deeco.model.runtime.api.KnowledgePath;
 import cz.cuni.mff.d3s.deeco.model.runtime.api.KnowledgeSecurityTag;
 import cz.cuni.mff.d3s.deeco.model.runtime.api.PathNodeField;
@@ -35,25 +39,74 @@ import cz.cuni.mff.d3s.deeco.task.KnowledgePathHelper;
 
 /**
  * The class managing encryption and decryption of {@link KnowledgeData}.
+ * <p>
+ * The same encrypted symmetric key is received with every value sealed by it and
+ * typically with many {@link KnowledgeData} instances, so the verified metadata signatures,
+ * the decrypted symmetric keys and the transitive closures of the roles of the receiving
+ * components are cached in bounded caches.
+ * </p>
+ * <p>
+ * When publishing, the symmetric key of each target role is reused for a number of publications
+ * given by the key rotation period, and the values sealed by it are reused as long as the
+ * {@link KnowledgeManager#getVersion(KnowledgePath) version} of their knowledge, read together with
+ * the published values, their security tags and authors do not change. Hence only the changed values
+ * are sealed again.
+ * </p>
  *
  * @author Ondřej Štumpf
  */
 public class KnowledgeEncryptor {
 	
+	/** the maximum number of entries in each of the caches */
+	static final int CACHE_SIZE = 256;
+	
+	/** the default number of publications using the same symmetric key */
+	public static final int DEFAULT_KEY_ROTATION_PERIOD = 10;
+	
 	private final SecurityKeyManager keyManager;
 	private final SecurityHelper securityHelper;
 	private final RemoteSecurityChecker remoteSecurityChecker;
+	private final int keyRotationPeriod;
+	
+	/** the verified signatures of metadata */
+	private final Map<CacheKey, Boolean> verifiedSignatures = new LruCache<>(CACHE_SIZE);
+	
+	/** the decrypted symmetric keys by the encrypted key, its algorithm and the target role */
+	private final Map<CacheKey, SymmetricKey> symmetricKeys = new LruCache<>(CACHE_SIZE);
+	
+	/** the transitive closures of the roles of components; the roles refer to their components, so the cache is bounded rather than weak */
+	private final Map<ComponentInstance, TransitiveRoles> transitiveRoles = new LruCache<>(CACHE_SIZE);
+	
+	/** the symmetric keys and sealed values of the published knowledge by the knowledge manager and the target role */
+	private final Map<CacheKey, RoleGroup> roleGroups = new LruCache<>(CACHE_SIZE);
 	
 	/**
-	 * Instantiates a new knowledge encryptor.
+	 * Instantiates a new knowledge encryptor with the key rotation period given by the
+	 * {@link DeecoProperties#KEY_ROTATION_PERIOD} property.
 	 *
 	 * @param keyManager
 	 *            the private/public key manager
 	 */
 	public KnowledgeEncryptor(SecurityKeyManager keyManager) {
+		this(keyManager, Integer.getInteger(DeecoProperties.KEY_ROTATION_PERIOD, DEFAULT_KEY_ROTATION_PERIOD));
+	}
+	
+	/**
+	 * Instantiates a new knowledge encryptor.
+	 *
+	 * @param keyManager
+	 *            the private/public key manager
+	 * @param keyRotationPeriod
+	 *            the number of publications using the same symmetric key for a target role
+	 */
+	public KnowledgeEncryptor(SecurityKeyManager keyManager, int keyRotationPeriod) {
+		if (keyRotationPeriod < 1) {
+			throw new IllegalArgumentException("The key rotation period must be positive.");
+		}
 		this.keyManager = keyManager;
 		this.securityHelper = new SecurityHelper();	
 		this.remoteSecurityChecker = new RemoteSecurityChecker();
+		this.keyRotationPeriod = keyRotationPeriod;
 	}
 	
 
@@ -112,6 +165,7 @@ public class KnowledgeEncryptor {
 	/**
 	 * Encrypts the value set, i.e. splits it into several {@link KnowledgeData} instances, each encrypted with different key.
 	 * There is a KnowledgeData instance for each {@link KnowledgeSecurityTag} used in the value set. 
+	 * All the values are sealed again, as their versions are not known.
 	 *
 	 * @param valueSet
 	 *            the value set
@@ -124,12 +178,35 @@ public class KnowledgeEncryptor {
 	 *             the knowledge not found exception
 	 */
 	public List<KnowledgeData> encryptValueSet(ValueSet valueSet, KnowledgeManager knowledgeManager, KnowledgeMetaData metaData) throws KnowledgeNotFoundException {
+		return encryptValueSet(valueSet, null, knowledgeManager, metaData);
+	}
+
+	/**
+	 * Encrypts the value set, i.e. splits it into several {@link KnowledgeData} instances, each encrypted with different key.
+	 * There is a KnowledgeData instance for each {@link KnowledgeSecurityTag} used in the value set. 
+	 * The values sealed before are reused as long as the versions of the knowledge, read together with the values
+	 * by {@link KnowledgeManager#get(java.util.Collection, Map)}, do not change.
+	 *
+	 * @param valueSet
+	 *            the value set
+	 * @param versions
+	 *            the versions of the values in the value set, null if not known
+	 * @param knowledgeManager
+	 *            the knowledge manager
+	 * @param metaData
+	 *            the meta data
+	 * @return the list of knowledge data instances
+	 * @throws KnowledgeNotFoundException
+	 *             the knowledge not found exception
+	 */
+	public List<KnowledgeData> encryptValueSet(ValueSet valueSet, Map<KnowledgePath, Long> versions, KnowledgeManager knowledgeManager, 
+			KnowledgeMetaData metaData) throws KnowledgeNotFoundException {
 		if (valueSet == null) return null;
 		
 		Map<Integer, ValueSet> hashToKnowledge = new HashMap<>();
 		Map<Integer, ValueSet> hashToAuthors = new HashMap<>();
 		Map<Integer, KnowledgeMetaData> hashToMeta = new HashMap<>();
-		Map<Integer, Cipher> hashToCipher = new HashMap<>();	
+		Map<Integer, RoleGroup> hashToGroup = new HashMap<>();	
 		Map<KnowledgePath, List<KnowledgeSecurityTag>> pathToSecurityTags = new HashMap<>();
 		
 		for (KnowledgePath kp : valueSet.getKnowledgePaths()) {
@@ -164,9 +241,10 @@ public class KnowledgeEncryptor {
 						hashToAuthors.put(roleHash, new ValueSet());
 						
 						KnowledgeMetaData meta = metaData.clone();
-						Cipher cipher = prepareCipher(kp, knowledgeManager, tag, meta);
+						RoleGroup group = getRoleGroup(kp, knowledgeManager, tag, roleHash);
+						prepareMetaData(group, meta);
 						
-						hashToCipher.put(roleHash, cipher);
+						hashToGroup.put(roleHash, group);
 						hashToMeta.put(roleHash, meta);						
 					}
 					
@@ -188,7 +266,7 @@ public class KnowledgeEncryptor {
 				result.add(new KnowledgeData(entry.getValue(), new ValueSet(), hashToAuthors.get(null), new ArrayList<String>(), meta));
 			} else {				
 				ValueSet knowledgeSet = entry.getValue();
-				Cipher cipher = hashToCipher.get(entry.getKey());
+				RoleGroup group = hashToGroup.get(entry.getKey());
 				ValueSet authors = hashToAuthors.get(entry.getKey());
 				
 				// associate each knowledge path with a list of security tags
@@ -197,9 +275,7 @@ public class KnowledgeEncryptor {
 					securitySet.setValue(path, pathToSecurityTags.get(path) );
 				}				
 				
-				seal(knowledgeSet, cipher);
-				seal(securitySet, cipher);
-				seal(authors, cipher);
+				seal(knowledgeSet, securitySet, authors, group, versions);
 				result.add(new KnowledgeData(knowledgeSet, securitySet, authors, new ArrayList<String>(), meta));
 			}
 		}
@@ -220,16 +296,7 @@ public class KnowledgeEncryptor {
 	 */
 	private Object accessValue(SealedObject sealedObject, KnowledgeManager replica, KnowledgeMetaData metaData) throws KnowledgeNotFoundException {
 		// verify signature on metadata
-		boolean verificationSucceeded = true;
-		try {
-			verificationSucceeded = securityHelper.verify(metaData.signature, keyManager.getIntegrityPublicKey(), metaData.componentId, metaData.versionId, metaData.targetRoleHash);
-		} catch (InvalidKeyException | CertificateEncodingException
-				| SignatureException | NoSuchAlgorithmException
-				| KeyStoreException | SecurityException | IllegalStateException e1) {
-			verificationSucceeded = false;
-		}
-		
-		if (!verificationSucceeded) {
+		if (!verifySignature(metaData)) {
 			throw new SecurityException();
 		}
 		
@@ -237,20 +304,21 @@ public class KnowledgeEncryptor {
 		boolean decryptionSucceeded = false;
 		
 		// gets the roles transitive closure
-		List<SecurityRole> transitiveRoles = RoleHelper.getTransitiveRoles(replica.getComponent().getSecurityRoles());
+		List<SecurityRole> transitiveRoles = getTransitiveRoles(replica.getComponent());
+		RoleWithArguments roleWithArguments = keyManager.getRoleByKey(metaData.targetRoleHash);
 		
 		// try each role, if it can decrypt the data
 		for (SecurityRole role : transitiveRoles) {			
-			RoleWithArguments roleWithArguments = keyManager.getRoleByKey(metaData.targetRoleHash);
 			if (!remoteSecurityChecker.checkSecurity(role, roleWithArguments, replica.getComponent().getKnowledgeManager())) {
 				decryptionSucceeded = false;
 				continue;
 			}
 
 			try {
-				Key privateKey = keyManager.getPrivateKey(roleWithArguments.roleName, roleWithArguments.arguments);				
-				Key decryptedSymmetricKey = securityHelper.decryptKey(metaData.encryptedKey, metaData.encryptedKeyAlgorithm, privateKey);
-				value = sealedObject.getObject(securityHelper.getSymmetricCipher(Cipher.DECRYPT_MODE, decryptedSymmetricKey));
+				SymmetricKey symmetricKey = getSymmetricKey(roleWithArguments, metaData);
+				synchronized (symmetricKey) {
+					value = sealedObject.getObject(symmetricKey.cipher);
+				}
 				
 				decryptionSucceeded = true;				
 				break; 
@@ -269,18 +337,116 @@ public class KnowledgeEncryptor {
 		return value;
 	}
 	
+	/**
+	 * Verifies the signature of the metadata, unless it was verified before.
+	 * @param metaData
+	 * 			the metadata as received
+	 * @return true if the signature is valid
+	 */
+	private boolean verifySignature(KnowledgeMetaData metaData) {
+		CacheKey key = new CacheKey(metaData.signature, metaData.componentId, metaData.versionId, metaData.targetRoleHash);
+		synchronized (verifiedSignatures) {
+			if (verifiedSignatures.containsKey(key)) {
+				return true;
+			}
+		}
+		
+		boolean verificationSucceeded;
+		try {
+			verificationSucceeded = securityHelper.verify(metaData.signature, keyManager.getIntegrityPublicKey(), metaData.componentId, metaData.versionId, metaData.targetRoleHash);
+		} catch (InvalidKeyException | CertificateEncodingException
+				| SignatureException | NoSuchAlgorithmException
+				| KeyStoreException | SecurityException | IllegalStateException e1) {
+			verificationSucceeded = false;
+		}
+		
+		if (verificationSucceeded) {
+			synchronized (verifiedSignatures) {
+				verifiedSignatures.put(key, Boolean.TRUE);
+			}
+		}
+		return verificationSucceeded;
+	}
+	
+	/**
+	 * Gets the symmetric key from the metadata decrypted by the private key of the target role. 
+	 * The successfully decrypted keys are cached.
+	 * @param roleWithArguments
+	 * 			the target role
+	 * @param metaData
+	 * 			the metadata as received
+	 * @return the symmetric key with the cipher for decryption
+	 */
+	private SymmetricKey getSymmetricKey(RoleWithArguments roleWithArguments, KnowledgeMetaData metaData) throws InvalidKeyException, CertificateEncodingException, KeyStoreException, NoSuchAlgorithmException, SecurityException, SignatureException, IllegalStateException, NoSuchPaddingException, ShortBufferException, IllegalBlockSizeException, BadPaddingException, IOException {
+		CacheKey key = new CacheKey(metaData.encryptedKey, metaData.encryptedKeyAlgorithm, metaData.targetRoleHash);
+		SymmetricKey symmetricKey;
+		synchronized (symmetricKeys) {
+			symmetricKey = symmetricKeys.get(key);
+		}
+		
+		if (symmetricKey == null) {
+			Key privateKey = keyManager.getPrivateKey(roleWithArguments.roleName, roleWithArguments.arguments);				
+			Key decryptedSymmetricKey = securityHelper.decryptKey(metaData.encryptedKey, metaData.encryptedKeyAlgorithm, privateKey);
+			symmetricKey = new SymmetricKey(securityHelper.getSymmetricCipher(Cipher.DECRYPT_MODE, decryptedSymmetricKey));
+			synchronized (symmetricKeys) {
+				symmetricKeys.put(key, symmetricKey);
+			}
+		}
+		return symmetricKey;
+	}
 	
 	/**
-	 * Creates an instance of {@link Cipher} for the given security tag and modifies the given metadata instance accordingly.
+	 * Gets the transitive closure of the roles of the given component, computed again only if its roles change.
+	 * The roles the component roles consist of are expected not to change.
+	 */
+	private List<SecurityRole> getTransitiveRoles(ComponentInstance component) {
+		List<SecurityRole> roles = component.getSecurityRoles();
+		synchronized (transitiveRoles) {
+			TransitiveRoles cached = transitiveRoles.get(component);
+			if (cached == null || !cached.roles.equals(roles)) {
+				cached = new TransitiveRoles(new ArrayList<>(roles), RoleHelper.getTransitiveRoles(roles));
+				transitiveRoles.put(component, cached);
+			}
+			return cached.closure;
+		}
+	}
+	
+	
+	/**
+	 * Gets the symmetric key and the sealed values for the given knowledge manager and target role,
+	 * creating a new symmetric key if there is none or the previous one was used for the key rotation period.
+	 * @param securedPath
+	 * 			the secured knowledge path
 	 * @param knowledgeManager
 	 * 			the knowledge manager containing data referenced by the security role
 	 * @param tag
 	 * 			the security tag
-	 * @param metaData
-	 * 			the metadata
-	 * @return the cipher
+	 * @param roleHash
+	 * 			the key of the target role
+	 * @return the role group to be used for one publication
+	 */
+	private RoleGroup getRoleGroup(KnowledgePath securedPath, KnowledgeManager knowledgeManager, KnowledgeSecurityTag tag, Integer roleHash) {
+		CacheKey key = new CacheKey(null, knowledgeManager.getId(), roleHash);
+		synchronized (roleGroups) {
+			RoleGroup group = roleGroups.get(key);
+			if (group == null || group.publications >= keyRotationPeriod) {
+				group = createRoleGroup(securedPath, knowledgeManager, tag);
+				roleGroups.put(key, group);
+			}
+			group.publications++;
+			return group;
+		}
+	}
+	
+	/**
+	 * Creates a new symmetric key for the given security tag, encrypted by the public key of the target role.
+	 * @param knowledgeManager
+	 * 			the knowledge manager containing data referenced by the security role
+	 * @param tag
+	 * 			the security tag
+	 * @return the role group with the new key
 	 */
-	private Cipher prepareCipher(KnowledgePath securedPath, KnowledgeManager knowledgeManager, KnowledgeSecurityTag tag, KnowledgeMetaData metaData) {
+	private RoleGroup createRoleGroup(KnowledgePath securedPath, KnowledgeManager knowledgeManager, KnowledgeSecurityTag tag) {
 		try {
 			String roleName = tag.getRequiredRole().getRoleName();
 			Map<String, Object> arguments = RoleHelper.readRoleArguments(securedPath, tag.getRequiredRole(), knowledgeManager);
@@ -294,12 +460,8 @@ public class KnowledgeEncryptor {
 			// encrypt the symmetric key using the public key
 			byte[] encryptedKey = securityHelper.encryptKey(symmetricKey, publicKey);
 			
-			metaData.encryptedKey = encryptedKey;
-			metaData.encryptedKeyAlgorithm = symmetricKey.getAlgorithm();
-			metaData.targetRoleHash = keyManager.getRoleKey(roleName, arguments);			
-			metaData.signature = securityHelper.sign(keyManager.getIntegrityPrivateKey(), metaData.componentId, metaData.versionId, metaData.targetRoleHash);
-			
-			return securityHelper.getSymmetricCipher(Cipher.ENCRYPT_MODE, symmetricKey);
+			return new RoleGroup(securityHelper.getSymmetricCipher(Cipher.ENCRYPT_MODE, symmetricKey), encryptedKey, 
+					symmetricKey.getAlgorithm(), keyManager.getRoleKey(roleName, arguments));
 		} catch (InvalidKeyException | CertificateEncodingException
 				| KeyStoreException | NoSuchAlgorithmException
 				| SecurityException | SignatureException
@@ -311,24 +473,174 @@ public class KnowledgeEncryptor {
 	}
 	
 	/**
-	 * Replaces each value in the value set with its encrypted version.
-	 * @param values
+	 * Modifies the given metadata instance according to the role group and signs it. The signature
+	 * is reused if the same version of the component knowledge was signed before.
+	 * @param group
+	 * 			the role group
+	 * @param metaData
+	 * 			the metadata
+	 */
+	private void prepareMetaData(RoleGroup group, KnowledgeMetaData metaData) {
+		try {
+			metaData.encryptedKey = group.encryptedKey;
+			metaData.encryptedKeyAlgorithm = group.encryptedKeyAlgorithm;
+			metaData.targetRoleHash = group.targetRoleHash;
+			
+			synchronized (group) {
+				if (group.signature == null || group.signedVersionId != metaData.versionId || !Objects.equals(group.signedComponentId, metaData.componentId)) {
+					group.signature = securityHelper.sign(keyManager.getIntegrityPrivateKey(), metaData.componentId, metaData.versionId, metaData.targetRoleHash);
+					group.signedComponentId = metaData.componentId;
+					group.signedVersionId = metaData.versionId;
+				}
+				metaData.signature = group.signature;
+			}
+		} catch (InvalidKeyException | CertificateEncodingException
+				| KeyStoreException | NoSuchAlgorithmException
+				| SecurityException | SignatureException
+				| IllegalStateException | NoSuchPaddingException | IOException e) {
+			throw new SecurityException(e);
+		}
+	}
+	
+	/**
+	 * Replaces each value in the value sets with its encrypted version, reusing the values sealed 
+	 * for the previous publications if the knowledge, security tags and author did not change.
+	 * @param knowledgeSet
 	 * 			the values to encrypt
-	 * @param cipher
-	 * 			the cipher to use for encryption
+	 * @param securitySet
+	 * 			the security tags of the values
+	 * @param authors
+	 * 			the authors of the values
+	 * @param group
+	 * 			the role group to use for encryption
+	 * @param versions
+	 * 			the versions of the values, read together with them, null if not known
 	 */
-	private void seal(ValueSet values, Cipher cipher) {				
-		try {						
-			for (KnowledgePath kp : values.getKnowledgePaths()) {
-				Object plainKnowledge = values.getValue(kp);			
-				SealedObject encryptedKnowledge = new SealedObject((Serializable) plainKnowledge, cipher);				
-				values.setValue(kp, encryptedKnowledge);						
-			}		
+	private void seal(ValueSet knowledgeSet, ValueSet securitySet, ValueSet authors, RoleGroup group, Map<KnowledgePath, Long> versions) {				
+		try {
+			synchronized (group) {
+				for (KnowledgePath kp : knowledgeSet.getKnowledgePaths()) {
+					Long readVersion = versions == null ? null : versions.get(kp);
+					long version = readVersion == null ? 0 : readVersion;
+					Object securityTags = securitySet.getValue(kp);
+					Object author = authors.getValue(kp);
+					
+					SealedValue sealedValue = group.sealedValues.get(kp);
+					if (sealedValue == null || version == 0 || sealedValue.version != version
+							|| !Objects.equals(sealedValue.plainSecurityTags, securityTags) || !Objects.equals(sealedValue.plainAuthor, author)) {
+						sealedValue = new SealedValue(version, securityTags, author, 
+								new SealedObject((Serializable) knowledgeSet.getValue(kp), group.cipher),
+								new SealedObject((Serializable) securityTags, group.cipher),
+								new SealedObject((Serializable) author, group.cipher));
+						group.sealedValues.put(kp, sealedValue);
+					}
+					
+					knowledgeSet.setValue(kp, sealedValue.knowledge);
+					securitySet.setValue(kp, sealedValue.securityTags);
+					authors.setValue(kp, sealedValue.author);
+				}
+			}
 		} catch (IllegalBlockSizeException | IOException | SecurityException | IllegalStateException e) {
 			throw new SecurityException(e);
 		}			
 	}
 
+	/**
+	 * The key of the caches consisting of an array of bytes and other values.
+	 */
+	private static final class CacheKey {
+		private final byte[] bytes;
+		private final Object[] values;
+		private final int hash;
+		
+		CacheKey(byte[] bytes, Object... values) {
+			this.bytes = bytes;
+			this.values = values;
+			this.hash = 31 * Arrays.hashCode(bytes) + Arrays.hashCode(values);
+		}
+		
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof CacheKey)) return false;
+			CacheKey other = (CacheKey) obj;
+			return hash == other.hash && Arrays.equals(bytes, other.bytes) && Arrays.equals(values, other.values);
+		}
+	}
+	
+	/**
+	 * The decrypted symmetric key along with the initialized cipher, used by one thread at a time.
+	 */
+	private static final class SymmetricKey {
+		final Cipher cipher;
+		
+		SymmetricKey(Cipher cipher) {
+			this.cipher = cipher;
+		}
+	}
+	
+	/**
+	 * The symmetric key used for publishing knowledge to a target role, along with the values
+	 * sealed by it, used by one thread at a time.
+	 */
+	private static final class RoleGroup {
+		final Cipher cipher;
+		final byte[] encryptedKey;
+		final String encryptedKeyAlgorithm;
+		final Integer targetRoleHash;
+		final Map<KnowledgePath, SealedValue> sealedValues = new HashMap<>();
+		int publications;
+		byte[] signature;
+		String signedComponentId;
+		long signedVersionId;
+		
+		RoleGroup(Cipher cipher, byte[] encryptedKey, String encryptedKeyAlgorithm, Integer targetRoleHash) {
+			this.cipher = cipher;
+			this.encryptedKey = encryptedKey;
+			this.encryptedKeyAlgorithm = encryptedKeyAlgorithm;
+			this.targetRoleHash = targetRoleHash;
+		}
+	}
+	
+	/**
+	 * The sealed value of a knowledge path, its security tags and author, along with the version
+	 * of the knowledge and the plain security tags and author it was sealed with.
+	 */
+	private static final class SealedValue {
+		final long version;
+		final Object plainSecurityTags;
+		final Object plainAuthor;
+		final SealedObject knowledge;
+		final SealedObject securityTags;
+		final SealedObject author;
+		
+		SealedValue(long version, Object plainSecurityTags, Object plainAuthor, SealedObject knowledge, SealedObject securityTags, SealedObject author) {
+			this.version = version;
+			this.plainSecurityTags = plainSecurityTags;
+			this.plainAuthor = plainAuthor;
+			this.knowledge = knowledge;
+			this.securityTags = securityTags;
+			this.author = author;
+		}
+	}
+	
+	/**
+	 * The roles of a component and their transitive closure.
+	 */
+	private static final class TransitiveRoles {
+		final List<SecurityRole> roles;
+		final List<SecurityRole> closure;
+		
+		TransitiveRoles(List<SecurityRole> roles, List<SecurityRole> closure) {
+			this.roles = roles;
+			this.closure = closure;
+		}
+	}
+	
 	/**
 	 * Computes unique hash for given role
 	 */
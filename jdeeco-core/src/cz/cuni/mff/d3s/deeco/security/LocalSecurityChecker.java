@@ -3,6 +3,7 @@ package cz.cuni.mff.d3s.deeco.security;
 import static cz.cuni.mff.d3s.deeco.task.KnowledgePathHelper.getAbsoluteStrippedPath;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.LinkedList;
@@ -17,7 +18,9 @@ import cz.cuni.mff.d3s.deeco.knowledge.KnowledgeManagerContainer;
 import cz.cuni.mff.d3s.deeco.knowledge.KnowledgeNotFoundException;
 import cz.cuni.mff.d3s.deeco.knowledge.ReadOnlyKnowledgeManager;
 import cz.cuni.mff.d3s.deeco.logging.Log;
+import cz.cuni.mff.d3s.deeco.model.runtime.api.ComponentInstance;
 import cz.cuni.mff.d3s.deeco.model.runtime.api.EnsembleController;
+import cz.cuni.mff.d3s.deeco.model.runtime.api.EnsembleDefinition;
 import cz.cuni.mff.d3s.deeco.model.runtime.api.KnowledgePath;
 import cz.cuni.mff.d3s.deeco.model.runtime.api.KnowledgeSecurityTag;
 import cz.cuni.mff.d3s.deeco.model.runtime.api.LocalKnowledgeTag;
@@ -32,6 +35,11 @@ import cz.cuni.mff.d3s.deeco.task.TaskInvocationException;
 
 /**
  * Performs security checks before knowledge exchange between two local components.
+ * <p>
+ * The decisions are cached by the ensemble, the role of the local component and the IDs of the knowledge managers,
+ * along with the {@link ReadOnlyKnowledgeManager#getVersion(KnowledgePath) versions} of the knowledge and security tags
+ * they were made from and the roles of the components. A decision is made again when any of them changes.
+ * </p>
  * @author Ondřej Štumpf
  */
 public class LocalSecurityChecker {
@@ -45,6 +53,18 @@ public class LocalSecurityChecker {
 	/** Reference to the corresponding {@link ModelSecurityValidator}. */
 	ModelSecurityValidator modelSecurityValidator;
 	
+	/** The maximum number of cached decisions. */
+	static final int CACHE_SIZE = 4096;
+	
+	/**
+	 * The decisions by the ensemble, the role of the local component and the IDs of the knowledge managers. Bounded, 
+	 * since the decisions for components that have left are never looked up again.
+	 */
+	private final Map<List<Object>, Decision> decisions = new LruCache<>(CACHE_SIZE);
+	
+	/** The knowledge paths of the parameters of the last checked ensemble. */
+	private ParameterPaths parameterPaths;
+	
 	/**
 	 * Instantiates a new local security checker.
 	 *
@@ -73,33 +93,56 @@ public class LocalSecurityChecker {
 	 *             the task invocation exception
 	 */
 	public boolean checkSecurity(PathRoot localRole, ReadOnlyKnowledgeManager shadowKnowledgeManager) throws TaskInvocationException {
-		boolean canAccess;
+		EnsembleDefinition ensembleDefinition = ensembleController.getEnsembleDefinition();
+		KnowledgeManager localKnowledgeManager = ensembleController.getComponentInstance().getKnowledgeManager();
+		boolean isReplica = kmContainer.hasReplica(shadowKnowledgeManager.getId());
+		List<Object> roles = getRoles(localKnowledgeManager.getComponent(), shadowKnowledgeManager.getComponent());
 		
-		Collection<Parameter> formalParamsOfMembership = ensembleController.getEnsembleDefinition().getMembership().getParameters();
-		Collection<Parameter> formalParamsOfExchange = ensembleController.getEnsembleDefinition().getKnowledgeExchange().getParameters();
+		List<Object> key = Arrays.asList(ensembleDefinition, localRole, localKnowledgeManager.getId(), shadowKnowledgeManager.getId());
+		synchronized (decisions) {
+			Decision decision = decisions.get(key);
+			if (decision != null && decision.isCurrent(isReplica, roles, localKnowledgeManager, shadowKnowledgeManager)) {
+				return decision.canAccess;
+			}
+		}
+		
+		RecordingKnowledgeManager recordingLocal = new RecordingKnowledgeManager(localKnowledgeManager);
+		RecordingKnowledgeManager recordingShadow = (shadowKnowledgeManager == localKnowledgeManager) ? recordingLocal : new RecordingKnowledgeManager(shadowKnowledgeManager);
+		boolean canAccess = checkSecurity(localRole, getParameterPaths(ensembleDefinition), isReplica, recordingLocal, recordingShadow, shadowKnowledgeManager);
+		
+		synchronized (decisions) {
+			if (recordingLocal.isComplete() && recordingShadow.isComplete()) {
+				decisions.put(key, new Decision(canAccess, isReplica, roles, localKnowledgeManager, recordingLocal.getReadVersions(), 
+						shadowKnowledgeManager, recordingShadow.getReadVersions()));
+			} else {
+				decisions.remove(key);
+			}
+		}
+		return canAccess;
+	}
+	
+	/**
+	 * Performs the security checks reading the knowledge through the given knowledge managers.
+	 */
+	private boolean checkSecurity(PathRoot localRole, ParameterPaths paths, boolean isReplica, ReadOnlyKnowledgeManager localKnowledgeManager, 
+			ReadOnlyKnowledgeManager shadowKnowledgeManager, ReadOnlyKnowledgeManager originalShadowKnowledgeManager) {
+		boolean canAccess;
 		
-		if (kmContainer.hasReplica(shadowKnowledgeManager.getId())) {
+		if (isReplica) {
 			// if the shadow knowledge manager belongs to a remote component, security is already guaranteed with data encryption in DefaultKnowledgeDataManager
-			canAccess = knowledgePresent(localRole, formalParamsOfMembership.stream().map(Parameter::getKnowledgePath).collect(Collectors.toList()), shadowKnowledgeManager) 
-					 && knowledgePresent(localRole, formalParamsOfExchange.stream().map(Parameter::getKnowledgePath).collect(Collectors.toList()), shadowKnowledgeManager);
+			canAccess = knowledgePresent(localRole, paths.membershipPaths, localKnowledgeManager, shadowKnowledgeManager) 
+					 && knowledgePresent(localRole, paths.exchangePaths, localKnowledgeManager, shadowKnowledgeManager);
 		} else {						
-			Collection<KnowledgePath> knowledgePathsFromMembership = formalParamsOfMembership.stream()
-					.filter(param -> param.getKind() == ParameterKind.IN || param.getKind() == ParameterKind.INOUT)
-					.map(param -> param.getKnowledgePath()).collect(Collectors.toList());
-			Collection<KnowledgePath> knowledgePathsFromExchange = formalParamsOfExchange.stream()
-					.filter(param -> param.getKind() == ParameterKind.IN || param.getKind() == ParameterKind.INOUT)
-					.map(param -> param.getKnowledgePath()).collect(Collectors.toList());
-			
-			canAccess = knowledgePresent(localRole, formalParamsOfMembership.stream().map(Parameter::getKnowledgePath).collect(Collectors.toList()), shadowKnowledgeManager) 
-					 && knowledgePresent(localRole, formalParamsOfExchange.stream().map(Parameter::getKnowledgePath).collect(Collectors.toList()), shadowKnowledgeManager) 
-					 && canAccessKnowledge(localRole, knowledgePathsFromMembership, shadowKnowledgeManager) 
-					 && canAccessKnowledge(localRole, knowledgePathsFromExchange, shadowKnowledgeManager);					
+			canAccess = knowledgePresent(localRole, paths.membershipPaths, localKnowledgeManager, shadowKnowledgeManager) 
+					 && knowledgePresent(localRole, paths.exchangePaths, localKnowledgeManager, shadowKnowledgeManager) 
+					 && canAccessKnowledge(localRole, paths.membershipInputPaths, localKnowledgeManager, shadowKnowledgeManager) 
+					 && canAccessKnowledge(localRole, paths.exchangeInputPaths, localKnowledgeManager, shadowKnowledgeManager);					
 		}		
 		
 		if (canAccess) {
 			// validate that knowledge will not be compromised (i.e. moved to a path with lesser security)		
 			Set<String> compromitationErrors = modelSecurityValidator.validate(localRole, ensembleController.getEnsembleDefinition().getKnowledgeExchange(), 
-					ensembleController.getComponentInstance(), shadowKnowledgeManager);
+					ensembleController.getComponentInstance(), originalShadowKnowledgeManager);
 			
 			if (!compromitationErrors.isEmpty()) {
 				Log.e(compromitationErrors.stream().collect(Collectors.joining(", ")));
@@ -118,13 +161,14 @@ public class LocalSecurityChecker {
 	 * 			the role of the local component (member/coord)
 	 * @param paths
 	 * 			the knowledge paths
+	 * @param localKnowledgeManager
+	 * 			the local knowledge manager
 	 * @param shadowKnowledgeManager
 	 * 			the shadow knowledge manager
 	 * @return true if the local component has such roles that allow it to access the knowledge
 	 */
-	private boolean canAccessKnowledge(PathRoot localRole, Collection<KnowledgePath> paths, ReadOnlyKnowledgeManager shadowKnowledgeManager) {
-		KnowledgeManager localKnowledgeManager = ensembleController.getComponentInstance().getKnowledgeManager();
-		
+	private boolean canAccessKnowledge(PathRoot localRole, Collection<KnowledgePath> paths, ReadOnlyKnowledgeManager localKnowledgeManager, 
+			ReadOnlyKnowledgeManager shadowKnowledgeManager) {
 		boolean canAccessAll = true;
 		
 		// verify each of the paths
@@ -154,9 +198,8 @@ public class LocalSecurityChecker {
 	/**
 	 * Checks if such knowledge is present in the knowledge manager and therefore if it makes sense to validate security.
 	 */
-	private boolean knowledgePresent(PathRoot localRole, Collection<KnowledgePath> paths, ReadOnlyKnowledgeManager shadowKnowledgeManager) {		
-		KnowledgeManager localKnowledgeManager = ensembleController.getComponentInstance().getKnowledgeManager();
-		
+	private boolean knowledgePresent(PathRoot localRole, Collection<KnowledgePath> paths, ReadOnlyKnowledgeManager localKnowledgeManager, 
+			ReadOnlyKnowledgeManager shadowKnowledgeManager) {		
 		try {
 			Collection<KnowledgePath> localPaths = new LinkedList<KnowledgePath>();
 			Collection<KnowledgePath> shadowPaths = new LinkedList<KnowledgePath>();
@@ -185,6 +228,35 @@ public class LocalSecurityChecker {
 			return false;
 		}		
 	}
+	
+	/**
+	 * Gets the knowledge paths of the parameters of the given ensemble, computed again only if the ensemble changes.
+	 */
+	private ParameterPaths getParameterPaths(EnsembleDefinition ensembleDefinition) {
+		ParameterPaths paths = parameterPaths;
+		if (paths == null || paths.ensembleDefinition != ensembleDefinition) {
+			paths = new ParameterPaths(ensembleDefinition);
+			parameterPaths = paths;
+		}
+		return paths;
+	}
+	
+	/**
+	 * Gets the roles of the given components along with their arguments.
+	 */
+	private List<Object> getRoles(ComponentInstance localComponent, ComponentInstance shadowComponent) {
+		List<Object> roles = new ArrayList<>();
+		for (ComponentInstance component : new ComponentInstance[] { localComponent, shadowComponent }) {
+			if (component != null) {
+				for (SecurityRole role : component.getSecurityRoles()) {
+					roles.add(role);
+					roles.addAll(role.getArguments());
+				}
+			}
+			roles.add(null);
+		}
+		return roles;
+	}
 
 	/**
 	 * @param knowledgeManager
@@ -251,4 +323,67 @@ public class LocalSecurityChecker {
 		return canAccessTag;
 	}
 	
+	/**
+	 * The knowledge paths of the parameters of an ensemble.
+	 */
+	private static class ParameterPaths {
+		
+		final EnsembleDefinition ensembleDefinition;
+		final Collection<KnowledgePath> membershipPaths;
+		final Collection<KnowledgePath> exchangePaths;
+		final Collection<KnowledgePath> membershipInputPaths;
+		final Collection<KnowledgePath> exchangeInputPaths;
+		
+		ParameterPaths(EnsembleDefinition ensembleDefinition) {
+			this.ensembleDefinition = ensembleDefinition;
+			Collection<Parameter> formalParamsOfMembership = ensembleDefinition.getMembership().getParameters();
+			Collection<Parameter> formalParamsOfExchange = ensembleDefinition.getKnowledgeExchange().getParameters();
+			membershipPaths = formalParamsOfMembership.stream().map(Parameter::getKnowledgePath).collect(Collectors.toList());
+			exchangePaths = formalParamsOfExchange.stream().map(Parameter::getKnowledgePath).collect(Collectors.toList());
+			membershipInputPaths = getInputPaths(formalParamsOfMembership);
+			exchangeInputPaths = getInputPaths(formalParamsOfExchange);
+		}
+		
+		private static Collection<KnowledgePath> getInputPaths(Collection<Parameter> parameters) {
+			return parameters.stream()
+					.filter(param -> param.getKind() == ParameterKind.IN || param.getKind() == ParameterKind.INOUT)
+					.map(param -> param.getKnowledgePath()).collect(Collectors.toList());
+		}
+	}
+	
+	/**
+	 * A decision of {@link LocalSecurityChecker#checkSecurity} along with everything it was made from.
+	 */
+	private static class Decision {
+		
+		final boolean canAccess;
+		final boolean isReplica;
+		final List<Object> roles;
+		final ReadOnlyKnowledgeManager localKnowledgeManager;
+		final Map<KnowledgePath, Long> localVersions;
+		final ReadOnlyKnowledgeManager shadowKnowledgeManager;
+		final Map<KnowledgePath, Long> shadowVersions;
+		
+		Decision(boolean canAccess, boolean isReplica, List<Object> roles, ReadOnlyKnowledgeManager localKnowledgeManager, 
+				Map<KnowledgePath, Long> localVersions, ReadOnlyKnowledgeManager shadowKnowledgeManager, Map<KnowledgePath, Long> shadowVersions) {
+			this.canAccess = canAccess;
+			this.isReplica = isReplica;
+			this.roles = roles;
+			this.localKnowledgeManager = localKnowledgeManager;
+			this.localVersions = localVersions;
+			this.shadowKnowledgeManager = shadowKnowledgeManager;
+			this.shadowVersions = shadowVersions;
+		}
+		
+		/**
+		 * Checks that the decision was made for the given knowledge managers and roles and that the knowledge it was made from did not change.
+		 */
+		boolean isCurrent(boolean isReplica, List<Object> roles, ReadOnlyKnowledgeManager localKnowledgeManager, ReadOnlyKnowledgeManager shadowKnowledgeManager) {
+			return this.isReplica == isReplica && this.localKnowledgeManager == localKnowledgeManager 
+					&& this.shadowKnowledgeManager == shadowKnowledgeManager && this.roles.equals(roles)
+					&& RecordingKnowledgeManager.isCurrent(localKnowledgeManager, localVersions)
+					&& RecordingKnowledgeManager.isCurrent(shadowKnowledgeManager, shadowVersions);
+		}
+	}
+	
 }
@@ -0,0 +1,22 @@
+package cz.cuni.mff.d3s.deeco.security;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The map removing the least recently accessed entry when its size exceeds the capacity.
+ */
+final class LruCache<K, V> extends LinkedHashMap<K, V> {
+	private static final long serialVersionUID = 1L;
+	private final int capacity;
+	
+	LruCache(int capacity) {
+		super(16, 0.75f, true);
+		this.capacity = capacity;
+	}
+	
+	@Override
+	protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+		return size() > capacity;
+	}
+}
@@ -0,0 +1,170 @@
+package cz.cuni.mff.d3s.deeco.security;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import cz.cuni.mff.d3s.deeco.knowledge.KnowledgeNotFoundException;
+import cz.cuni.mff.d3s.deeco.knowledge.ReadOnlyKnowledgeManager;
+import cz.cuni.mff.d3s.deeco.knowledge.TriggerListener;
+import cz.cuni.mff.d3s.deeco.knowledge.ValueSet;
+import cz.cuni.mff.d3s.deeco.model.runtime.api.ComponentInstance;
+import cz.cuni.mff.d3s.deeco.model.runtime.api.KnowledgePath;
+import cz.cuni.mff.d3s.deeco.model.runtime.api.KnowledgeSecurityTag;
+import cz.cuni.mff.d3s.deeco.model.runtime.api.PathNodeField;
+import cz.cuni.mff.d3s.deeco.model.runtime.api.SecurityTag;
+import cz.cuni.mff.d3s.deeco.model.runtime.api.Trigger;
+import cz.cuni.mff.d3s.deeco.model.runtime.meta.RuntimeMetadataFactory;
+
+/**
+ * Read-only view of a knowledge manager recording the {@link ReadOnlyKnowledgeManager#getVersion(KnowledgePath) versions}
+ * of the knowledge and security tags read through it, so that a result computed from them can be reused
+ * until they change.
+ *
+ * <p>
+ * Knowledge authored by another component may lead to reading its replica, which is not recorded,
+ * so reading such an author makes the recorded versions incomplete.
+ * </p>
+ */
+class RecordingKnowledgeManager implements ReadOnlyKnowledgeManager {
+
+	private final ReadOnlyKnowledgeManager knowledgeManager;
+	private final Map<KnowledgePath, Long> versions = new HashMap<>();
+	private boolean complete = true;
+
+	RecordingKnowledgeManager(ReadOnlyKnowledgeManager knowledgeManager) {
+		this.knowledgeManager = knowledgeManager;
+	}
+
+	/**
+	 * Provides the versions of the knowledge read so far.
+	 */
+	Map<KnowledgePath, Long> getReadVersions() {
+		return versions;
+	}
+
+	/**
+	 * Returns false if anything was read from other knowledge managers.
+	 */
+	boolean isComplete() {
+		return complete;
+	}
+
+	/**
+	 * Checks that none of the given versions of the knowledge of the given knowledge manager changed.
+	 */
+	static boolean isCurrent(ReadOnlyKnowledgeManager knowledgeManager, Map<KnowledgePath, Long> versions) {
+		for (Entry<KnowledgePath, Long> entry : versions.entrySet()) {
+			if (knowledgeManager.getVersion(entry.getKey()) != entry.getValue()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void record(KnowledgePath knowledgePath) {
+		if (!versions.containsKey(knowledgePath)) {
+			versions.put(knowledgePath, knowledgeManager.getVersion(knowledgePath));
+		}
+	}
+
+	private void record(PathNodeField pathNodeField) {
+		KnowledgePath knowledgePath = RuntimeMetadataFactory.eINSTANCE.createKnowledgePath();
+		PathNodeField field = RuntimeMetadataFactory.eINSTANCE.createPathNodeField();
+		field.setName(pathNodeField.getName());
+		knowledgePath.getNodes().add(field);
+		record(knowledgePath);
+	}
+
+	@Override
+	public ValueSet get(Collection<KnowledgePath> knowledgeReferenceList) throws KnowledgeNotFoundException {
+		for (KnowledgePath knowledgePath : knowledgeReferenceList) {
+			record(knowledgePath);
+		}
+		return knowledgeManager.get(knowledgeReferenceList);
+	}
+
+	@Override
+	public ValueSet get(Collection<KnowledgePath> knowledgeReferenceList, Map<KnowledgePath, Long> versions)
+			throws KnowledgeNotFoundException {
+		for (KnowledgePath knowledgePath : knowledgeReferenceList) {
+			record(knowledgePath);
+		}
+		return knowledgeManager.get(knowledgeReferenceList, versions);
+	}
+
+	@Override
+	public Collection<KnowledgePath> getAllPaths() {
+		record(RuntimeMetadataFactory.eINSTANCE.createKnowledgePath());
+		return knowledgeManager.getAllPaths();
+	}
+
+	@Override
+	public List<KnowledgeSecurityTag> getKnowledgeSecurityTags(PathNodeField pathNodeField) {
+		record(pathNodeField);
+		return knowledgeManager.getKnowledgeSecurityTags(pathNodeField);
+	}
+
+	@Override
+	public List<SecurityTag> getSecurityTags(PathNodeField pathNodeField) {
+		record(pathNodeField);
+		return knowledgeManager.getSecurityTags(pathNodeField);
+	}
+
+	@Override
+	public String getAuthor(KnowledgePath knowledgePath) {
+		record(knowledgePath);
+		String author = knowledgeManager.getAuthor(knowledgePath);
+		if (author != null && !author.equals(knowledgeManager.getId())) {
+			complete = false;
+		}
+		return author;
+	}
+
+	@Override
+	public boolean isLocked(KnowledgePath knowledgePath) {
+		return knowledgeManager.isLocked(knowledgePath);
+	}
+
+	@Override
+	public long getVersion(KnowledgePath knowledgePath) {
+		return knowledgeManager.getVersion(knowledgePath);
+	}
+
+	@Override
+	public void register(Trigger trigger, TriggerListener triggerListener) {
+		knowledgeManager.register(trigger, triggerListener);
+	}
+
+	@Override
+	public void unregister(Trigger trigger, TriggerListener triggerListener) {
+		knowledgeManager.unregister(trigger, triggerListener);
+	}
+
+	@Override
+	public String getId() {
+		return knowledgeManager.getId();
+	}
+
+	@Override
+	public boolean isLocal(KnowledgePath knowledgePath) {
+		return knowledgeManager.isLocal(knowledgePath);
+	}
+
+	@Override
+	public Collection<KnowledgePath> getLocalPaths() {
+		return knowledgeManager.getLocalPaths();
+	}
+
+	@Override
+	public ComponentInstance getComponent() {
+		return knowledgeManager.getComponent();
+	}
+
+	@Override
+	public Class<?>[] getRoles() {
+		return knowledgeManager.getRoles();
+	}
+}
@@ -0,0 +1,199 @@
+package cz.cuni.mff.d3s.deeco.task;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import cz.cuni.mff.d3s.deeco.knowledge.KnowledgeManager;
+import cz.cuni.mff.d3s.deeco.knowledge.KnowledgeNotFoundException;
+import cz.cuni.mff.d3s.deeco.model.runtime.api.ComponentProcess;
+import cz.cuni.mff.d3s.deeco.model.runtime.api.KnowledgePath;
+import cz.cuni.mff.d3s.deeco.model.runtime.api.Parameter;
+import cz.cuni.mff.d3s.deeco.model.runtime.api.ParameterKind;
+
+/**
+ * Binding of the parameters of a {@link ComponentProcess} to the knowledge,
+ * prepared once and reused by every invocation of the {@link ProcessTask}.
+ *
+ * The absolute knowledge paths of the parameters without map keys do not depend
+ * on the knowledge, so they are resolved when the plan is compiled. Paths with
+ * map keys depend on the current values of the keys and are resolved on each
+ * invocation. The process method is called through a {@link MethodHandle}, and
+ * the argument array and the {@link ParamHolder}s are reused among the
+ * invocations.
+ *
+ * The resolved paths are shared by the invocations, so they are only read by
+ * the knowledge manager; the paths of the output knowledge are copied by
+ * {@link #copyPath(KnowledgePath[], int)}, as the knowledge manager may keep
+ * them.
+ */
+class ProcessBindingPlan {
+
+	private final KnowledgeManager knowledgeManager;
+	private final Parameter[] parameters;
+	private final ParameterKind[] kinds;
+	/** The absolute paths, null for the paths resolved on each invocation */
+	private final KnowledgePath[] staticPaths;
+	private final boolean dynamic;
+	/** The IN and INOUT paths when none of the paths is dynamic */
+	private final List<KnowledgePath> staticInPaths;
+	private final MethodHandle invoker;
+	private final Method method;
+
+	private Object[] arguments;
+
+	ProcessBindingPlan(ComponentProcess process, KnowledgeManager knowledgeManager) {
+		this.knowledgeManager = knowledgeManager;
+		parameters = process.getParameters().toArray(new Parameter[process.getParameters().size()]);
+		kinds = new ParameterKind[parameters.length];
+		staticPaths = new KnowledgePath[parameters.length];
+
+		boolean dynamic = false;
+		for (int i = 0; i < parameters.length; i++) {
+			kinds[i] = parameters[i].getKind();
+			KnowledgePath path = parameters[i].getKnowledgePath();
+			if (KnowledgePathHelper.isAbsolutePath(path)) {
+				staticPaths[i] = KnowledgePathHelper.cloneKnowledgePath(path);
+			} else {
+				dynamic = true;
+			}
+		}
+		this.dynamic = dynamic;
+		staticInPaths = dynamic ? null : Collections.unmodifiableList(getInPaths(staticPaths));
+
+		method = process.getMethod();
+		invoker = createInvoker(method, parameters.length);
+		arguments = new Object[parameters.length];
+	}
+
+	/**
+	 * Checks whether the plan has been compiled for the knowledge manager.
+	 */
+	boolean isValidFor(KnowledgeManager knowledgeManager) {
+		return this.knowledgeManager == knowledgeManager;
+	}
+
+	Parameter[] getParameters() {
+		return parameters;
+	}
+
+	ParameterKind[] getKinds() {
+		return kinds;
+	}
+
+	/**
+	 * Gets the absolute paths of the parameters in the current knowledge. The
+	 * returned array must not be modified.
+	 */
+	KnowledgePath[] resolvePaths() throws KnowledgeNotFoundException {
+		if (!dynamic) {
+			return staticPaths;
+		}
+		KnowledgePath[] paths = new KnowledgePath[parameters.length];
+		for (int i = 0; i < parameters.length; i++) {
+			paths[i] = staticPaths[i] != null ? staticPaths[i]
+					: KnowledgePathHelper.getAbsolutePath(parameters[i].getKnowledgePath(), knowledgeManager);
+		}
+		return paths;
+	}
+
+	/**
+	 * Gets the IN and INOUT paths among the resolved paths.
+	 */
+	List<KnowledgePath> getInPaths(KnowledgePath[] paths) {
+		if (paths == staticPaths && staticInPaths != null) {
+			return staticInPaths;
+		}
+		List<KnowledgePath> inPaths = new ArrayList<>(paths.length);
+		for (int i = 0; i < paths.length; i++) {
+			if (kinds[i] == ParameterKind.IN || kinds[i] == ParameterKind.INOUT) {
+				inPaths.add(paths[i]);
+			}
+		}
+		return inPaths;
+	}
+
+	/**
+	 * Gets a resolved path which may be kept by its user, copying it unless it
+	 * has been resolved for this invocation only.
+	 */
+	KnowledgePath copyPath(KnowledgePath[] paths, int index) {
+		if (paths[index] != staticPaths[index]) {
+			return paths[index];
+		}
+		return KnowledgePathHelper.cloneKnowledgePath(paths[index]);
+	}
+
+	/**
+	 * Gets the argument array for an invocation; it has to be returned by
+	 * {@link #releaseArguments(Object[])} when the invocation completes.
+	 */
+	Object[] acquireArguments() {
+		Object[] result = arguments;
+		if (result == null) {
+			// the process is being invoked already
+			return new Object[parameters.length];
+		}
+		arguments = null;
+		return result;
+	}
+
+	void releaseArguments(Object[] arguments) {
+		for (int i = 0; i < arguments.length; i++) {
+			// keep the holders, but do not keep the knowledge reachable
+			if (arguments[i] instanceof ParamHolder<?>) {
+				((ParamHolder<?>) arguments[i]).value = null;
+			} else {
+				arguments[i] = null;
+			}
+		}
+		this.arguments = arguments;
+	}
+
+	/**
+	 * Gets a holder for an OUT or INOUT parameter from the arguments.
+	 */
+	@SuppressWarnings("unchecked")
+	static ParamHolder<Object> getHolder(Object[] arguments, int index) {
+		if (arguments[index] instanceof ParamHolder<?>) {
+			return (ParamHolder<Object>) arguments[index];
+		}
+		ParamHolder<Object> holder = new ParamHolder<>();
+		arguments[index] = holder;
+		return holder;
+	}
+
+	/**
+	 * Calls the process method with the given arguments.
+	 *
+	 * @throws InvocationTargetException
+	 *             if the process method throws an exception
+	 */
+	void invoke(Object[] arguments) throws IllegalAccessException, InvocationTargetException {
+		if (invoker == null) {
+			method.invoke(null, arguments);
+			return;
+		}
+		try {
+			invoker.invokeExact(arguments);
+		} catch (Throwable e) {
+			throw new InvocationTargetException(e);
+		}
+	}
+
+	private static MethodHandle createInvoker(Method method, int parameterCount) {
+		try {
+			MethodHandle handle = MethodHandles.publicLookup().unreflect(method);
+			return handle.asSpreader(Object[].class, parameterCount).asType(
+					MethodType.methodType(void.class, Object[].class));
+		} catch (IllegalAccessException | IllegalArgumentException e) {
+			// fall back to the reflection, which reports the problem on the invocation
+			return null;
+		}
+	}
+}
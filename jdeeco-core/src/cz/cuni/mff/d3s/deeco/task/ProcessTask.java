@@ -1,9 +1,6 @@
 package cz.cuni.mff.d3s.deeco.task;
 
 import java.lang.reflect.InvocationTargetException;
-import java.util.Collection;
-import java.util.Iterator;
-import java.util.LinkedList;
 
 import cz.cuni.mff.d3s.deeco.integrity.RatingsManager;
 import cz.cuni.mff.d3s.deeco.knowledge.ChangeSet;
@@ -16,7 +13,6 @@ import cz.cuni.mff.d3s.deeco.logging.Log;
 import cz.cuni.mff.d3s.deeco.model.architecture.api.Architecture;
 import cz.cuni.mff.d3s.deeco.model.runtime.api.ComponentProcess;
 import cz.cuni.mff.d3s.deeco.model.runtime.api.KnowledgePath;
-import cz.cuni.mff.d3s.deeco.model.runtime.api.Parameter;
 import cz.cuni.mff.d3s.deeco.model.runtime.api.ParameterKind;
 import cz.cuni.mff.d3s.deeco.model.runtime.api.TimeTrigger;
 import cz.cuni.mff.d3s.deeco.model.runtime.api.Trigger;
@@ -72,6 +68,11 @@ public class ProcessTask extends Task {
 		}
 	}
 	KnowledgeManagerTriggerListenerImpl knowledgeManagerTriggerListener = new KnowledgeManagerTriggerListenerImpl();
+
+	/**
+	 * The binding of the process parameters to the knowledge, compiled on the first invocation.
+	 */
+	private volatile ProcessBindingPlan bindingPlan;
 	
 	public ProcessTask(ComponentProcess componentProcess, Scheduler scheduler, Architecture architecture, RuntimeLogger runtimeLogger, RatingsManager ratingsManager) {
 		super(scheduler, componentProcess.getName());
@@ -98,47 +99,36 @@ public class ProcessTask extends Task {
 	 * @throws TaskInvocationException signifies a problem in executing the task including the case when parameters cannot be retrieved from / updated in
 	 * the knowledge manager.
 	 */
-	@SuppressWarnings("unchecked")
 	@Override
 	public void invoke(Trigger trigger) throws TaskInvocationException {
 		// Obtain parameters from the knowledge
 		KnowledgeManager knowledgeManager = componentProcess.getComponentInstance().getKnowledgeManager();
-		Collection<Parameter> formalParams = componentProcess.getParameters();
+		ProcessBindingPlan plan = getBindingPlan(knowledgeManager);
+		ParameterKind[] paramKinds = plan.getKinds();
 
-		Collection<KnowledgePath> inPaths = new LinkedList<KnowledgePath>();
-		Collection<KnowledgePath> allPaths = new LinkedList<KnowledgePath>();
-		for (Parameter formalParam : formalParams) {
-			ParameterKind paramDir = formalParam.getKind();
+		// The knowledge is not obtained within one transaction here. This is not a problem because the executors
+		// never run another task accessing the knowledge manager while this one is invoked (see
+		// getAccessedKnowledgeManager).
+		KnowledgePath[] absolutePaths;
+		try {  
+			absolutePaths = plan.resolvePaths();
+		} catch (KnowledgeNotFoundException e) {
+			throw new TaskInvocationException(
+					String.format("Knowledge path (%s) could not be resolved.", e.getNotFoundPath()), e);
+		}
 
-			KnowledgePath absoluteKnowledgePath;
-			// FIXME: The call to getAbsolutePath is in theory wrong, because this way we are not obtaining the
-			// knowledge within one transaction. But fortunately this is not a problem with the single 
-			// threaded scheduler we have at the moment, because once the invoke method starts there is no other
-			// activity whatsoever in the system.
-			try {  
-				absoluteKnowledgePath = KnowledgePathHelper.getAbsolutePath(formalParam.getKnowledgePath(), knowledgeManager);
-			} catch (KnowledgeNotFoundException e) {
-				throw new TaskInvocationException(
-						String.format("Knowledge path (%s) could not be resolved.", e.getNotFoundPath()), e);
-			}
-			
-			if (paramDir == ParameterKind.OUT || paramDir == ParameterKind.INOUT) {
-				if (knowledgeManager.isLocked(absoluteKnowledgePath)) {
-					throw new TaskInvocationException(String.format("Path %s is used as a parameter of a security role and therefore cannot be modified.", absoluteKnowledgePath));
+		for (int i = 0; i < paramKinds.length; i++) {
+			if (paramKinds[i] == ParameterKind.OUT || paramKinds[i] == ParameterKind.INOUT) {
+				if (knowledgeManager.isLocked(absolutePaths[i])) {
+					throw new TaskInvocationException(String.format("Path %s is used as a parameter of a security role and therefore cannot be modified.", absolutePaths[i]));
 				}
 			}
-			
-			if (paramDir == ParameterKind.IN || paramDir == ParameterKind.INOUT) {
-				inPaths.add(absoluteKnowledgePath);
-			}
-			
-			allPaths.add(absoluteKnowledgePath);
 		}
 		
 		ValueSet inKnowledge;
 		
 		try {
-			inKnowledge = knowledgeManager.get(inPaths);
+			inKnowledge = knowledgeManager.get(plan.getInPaths(absolutePaths));
 		} catch (KnowledgeNotFoundException e) {		
 			throw new TaskInvocationException(
 					String.format("Input knowledge (%s) of a component process (%s) not found in the knowledge manager %s.", 
@@ -149,52 +139,40 @@ public class ProcessTask extends Task {
 		}
 
 		// Construct the parameters for the process method invocation
-		Object[] actualParams = new Object[formalParams.size()];
-		
-		int paramIdx = 0;
-		Iterator<KnowledgePath> allPathsIter = allPaths.iterator();
-		for (Parameter formalParam : formalParams) {
-			ParameterKind paramDir = formalParam.getKind();
-			KnowledgePath absoluteKnowledgePath = allPathsIter.next();
+		Object[] actualParams = plan.acquireArguments();
+		try {
+			for (int paramIdx = 0; paramIdx < paramKinds.length; paramIdx++) {
+				ParameterKind paramDir = paramKinds[paramIdx];
+				KnowledgePath absoluteKnowledgePath = absolutePaths[paramIdx];
 
-			if (paramDir == ParameterKind.IN) {
-				actualParams[paramIdx] = inKnowledge.getValue(absoluteKnowledgePath);
-				
-			} else if (paramDir == ParameterKind.OUT) {
-				actualParams[paramIdx] = new ParamHolder<Object>();
-			} else if (paramDir == ParameterKind.INOUT) {
-				actualParams[paramIdx] = new ParamHolder<Object>(inKnowledge.getValue(absoluteKnowledgePath));
-			} else if (paramDir == ParameterKind.RATING) {
-				String knowledgeAuthor = knowledgeManager.getAuthor(absoluteKnowledgePath);
-				actualParams[paramIdx] = ratingsManager.createReadonlyRatingsHolder(knowledgeAuthor, absoluteKnowledgePath); 			
+				if (paramDir == ParameterKind.IN) {
+					actualParams[paramIdx] = inKnowledge.getValue(absoluteKnowledgePath);
+				} else if (paramDir == ParameterKind.OUT) {
+					ProcessBindingPlan.getHolder(actualParams, paramIdx).value = null;
+				} else if (paramDir == ParameterKind.INOUT) {
+					ProcessBindingPlan.getHolder(actualParams, paramIdx).value = inKnowledge.getValue(absoluteKnowledgePath);
+				} else if (paramDir == ParameterKind.RATING) {
+					String knowledgeAuthor = knowledgeManager.getAuthor(absoluteKnowledgePath);
+					actualParams[paramIdx] = ratingsManager.createReadonlyRatingsHolder(knowledgeAuthor, absoluteKnowledgePath); 			
+				}
+				// TODO: We could have an option of not creating the wrapper. That would make it easier to work with mutable out types.
+				// TODO: We need some way of handling insertions/deletions in a hashmap.
 			}
-			// TODO: We could have an option of not creating the wrapper. That would make it easier to work with mutable out types.
-			// TODO: We need some way of handling insertions/deletions in a hashmap.
-			
-			paramIdx++;
-		}
-		
-		try {
+
 			// Set the current process's context
 			ProcessContext.addContext(componentProcess, scheduler.getTimer(), architecture, runtimeLogger);
 			
 			// Call the process method
-			componentProcess.getMethod().invoke(null, actualParams);
+			plan.invoke(actualParams);
 			
 			// Create a changeset
 			ChangeSet changeSet = new ChangeSet();
 			
-			paramIdx = 0;
-			allPathsIter = allPaths.iterator();
-			for (Parameter formalParam : formalParams) {
-				ParameterKind paramDir = formalParam.getKind();
-				KnowledgePath absoluteKnowledgePath = allPathsIter.next();
-
+			for (int paramIdx = 0; paramIdx < paramKinds.length; paramIdx++) {
+				ParameterKind paramDir = paramKinds[paramIdx];
 				if (paramDir == ParameterKind.OUT || paramDir == ParameterKind.INOUT) {
-					changeSet.setValue(absoluteKnowledgePath, ((ParamHolder<Object>)actualParams[paramIdx]).value);
+					changeSet.setValue(plan.copyPath(absolutePaths, paramIdx), ((ParamHolder<?>) actualParams[paramIdx]).value);
 				}
-
-				paramIdx++;
 			}
 			
 			// Write the changeset back to the knowledge
@@ -210,7 +188,21 @@ public class ProcessTask extends Task {
 					e.getTargetException());
 			throw new TaskInvocationException(String.format("Process method \"%s\" returned an exception.", componentProcess.getName()),
 					e.getTargetException());
-		}		
+		} finally {
+			plan.releaseArguments(actualParams);
+		}
+	}
+
+	/**
+	 * Gets the binding plan of the process, compiling it when the task is invoked for the first time.
+	 */
+	private ProcessBindingPlan getBindingPlan(KnowledgeManager knowledgeManager) {
+		ProcessBindingPlan plan = bindingPlan;
+		if (plan == null || !plan.isValidFor(knowledgeManager)) {
+			plan = new ProcessBindingPlan(componentProcess, knowledgeManager);
+			bindingPlan = plan;
+		}
+		return plan;
 	}
 
 	/* (non-Javadoc)
@@ -256,6 +248,14 @@ public class ProcessTask extends Task {
 		return null;
 	}
 	
+	/**
+	 * Returns the local knowledge manager of the component, which is the only knowledge accessed by the process.
+	 */
+	@Override
+	public KnowledgeManager getAccessedKnowledgeManager() {
+		return componentProcess.getComponentInstance().getKnowledgeManager();
+	}
+
 	public String toString() {
 		return componentProcess.getName();
 	}
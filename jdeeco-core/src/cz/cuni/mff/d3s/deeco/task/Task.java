@@ -1,5 +1,6 @@
 package cz.cuni.mff.d3s.deeco.task;
 
+import cz.cuni.mff.d3s.deeco.knowledge.KnowledgeManager;
 import cz.cuni.mff.d3s.deeco.model.runtime.api.TimeTrigger;
 import cz.cuni.mff.d3s.deeco.model.runtime.api.Trigger;
 import cz.cuni.mff.d3s.deeco.scheduler.Scheduler;
@@ -76,4 +77,13 @@ public abstract class Task {
 	 * Returns the time trigger associated with the task. 
 	 */
 	abstract public TimeTrigger getTimeTrigger();
+
+	/**
+	 * Returns the knowledge manager the task reads and writes when invoked, or null if the task may access any knowledge
+	 * of the node. Executors running tasks concurrently use it to serialize the tasks accessing the same knowledge, while
+	 * the tasks returning null are executed exclusively.
+	 */
+	public KnowledgeManager getAccessedKnowledgeManager() {
+		return null;
+	}
 }
@@ -0,0 +1,38 @@
+package cz.cuni.mff.d3s.deeco.timer;
+
+import java.util.Map;
+
+import cz.cuni.mff.d3s.deeco.runtime.DEECoContainer;
+
+/**
+ * Event delivered to a container by {@link DeliveryTimer#deliverAt}.
+ * 
+ * Simultaneous deliveries are ordered by their source, which does not depend
+ * on the order the sources were executed in.
+ */
+class DeliveryEvent extends EventTime {
+	/** Id of the sending container */
+	final int sourceId;
+	/** Number of deliveries made by the sending container before this one */
+	final long sourceSequence;
+
+	DeliveryEvent(long timePoint, TimerEventListener listener, String eventName, DEECoContainer container,
+			int sourceId, long sourceSequence) {
+		super(timePoint, listener, eventName, false);
+		this.container = container;
+		this.sourceId = sourceId;
+		this.sourceSequence = sourceSequence;
+	}
+
+	/**
+	 * Creates the delivery from the source container, counting the deliveries of the source in the given map
+	 */
+	static DeliveryEvent create(long time, TimerEventListener listener, String eventName, DEECoContainer container,
+			DEECoContainer source, Map<DEECoContainer, Long> deliveryCounts) {
+		Long count = deliveryCounts.get(source);
+		long sourceSequence = count == null ? 0 : count;
+		deliveryCounts.put(source, sourceSequence + 1);
+		int sourceId = source == null ? Integer.MIN_VALUE : source.getId();
+		return new DeliveryEvent(time, listener, eventName, container, sourceId, sourceSequence);
+	}
+}
@@ -0,0 +1,53 @@
+package cz.cuni.mff.d3s.deeco.timer;
+
+import cz.cuni.mff.d3s.deeco.runtime.DEECoContainer;
+
+/**
+ * Simulation timer which delivers the interactions among containers (e.g.
+ * network packets) as timed events of the receiving container.
+ * 
+ * An interaction delivered this way is processed in the context of the
+ * receiving container, so the timer is free to run different containers
+ * concurrently. Simultaneous deliveries to a container are processed before
+ * its own notification, in the order given by the id of the sending container
+ * and the order in which the sender delivered them.
+ */
+public interface DeliveryTimer extends SimulationTimer {
+	/**
+	 * Declares the minimal delay between an interaction and its delivery, e.g.
+	 * the minimal delay of a network device. The timer relies on all the
+	 * deliveries respecting the smallest of the declared delays.
+	 * 
+	 * @param delay
+	 *            Minimal delivery delay in ms
+	 */
+	void declareMinimalDelay(long delay);
+
+	/**
+	 * Delivers an interaction to the container at the given time. Unlike
+	 * {@link #notifyAt(long, TimerEventListener, String, DEECoContainer)}, the
+	 * delivery does not replace other events of the container.
+	 * 
+	 * @param time
+	 *            Delivery time in ms
+	 * @param listener
+	 *            Listener processing the delivery
+	 * @param eventName
+	 *            The name of the event that will be fired by the timer
+	 * @param container
+	 *            Receiving container
+	 */
+	void deliverAt(long time, TimerEventListener listener, String eventName, DEECoContainer container);
+
+	/**
+	 * Adds a listener called at the synchronization points of the simulation.
+	 * At a synchronization point, all the events before its time have been
+	 * processed and no event at or after it, so the listener may read the
+	 * state of all the containers as at that time. The listener is called on
+	 * the thread running the timer.
+	 * 
+	 * @param listener
+	 *            Listener called with the time of the synchronization point
+	 */
+	void addSynchronizationListener(TimerEventListener listener);
+}
@@ -1,19 +1,15 @@
 package cz.cuni.mff.d3s.deeco.timer;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.PriorityQueue;
-import java.util.Queue;
-
 import cz.cuni.mff.d3s.deeco.runtime.DEECoContainer;
 
 public class DiscreteEventTimer extends BaseTimer implements SimulationTimer {
 
 	private static final String TERMINATION_EVENT_NAME = "termination_event";
 	
-	Queue<EventTime> eventTimes;
-	Map<DEECoContainer, EventTime> containerEvents;
+	EventTimeQueue eventTimes;
 	long currentTime;
+	/** Container of the event being processed, null if none. */
+	DEECoContainer currentContainer;
 
 	public DiscreteEventTimer() {
 		this(0);
@@ -25,8 +21,7 @@ public class DiscreteEventTimer extends BaseTimer implements SimulationTimer {
 	 */
 	public DiscreteEventTimer(long startTime) {
 		currentTime = startTime;
-		eventTimes = new PriorityQueue<>();
-		containerEvents = new HashMap<>();
+		eventTimes = new EventTimeQueue();
 	}
 
 	@Override
@@ -46,10 +41,13 @@ public class DiscreteEventTimer extends BaseTimer implements SimulationTimer {
 		}, TERMINATION_EVENT_NAME, true));
 
 		while (!tryToTerminate()) {
-			EventTime eventTime = eventTimes.remove();
+			EventTime eventTime = eventTimes.poll();
+			beforeEvent(eventTime.getTimePoint());
 			currentTime = eventTime.getTimePoint();
+			currentContainer = eventTime.container;
 			eventTime.getListener().at(currentTime);
 		}
+		currentContainer = null;
 		
 		runShutdownListeners();
 	}
@@ -57,20 +55,18 @@ public class DiscreteEventTimer extends BaseTimer implements SimulationTimer {
 	/**
 	 * Set notification event for container
 	 * 
-	 * NOTE: Only one event per container is registered
+	 * NOTE: Only one event per container is registered, the new event replaces
+	 * the old one in O(log n)
 	 */
 	@Override
 	public void notifyAt(long time, TimerEventListener listener, String eventName, DEECoContainer container) {
-		EventTime eventTime = new EventTime(time, listener, eventName, false);
-		if (!eventTimes.contains(eventTime)) {
-			// Replace old event for container by the new one
-			eventTimes.add(eventTime);
-			EventTime old = containerEvents.get(container);
-			if (old != null) {
-				eventTimes.remove(old);
-			}
-			containerEvents.put(container, eventTime);
-		}
+		eventTimes.schedule(container, time, listener, eventName);
+	}
+
+	/**
+	 * Called before processing each event, with the time of the event
+	 */
+	void beforeEvent(long time) {
 	}
 
 	@Override
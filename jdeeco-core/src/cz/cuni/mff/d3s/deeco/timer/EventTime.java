@@ -1,10 +1,18 @@
 package cz.cuni.mff.d3s.deeco.timer;
 
+import cz.cuni.mff.d3s.deeco.runtime.DEECoContainer;
+
 public class EventTime implements Comparable<EventTime> {
 	private long timePoint;
 	private TimerEventListener listener;
 	private String eventName;
 	private boolean terminationEvent;
+	/** Position in the {@link EventTimeQueue} heap, -1 if not queued. */
+	int queueIndex = -1;
+	/** Order of queueing, breaks ties among simultaneous events. */
+	long sequence;
+	/** Container the event belongs to, null if none. */
+	DEECoContainer container;
 
 	public EventTime(long timePoint, TimerEventListener listener, String eventName, boolean isTerminationEvent) {
 		this.setTimePoint(timePoint);
@@ -33,6 +41,10 @@ public class EventTime implements Comparable<EventTime> {
 		return eventName;
 	}
 	
+	public void setEventName(String eventName) {
+		this.eventName = eventName;
+	}
+	
 	public boolean isTerminationEvent() {
 		return terminationEvent;
 	}
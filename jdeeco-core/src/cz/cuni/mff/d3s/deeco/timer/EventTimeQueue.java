@@ -0,0 +1,181 @@
+package cz.cuni.mff.d3s.deeco.timer;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import cz.cuni.mff.d3s.deeco.runtime.DEECoContainer;
+
+/**
+ * Indexed binary min-heap of {@link EventTime}s with one slot per
+ * {@link DEECoContainer}.
+ * 
+ * Each container owns a single {@link EventTime} which is reused for all its
+ * notifications. Rescheduling a container moves its event within the heap in
+ * O(log n) instead of searching the whole queue. Simultaneous events are
+ * ordered by the time they were (re)scheduled, except that
+ * {@link DeliveryEvent}s go first ordered by their source and termination
+ * events go last.
+ */
+class EventTimeQueue {
+	private EventTime[] heap = new EventTime[16];
+	private int size;
+	private long nextSequence;
+	private final Map<DEECoContainer, EventTime> containerEvents = new HashMap<>();
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Gets the earliest event without removing it, or null if the queue is empty
+	 */
+	public EventTime peek() {
+		return size == 0 ? null : heap[0];
+	}
+
+	/**
+	 * Removes and returns the earliest event, or null if the queue is empty
+	 */
+	public EventTime poll() {
+		if (size == 0) {
+			return null;
+		}
+		EventTime first = heap[0];
+		removeAt(0);
+		return first;
+	}
+
+	/**
+	 * Adds an event not bound to any container
+	 */
+	public void add(EventTime eventTime) {
+		if (eventTime.queueIndex >= 0) {
+			throw new IllegalStateException("The event is already queued");
+		}
+		eventTime.sequence = nextSequence++;
+		if (size == heap.length) {
+			heap = Arrays.copyOf(heap, size * 2);
+		}
+		eventTime.queueIndex = size;
+		heap[size++] = eventTime;
+		siftUp(eventTime.queueIndex);
+	}
+
+	/**
+	 * Sets the notification of the container, replacing the previous one if it
+	 * has not been fired yet.
+	 */
+	public void schedule(DEECoContainer container, long time, TimerEventListener listener, String eventName) {
+		EventTime eventTime = containerEvents.get(container);
+		if (eventTime == null) {
+			eventTime = new EventTime(time, listener, eventName, false);
+			eventTime.container = container;
+			containerEvents.put(container, eventTime);
+			add(eventTime);
+			return;
+		}
+
+		eventTime.setTimePoint(time);
+		eventTime.setListener(listener);
+		eventTime.setEventName(eventName);
+		eventTime.sequence = nextSequence++;
+		if (eventTime.queueIndex < 0) {
+			add(eventTime);
+		} else if (!siftUp(eventTime.queueIndex)) {
+			siftDown(eventTime.queueIndex);
+		}
+	}
+
+	public void clear() {
+		for (int i = 0; i < size; i++) {
+			heap[i].queueIndex = -1;
+			heap[i] = null;
+		}
+		size = 0;
+	}
+
+	private void removeAt(int index) {
+		heap[index].queueIndex = -1;
+		size--;
+		if (index == size) {
+			heap[size] = null;
+			return;
+		}
+		EventTime last = heap[size];
+		heap[size] = null;
+		last.queueIndex = index;
+		heap[index] = last;
+		if (!siftUp(index)) {
+			siftDown(index);
+		}
+	}
+
+	private boolean siftUp(int index) {
+		EventTime eventTime = heap[index];
+		int start = index;
+		while (index > 0) {
+			int parentIndex = (index - 1) >>> 1;
+			EventTime parent = heap[parentIndex];
+			if (compare(eventTime, parent) >= 0) {
+				break;
+			}
+			heap[index] = parent;
+			parent.queueIndex = index;
+			index = parentIndex;
+		}
+		heap[index] = eventTime;
+		eventTime.queueIndex = index;
+		return index != start;
+	}
+
+	private void siftDown(int index) {
+		EventTime eventTime = heap[index];
+		int half = size >>> 1;
+		while (index < half) {
+			int childIndex = 2 * index + 1;
+			EventTime child = heap[childIndex];
+			int rightIndex = childIndex + 1;
+			if (rightIndex < size && compare(heap[rightIndex], child) < 0) {
+				childIndex = rightIndex;
+				child = heap[rightIndex];
+			}
+			if (compare(eventTime, child) <= 0) {
+				break;
+			}
+			heap[index] = child;
+			child.queueIndex = index;
+			index = childIndex;
+		}
+		heap[index] = eventTime;
+		eventTime.queueIndex = index;
+	}
+
+	private static int compare(EventTime e1, EventTime e2) {
+		int result = e1.compareTo(e2);
+		if (result != 0) {
+			return result;
+		}
+		boolean delivery1 = e1 instanceof DeliveryEvent;
+		boolean delivery2 = e2 instanceof DeliveryEvent;
+		if (delivery1 != delivery2) {
+			return delivery1 ? -1 : 1;
+		}
+		if (delivery1) {
+			DeliveryEvent d1 = (DeliveryEvent) e1;
+			DeliveryEvent d2 = (DeliveryEvent) e2;
+			result = Integer.compare(d1.sourceId, d2.sourceId);
+			if (result == 0) {
+				result = Long.compare(d1.sourceSequence, d2.sourceSequence);
+			}
+			if (result != 0) {
+				return result;
+			}
+		}
+		return Long.compare(e1.sequence, e2.sequence);
+	}
+}
@@ -0,0 +1,324 @@
+package cz.cuni.mff.d3s.deeco.timer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import cz.cuni.mff.d3s.deeco.runtime.DEECoContainer;
+import cz.cuni.mff.d3s.deeco.runtime.DEECoRuntimeException;
+
+/**
+ * Discrete event timer which runs the containers in parallel.
+ *
+ * The containers are split into partitions, each having its own event queue and
+ * current time. The timer is conservative: the simulation advances in windows
+ * as long as the smallest delay declared by
+ * {@link #declareMinimalDelay(long)} (the lookahead). Within a window, the
+ * partitions are run on a worker pool independently of each other. Deliveries
+ * made by {@link #deliverAt} cannot fall into the current window, so they are
+ * collected and added to the queues of the receiving containers between the
+ * windows.
+ *
+ * Provided that the containers interact only through {@link #deliverAt}, each
+ * container processes exactly the same sequence of events as with the
+ * {@link SequentialDeliveryTimer}, regardless of the number of threads. When
+ * no delay is declared (or the minimal delay is zero), each window covers a
+ * single millisecond and deliveries within that millisecond are processed
+ * after the events of the receiver already scheduled for it.
+ */
+public class ParallelDiscreteEventTimer extends BaseTimer implements DeliveryTimer {
+
+	private final int threads;
+	private final Partition[] partitions;
+	private final Map<DEECoContainer, Partition> containerPartitions;
+	private final ThreadLocal<Partition> currentPartition;
+	private final Map<DEECoContainer, Long> deliveryCounts;
+	private final List<TimerEventListener> synchronizationListeners;
+
+	private volatile long currentTime;
+	private volatile long windowEnd;
+	private long lookahead = -1;
+
+	/**
+	 * Creates new {@link ParallelDiscreteEventTimer} using a thread per
+	 * available processor.
+	 */
+	public ParallelDiscreteEventTimer() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates new {@link ParallelDiscreteEventTimer}.
+	 *
+	 * @param threads
+	 *            The number of threads running the partitions
+	 */
+	public ParallelDiscreteEventTimer(int threads) {
+		this(threads, 0);
+	}
+
+	/**
+	 * Creates new {@link ParallelDiscreteEventTimer} with defined time to start
+	 * from.
+	 *
+	 * @param threads
+	 *            The number of threads running the partitions
+	 * @param startTime
+	 *            The time from which the timer starts.
+	 */
+	public ParallelDiscreteEventTimer(int threads, long startTime) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("The number of threads must be positive");
+		}
+		this.threads = threads;
+		// more partitions than threads to balance the load of the workers
+		partitions = new Partition[threads * 4];
+		for (int i = 0; i < partitions.length; i++) {
+			partitions[i] = new Partition();
+			partitions[i].currentTime = startTime;
+		}
+		containerPartitions = new ConcurrentHashMap<>();
+		currentPartition = new ThreadLocal<>();
+		deliveryCounts = new HashMap<>();
+		synchronizationListeners = new ArrayList<>();
+		currentTime = startTime;
+	}
+
+	/**
+	 * Gets the time of the container being processed by the calling thread, or
+	 * the time of the whole simulation when called outside of the simulation.
+	 */
+	@Override
+	public long getCurrentMilliseconds() {
+		Partition partition = currentPartition.get();
+		return partition != null ? partition.currentTime : currentTime;
+	}
+
+	/**
+	 * Gets the length of the simulation windows, -1 if no delay has been
+	 * declared.
+	 */
+	public long getLookahead() {
+		return lookahead;
+	}
+
+	@Override
+	public void declareMinimalDelay(long delay) {
+		if (delay < 0) {
+			throw new IllegalArgumentException("The delay cannot be negative");
+		}
+		if (lookahead < 0 || delay < lookahead) {
+			lookahead = delay;
+		}
+	}
+
+	@Override
+	public void start(long duration) {
+		runStartupListeners();
+
+		ExecutorService workers = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			private int counter = 0;
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "ParallelDiscreteEventTimer-" + counter++);
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+
+		try {
+			List<Partition> active = new ArrayList<>();
+			while (true) {
+				long windowStart = Long.MAX_VALUE;
+				for (Partition partition : partitions) {
+					if (!partition.queue.isEmpty()) {
+						windowStart = Math.min(windowStart, partition.queue.peek().getTimePoint());
+					}
+				}
+				if (windowStart == Long.MAX_VALUE || windowStart > duration) {
+					break;
+				}
+				currentTime = windowStart;
+				windowEnd = Math.min(windowStart + Math.max(lookahead, 1), duration + 1);
+
+				for (TimerEventListener listener : synchronizationListeners) {
+					listener.at(windowStart);
+				}
+
+				active.clear();
+				for (Partition partition : partitions) {
+					if (!partition.queue.isEmpty() && partition.queue.peek().getTimePoint() < windowEnd) {
+						active.add(partition);
+					}
+				}
+				runWindow(active, workers);
+
+				// Deliver interactions made within the window
+				for (Partition partition : active) {
+					for (DeliveryEvent delivery : partition.outbox) {
+						getPartition(delivery.container).queue.add(delivery);
+					}
+					partition.outbox.clear();
+				}
+			}
+		} finally {
+			workers.shutdownNow();
+		}
+
+		currentTime = duration;
+		for (Partition partition : partitions) {
+			partition.queue.clear();
+			partition.currentTime = duration;
+		}
+
+		runShutdownListeners();
+	}
+
+	/**
+	 * Set notification event for container
+	 *
+	 * NOTE: Only one event per container is registered. During the simulation,
+	 * only the container being processed by the calling thread can be notified.
+	 */
+	@Override
+	public void notifyAt(long time, TimerEventListener listener, String eventName, DEECoContainer container) {
+		Partition partition = getPartition(container);
+		Partition current = currentPartition.get();
+		if (current != null && current != partition) {
+			throw new IllegalStateException(
+					"A container can be notified only from its own events, use deliverAt to interact with other containers.");
+		}
+		partition.queue.schedule(container, time, listener, eventName);
+	}
+
+	@Override
+	public void deliverAt(long time, TimerEventListener listener, String eventName, DEECoContainer container) {
+		Partition current = currentPartition.get();
+		if (current == null) {
+			// outside of the simulation
+			getPartition(container).queue.add(DeliveryEvent.create(time, listener, eventName, container, null,
+					deliveryCounts));
+			return;
+		}
+		if (time < windowEnd && lookahead > 0) {
+			throw new IllegalStateException(String.format(
+					"The delivery at %d is shorter than the declared minimal delay %d.", time, lookahead));
+		}
+		current.outbox.add(DeliveryEvent.create(time, listener, eventName, container, current.currentContainer,
+				current.deliveryCounts));
+	}
+
+	/**
+	 * The start of each window is a synchronization point
+	 */
+	@Override
+	public void addSynchronizationListener(TimerEventListener listener) {
+		synchronizationListeners.add(listener);
+	}
+
+	/**
+	 * Delivers the event to the container at the current time of the container.
+	 *
+	 * NOTE: During the simulation, only the container being processed by the
+	 * calling thread can be interrupted, the event is processed within the
+	 * current window.
+	 */
+	@Override
+	public void interruptionEvent(TimerEventListener listener, String eventName, DEECoContainer container) {
+		Partition partition = getPartition(container);
+		Partition current = currentPartition.get();
+		if (current == null) {
+			// outside of the simulation
+			partition.queue.add(DeliveryEvent.create(currentTime, listener, eventName, container, null, deliveryCounts));
+			return;
+		}
+		if (current != partition) {
+			throw new IllegalStateException(
+					"A container can be interrupted only from its own events, use deliverAt to interact with other containers.");
+		}
+		partition.queue.add(DeliveryEvent.create(current.currentTime, listener, eventName, container,
+				current.currentContainer, current.deliveryCounts));
+	}
+
+	private void runWindow(List<Partition> active, ExecutorService workers) {
+		final long end = windowEnd;
+		if (active.size() == 1) {
+			active.get(0).run(end);
+			return;
+		}
+
+		List<Future<Void>> results = new ArrayList<>(active.size());
+		for (final Partition partition : active) {
+			results.add(workers.submit(new Callable<Void>() {
+				@Override
+				public Void call() {
+					partition.run(end);
+					return null;
+				}
+			}));
+		}
+		try {
+			for (Future<Void> result : results) {
+				result.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new DEECoRuntimeException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new DEECoRuntimeException(e.getCause());
+		}
+	}
+
+	private Partition getPartition(DEECoContainer container) {
+		if (container == null) {
+			return partitions[0];
+		}
+		Partition partition = containerPartitions.get(container);
+		if (partition == null) {
+			partition = partitions[Math.floorMod(container.getId(), partitions.length)];
+			containerPartitions.put(container, partition);
+		}
+		return partition;
+	}
+
+	/**
+	 * Containers processed by a single thread at a time
+	 */
+	private class Partition {
+		final EventTimeQueue queue = new EventTimeQueue();
+		final List<DeliveryEvent> outbox = new ArrayList<>();
+		final Map<DEECoContainer, Long> deliveryCounts = new HashMap<>();
+		long currentTime;
+		DEECoContainer currentContainer;
+
+		/**
+		 * Processes the events before the end of the window
+		 */
+		void run(long end) {
+			currentPartition.set(this);
+			try {
+				while (!queue.isEmpty() && queue.peek().getTimePoint() < end) {
+					EventTime eventTime = queue.poll();
+					currentTime = eventTime.getTimePoint();
+					currentContainer = eventTime.container;
+					eventTime.getListener().at(currentTime);
+				}
+			} finally {
+				currentContainer = null;
+				currentPartition.remove();
+			}
+		}
+	}
+}
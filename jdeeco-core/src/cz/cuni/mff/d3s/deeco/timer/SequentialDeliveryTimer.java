@@ -0,0 +1,79 @@
+package cz.cuni.mff.d3s.deeco.timer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import cz.cuni.mff.d3s.deeco.runtime.DEECoContainer;
+
+/**
+ * Discrete event timer delivering the interactions among containers as the
+ * {@link ParallelDiscreteEventTimer} does, but running all the containers on
+ * the calling thread.
+ * 
+ * Each container processes the same sequence of events as with the
+ * {@link ParallelDiscreteEventTimer}, so this timer is the sequential reference
+ * for the parallel one. Simultaneous deliveries are processed in a different
+ * order than the {@link DiscreteEventTimer} processes the events which network
+ * devices schedule on their own.
+ */
+public class SequentialDeliveryTimer extends DiscreteEventTimer implements DeliveryTimer {
+
+	private final Map<DEECoContainer, Long> deliveryCounts;
+	private final List<TimerEventListener> synchronizationListeners;
+	private long synchronizationTime = Long.MIN_VALUE;
+
+	public SequentialDeliveryTimer() {
+		this(0);
+	}
+
+	/**
+	 * Create new {@link SequentialDeliveryTimer} with defined time to start from.
+	 * @param startTime The time from which the timer starts.
+	 */
+	public SequentialDeliveryTimer(long startTime) {
+		super(startTime);
+		deliveryCounts = new HashMap<>();
+		synchronizationListeners = new ArrayList<>();
+	}
+
+	/**
+	 * The events are processed sequentially, so the delay is not needed
+	 */
+	@Override
+	public void declareMinimalDelay(long delay) {
+	}
+
+	@Override
+	public void deliverAt(long time, TimerEventListener listener, String eventName, DEECoContainer container) {
+		eventTimes.add(DeliveryEvent.create(time, listener, eventName, container, currentContainer, deliveryCounts));
+	}
+
+	/**
+	 * Each time of an event is a synchronization point
+	 */
+	@Override
+	public void addSynchronizationListener(TimerEventListener listener) {
+		synchronizationListeners.add(listener);
+	}
+
+	@Override
+	void beforeEvent(long time) {
+		if (time > synchronizationTime) {
+			synchronizationTime = time;
+			currentTime = time;
+			for (TimerEventListener listener : synchronizationListeners) {
+				listener.at(time);
+			}
+		}
+	}
+
+	/**
+	 * Delivers the event to the container at the current time
+	 */
+	@Override
+	public void interruptionEvent(TimerEventListener listener, String eventName, DEECoContainer container) {
+		deliverAt(currentTime, listener, eventName, container);
+	}
+}
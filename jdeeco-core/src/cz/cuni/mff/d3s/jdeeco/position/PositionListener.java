@@ -0,0 +1,18 @@
+package cz.cuni.mff.d3s.jdeeco.position;
+
+/**
+ * Listener notified when the position of a node changes
+ *
+ * @see PositionPlugin#addListener(PositionListener)
+ *
+ */
+public interface PositionListener {
+	/**
+	 * Called when the static position of the node has been set, or when the position provider has been set, after which
+	 * the changes of the position are no longer notified
+	 *
+	 * @param plugin
+	 *            Position plug-in of the node
+	 */
+	public void positionChanged(PositionPlugin plugin);
+}
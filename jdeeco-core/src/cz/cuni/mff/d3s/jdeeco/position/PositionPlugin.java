@@ -2,6 +2,7 @@ package cz.cuni.mff.d3s.jdeeco.position;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import cz.cuni.mff.d3s.deeco.logging.Log;
 import cz.cuni.mff.d3s.deeco.runtime.DEECoContainer;
@@ -14,6 +15,9 @@ import cz.cuni.mff.d3s.deeco.runtime.DEECoPlugin;
  * call to setStaticPosition. In provided mode the position is determined by PositionProvider registered with this
  * plug-in. In order to avoid misunderstanding the provider can be set only once.
  * 
+ * The changes of the static position are notified to the registered listeners, the changes of a provided position are
+ * not.
+ * 
  * @author Vladimir Matena <matena@d3s.mff.cuni.cz>
  *
  */
@@ -21,6 +25,7 @@ public class PositionPlugin implements DEECoPlugin, PositionProvider {
 	private DEECoContainer container;
 	private Position staticPosition;
 	private PositionProvider provider = null;
+	private final List<PositionListener> listeners = new CopyOnWriteArrayList<>();
 
 	public PositionPlugin(double x, double y) {
 		this(new Position(x, y, 0));
@@ -48,6 +53,31 @@ public class PositionPlugin implements DEECoPlugin, PositionProvider {
 		provider = positionProvider;
 		Log.i(container.getId() + ": " + this.getClass().getSimpleName() + " now using "
 				+ provider.getClass().getSimpleName() + " as node position provider.");
+		notifyListeners();
+	}
+
+	/**
+	 * Checks whether the position is determined by a provider
+	 * 
+	 * @return True if the provider is set, the changes of the position are not notified then
+	 */
+	public boolean isProvided() {
+		return provider != null;
+	}
+
+	/**
+	 * Adds listener notified when the static position is set or the provider is set
+	 * 
+	 * @param listener
+	 */
+	public void addListener(PositionListener listener) {
+		listeners.add(listener);
+	}
+
+	private void notifyListeners() {
+		for (PositionListener listener : listeners) {
+			listener.positionChanged(this);
+		}
 	}
 
 	/**
@@ -63,14 +93,17 @@ public class PositionPlugin implements DEECoPlugin, PositionProvider {
 
 	public void setStaticPosition(Position position) {
 		staticPosition = position;
+		if (provider == null) {
+			notifyListeners();
+		}
 	}
 
 	public void setStaticPosition(double x, double y) {
-		staticPosition = new Position(x, y, 0);
+		setStaticPosition(new Position(x, y, 0));
 	}
 
 	public void setStaticPosition(double x, double y, double z) {
-		staticPosition = new Position(x, y, z);
+		setStaticPosition(new Position(x, y, z));
 	}
 
 	@Override
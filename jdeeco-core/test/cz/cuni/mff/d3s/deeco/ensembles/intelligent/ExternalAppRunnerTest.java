@@ -0,0 +1,56 @@
+package cz.cuni.mff.d3s.deeco.ensembles.intelligent;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class ExternalAppRunnerTest {
+
+	/**
+	 * The application run by the tests, writing a solution to the standard output and a warning to the error stream.
+	 */
+	public static class SolverStub {
+		public static void main(String[] args) {
+			System.out.println("x = 1;");
+			System.err.println("Warning: the model contains unused variables");
+			System.out.println("----------");
+			System.exit(Integer.parseInt(args[0]));
+		}
+	}
+
+	private String[] runSolverStub(int exitCode) throws Exception {
+		String javaPath = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+		String classPath = Paths.get(SolverStub.class.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+		List<String> arguments = new ArrayList<>(Arrays.asList("-cp", classPath, SolverStub.class.getName(), Integer.toString(exitCode)));
+		return new ExternalAppRunner().run(javaPath, arguments);
+	}
+
+	@Test
+	public void testErrorStreamNotInOutput() throws Exception {
+		// WHEN an application writing to both streams is run
+		String[] output = runSolverStub(0);
+
+		// THEN only its standard output is returned
+		assertArrayEquals(new String[] { "x = 1;", "----------" }, output);
+	}
+
+	@Test
+	public void testErrorStreamInFailure() throws Exception {
+		// WHEN the application exits with an error
+		try {
+			runSolverStub(1);
+			fail();
+		} catch (IOException e) {
+			// THEN the error stream is reported
+			assertTrue(e.getMessage().contains("Warning: the model contains unused variables"));
+		}
+	}
+}
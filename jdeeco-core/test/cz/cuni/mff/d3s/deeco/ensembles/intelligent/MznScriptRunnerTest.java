@@ -17,8 +17,11 @@ import static org.mockito.Mockito.times;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
@@ -88,5 +91,51 @@ public class MznScriptRunnerTest {
 		Mockito.verify(appRunnerMock, times(1)).run(eq(fznSolverPath), argThat(new CollectionMatcher<String>("temp/fzn/file")));
 		Mockito.verifyNoMoreInteractions(appRunnerMock, inputVarsMock);
 	}
+	
+	@Test
+	@SuppressWarnings("unchecked")
+	public void runScriptReuseFlatZincTest() throws IOException, ScriptExecutionException {
+		// mzn2fzn writes the input into the FlatZinc file, the solver returns its content
+		List<String> fznFiles = new ArrayList<>();
+		ExternalAppRunner appRunnerMock = Mockito.mock(ExternalAppRunner.class);
+		Mockito.doAnswer(invocation -> {
+			List<String> args = new ArrayList<>((Collection<String>) invocation.getArguments()[1]);
+			String fznFile = args.get(1).substring("-o ".length());
+			Files.write(Paths.get(fznFile), args.get(2).getBytes());
+			return new String[0];
+		}).when(appRunnerMock).run(eq(mzn2fznPath), any());
+		Mockito.doAnswer(invocation -> {
+			String fznFile = ((Collection<String>) invocation.getArguments()[1]).iterator().next();
+			fznFiles.add(fznFile);
+			return new String[] { "xx = " + new String(Files.readAllBytes(Paths.get(fznFile))).replace("-D ", "") };
+		}).when(appRunnerMock).run(eq(fznSolverPath), any());
+		
+		ScriptInputVariableRegistry inputVarsMock = Mockito.mock(ScriptInputVariableRegistry.class);
+		Mockito.doReturn(Arrays.asList(new Entry("varA", "1"))).when(inputVarsMock).getInputVariables();
+		MznScriptRunner target = new MznScriptRunner("path/to/file", appRunnerMock, null);
+		
+		// when the script is run twice with the same input
+		assertEquals("varA=1", target.runScript(inputVarsMock).get("xx"));
+		assertEquals("varA=1", target.runScript(inputVarsMock).get("xx"));
+		
+		// then mzn2fzn runs only once
+		Mockito.verify(appRunnerMock, times(1)).run(eq(mzn2fznPath), any());
+		Mockito.verify(appRunnerMock, times(2)).run(eq(fznSolverPath), any());
+		
+		// when the input changes
+		Mockito.doReturn(Arrays.asList(new Entry("varA", "2"))).when(inputVarsMock).getInputVariables();
+		
+		// then mzn2fzn runs again
+		assertEquals("varA=2", target.runScript(inputVarsMock).get("xx"));
+		Mockito.verify(appRunnerMock, times(2)).run(eq(mzn2fznPath), any());
+		assertEquals(3, target.getRunCount());
+		assertEquals(2, target.getFlatteningCount());
+		
+		// and each run used its own temporary file, which was deleted afterwards
+		assertEquals(3, fznFiles.stream().distinct().count());
+		for (String fznFile : fznFiles) {
+			assertFalse(Files.exists(Paths.get(fznFile)));
+		}
+	}
 
 }
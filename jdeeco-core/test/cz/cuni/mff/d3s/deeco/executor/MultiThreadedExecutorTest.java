@@ -0,0 +1,247 @@
+package cz.cuni.mff.d3s.deeco.executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import cz.cuni.mff.d3s.deeco.knowledge.KnowledgeManager;
+import cz.cuni.mff.d3s.deeco.model.runtime.api.TimeTrigger;
+import cz.cuni.mff.d3s.deeco.model.runtime.api.Trigger;
+import cz.cuni.mff.d3s.deeco.task.Task;
+
+public class MultiThreadedExecutorTest {
+
+	private static final int TASKS = 200;
+
+	private MultiThreadedExecutor tested;
+	private ExecutionListener listener;
+
+	@Before
+	public void setUp() {
+		tested = new MultiThreadedExecutor(4);
+		listener = mock(ExecutionListener.class);
+		tested.setExecutionListener(listener);
+	}
+
+	@After
+	public void tearDown() throws InterruptedException {
+		tested.shutdown();
+	}
+
+	@Test
+	public void testListenerNotified() {
+		Task success = new TestTask(null, null, null);
+		final RuntimeException exception = new RuntimeException("Failed invoke");
+		Task failure = new TestTask(null, null, null) {
+			@Override
+			public void invoke(Trigger trigger) {
+				throw exception;
+			}
+		};
+		Trigger trigger = mock(Trigger.class);
+
+		// WHEN a task that succeeds and a task that fails are executed
+		tested.execute(success, trigger);
+		tested.execute(failure, trigger);
+
+		// THEN the listener is notified about both of them
+		verify(listener, timeout(5000)).executionCompleted(success, trigger);
+		verify(listener, timeout(5000)).executionFailed(failure, trigger, exception);
+	}
+
+	@Test
+	public void testDifferentKnowledgeConcurrently() throws InterruptedException {
+		// GIVEN two tasks of different knowledge managers which wait for each other
+		CountDownLatch bothRunning = new CountDownLatch(2);
+		final CountDownLatch done = new CountDownLatch(2);
+		ExecutionListener countingListener = new ExecutionListener() {
+			@Override
+			public void executionFailed(Task task, Trigger trigger, Exception e) {
+			}
+
+			@Override
+			public void executionCompleted(Task task, Trigger trigger) {
+				done.countDown();
+			}
+		};
+		tested.setExecutionListener(countingListener);
+
+		// WHEN the tasks are executed
+		tested.execute(new TestTask(mock(KnowledgeManager.class), bothRunning, null), null);
+		tested.execute(new TestTask(mock(KnowledgeManager.class), bothRunning, null), null);
+
+		// THEN they run at the same time
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void testSameKnowledgeSerialized() throws InterruptedException {
+		// GIVEN tasks of two knowledge managers and tasks accessing any knowledge
+		KnowledgeManager[] knowledgeManagers = { mock(KnowledgeManager.class), mock(KnowledgeManager.class) };
+		final AtomicInteger[] running = { new AtomicInteger(), new AtomicInteger(), new AtomicInteger() };
+		final AtomicInteger violations = new AtomicInteger();
+		final CountDownLatch done = new CountDownLatch(TASKS);
+		tested.setExecutionListener(new ExecutionListener() {
+			@Override
+			public void executionFailed(Task task, Trigger trigger, Exception e) {
+				violations.incrementAndGet();
+				done.countDown();
+			}
+
+			@Override
+			public void executionCompleted(Task task, Trigger trigger) {
+				done.countDown();
+			}
+		});
+
+		// WHEN they are executed
+		for (int i = 0; i < TASKS; i++) {
+			final int group = i % 5 == 0 ? 2 : i % 2;
+			final KnowledgeManager km = group < 2 ? knowledgeManagers[group] : null;
+			tested.execute(new TestTask(km, null, null) {
+				@Override
+				public void invoke(Trigger trigger) {
+					running[group].incrementAndGet();
+					if (running[group].get() > 1 || (km == null
+							&& running[0].get() + running[1].get() > 0)
+							|| (km != null && running[2].get() > 0)) {
+						violations.incrementAndGet();
+					}
+					Thread.yield();
+					running[group].decrementAndGet();
+				}
+			}, null);
+		}
+
+		// THEN the tasks of the same knowledge manager never overlap and the
+		// tasks accessing any knowledge run exclusively
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+		assertEquals(0, violations.get());
+	}
+
+	@Test
+	public void testLockedKnowledgeSerialized() throws InterruptedException {
+		// GIVEN a knowledge manager locked outside the tasks
+		KnowledgeManager locked = mock(KnowledgeManager.class);
+		final CountDownLatch done = new CountDownLatch(2);
+		final Task lockedTask = new TestTask(locked, null, null);
+		tested.setExecutionListener(new ExecutionListener() {
+			@Override
+			public void executionFailed(Task task, Trigger trigger, Exception e) {
+			}
+
+			@Override
+			public void executionCompleted(Task task, Trigger trigger) {
+				done.countDown();
+			}
+		});
+		tested.lockKnowledge(locked);
+		try {
+			// WHEN a task accessing it and a task accessing another knowledge manager are executed
+			tested.execute(lockedTask, null);
+			tested.execute(new TestTask(mock(KnowledgeManager.class), null, null), null);
+
+			// THEN only the task accessing the other knowledge manager completes
+			assertFalse(done.await(500, TimeUnit.MILLISECONDS));
+			assertEquals(1, done.getCount());
+		} finally {
+			tested.unlockKnowledge(locked);
+		}
+
+		// AND the task accessing the locked knowledge manager completes once it is unlocked
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void testShutdownExecutesQueuedTasks() throws InterruptedException {
+		// GIVEN tasks queued behind a running one
+		MultiThreadedExecutor single = new MultiThreadedExecutor(1);
+		final AtomicInteger completed = new AtomicInteger();
+		single.setExecutionListener(new ExecutionListener() {
+			@Override
+			public void executionFailed(Task task, Trigger trigger, Exception e) {
+			}
+
+			@Override
+			public void executionCompleted(Task task, Trigger trigger) {
+				completed.incrementAndGet();
+			}
+		});
+		final CountDownLatch started = new CountDownLatch(1);
+		single.execute(new TestTask(null, null, null) {
+			@Override
+			public void invoke(Trigger trigger) {
+				started.countDown();
+				try {
+					Thread.sleep(100);
+				} catch (InterruptedException e) {
+					throw new IllegalStateException(e);
+				}
+			}
+		}, null);
+		for (int i = 0; i < TASKS; i++) {
+			single.execute(new TestTask(null, null, null), null);
+		}
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+
+		// WHEN the executor is shut down
+		single.shutdown();
+
+		// THEN all the queued tasks are executed
+		assertEquals(TASKS + 1, completed.get());
+	}
+
+	private static class TestTask extends Task {
+		private final KnowledgeManager knowledgeManager;
+		private final CountDownLatch latch;
+
+		TestTask(KnowledgeManager knowledgeManager, CountDownLatch latch, String name) {
+			super(null, name);
+			this.knowledgeManager = knowledgeManager;
+			this.latch = latch;
+		}
+
+		@Override
+		public void invoke(Trigger trigger) {
+			if (latch != null) {
+				latch.countDown();
+				try {
+					if (!latch.await(5, TimeUnit.SECONDS)) {
+						throw new IllegalStateException("The other task did not run concurrently");
+					}
+				} catch (InterruptedException e) {
+					throw new IllegalStateException(e);
+				}
+			}
+		}
+
+		@Override
+		public KnowledgeManager getAccessedKnowledgeManager() {
+			return knowledgeManager;
+		}
+
+		@Override
+		protected void registerTriggers() {
+		}
+
+		@Override
+		protected void unregisterTriggers() {
+		}
+
+		@Override
+		public TimeTrigger getTimeTrigger() {
+			return null;
+		}
+	}
+}
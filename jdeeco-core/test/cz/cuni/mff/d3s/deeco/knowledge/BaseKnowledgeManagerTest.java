@@ -13,6 +13,7 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -24,6 +25,7 @@ import cz.cuni.mff.d3s.deeco.model.runtime.api.KnowledgePath;
 import cz.cuni.mff.d3s.deeco.model.runtime.api.KnowledgeSecurityTag;
 import cz.cuni.mff.d3s.deeco.model.runtime.api.PathNodeField;
 import cz.cuni.mff.d3s.deeco.model.runtime.api.SecurityTag;
+import cz.cuni.mff.d3s.deeco.model.runtime.api.Trigger;
 import cz.cuni.mff.d3s.deeco.model.runtime.meta.RuntimeMetadataFactory;
 
 /**
@@ -35,14 +37,18 @@ import cz.cuni.mff.d3s.deeco.model.runtime.meta.RuntimeMetadataFactory;
  */
 public class BaseKnowledgeManagerTest {
 
-	private BaseKnowledgeManager tested;
+	protected KnowledgeManager tested;
 
 	@Mock
 	private TriggerListener triggerListener;
 
+	protected KnowledgeManager createKnowledgeManager(String id) {
+		return new BaseKnowledgeManager(id, null, null);
+	}
+
 	@Before
 	public void setUp() throws Exception {
-		tested = new BaseKnowledgeManager("TEST", null, null);
+		tested = createKnowledgeManager("TEST");
 		tested.update(createKnowledge());
 		initMocks(this);
 	}
@@ -92,6 +98,37 @@ public class BaseKnowledgeManagerTest {
 		assertEquals("X", tested.getAuthor(kp));
 	}
 
+	@Test
+	public void testVersions() throws Exception {
+		KnowledgePath number = RuntimeModelHelper.createKnowledgePath("number");
+		KnowledgePath innerA = RuntimeModelHelper.createKnowledgePath("innerKnowledge", "a");
+		KnowledgePath innerB = RuntimeModelHelper.createKnowledgePath("innerKnowledge", "b");
+		long numberVersion = tested.getVersion(number);
+		long innerVersion = tested.getVersion(innerA);
+		assertTrue(numberVersion > 0);
+		assertEquals(0, tested.getVersion(RuntimeModelHelper.createKnowledgePath("nonExistent")));
+
+		// WHEN a nested field is updated
+		ChangeSet toUpdate = new ChangeSet();
+		toUpdate.setValue(innerA, "innerAModified");
+		tested.update(toUpdate, "X");
+
+		// THEN the version of its top-level field changes while the other versions do not
+		assertTrue(tested.getVersion(innerA) > innerVersion);
+		assertEquals(tested.getVersion(innerA), tested.getVersion(innerB));
+		assertEquals(numberVersion, tested.getVersion(number));
+
+		// WHEN a field is deleted
+		innerVersion = tested.getVersion(innerA);
+		toUpdate = new ChangeSet();
+		toUpdate.setDeleted(number);
+		tested.update(toUpdate);
+
+		// THEN its version changes as well
+		assertTrue(tested.getVersion(number) > innerVersion);
+		assertEquals(innerVersion, tested.getVersion(innerA));
+	}
+
 	@Test
 	public void testInnerKnowledgeUpdate() throws Exception {
 		// WHEN the update method is called on the KnowledgeManager
@@ -221,7 +258,7 @@ public class BaseKnowledgeManagerTest {
 
 	@Test(expected = KnowledgeNotFoundException.class)
 	public void testNullBaseKnowledgeAccess() throws Exception {
-		tested = new BaseKnowledgeManager("TEST", null, null);
+		tested = createKnowledgeManager("TEST");
 		// WHEN a field is accessed from the knowledge manager initialized with
 		// null base knowledge
 		KnowledgePath kp = RuntimeModelHelper.createKnowledgePath("number");
@@ -286,6 +323,82 @@ public class BaseKnowledgeManagerTest {
 		verifyNoMoreInteractions(triggerListener);
 	}
 
+	@Test
+	public void testListenerNotifiedOncePerChangeSet() throws Exception {
+		// WHEN a listener is registered for the 'map' field
+		KnowledgeChangeTrigger trigger = RuntimeModelHelper
+				.createKnowledgeChangeTrigger();
+		trigger.setKnowledgePath(RuntimeModelHelper.createKnowledgePath("map"));
+		tested.register(trigger, triggerListener);
+		// and WHEN several entries of the map are updated at once
+		ChangeSet toUpdate = new ChangeSet();
+		toUpdate.setValue(RuntimeModelHelper.createKnowledgePath("map", "a"), 10);
+		toUpdate.setValue(RuntimeModelHelper.createKnowledgePath("map", "b"), 20);
+		toUpdate.setValue(RuntimeModelHelper.createKnowledgePath("map", "c"), 30);
+		tested.update(toUpdate);
+		// THEN the listener is notified only once.
+		verify(triggerListener).triggered(trigger);
+		verifyNoMoreInteractions(triggerListener);
+	}
+
+	@Test
+	public void testListenerOfNestedPathNotified() throws Exception {
+		// WHEN listeners are registered for a nested and an unrelated path
+		KnowledgeChangeTrigger nestedTrigger = RuntimeModelHelper
+				.createKnowledgeChangeTrigger();
+		nestedTrigger.setKnowledgePath(RuntimeModelHelper.createKnowledgePath("innerKnowledge", "a"));
+		tested.register(nestedTrigger, triggerListener);
+		KnowledgeChangeTrigger unrelatedTrigger = RuntimeModelHelper
+				.createKnowledgeChangeTrigger();
+		unrelatedTrigger.setKnowledgePath(RuntimeModelHelper.createKnowledgePath("number"));
+		tested.register(unrelatedTrigger, triggerListener);
+		// and WHEN the parent of the nested path is updated
+		ChangeSet toUpdate = new ChangeSet();
+		toUpdate.setValue(RuntimeModelHelper.createKnowledgePath("innerKnowledge"), new InnerKnowledge("x", "y"));
+		tested.update(toUpdate);
+		// THEN only the listener of the nested path is notified.
+		verify(triggerListener).triggered(nestedTrigger);
+		verifyNoMoreInteractions(triggerListener);
+	}
+
+	@Test
+	public void testListenersRegisteredConcurrentlyWithUpdates() throws Exception {
+		// GIVEN a listener registered for the 'number' field
+		final AtomicInteger notifications = new AtomicInteger();
+		TriggerListener countingListener = new TriggerListener() {
+			@Override
+			public void triggered(Trigger trigger) {
+				notifications.incrementAndGet();
+			}
+		};
+		final KnowledgeChangeTrigger trigger = RuntimeModelHelper.createKnowledgeChangeTrigger();
+		trigger.setKnowledgePath(RuntimeModelHelper.createKnowledgePath("number"));
+		tested.register(trigger, countingListener);
+		// WHEN listeners of other paths are registered from another thread while the field is updated
+		final int updates = 20000;
+		Thread registering = new Thread() {
+			@Override
+			public void run() {
+				for (int i = 0; i < updates; i++) {
+					KnowledgeChangeTrigger other = RuntimeModelHelper.createKnowledgeChangeTrigger();
+					other.setKnowledgePath(RuntimeModelHelper.createKnowledgePath("other" + i));
+					tested.register(other, triggerListener);
+					tested.register(trigger, triggerListener);
+					tested.unregister(trigger, triggerListener);
+				}
+			}
+		};
+		registering.start();
+		for (int i = 0; i < updates; i++) {
+			ChangeSet toUpdate = new ChangeSet();
+			toUpdate.setValue(RuntimeModelHelper.createKnowledgePath("number"), i);
+			tested.update(toUpdate);
+		}
+		registering.join();
+		// THEN the listener is notified about each update
+		assertEquals(updates, notifications.get());
+	}
+
 	@Test
 	public void testUnregisterListener() throws Exception {
 		// WHEN a previously registered listener
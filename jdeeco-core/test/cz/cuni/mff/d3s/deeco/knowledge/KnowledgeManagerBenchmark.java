@@ -0,0 +1,101 @@
+package cz.cuni.mff.d3s.deeco.knowledge;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import cz.cuni.mff.d3s.deeco.model.runtime.RuntimeModelHelper;
+import cz.cuni.mff.d3s.deeco.model.runtime.api.KnowledgePath;
+
+/**
+ * Compares {@link BaseKnowledgeManager} and {@link TrieKnowledgeManager} on
+ * knowledge of 10, 100 and 1000 fields, half of which are maps.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class KnowledgeManagerBenchmark {
+
+	@Param({ "10", "100", "1000" })
+	public int fields;
+
+	@Param({ "base", "trie" })
+	public String implementation;
+
+	private KnowledgeManager km;
+	private Collection<KnowledgePath> fieldPath;
+	private Collection<KnowledgePath> mapEntryPath;
+	private KnowledgePath mapEntryAuthorPath;
+	private ChangeSet fieldUpdate;
+	private ChangeSet mapEntryUpdate;
+
+	@Setup
+	public void setUp() throws KnowledgeUpdateException {
+		if ("trie".equals(implementation)) {
+			km = new TrieKnowledgeManager("bench", null, null);
+		} else {
+			km = new BaseKnowledgeManager("bench", null, null);
+		}
+
+		ChangeSet initial = new ChangeSet();
+		for (int i = 0; i < fields; i++) {
+			if (i % 2 == 0) {
+				initial.setValue(RuntimeModelHelper.createKnowledgePath("field" + i), i);
+			} else {
+				Map<String, Integer> map = new HashMap<>();
+				for (int j = 0; j < 10; j++) {
+					map.put("key" + j, j);
+				}
+				initial.setValue(RuntimeModelHelper.createKnowledgePath("map" + i), map);
+			}
+		}
+		km.update(initial);
+
+		int lastMap = fields % 2 == 0 ? fields - 1 : fields - 2;
+		int lastField = fields % 2 == 0 ? fields - 2 : fields - 1;
+		fieldPath = Arrays.asList(RuntimeModelHelper.createKnowledgePath("field" + lastField));
+		mapEntryAuthorPath = RuntimeModelHelper.createKnowledgePath("map" + lastMap, "key5");
+		mapEntryPath = Arrays.asList(mapEntryAuthorPath);
+
+		fieldUpdate = new ChangeSet();
+		fieldUpdate.setValue(RuntimeModelHelper.createKnowledgePath("field" + lastField), -1);
+		mapEntryUpdate = new ChangeSet();
+		mapEntryUpdate.setValue(mapEntryAuthorPath, -1);
+	}
+
+	@Benchmark
+	public ValueSet getField() throws KnowledgeNotFoundException {
+		return km.get(fieldPath);
+	}
+
+	@Benchmark
+	public ValueSet getMapEntry() throws KnowledgeNotFoundException {
+		return km.get(mapEntryPath);
+	}
+
+	@Benchmark
+	public String getAuthor() {
+		return km.getAuthor(mapEntryAuthorPath);
+	}
+
+	@Benchmark
+	public void updateField() throws KnowledgeUpdateException {
+		km.update(fieldUpdate);
+	}
+
+	@Benchmark
+	public void updateMapEntry() throws KnowledgeUpdateException {
+		km.update(mapEntryUpdate);
+	}
+}
@@ -0,0 +1,107 @@
+package cz.cuni.mff.d3s.deeco.knowledge;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import cz.cuni.mff.d3s.deeco.model.runtime.RuntimeModelHelper;
+import cz.cuni.mff.d3s.deeco.model.runtime.api.KnowledgePath;
+
+/**
+ * Compares {@link CloningKnowledgeManager} and
+ * {@link SnapshotKnowledgeManager} on a process reading a list of positions and
+ * a map of positions of other components, with 10, 100 and 1000 elements each.
+ *
+ * <p>
+ * The allocation per operation is reported by the GC profiler as
+ * {@code gc.alloc.rate.norm}.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class KnowledgeSnapshotBenchmark {
+
+	@Param({ "10", "100", "1000" })
+	public int elements;
+
+	@Param({ "cloning", "snapshot" })
+	public String implementation;
+
+	private KnowledgeManager km;
+	private KnowledgePath pathPath;
+	private KnowledgePath positionsPath;
+	private Collection<KnowledgePath> inputs;
+
+	@Setup
+	public void setUp() throws KnowledgeUpdateException {
+		if ("snapshot".equals(implementation)) {
+			km = new SnapshotKnowledgeManager("bench", null, null);
+		} else {
+			km = new CloningKnowledgeManager("bench", null, null);
+		}
+
+		List<List<Integer>> path = new ArrayList<>();
+		Map<String, List<Integer>> positions = new HashMap<>();
+		for (int i = 0; i < elements; i++) {
+			path.add(new ArrayList<>(Arrays.asList(i, 2 * i)));
+			positions.put("component" + i, new ArrayList<>(Arrays.asList(i, -i)));
+		}
+		pathPath = RuntimeModelHelper.createKnowledgePath("path");
+		positionsPath = RuntimeModelHelper.createKnowledgePath("positions");
+		inputs = Arrays.asList(pathPath, positionsPath);
+
+		ChangeSet initial = new ChangeSet();
+		initial.setValue(pathPath, path);
+		initial.setValue(positionsPath, positions);
+		km.update(initial);
+	}
+
+	/**
+	 * Reads the knowledge as process inputs.
+	 */
+	@Benchmark
+	public ValueSet read() throws KnowledgeNotFoundException {
+		return km.get(inputs);
+	}
+
+	/**
+	 * Reads the knowledge as INOUT parameters and writes it back unchanged.
+	 */
+	@Benchmark
+	public void readWriteUnchanged() throws KnowledgeNotFoundException, KnowledgeUpdateException {
+		ValueSet values = km.get(inputs);
+		ChangeSet changeSet = new ChangeSet();
+		changeSet.setValue(pathPath, values.getValue(pathPath));
+		changeSet.setValue(positionsPath, values.getValue(positionsPath));
+		km.update(changeSet);
+	}
+
+	/**
+	 * Reads the path, modifies one of its points and writes it back.
+	 */
+	@Benchmark
+	@SuppressWarnings("unchecked")
+	public void readModifyWrite() throws KnowledgeNotFoundException, KnowledgeUpdateException {
+		ValueSet values = km.get(inputs);
+		List<List<Integer>> path = (List<List<Integer>>) values.getValue(pathPath);
+		List<Integer> point = path.get(elements / 2);
+		point.set(0, point.get(0) + 1);
+		ChangeSet changeSet = new ChangeSet();
+		changeSet.setValue(pathPath, path);
+		km.update(changeSet);
+	}
+}
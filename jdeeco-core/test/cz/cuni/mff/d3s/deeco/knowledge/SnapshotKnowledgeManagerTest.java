@@ -0,0 +1,129 @@
+package cz.cuni.mff.d3s.deeco.knowledge;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import cz.cuni.mff.d3s.deeco.model.runtime.RuntimeModelHelper;
+import cz.cuni.mff.d3s.deeco.model.runtime.api.KnowledgePath;
+
+/**
+ * Runs the {@link BaseKnowledgeManagerTest} test cases against the
+ * {@link SnapshotKnowledgeManager} and checks the isolation of the retrieved
+ * values.
+ */
+@SuppressWarnings("unchecked")
+public class SnapshotKnowledgeManagerTest extends BaseKnowledgeManagerTest {
+
+	@Override
+	protected KnowledgeManager createKnowledgeManager(String id) {
+		return new SnapshotKnowledgeManager(id, null, null);
+	}
+
+	@Test
+	public void testRetrievedValueIsolatedFromUpdates() throws Exception {
+		// GIVEN a retrieved list
+		KnowledgePath kp = RuntimeModelHelper.createKnowledgePath("list");
+		List<Integer> before = (List<Integer>) tested.get(Arrays.asList(kp)).getValue(kp);
+
+		// WHEN an element of the list is updated in the knowledge
+		ChangeSet toUpdate = new ChangeSet();
+		toUpdate.setValue(RuntimeModelHelper.createKnowledgePath("list", "0"), 7);
+		tested.update(toUpdate);
+
+		// THEN the retrieved list is not affected, while the knowledge is
+		assertEquals(Arrays.asList(1, 2, 3), before);
+		assertEquals(Arrays.asList(7, 2, 3), tested.get(Arrays.asList(kp)).getValue(kp));
+	}
+
+	@Test
+	public void testModifiedValueIsolatedFromKnowledge() throws Exception {
+		// GIVEN a retrieved map containing a list
+		KnowledgePath kp = RuntimeModelHelper.createKnowledgePath("nested");
+		Map<String, Object> map = new HashMap<>();
+		map.put("list", new ArrayList<>(Arrays.asList(1, 2)));
+		map.put("value", "a");
+		ChangeSet toUpdate = new ChangeSet();
+		toUpdate.setValue(kp, map);
+		tested.update(toUpdate);
+		Map<String, Object> retrieved = (Map<String, Object>) tested.get(Arrays.asList(kp)).getValue(kp);
+
+		// WHEN the retrieved map and the nested list are modified
+		((List<Integer>) retrieved.get("list")).add(3);
+		retrieved.put("value", "b");
+
+		// THEN the knowledge is not affected
+		assertEquals(map, tested.get(Arrays.asList(kp)).getValue(kp));
+
+		// WHEN the modified map is written back
+		toUpdate = new ChangeSet();
+		toUpdate.setValue(kp, retrieved);
+		tested.update(toUpdate);
+
+		// THEN the knowledge contains the modifications
+		Map<String, Object> updated = (Map<String, Object>) tested.get(Arrays.asList(kp)).getValue(kp);
+		assertEquals(Arrays.asList(1, 2, 3), updated.get("list"));
+		assertEquals("b", updated.get("value"));
+	}
+
+	@Test
+	public void testUnmodifiedValueShared() throws Exception {
+		// WHEN a list is retrieved twice
+		KnowledgePath kp = RuntimeModelHelper.createKnowledgePath("list");
+		Object first = tested.get(Arrays.asList(kp)).getValue(kp);
+		Object second = tested.get(Arrays.asList(kp)).getValue(kp);
+
+		// THEN the views share the stored list, which is not copied when they are frozen again
+		assertNotSame(first, second);
+		assertSame(KnowledgeSnapshots.freeze(first), KnowledgeSnapshots.freeze(second));
+	}
+
+	@Test
+	public void testMutableObjectsCloned() throws Exception {
+		// GIVEN a list of mutable objects
+		KnowledgePath kp = RuntimeModelHelper.createKnowledgePath("objects");
+		ChangeSet toUpdate = new ChangeSet();
+		toUpdate.setValue(kp, new ArrayList<>(Arrays.asList(new InnerKnowledge("a", "b"))));
+		tested.update(toUpdate);
+
+		// WHEN an object of the retrieved list is modified
+		List<InnerKnowledge> retrieved = (List<InnerKnowledge>) tested.get(Arrays.asList(kp)).getValue(kp);
+		retrieved.get(0).a = "modified";
+
+		// THEN the knowledge is not affected
+		List<InnerKnowledge> again = (List<InnerKnowledge>) tested.get(Arrays.asList(kp)).getValue(kp);
+		assertEquals("a", again.get(0).a);
+	}
+
+	@Test
+	public void testViewSerializedAsPlainCollection() throws Exception {
+		// WHEN a retrieved list is serialized
+		KnowledgePath kp = RuntimeModelHelper.createKnowledgePath("list");
+		Object retrieved = tested.get(Arrays.asList(kp)).getValue(kp);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(retrieved);
+		}
+		Object deserialized;
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			deserialized = in.readObject();
+		}
+
+		// THEN it is deserialized as an ordinary list
+		assertTrue(deserialized instanceof ArrayList);
+		assertEquals(Arrays.asList(1, 2, 3), deserialized);
+	}
+}
@@ -0,0 +1,125 @@
+package cz.cuni.mff.d3s.deeco.knowledge;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import cz.cuni.mff.d3s.deeco.model.runtime.RuntimeModelHelper;
+import cz.cuni.mff.d3s.deeco.model.runtime.api.KnowledgePath;
+
+/**
+ * Runs the {@link BaseKnowledgeManagerTest} test cases against the
+ * {@link TrieKnowledgeManager} and adds checks specific to the trie index.
+ */
+public class TrieKnowledgeManagerTest extends BaseKnowledgeManagerTest {
+
+	@Override
+	protected KnowledgeManager createKnowledgeManager(String id) {
+		return new TrieKnowledgeManager(id, null, null);
+	}
+
+	@Test
+	public void testNestedAuthorsInvalidatedByParentUpdate() throws Exception {
+		// GIVEN nested map entries updated by different authors
+		KnowledgePath kpA = RuntimeModelHelper.createKnowledgePath("map", "a");
+		KnowledgePath kpB = RuntimeModelHelper.createKnowledgePath("map", "b");
+		ChangeSet toUpdate = new ChangeSet();
+		toUpdate.setValue(kpA, 16);
+		tested.update(toUpdate, "X");
+		toUpdate = new ChangeSet();
+		toUpdate.setValue(kpB, 17);
+		tested.update(toUpdate, "Y");
+		assertEquals("X", tested.getAuthor(kpA));
+		assertEquals("Y", tested.getAuthor(kpB));
+
+		// WHEN an unrelated field is updated
+		toUpdate = new ChangeSet();
+		toUpdate.setValue(RuntimeModelHelper.createKnowledgePath("number"), 1);
+		tested.update(toUpdate, "Z");
+
+		// THEN the nested authors are kept
+		assertEquals("X", tested.getAuthor(kpA));
+		assertEquals("Y", tested.getAuthor(kpB));
+
+		// WHEN the map itself is updated
+		toUpdate = new ChangeSet();
+		Map<String, Integer> map = new HashMap<>();
+		map.put("a", 1);
+		toUpdate.setValue(RuntimeModelHelper.createKnowledgePath("map"), map);
+		tested.update(toUpdate, "W");
+
+		// THEN the authors of all the entries of the map are replaced
+		assertEquals("W", tested.getAuthor(kpA));
+		assertEquals("W", tested.getAuthor(kpB));
+	}
+
+	@Test
+	public void testFailedUpdateRevertsAuthors() throws Exception {
+		// GIVEN a map entry updated by an author
+		KnowledgePath kpA = RuntimeModelHelper.createKnowledgePath("map", "a");
+		ChangeSet toUpdate = new ChangeSet();
+		toUpdate.setValue(kpA, 16);
+		tested.update(toUpdate, "X");
+
+		// WHEN an update of the map fails on a non-existent path
+		toUpdate = new ChangeSet();
+		toUpdate.setValue(RuntimeModelHelper.createKnowledgePath("map"), new HashMap<>());
+		toUpdate.setDeleted(RuntimeModelHelper.createKnowledgePath("nonExistent", "x"));
+		boolean exceptionThrown = false;
+		try {
+			tested.update(toUpdate, "Y");
+		} catch (KnowledgeUpdateException e) {
+			exceptionThrown = true;
+		}
+
+		// THEN the original authors are restored
+		assertTrue(exceptionThrown);
+		assertEquals("X", tested.getAuthor(kpA));
+		assertEquals("TEST", tested.getAuthor(RuntimeModelHelper.createKnowledgePath("map")));
+	}
+
+	@Test
+	public void testManyFields() throws Exception {
+		// WHEN many top-level fields are stored
+		ChangeSet toUpdate = new ChangeSet();
+		for (int i = 0; i < 1000; i++) {
+			toUpdate.setValue(RuntimeModelHelper.createKnowledgePath("field" + i), i);
+		}
+		tested.update(toUpdate);
+
+		// THEN each of them can be retrieved
+		for (int i = 0; i < 1000; i += 97) {
+			KnowledgePath kp = RuntimeModelHelper.createKnowledgePath("field" + i);
+			assertEquals(i, tested.get(Arrays.asList(kp)).getValue(kp));
+		}
+
+		// and THEN a deleted one cannot
+		KnowledgePath deleted = RuntimeModelHelper.createKnowledgePath("field10");
+		toUpdate = new ChangeSet();
+		toUpdate.setDeleted(deleted);
+		tested.update(toUpdate);
+		assertNull(tested.getAuthor(deleted));
+		assertTrue(!tested.getAllPaths().contains(deleted));
+	}
+
+	@Test(expected = KnowledgeUpdateException.class)
+	public void testOverlappingTopLevelUpdate() throws Exception {
+		// WHEN a top-level field is stored under a nested path
+		ChangeSet toUpdate = new ChangeSet();
+		toUpdate.setValue(RuntimeModelHelper.createKnowledgePath("a", "b"), 1);
+		tested.update(toUpdate);
+
+		// and WHEN its prefix is then stored as a separate field
+		toUpdate = new ChangeSet();
+		toUpdate.setValue(RuntimeModelHelper.createKnowledgePath("a"), 2);
+
+		// THEN the update is rejected
+		tested.update(toUpdate);
+	}
+}
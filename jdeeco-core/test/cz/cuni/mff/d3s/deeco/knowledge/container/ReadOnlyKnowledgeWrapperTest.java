@@ -1,6 +1,8 @@
 package cz.cuni.mff.d3s.deeco.knowledge.container;
 
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.argThat;
@@ -89,5 +91,31 @@ public class ReadOnlyKnowledgeWrapperTest {
 		ReadOnlyKnowledgeWrapper target = new ReadOnlyKnowledgeWrapper(kmMock);
 		target.getUntrackedRoleKnowledge(String.class);
 	}
+	
+	@Test
+	public void getUntrackedRoleKnowledgeRepeatedTest() throws KnowledgeNotFoundException, RoleClassException, KnowledgeAccessException {
+		// GIVEN two components playing the same role
+		ReadOnlyKnowledgeWrapper target1 = new ReadOnlyKnowledgeWrapper(getTestRoleKnowledgeManager());
+		ReadOnlyKnowledgeWrapper target2 = new ReadOnlyKnowledgeWrapper(getTestRoleKnowledgeManager());
+		
+		// WHEN the knowledge of both is acquired
+		TestRole result1 = target1.getUntrackedRoleKnowledge(TestRole.class);
+		TestRole result2 = target2.getUntrackedRoleKnowledge(TestRole.class);
+		
+		// THEN each gets its own instance, while the role class is introspected only once
+		assertNotSame(result1, result2);
+		assertTrue(result2.i == 42);
+		assertTrue(result2.s.equals("test"));
+		assertSame(RoleClassAccessor.forClass(TestRole.class), RoleClassAccessor.forClass(TestRole.class));
+	}
+	
+	@Test(expected = RoleClassException.class)
+	public void getUntrackedRoleKnowledgeNotInstantiableTest() throws RoleClassException, KnowledgeAccessException {
+		KnowledgeManager kmMock = Mockito.mock(KnowledgeManager.class);
+		Mockito.when(kmMock.getRoles()).thenReturn(new Class<?>[] {Integer.class});
+		
+		ReadOnlyKnowledgeWrapper target = new ReadOnlyKnowledgeWrapper(kmMock);
+		target.getUntrackedRoleKnowledge(Integer.class);
+	}
 
 }
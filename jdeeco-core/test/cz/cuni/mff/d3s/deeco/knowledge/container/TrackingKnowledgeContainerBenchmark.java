@@ -0,0 +1,74 @@
+package cz.cuni.mff.d3s.deeco.knowledge.container;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import cz.cuni.mff.d3s.deeco.knowledge.BaseKnowledgeManager;
+import cz.cuni.mff.d3s.deeco.knowledge.ChangeSet;
+import cz.cuni.mff.d3s.deeco.knowledge.KnowledgeManager;
+import cz.cuni.mff.d3s.deeco.knowledge.ReadOnlyKnowledgeManager;
+import cz.cuni.mff.d3s.deeco.model.runtime.RuntimeModelHelper;
+import cz.cuni.mff.d3s.deeco.model.runtime.custom.RuntimeMetadataFactoryExt;
+
+/**
+ * Measures acquiring the role knowledge of a local component and 1,000 shadow components,
+ * as done by an ensemble formation task on every run.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TrackingKnowledgeContainerBenchmark {
+
+	private static final int SHADOWS = 1000;
+
+	public static class VehicleRole {
+		public String id;
+		public Integer position;
+		public Double speed;
+		public String destination;
+	}
+
+	private TrackingKnowledgeContainer container;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		KnowledgeManager localKnowledgeManager = createKnowledgeManager("local");
+		List<ReadOnlyKnowledgeManager> shadowKnowledgeManagers = new ArrayList<>();
+		for (int i = 0; i < SHADOWS; i++) {
+			shadowKnowledgeManagers.add(createKnowledgeManager("shadow" + i));
+		}
+		container = TrackingKnowledgeContainer.createFromKnowledgeManagers(localKnowledgeManager, shadowKnowledgeManagers);
+	}
+
+	private static KnowledgeManager createKnowledgeManager(String id) throws Exception {
+		KnowledgeManager knowledgeManager = new BaseKnowledgeManager(id,
+				RuntimeMetadataFactoryExt.eINSTANCE.createComponentInstance(), new Class<?>[] { VehicleRole.class });
+		ChangeSet changeSet = new ChangeSet();
+		changeSet.setValue(RuntimeModelHelper.createKnowledgePath("id"), id);
+		changeSet.setValue(RuntimeModelHelper.createKnowledgePath("position"), id.length());
+		changeSet.setValue(RuntimeModelHelper.createKnowledgePath("speed"), 1.0);
+		changeSet.setValue(RuntimeModelHelper.createKnowledgePath("destination"), "depot");
+		knowledgeManager.update(changeSet);
+		return knowledgeManager;
+	}
+
+	/**
+	 * Acquires the role knowledge of all the components.
+	 */
+	@Benchmark
+	public Collection<VehicleRole> getTrackedKnowledge() throws Exception {
+		container.resetTracking();
+		return container.getTrackedKnowledgeForRole(VehicleRole.class);
+	}
+}
@@ -0,0 +1,77 @@
+package cz.cuni.mff.d3s.deeco.knowledge.container;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import cz.cuni.mff.d3s.deeco.knowledge.ChangeSet;
+import cz.cuni.mff.d3s.deeco.knowledge.CloningKnowledgeManager;
+import cz.cuni.mff.d3s.deeco.knowledge.KnowledgeManager;
+import cz.cuni.mff.d3s.deeco.model.runtime.RuntimeModelHelper;
+import cz.cuni.mff.d3s.deeco.model.runtime.api.KnowledgeChangeTrigger;
+import cz.cuni.mff.d3s.deeco.model.runtime.custom.RuntimeMetadataFactoryExt;
+
+/**
+ * Measures acquiring a role instance of ten fields, changing the given number of them and committing
+ * the changes, with a knowledge change trigger registered on each of the fields.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TrackingKnowledgeWrapperBenchmark {
+
+	public static class SensorRole {
+		public Integer f0, f1, f2, f3, f4, f5, f6, f7, f8, f9;
+	}
+
+	@Param({ "0", "1", "10" })
+	public int changedFields;
+
+	private TrackingKnowledgeWrapper wrapper;
+	private int triggered;
+	private int commit;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		KnowledgeManager knowledgeManager = new CloningKnowledgeManager("sensor",
+				RuntimeMetadataFactoryExt.eINSTANCE.createComponentInstance(), new Class<?>[] { SensorRole.class });
+		ChangeSet changeSet = new ChangeSet();
+		for (int i = 0; i < 10; i++) {
+			changeSet.setValue(RuntimeModelHelper.createKnowledgePath("f" + i), 0);
+			KnowledgeChangeTrigger trigger = RuntimeModelHelper.createKnowledgeChangeTrigger();
+			trigger.setKnowledgePath(RuntimeModelHelper.createKnowledgePath("f" + i));
+			knowledgeManager.register(trigger, t -> triggered++);
+		}
+		knowledgeManager.update(changeSet);
+		wrapper = new TrackingKnowledgeWrapper(knowledgeManager);
+	}
+
+	/**
+	 * Acquires the role instance, changes the fields and commits them.
+	 */
+	@Benchmark
+	public int commit() throws Exception {
+		commit++;
+		wrapper.resetTracking();
+		SensorRole role = wrapper.getTrackedRoleKnowledge(SensorRole.class);
+		Integer value = commit;
+		switch (changedFields) {
+		case 10:
+			role.f9 = role.f8 = role.f7 = role.f6 = role.f5 = role.f4 = role.f3 = role.f2 = role.f1 = value;
+			// fall through
+		case 1:
+			role.f0 = value;
+		}
+		triggered = 0;
+		wrapper.commitChanges();
+		return triggered;
+	}
+}
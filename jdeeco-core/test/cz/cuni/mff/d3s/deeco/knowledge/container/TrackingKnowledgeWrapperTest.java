@@ -2,6 +2,7 @@ package cz.cuni.mff.d3s.deeco.knowledge.container;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.argThat;
@@ -15,9 +16,11 @@ import static org.mockito.Mockito.times;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 
 import org.hamcrest.Matcher;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.ArgumentMatcher;
 import org.mockito.Matchers;
 import org.mockito.Mockito;
@@ -26,11 +29,15 @@ import org.mockito.stubbing.Answer;
 
 import cz.cuni.mff.d3s.deeco.annotations.pathparser.ParseException;
 import cz.cuni.mff.d3s.deeco.annotations.processor.AnnotationProcessorException;
+import cz.cuni.mff.d3s.deeco.knowledge.BaseKnowledgeManager;
 import cz.cuni.mff.d3s.deeco.knowledge.ChangeSet;
 import cz.cuni.mff.d3s.deeco.knowledge.KnowledgeManager;
 import cz.cuni.mff.d3s.deeco.knowledge.KnowledgeNotFoundException;
 import cz.cuni.mff.d3s.deeco.knowledge.KnowledgeUpdateException;
+import cz.cuni.mff.d3s.deeco.knowledge.TriggerListener;
 import cz.cuni.mff.d3s.deeco.knowledge.ValueSet;
+import cz.cuni.mff.d3s.deeco.model.runtime.RuntimeModelHelper;
+import cz.cuni.mff.d3s.deeco.model.runtime.api.KnowledgeChangeTrigger;
 import cz.cuni.mff.d3s.deeco.model.runtime.api.KnowledgePath;
 import cz.cuni.mff.d3s.deeco.test.common.CollectionMatcher;
 
@@ -144,8 +151,8 @@ public class TrackingKnowledgeWrapperTest {
 			@Override
 			public boolean matches(Object argument) {
 				ChangeSet changeSet = (ChangeSet) argument;
-				return changeSet.getUpdatedReferences().size() == 2 && changeSet.getDeletedReferences().isEmpty()
-						&& changeSet.getValue(TestRole.kpi).equals(44) && changeSet.getValue(TestRole.kps).equals("test");
+				return changeSet.getUpdatedReferences().size() == 1 && changeSet.getDeletedReferences().isEmpty()
+						&& Integer.valueOf(44).equals(changeSet.getValue(TestRole.kpi));
 			}
 		}));
 		Mockito.verify(kmMock, times(1)).update(argThat(new ArgumentMatcher<ChangeSet>() {
@@ -153,12 +160,76 @@ public class TrackingKnowledgeWrapperTest {
 			public boolean matches(Object argument) {
 				ChangeSet changeSet = (ChangeSet) argument;
 				return changeSet.getUpdatedReferences().size() == 1 && changeSet.getDeletedReferences().isEmpty()
-						&& changeSet.getValue(TestRole2.kpc).equals('a');
+						&& Character.valueOf('a').equals(changeSet.getValue(TestRole2.kpc));
 			}
 		}));
 		Mockito.verify(rdcMock, times(1)).checkRolesAreDisjoint(argThat(new CollectionMatcher<Class<?>>(TestRole.class, TestRole2.class)));
 	}
 	
+	@SuppressWarnings("unchecked")
+	@Test
+	public void commitChangesOwnPathsTest() throws Exception {
+		// GIVEN two wrappers of the same role acquired and changed
+		KnowledgeManager kmMock = ReadOnlyKnowledgeWrapperTest.getTestRoleKnowledgeManager();
+		Mockito.doNothing().when(kmMock).update(any());
+		for (int i = 0; i < 2; i++) {
+			TrackingKnowledgeWrapper target = new TrackingKnowledgeWrapper(kmMock);
+			TestRole result = target.getTrackedRoleKnowledge(TestRole.class);
+			result.i = 43 + i;
+			
+			// WHEN the changes are committed
+			target.commitChanges();
+		}
+		
+		// THEN the knowledge manager gets its own paths each time
+		ArgumentCaptor<Collection> paths = ArgumentCaptor.forClass(Collection.class);
+		Mockito.verify(kmMock, times(2)).get(paths.capture());
+		assertNotSame(paths.getAllValues().get(0).iterator().next(), paths.getAllValues().get(1).iterator().next());
+		ArgumentCaptor<ChangeSet> changeSets = ArgumentCaptor.forClass(ChangeSet.class);
+		Mockito.verify(kmMock, times(2)).update(changeSets.capture());
+		List<ChangeSet> updates = changeSets.getAllValues();
+		assertNotSame(updates.get(0).getUpdatedReferences().iterator().next(),
+				updates.get(1).getUpdatedReferences().iterator().next());
+	}
+	
+	@Test
+	public void commitChangesUnchangedFieldsTest() throws Exception {
+		// GIVEN a component playing a role with triggers registered on both the role fields
+		KnowledgeManager km = new BaseKnowledgeManager("42", null, new Class<?>[] {TestRole.class});
+		ChangeSet knowledge = new ChangeSet();
+		knowledge.setValue(TestRole.kps, "test");
+		knowledge.setValue(TestRole.kpi, 42);
+		km.update(knowledge);
+		
+		TriggerListener listener = Mockito.mock(TriggerListener.class);
+		KnowledgeChangeTrigger triggerS = RuntimeModelHelper.createKnowledgeChangeTrigger();
+		triggerS.setKnowledgePath(RuntimeModelHelper.createKnowledgePath("s"));
+		km.register(triggerS, listener);
+		KnowledgeChangeTrigger triggerI = RuntimeModelHelper.createKnowledgeChangeTrigger();
+		triggerI.setKnowledgePath(RuntimeModelHelper.createKnowledgePath("i"));
+		km.register(triggerI, listener);
+		
+		// WHEN only one field of the tracked role instance is changed and the changes are committed
+		TrackingKnowledgeWrapper target = new TrackingKnowledgeWrapper(km);
+		TestRole result = target.getTrackedRoleKnowledge(TestRole.class);
+		result.i = 43;
+		result.s = new String("test");
+		target.commitChanges();
+		
+		// THEN only the trigger of the changed field is fired
+		assertEquals(43, km.get(Arrays.asList(TestRole.kpi)).getValue(TestRole.kpi));
+		Mockito.verify(listener, times(1)).triggered(triggerI);
+		Mockito.verifyNoMoreInteractions(listener);
+		
+		// WHEN the role instance is acquired again and committed without changes
+		target.resetTracking();
+		target.getTrackedRoleKnowledge(TestRole.class);
+		target.commitChanges();
+		
+		// THEN no trigger is fired
+		Mockito.verifyNoMoreInteractions(listener);
+	}
+	
 	@Test
 	public void resetTrackingTest() throws KnowledgeNotFoundException, RoleClassException, KnowledgeAccessException, KnowledgeCommitException, KnowledgeUpdateException {
 		KnowledgeManager kmMock = ReadOnlyKnowledgeWrapperTest.getTestRoleKnowledgeManager();
@@ -2,6 +2,7 @@ package cz.cuni.mff.d3s.deeco.runtime;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -15,7 +16,11 @@ import org.junit.Before;
 import org.junit.Test;
 import org.mockito.InOrder;
 
+import cz.cuni.mff.d3s.deeco.executor.MultiThreadedExecutor;
+import cz.cuni.mff.d3s.deeco.executor.SameThreadExecutor;
+import cz.cuni.mff.d3s.deeco.knowledge.CloningKnowledgeManagerFactory;
 import cz.cuni.mff.d3s.deeco.runtimelog.RuntimeLogWritersMock;
+import cz.cuni.mff.d3s.deeco.scheduler.MultiThreadedScheduler;
 import cz.cuni.mff.d3s.deeco.timer.DiscreteEventTimer;
 import cz.cuni.mff.d3s.deeco.timer.Timer;
 
@@ -65,6 +70,26 @@ public class DEECoTest {
 		assertNotNull(deeco.runtime);	
 	}
 	
+	/**
+	 * Tests if the scheduler matches the executor given to the node.
+	 */
+	@Test
+	public void testSchedulerMatchesExecutor() throws Exception
+	{
+		DEECoNode sameThread = new DEECoNode(0, timer, new CloningKnowledgeManagerFactory(), runtimeLogWriters,
+				new SameThreadExecutor());
+		assertTrue(!(sameThread.getRuntimeFramework().getScheduler() instanceof MultiThreadedScheduler));
+
+		MultiThreadedExecutor executor = new MultiThreadedExecutor(1);
+		try {
+			DEECoNode multiThreaded = new DEECoNode(1, timer, new CloningKnowledgeManagerFactory(), runtimeLogWriters,
+					executor);
+			assertTrue(multiThreaded.getRuntimeFramework().getScheduler() instanceof MultiThreadedScheduler);
+		} finally {
+			executor.shutdown();
+		}
+	}
+	
 	/** 
 	 * Verifies that the dependency and the plugin extending it are initialized in the correct order.
 	 */
@@ -0,0 +1,328 @@
+package cz.cuni.mff.d3s.deeco.runtimelog;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import cz.cuni.mff.d3s.deeco.runtimelog.AsyncRuntimeLogEncoder.OverflowPolicy;
+import cz.cuni.mff.d3s.deeco.scheduler.Scheduler;
+
+/**
+ * Tests the {@link AsyncRuntimeLogEncoder} and its {@link RingBuffer}
+ */
+public class AsyncRuntimeLogEncoderTest {
+
+	private static class TestLogRecord extends RuntimeLogRecord {
+		public TestLogRecord(String id, Map<String, Object> values) {
+			super(id, values);
+		}
+	}
+
+	/**
+	 * Collects the times of the written records, the writing can be stalled until
+	 * {@link #release} counts down.
+	 */
+	private static class CollectingEncoder extends RuntimeLogEncoder {
+		final List<Long> times = Collections.synchronizedList(new ArrayList<Long>());
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		long lastIndexTime;
+		int flushes;
+		boolean closed;
+
+		@Override
+		public long writeRecord(long time, RuntimeLogRecord record) throws IOException {
+			started.countDown();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				throw new IOException(e);
+			}
+			if (record.getValues() == null) {
+				throw new IllegalArgumentException("null values");
+			}
+			times.add(time);
+			return time;
+		}
+
+		@Override
+		public synchronized void writeIndex(long time, long dataOffset) {
+			lastIndexTime = time;
+		}
+
+		@Override
+		public synchronized long getLastIndexTime() {
+			return lastIndexTime;
+		}
+
+		@Override
+		public void writeSnapshotPeriod(long period, Class<? extends RuntimeLogRecord> snapshotType) {
+		}
+
+		@Override
+		public synchronized void flush() {
+			flushes++;
+		}
+
+		@Override
+		protected void closeOutputs() {
+			closed = true;
+		}
+	}
+
+	private static RuntimeLogRecord record() {
+		return new TestLogRecord("id", new HashMap<String, Object>());
+	}
+
+	@Test
+	public void writesRecordsInOrderTest() throws Exception {
+		// GIVEN an asynchronous encoder
+		CollectingEncoder encoder = new CollectingEncoder();
+		encoder.release.countDown();
+		AsyncRuntimeLogEncoder async = new AsyncRuntimeLogEncoder(encoder, 4, OverflowPolicy.BLOCK, 1);
+		async.incrementReference();
+
+		// WHEN more records than the buffer holds are logged and flushed
+		for (long time = 0; time < 100; time++) {
+			assertEquals(-1, async.writeRecord(time, record()));
+		}
+		async.writeIndexedRecord(100, record());
+		async.flush();
+
+		// THEN all of them are written in order
+		assertEquals(101, encoder.times.size());
+		for (int i = 0; i <= 100; i++) {
+			assertEquals(i, (long) encoder.times.get(i));
+		}
+		assertEquals(100, encoder.getLastIndexTime());
+		assertEquals(100, async.getLastIndexTime());
+		assertEquals(101, async.getWrittenRecords());
+		assertEquals(0, async.getDroppedRecords());
+		assertTrue(encoder.flushes > 0);
+
+		// WHEN the encoder is closed
+		async.close();
+
+		// THEN the wrapped encoder is closed as well
+		assertTrue(encoder.closed);
+	}
+
+	@Test
+	public void dropsRecordsWhenFullTest() throws Exception {
+		// GIVEN an asynchronous encoder dropping the records and a stalled writer thread
+		CollectingEncoder encoder = new CollectingEncoder();
+		AsyncRuntimeLogEncoder async = new AsyncRuntimeLogEncoder(encoder, 4, OverflowPolicy.DROP, 1);
+		async.incrementReference();
+		async.writeRecord(0, record());
+		assertTrue(encoder.started.await(10, TimeUnit.SECONDS));
+
+		// WHEN the buffer is overflown
+		for (long time = 1; time <= 10; time++) {
+			async.writeRecord(time, record());
+		}
+		encoder.release.countDown();
+		async.flush();
+
+		// THEN the records fitting the buffer are written and the rest is dropped
+		assertEquals(5, async.getWrittenRecords());
+		assertEquals(6, async.getDroppedRecords());
+		assertEquals(5, encoder.times.size());
+		assertEquals(4, (long) encoder.times.get(4));
+		async.close();
+	}
+
+	@Test
+	public void samplesRecordsWhenFullTest() throws Exception {
+		// GIVEN an asynchronous encoder sampling every 3rd overflowing record
+		CollectingEncoder encoder = new CollectingEncoder();
+		final AsyncRuntimeLogEncoder async = new AsyncRuntimeLogEncoder(encoder, 4, OverflowPolicy.SAMPLE, 3);
+		async.incrementReference();
+		async.writeRecord(0, record());
+		assertTrue(encoder.started.await(10, TimeUnit.SECONDS));
+		for (long time = 1; time <= 4; time++) {
+			async.writeRecord(time, record());
+		}
+
+		// WHEN the overflowing records are logged until one has to wait for space
+		Thread producer = new Thread() {
+			@Override
+			public void run() {
+				try {
+					for (long time = 5; time <= 11; time++) {
+						async.writeRecord(time, record());
+					}
+				} catch (IOException e) {
+					throw new RuntimeException(e);
+				}
+			}
+		};
+		producer.start();
+		// the first overflowing record is kept, so the producer waits for space
+		Thread.sleep(100);
+		assertTrue(producer.isAlive());
+		encoder.release.countDown();
+		producer.join(10000);
+		assertFalse(producer.isAlive());
+		async.flush();
+
+		// THEN the sampled records are written
+		assertEquals(encoder.times.size(), async.getWrittenRecords());
+		assertEquals(12, async.getWrittenRecords() + async.getDroppedRecords());
+		assertTrue(encoder.times.contains(5L));
+		async.close();
+	}
+
+	@Test
+	public void blocksWhenFullTest() throws Exception {
+		// GIVEN an asynchronous encoder blocking when full and a stalled writer thread
+		CollectingEncoder encoder = new CollectingEncoder();
+		final AsyncRuntimeLogEncoder async = new AsyncRuntimeLogEncoder(encoder, 2, OverflowPolicy.BLOCK, 1);
+		async.incrementReference();
+		async.writeRecord(0, record());
+		assertTrue(encoder.started.await(10, TimeUnit.SECONDS));
+		async.writeRecord(1, record());
+		async.writeRecord(2, record());
+
+		// WHEN another record is logged
+		Thread producer = new Thread() {
+			@Override
+			public void run() {
+				try {
+					async.writeRecord(3, record());
+				} catch (IOException e) {
+					throw new RuntimeException(e);
+				}
+			}
+		};
+		producer.start();
+
+		// THEN the logging thread waits until the writer thread makes space
+		Thread.sleep(100);
+		assertTrue(producer.isAlive());
+		encoder.release.countDown();
+		producer.join(10000);
+		assertFalse(producer.isAlive());
+		async.close();
+		assertEquals(4, encoder.times.size());
+		assertEquals(0, async.getDroppedRecords());
+	}
+
+	@Test
+	public void countsRejectedRecordsTest() throws Exception {
+		// GIVEN an asynchronous encoder
+		CollectingEncoder encoder = new CollectingEncoder();
+		encoder.release.countDown();
+		AsyncRuntimeLogEncoder async = new AsyncRuntimeLogEncoder(encoder, 4, OverflowPolicy.BLOCK, 1);
+		async.incrementReference();
+
+		// WHEN a record is rejected by the wrapped encoder
+		async.writeRecord(0, new TestLogRecord("id", null));
+		async.writeRecord(1, record());
+		async.close();
+
+		// THEN it is counted as dropped and the following record is written
+		assertEquals(1, async.getDroppedRecords());
+		assertEquals(1, async.getWrittenRecords());
+	}
+
+	@Test
+	public void writesTheSameBinaryLogTest() throws Exception {
+		// GIVEN a synchronous and an asynchronous binary runtime log
+		byte[][] data = new byte[2][];
+		byte[][] index = new byte[2][];
+		for (int i = 0; i < 2; i++) {
+			ByteArrayOutputStream dataOut = new ByteArrayOutputStream();
+			ByteArrayOutputStream indexOut = new ByteArrayOutputStream();
+			BinaryRuntimeLogWriters writers = new BinaryRuntimeLogWriters(Channels.newChannel(dataOut),
+					Channels.newChannel(indexOut), new StringWriter());
+			if (i == 1) {
+				writers.setAsynchronous(8, OverflowPolicy.BLOCK, 1);
+			}
+			final long[] time = new long[1];
+			RuntimeLogger runtimeLogger = new RuntimeLogger(() -> time[0], mock(Scheduler.class), writers);
+			runtimeLogger.registerSnapshotPeriod(100, TestLogRecord.class);
+			assertEquals(i == 1, runtimeLogger.getEncoder() instanceof AsyncRuntimeLogEncoder);
+
+			// WHEN the same records are logged
+			for (time[0] = 0; time[0] < 200; time[0]++) {
+				Map<String, Object> values = new HashMap<>();
+				values.put("time", time[0]);
+				runtimeLogger.log(time[0] % 7 == 0 ? new TestLogRecord("snapshot", values) : new EnsembleLogRecord());
+			}
+			runtimeLogger.close();
+			data[i] = dataOut.toByteArray();
+			index[i] = indexOut.toByteArray();
+		}
+
+		// THEN the logs are the same
+		assertArrayEquals(data[0], data[1]);
+		assertArrayEquals(index[0], index[1]);
+	}
+
+	@Test
+	public void ringBufferConcurrentProducersTest() throws Exception {
+		// GIVEN a ring buffer and several producers
+		final RingBuffer<Long> buffer = new RingBuffer<>(64);
+		assertEquals(64, buffer.capacity());
+		assertEquals(8, new RingBuffer<Long>(5).capacity());
+		final int producers = 4;
+		final int items = 10000;
+		List<Thread> threads = new ArrayList<>();
+		for (int p = 0; p < producers; p++) {
+			final long base = (long) p * items;
+			threads.add(new Thread() {
+				@Override
+				public void run() {
+					for (long i = 0; i < items; i++) {
+						while (!buffer.offer(base + i)) {
+							Thread.yield();
+						}
+					}
+				}
+			});
+		}
+
+		// WHEN the items are offered concurrently and polled
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		Set<Long> polled = new HashSet<>();
+		long[] last = new long[producers];
+		Arrays.fill(last, -1);
+		while (polled.size() < producers * items) {
+			Long item = buffer.poll();
+			if (item == null) {
+				Thread.yield();
+				continue;
+			}
+			// THEN each item is polled once and the items of each producer in order
+			assertTrue(polled.add(item));
+			int producer = (int) (item / items);
+			assertTrue(item % items > last[producer]);
+			last[producer] = item % items;
+		}
+		assertEquals(null, buffer.poll());
+		for (Thread thread : threads) {
+			thread.join();
+		}
+	}
+}
@@ -0,0 +1,135 @@
+package cz.cuni.mff.d3s.deeco.runtimelog;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import cz.cuni.mff.d3s.deeco.runtimelog.AsyncRuntimeLogEncoder.OverflowPolicy;
+import cz.cuni.mff.d3s.deeco.scheduler.Scheduler;
+import cz.cuni.mff.d3s.deeco.timer.CurrentTimeProvider;
+
+/**
+ * Measures the time the logging thread spends in {@link RuntimeLogger#log(RuntimeLogRecord)}
+ * with the log written synchronously and by the {@link AsyncRuntimeLogEncoder}, a knowledge
+ * snapshot with an index entry being logged every 10th time.
+ *
+ * <p>
+ * The percentiles of the sampled times show the stalls caused by writing into the files, the numbers of
+ * the records written and dropped by the asynchronous encoder are reported as the {@code written} and
+ * {@code dropped} counters.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AsyncRuntimeLoggerBenchmark {
+
+	@Param({ "xml", "binary" })
+	public String format;
+
+	@Param({ "sync", "block", "drop" })
+	public String mode;
+
+	private File logDir;
+	private RuntimeLogger runtimeLogger;
+	private AsyncRuntimeLogEncoder encoder;
+	private long writtenBefore;
+	private long droppedBefore;
+	private long time;
+
+	private EnsembleLogRecord membership;
+	private RuntimeLogRecord snapshot;
+
+	private static class SnapshotRecord extends RuntimeLogRecord {
+		SnapshotRecord(String id, Map<String, Object> values) {
+			super(id, values);
+		}
+	}
+
+	/**
+	 * Records written and dropped by the asynchronous encoder in the iteration, none with the log written synchronously
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Encoded {
+		public long written;
+		public long dropped;
+	}
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		logDir = Files.createTempDirectory("runtimelog").toFile();
+		RuntimeLogWriters writers = format.equals("xml") ? new RuntimeLogWriters(logDir.getPath())
+				: new BinaryRuntimeLogWriters(logDir.getPath());
+		if (!mode.equals("sync")) {
+			writers.setAsynchronous(1 << 14, mode.equals("block") ? OverflowPolicy.BLOCK : OverflowPolicy.DROP, 1);
+		}
+		CurrentTimeProvider timeProvider = () -> time;
+		runtimeLogger = new RuntimeLogger(timeProvider, Mockito.mock(Scheduler.class), writers);
+		runtimeLogger.registerSnapshotPeriod(1000, SnapshotRecord.class);
+		if (runtimeLogger.getEncoder() instanceof AsyncRuntimeLogEncoder) {
+			encoder = (AsyncRuntimeLogEncoder) runtimeLogger.getEncoder();
+		}
+
+		membership = new EnsembleLogRecord();
+		membership.setEnsembleName("cz.cuni.mff.d3s.deeco.demo.convoy.ConvoyEnsemble");
+		membership.setCoordinatorID("V1");
+		membership.setMemberID("V2");
+		membership.setMembership(true);
+
+		Map<String, Object> knowledge = new HashMap<>();
+		knowledge.put("id", "V1");
+		knowledge.put("position", Arrays.asList(1234.5678, 8765.4321));
+		knowledge.put("speed", 13.8);
+		knowledge.put("route", Arrays.asList("A", "B", "C", "D", "E"));
+		knowledge.put("leader", true);
+		snapshot = new SnapshotRecord("V1", knowledge);
+	}
+
+	@Setup(Level.Iteration)
+	public void startIteration() {
+		if (encoder != null) {
+			writtenBefore = encoder.getWrittenRecords();
+			droppedBefore = encoder.getDroppedRecords();
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		runtimeLogger.close();
+		for (File file : logDir.listFiles()) {
+			file.delete();
+		}
+		logDir.delete();
+	}
+
+	/**
+	 * Logs an ensemble membership record, or a knowledge snapshot every 10th time.
+	 */
+	@Benchmark
+	public void log(Encoded encoded) throws IOException {
+		time++;
+		runtimeLogger.log(time % 10 == 0 ? snapshot : membership);
+		if (encoder != null) {
+			encoded.written = encoder.getWrittenRecords() - writtenBefore;
+			encoded.dropped = encoder.getDroppedRecords() - droppedBefore;
+		}
+	}
+}
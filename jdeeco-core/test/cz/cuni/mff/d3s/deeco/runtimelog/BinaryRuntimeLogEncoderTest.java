@@ -0,0 +1,172 @@
+package cz.cuni.mff.d3s.deeco.runtimelog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import cz.cuni.mff.d3s.deeco.scheduler.Scheduler;
+import cz.cuni.mff.d3s.deeco.timer.CurrentTimeProvider;
+
+/**
+ * Tests the binary runtime log against the <a href="http://en.wikipedia.org/wiki/XML">XML</a> one
+ */
+public class BinaryRuntimeLogEncoderTest {
+
+	private CurrentTimeProvider timeProvider;
+	private Scheduler scheduler;
+
+	private ByteArrayOutputStream dataOut;
+	private ByteArrayOutputStream indexOut;
+	private StringWriter periodOut;
+	private BinaryRuntimeLogWriters writers;
+
+	private static class TestLogRecord extends RuntimeLogRecord {
+		public TestLogRecord(String id, Map<String, Object> values) {
+			super(id, values);
+		}
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		scheduler = mock(Scheduler.class);
+		timeProvider = mock(CurrentTimeProvider.class);
+		Mockito.when(timeProvider.getCurrentMilliseconds()).thenReturn(10L, 15L, 20L, 1000L);
+
+		dataOut = new ByteArrayOutputStream();
+		indexOut = new ByteArrayOutputStream();
+		periodOut = new StringWriter();
+		writers = new BinaryRuntimeLogWriters(Channels.newChannel(dataOut), Channels.newChannel(indexOut), periodOut);
+	}
+
+	private List<RuntimeLogRecord> createRecords() {
+		Map<String, Object> values = new LinkedHashMap<>();
+		values.put("text", "plain <text> \u011b\u0161\u010d\u0159 \uD83D\uDE00");
+		values.put("int", -42);
+		values.put("long", Long.MIN_VALUE);
+		values.put("double", 0.1);
+		values.put("float", 1.5f);
+		values.put("bool", true);
+		values.put("list", Arrays.asList(1, "two", Arrays.asList(3.0, false)));
+		Map<String, Object> map = new HashMap<>();
+		map.put("x", 1);
+		map.put("y", Arrays.asList());
+		values.put("map", map);
+		values.put("other", new StringBuilder("to string"));
+
+		Map<String, Object> large = new HashMap<>();
+		List<Integer> items = new ArrayList<>();
+		for (int i = 0; i < 3 * BinaryRuntimeLogEncoder.BUFFER_SIZE; i++) {
+			items.add(i);
+		}
+		large.put("items", items);
+
+		return Arrays.<RuntimeLogRecord> asList(new TestLogRecord("first", values),
+				new EnsembleLogRecord(), new TestLogRecord("large", large),
+				new TestLogRecord("last", new HashMap<String, Object>()));
+	}
+
+	private void logRecords(RuntimeLogger runtimeLogger) throws Exception {
+		runtimeLogger.registerSnapshotPeriod(100, TestLogRecord.class);
+		for (RuntimeLogRecord record : createRecords()) {
+			runtimeLogger.log(record);
+		}
+		runtimeLogger.close();
+	}
+
+	@Test
+	public void convert_loggedRecords_sameAsXmlLog() throws Exception {
+		// GIVEN records logged into the binary log
+		logRecords(new RuntimeLogger(timeProvider, scheduler, writers));
+
+		// AND the same records logged into the XML log
+		Mockito.when(timeProvider.getCurrentMilliseconds()).thenReturn(10L, 15L, 20L, 1000L);
+		StringWriter xmlData = new StringWriter();
+		StringWriter xmlIndex = new StringWriter();
+		StringWriter xmlPeriod = new StringWriter();
+		logRecords(new RuntimeLogger(timeProvider, scheduler, new RuntimeLogWriters(xmlData, xmlIndex, xmlPeriod)));
+
+		// WHEN the binary log is converted
+		StringWriter convertedData = new StringWriter();
+		StringWriter convertedIndex = new StringWriter();
+		BinaryRuntimeLogConverter.convert(Channels.newChannel(new ByteArrayInputStream(dataOut.toByteArray())),
+				Channels.newChannel(new ByteArrayInputStream(indexOut.toByteArray())),
+				new RuntimeLogWriters(convertedData, convertedIndex, new StringWriter()));
+
+		// THEN the converted log is the same as the XML one
+		assertEquals(xmlData.toString(), convertedData.toString());
+		assertEquals(xmlIndex.toString(), convertedIndex.toString());
+		assertEquals(3, xmlIndex.toString().split("\n").length);
+		assertEquals(xmlPeriod.toString(), periodOut.toString());
+
+		// AND the binary log is smaller
+		assertTrue(dataOut.size() < xmlData.toString().getBytes("UTF-8").length / 2);
+	}
+
+	@Test
+	public void next_loggedRecords_valuesRead() throws Exception {
+		// GIVEN records logged into the binary log
+		List<RuntimeLogRecord> records = createRecords();
+		RuntimeLogEncoder encoder = writers.getEncoder();
+		long first = encoder.writeRecord(7, records.get(0));
+		long second = encoder.writeRecord(8, records.get(1));
+		encoder.incrementReference();
+		encoder.close();
+
+		// WHEN the log is read
+		BinaryRuntimeLogReader reader = new BinaryRuntimeLogReader(
+				Channels.newChannel(new ByteArrayInputStream(dataOut.toByteArray())));
+
+		// THEN the records are read with their values
+		assertTrue(reader.next());
+		assertEquals(first, reader.getOffset());
+		assertEquals(7, reader.getTime());
+		assertEquals("first", reader.getId());
+		assertEquals(TestLogRecord.class.getCanonicalName(), reader.getEventType());
+		assertEquals(records.get(0).getValues().keySet(), reader.getValues().keySet());
+		assertEquals(-42, reader.getValues().get("int"));
+		assertEquals(Long.MIN_VALUE, reader.getValues().get("long"));
+		assertEquals(0.1, reader.getValues().get("double"));
+		assertEquals(1.5f, reader.getValues().get("float"));
+		assertEquals(Arrays.asList(1, "two", Arrays.asList(3.0, false)), reader.getValues().get("list"));
+		assertEquals(records.get(0).getValues().get("map"), reader.getValues().get("map"));
+		assertEquals("plain <text> \u011b\u0161\u010d\u0159 \uD83D\uDE00", reader.getValues().get("text"));
+		assertEquals("to string", reader.getValues().get("other"));
+
+		assertTrue(reader.next());
+		assertEquals(second, reader.getOffset());
+		assertEquals(EnsembleLogRecord.class.getCanonicalName(), reader.getEventType());
+		assertFalse(reader.next());
+	}
+
+	@Test
+	public void encodedLength_unicodeText_sameAsEncodedBytes() throws Exception {
+		for (String text : Arrays.asList("", "ascii", "\u011b\u0161\u010d\u0159", "\u20ac", "\uD83D\uDE00",
+				"\uD83D", "a\uDE00b")) {
+			assertEquals(text, text.getBytes(RuntimeLogWriters.CHARSET_NAME).length,
+					RuntimeLogWriter.encodedLength(text));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void writeRecord_nullValue_throwsException() throws Exception {
+		Map<String, Object> values = new HashMap<>();
+		values.put("null", null);
+		writers.getEncoder().writeRecord(1, new TestLogRecord("id", values));
+	}
+}
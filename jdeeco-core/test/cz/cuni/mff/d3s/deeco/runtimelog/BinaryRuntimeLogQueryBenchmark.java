@@ -0,0 +1,131 @@
+package cz.cuni.mff.d3s.deeco.runtimelog;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import cz.cuni.mff.d3s.deeco.scheduler.Scheduler;
+
+/**
+ * Measures the time queries over binary runtime logs of different sizes. Each millisecond
+ * of the log has a position record of each of 10 components, and every component logs
+ * a snapshot every 100 ms, one of them every 10 ms. The queries are at random times
+ * across the whole log.
+ *
+ * <p>
+ * The times should not grow with the number of records.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BinaryRuntimeLogQueryBenchmark {
+
+	private static final int COMPONENTS = 10;
+	private static final long SNAPSHOT_PERIOD = 100;
+
+	@Param({ "10000", "100000", "1000000", "10000000" })
+	public int records;
+
+	private File logDir;
+	private BinaryRuntimeLogQuery query;
+	private long duration;
+	private final Random random = new Random(42);
+
+	public static class SnapshotRecord extends RuntimeLogRecord {
+		public SnapshotRecord(String id, Map<String, Object> values) {
+			super(id, values);
+		}
+	}
+
+	public static class PositionRecord extends RuntimeLogRecord {
+		public PositionRecord(String id, Map<String, Object> values) {
+			super(id, values);
+		}
+	}
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		logDir = Files.createTempDirectory("runtimelog").toFile();
+		final long[] time = new long[1];
+		RuntimeLogger runtimeLogger = new RuntimeLogger(() -> time[0], Mockito.mock(Scheduler.class),
+				new BinaryRuntimeLogWriters(logDir.getPath()));
+		runtimeLogger.registerSnapshotPeriod(SNAPSHOT_PERIOD, SnapshotRecord.class);
+		duration = records / COMPONENTS;
+		for (time[0] = 0; time[0] < duration; time[0]++) {
+			for (int i = 0; i < COMPONENTS; i++) {
+				Map<String, Object> values = new HashMap<>();
+				values.put("position", time[0] * 10 + i);
+				values.put("speed", 13.8);
+				if (time[0] % SNAPSHOT_PERIOD == i * (SNAPSHOT_PERIOD / COMPONENTS)) {
+					values.put("route", "A B C D E");
+					runtimeLogger.log(new SnapshotRecord("V" + i, values));
+				} else {
+					runtimeLogger.log(new PositionRecord("V" + i, values));
+				}
+			}
+		}
+		runtimeLogger.close();
+		query = new BinaryRuntimeLogQuery(logDir.getPath());
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		query.close();
+		for (File file : logDir.listFiles()) {
+			file.delete();
+		}
+		logDir.delete();
+	}
+
+	private long randomTime() {
+		return SNAPSHOT_PERIOD + (long) (random.nextDouble() * (duration - SNAPSHOT_PERIOD));
+	}
+
+	/**
+	 * Reads the records of a random 10 ms window.
+	 */
+	@Benchmark
+	public void readWindow(Blackhole blackhole) {
+		long from = randomTime();
+		for (RuntimeLogEntry entry : query.getRecords(from, from + 10)) {
+			blackhole.consume(entry);
+		}
+	}
+
+	/**
+	 * Reads the first snapshot since a random time.
+	 */
+	@Benchmark
+	public RuntimeLogEntry seekSnapshot() {
+		for (RuntimeLogEntry entry : query.getRecords(randomTime(), Long.MAX_VALUE, SnapshotRecord.class)) {
+			return entry;
+		}
+		return null;
+	}
+
+	/**
+	 * Reconstructs the state of a component at a random time.
+	 */
+	@Benchmark
+	public Object getState() throws IOException {
+		return query.getState("V" + random.nextInt(COMPONENTS), randomTime(), SnapshotRecord.class);
+	}
+}
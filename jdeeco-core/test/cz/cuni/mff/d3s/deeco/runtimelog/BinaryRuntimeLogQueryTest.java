@@ -0,0 +1,271 @@
+package cz.cuni.mff.d3s.deeco.runtimelog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.io.File;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import cz.cuni.mff.d3s.deeco.runtimelog.BinaryRuntimeLogQuery.ComponentState;
+import cz.cuni.mff.d3s.deeco.scheduler.Scheduler;
+
+/**
+ * Tests the time queries over the binary runtime log
+ */
+public class BinaryRuntimeLogQueryTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private BinaryRuntimeLogQuery query;
+
+	public static class SnapshotRecord extends RuntimeLogRecord {
+		public SnapshotRecord(String id, Map<String, Object> values) {
+			super(id, values);
+		}
+	}
+
+	public static class PositionRecord extends RuntimeLogRecord {
+		public PositionRecord(String id, Map<String, Object> values) {
+			super(id, values);
+		}
+	}
+
+	private static Map<String, Object> values(String name, Object value) {
+		Map<String, Object> values = new HashMap<>();
+		values.put(name, value);
+		return values;
+	}
+
+	/**
+	 * Logs 1000 ms of records of two components, a snapshot of each every 100 ms and
+	 * their positions every 1 ms in between, and an ensemble record every 5 ms.
+	 */
+	@Before
+	public void setUp() throws Exception {
+		File logDir = folder.getRoot();
+		final long[] time = new long[1];
+		RuntimeLogger runtimeLogger = new RuntimeLogger(() -> time[0], mock(Scheduler.class),
+				new BinaryRuntimeLogWriters(logDir.getPath()));
+		runtimeLogger.registerSnapshotPeriod(100, SnapshotRecord.class);
+		for (time[0] = 0; time[0] < 1000; time[0]++) {
+			for (String id : new String[] { "V1", "V2" }) {
+				if (time[0] % 100 == 0) {
+					Map<String, Object> knowledge = values("position", time[0]);
+					knowledge.put("snapshot", time[0]);
+					runtimeLogger.log(new SnapshotRecord(id, knowledge));
+				} else {
+					runtimeLogger.log(new PositionRecord(id, values("position", time[0])));
+				}
+			}
+			if (time[0] % 5 == 0) {
+				runtimeLogger.log(new EnsembleLogRecord());
+			}
+		}
+		runtimeLogger.close();
+		query = new BinaryRuntimeLogQuery(logDir.getPath());
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		query.close();
+	}
+
+	private static List<RuntimeLogEntry> list(Iterable<RuntimeLogEntry> records) {
+		List<RuntimeLogEntry> list = new ArrayList<>();
+		for (RuntimeLogEntry record : records) {
+			list.add(record);
+		}
+		return list;
+	}
+
+	@Test
+	public void readsTimeWindowTest() throws Exception {
+		// WHEN the records of a time window are read
+		List<RuntimeLogEntry> records = list(query.getRecords(505, 507));
+
+		// THEN exactly the records of the window are read in order
+		assertEquals(7, records.size());
+		assertEquals(505, records.get(0).getTime());
+		assertEquals("V1", records.get(0).getId());
+		assertEquals(PositionRecord.class.getCanonicalName(), records.get(0).getEventType());
+		assertEquals(505L, records.get(0).getValues().get("position"));
+		assertEquals(EnsembleLogRecord.class.getCanonicalName(), records.get(2).getEventType());
+		assertEquals(507, records.get(6).getTime());
+
+		// WHEN the window starts at the beginning of the log or at an indexed record
+		// THEN no records are missed
+		assertEquals(5, list(query.getRecords(Long.MIN_VALUE, 1)).size());
+		assertEquals(3, list(query.getRecords(500, 500)).size());
+		assertEquals(0, list(query.getRecords(1000, Long.MAX_VALUE)).size());
+	}
+
+	@Test
+	public void readsRecordsOfTypeTest() throws Exception {
+		// WHEN the records of the given type are read
+		List<RuntimeLogEntry> records = list(query.getRecords(0, 999, SnapshotRecord.class));
+
+		// THEN only the records of the type are read
+		assertEquals(20, records.size());
+		for (RuntimeLogEntry record : records) {
+			assertEquals(SnapshotRecord.class.getCanonicalName(), record.getEventType());
+			assertEquals(0, record.getTime() % 100);
+		}
+		assertEquals(200, list(query.getRecords(0, 999, EnsembleLogRecord.class)).size());
+		assertEquals(2200, list(query.getRecords(0, 999, RuntimeLogRecord.class)).size());
+	}
+
+	@Test
+	public void reconstructsStateTest() throws Exception {
+		assertEquals(100, query.getSnapshotPeriod(SnapshotRecord.class));
+		assertEquals(-1, query.getSnapshotPeriod(PositionRecord.class));
+
+		// WHEN the state of a component is reconstructed
+		ComponentState state = query.getState("V2", 742, SnapshotRecord.class);
+
+		// THEN it consists of the last snapshot and the following records
+		assertEquals(700, state.getSnapshot().getTime());
+		assertEquals("V2", state.getSnapshot().getId());
+		assertEquals(42, state.getEvents().size());
+		assertEquals(742, state.getEvents().get(41).getTime());
+		assertEquals(742L, state.getValues().get("position"));
+		assertEquals(700L, state.getValues().get("snapshot"));
+
+		// WHEN the state is at the time of a snapshot
+		// THEN it is the snapshot
+		state = query.getState("V1", 800, SnapshotRecord.class);
+		assertEquals(800, state.getSnapshot().getTime());
+		assertTrue(state.getEvents().isEmpty());
+
+		// WHEN there is no snapshot of the component
+		// THEN there is no state
+		assertNull(query.getState("V3", 742, SnapshotRecord.class));
+		assertNull(query.getState("V1", -1, SnapshotRecord.class));
+	}
+
+	@Test
+	public void seeksByIndexTest() throws Exception {
+		// GIVEN the index of the log, with an entry for the first snapshot logged 100 ms since the previous one
+		try (BinaryRuntimeLogIndex index = new BinaryRuntimeLogIndex(FileChannel.open(
+				new File(folder.getRoot() + BinaryRuntimeLogFormat.DEFAULT_INDEX_FILE_PATH).toPath()))) {
+			// THEN the entries are found by a binary search
+			assertEquals(9, index.size());
+			assertEquals(-1, index.findBefore(100));
+			assertEquals(100, index.getTime(index.findBefore(101)));
+			assertEquals(500, index.getTime(index.findBefore(510)));
+			assertEquals(400, index.getTime(index.findBefore(500)));
+			assertEquals(900, index.getTime(index.findBefore(Long.MAX_VALUE)));
+		}
+	}
+
+	@Test
+	public void interleavesIterationsTest() throws Exception {
+		// GIVEN an iteration over the records longer than the buffer of a reader
+		assertTrue(new File(folder.getRoot() + BinaryRuntimeLogFormat.DEFAULT_DATA_FILE_PATH).length()
+				> BinaryRuntimeLogEncoder.BUFFER_SIZE);
+		Iterator<RuntimeLogEntry> first = query.getRecords(0, 999).iterator();
+		assertEquals(0, first.next().getTime());
+
+		// WHEN another iteration reads the end of the log in between
+		assertEquals(220, list(query.getRecords(900, 999)).size());
+
+		// THEN the previous one continues where it was
+		int count = 1;
+		long time = 0;
+		while (first.hasNext()) {
+			RuntimeLogEntry record = first.next();
+			assertTrue(record.getTime() >= time);
+			time = record.getTime();
+			count++;
+		}
+		assertEquals(2200, count);
+		assertEquals(999, time);
+	}
+
+	/**
+	 * Logs the records of two components in windows of 10 ms as by the parallel timer,
+	 * the records of the first component in the window before the records of the second.
+	 * Only the second component logs the snapshots.
+	 */
+	private File logInWindows() throws Exception {
+		File logDir = folder.newFolder();
+		final long[] time = new long[1];
+		RuntimeLogger runtimeLogger = new RuntimeLogger(() -> time[0], mock(Scheduler.class),
+				new BinaryRuntimeLogWriters(logDir.getPath()));
+		runtimeLogger.registerSnapshotPeriod(100, SnapshotRecord.class);
+		for (long window = 0; window < 1000; window += 10) {
+			for (time[0] = window; time[0] < window + 10; time[0]++) {
+				runtimeLogger.log(new PositionRecord("V1", values("position", time[0])));
+			}
+			for (time[0] = window; time[0] < window + 10; time[0]++) {
+				if (time[0] % 100 == 0) {
+					runtimeLogger.log(new SnapshotRecord("V2", values("snapshot", time[0])));
+				} else {
+					runtimeLogger.log(new PositionRecord("V2", values("position", time[0])));
+				}
+			}
+		}
+		runtimeLogger.close();
+		return logDir;
+	}
+
+	@Test
+	public void readsRecordsLoggedInWindowsTest() throws Exception {
+		// GIVEN a log written by the parallel timer with windows of 10 ms
+		try (BinaryRuntimeLogQuery windowQuery = new BinaryRuntimeLogQuery(logInWindows().getPath(), 10)) {
+			// WHEN the records of a time window are read
+			List<RuntimeLogEntry> records = list(windowQuery.getRecords(505, 507));
+
+			// THEN the records logged after the records past the time window are read
+			assertEquals(6, records.size());
+			int v2 = 0;
+			for (RuntimeLogEntry record : records) {
+				assertTrue(record.getTime() >= 505 && record.getTime() <= 507);
+				if (record.getId().equals("V2")) {
+					v2++;
+				}
+			}
+			assertEquals(3, v2);
+
+			// WHEN the window starts at an indexed record logged after the records of its time
+			// THEN the records logged before the indexed one are read
+			records = list(windowQuery.getRecords(500, 500));
+			assertEquals(2, records.size());
+			assertEquals("V1", records.get(0).getId());
+
+			// WHEN the state of the component is reconstructed
+			ComponentState state = windowQuery.getState("V2", 742, SnapshotRecord.class);
+
+			// THEN it is the same as if the records were logged in order
+			assertNotNull(state);
+			assertEquals(700, state.getSnapshot().getTime());
+			assertEquals(42, state.getEvents().size());
+		}
+	}
+
+	@Test(expected = UncheckedIOException.class)
+	public void rejectsRecordsOutOfWindowTest() throws Exception {
+		// GIVEN a log written by the parallel timer with windows of 10 ms
+		try (BinaryRuntimeLogQuery orderedQuery = new BinaryRuntimeLogQuery(logInWindows().getPath())) {
+			// WHEN it is read as a log of the records in order
+			// THEN the records out of order are reported
+			list(orderedQuery.getRecords(0, 999));
+		}
+	}
+}
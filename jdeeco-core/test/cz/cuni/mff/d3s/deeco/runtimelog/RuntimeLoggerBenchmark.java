@@ -0,0 +1,137 @@
+package cz.cuni.mff.d3s.deeco.runtimelog;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import cz.cuni.mff.d3s.deeco.scheduler.Scheduler;
+import cz.cuni.mff.d3s.deeco.timer.CurrentTimeProvider;
+
+/**
+ * Measures logging of ensemble membership records and knowledge snapshots into the
+ * <a href="http://en.wikipedia.org/wiki/XML">XML</a> and the binary runtime log
+ * files in a temporary directory.
+ *
+ * <p>
+ * The records per second are the inverse of the average time, the logged records and the bytes per record in the data
+ * file are reported as the {@code records} and {@code bytesPerRecord} counters.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RuntimeLoggerBenchmark {
+
+	@Param({ "xml", "binary" })
+	public String format;
+
+	private File logDir;
+	private File data;
+	private long dataLength;
+	private RuntimeLogger runtimeLogger;
+	private long time;
+
+	private EnsembleLogRecord membership;
+	private RuntimeLogRecord snapshot;
+
+	private static class SnapshotRecord extends RuntimeLogRecord {
+		SnapshotRecord(String id, Map<String, Object> values) {
+			super(id, values);
+		}
+	}
+
+	/**
+	 * Records logged in the iteration and the bytes they take in the data file, the data file being checked every
+	 * 1024 records not to measure it
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Logged {
+		public long records;
+		public double bytesPerRecord;
+	}
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		logDir = Files.createTempDirectory("runtimelog").toFile();
+		RuntimeLogWriters writers = format.equals("xml") ? new RuntimeLogWriters(logDir.getPath())
+				: new BinaryRuntimeLogWriters(logDir.getPath());
+		CurrentTimeProvider timeProvider = () -> time;
+		runtimeLogger = new RuntimeLogger(timeProvider, Mockito.mock(Scheduler.class), writers);
+		runtimeLogger.registerSnapshotPeriod(1000, SnapshotRecord.class);
+		data = new File(logDir, format.equals("xml") ? RuntimeLogWriters.DEFAULT_DATA_FILE_PATH
+				: BinaryRuntimeLogFormat.DEFAULT_DATA_FILE_PATH);
+
+		membership = new EnsembleLogRecord();
+		membership.setEnsembleName("cz.cuni.mff.d3s.deeco.demo.convoy.ConvoyEnsemble");
+		membership.setCoordinatorID("V1");
+		membership.setMemberID("V2");
+		membership.setMembership(true);
+
+		Map<String, Object> knowledge = new HashMap<>();
+		knowledge.put("id", "V1");
+		knowledge.put("position", Arrays.asList(1234.5678, 8765.4321));
+		knowledge.put("speed", 13.8);
+		knowledge.put("route", Arrays.asList("A", "B", "C", "D", "E"));
+		knowledge.put("leader", true);
+		snapshot = new SnapshotRecord("V1", knowledge);
+	}
+
+	@Setup(Level.Iteration)
+	public void startIteration() {
+		dataLength = data.length();
+	}
+
+	private void logged(Logged logged) {
+		logged.records++;
+		if ((logged.records & 1023) == 0) {
+			logged.bytesPerRecord = (double) (data.length() - dataLength) / logged.records;
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		runtimeLogger.close();
+		for (File file : logDir.listFiles()) {
+			file.delete();
+		}
+		logDir.delete();
+	}
+
+	/**
+	 * Logs an ensemble membership record.
+	 */
+	@Benchmark
+	public void logMembership(Logged logged) throws IOException {
+		time++;
+		runtimeLogger.log(membership);
+		logged(logged);
+	}
+
+	/**
+	 * Logs a knowledge snapshot, writing an index entry every 10th time.
+	 */
+	@Benchmark
+	public void logSnapshot(Logged logged) throws IOException {
+		time++;
+		runtimeLogger.log(snapshot);
+		logged(logged);
+	}
+}
@@ -0,0 +1,127 @@
+package cz.cuni.mff.d3s.deeco.scheduler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import cz.cuni.mff.d3s.deeco.task.Task;
+
+/**
+ * Tests of the indexed heap used by the {@link SingleThreadedScheduler}.
+ */
+public class EventQueueTest {
+
+	private EventQueue tested;
+
+	@Before
+	public void setUp() {
+		tested = new EventQueue();
+	}
+
+	@Test
+	public void testEventsPolledInTimeOrder() {
+		// WHEN events are added in a random order
+		Task task = mock(Task.class);
+		Random random = new Random(1);
+		for (int i = 0; i < 1000; i++) {
+			tested.add(createEvent(task, random.nextInt(100)));
+		}
+
+		// THEN they are polled ordered by their execution time
+		long last = Long.MIN_VALUE;
+		while (!tested.isEmpty()) {
+			SchedulerEvent event = tested.pollFirst();
+			assertTrue(event.nextExecutionTime >= last);
+			assertEquals(-1, event.queueIndex);
+			last = event.nextExecutionTime;
+		}
+		assertTrue(tested.getTaskEvents(task).isEmpty());
+	}
+
+	@Test
+	public void testSimultaneousEventsPolledInInsertionOrder() {
+		// WHEN events of the same time are added
+		List<SchedulerEvent> events = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			SchedulerEvent event = createEvent(mock(Task.class), 5);
+			events.add(event);
+			tested.add(event);
+		}
+
+		// THEN they are polled in the order they were added
+		for (SchedulerEvent event : events) {
+			assertSame(event, tested.pollFirst());
+		}
+	}
+
+	@Test
+	public void testRemoveEvent() {
+		// GIVEN a queue of events
+		Task task = mock(Task.class);
+		List<SchedulerEvent> events = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			SchedulerEvent event = createEvent(task, 100 - i);
+			events.add(event);
+			tested.add(event);
+		}
+
+		// WHEN every other event is removed
+		for (int i = 0; i < 100; i += 2) {
+			assertTrue(tested.remove(events.get(i)));
+		}
+
+		// THEN the removed events cannot be removed again
+		assertFalse(tested.remove(events.get(0)));
+		// and THEN the rest is polled in order
+		assertEquals(50, tested.size());
+		assertEquals(50, tested.getTaskEvents(task).size());
+		for (int i = 99; i > 0; i -= 2) {
+			assertSame(events.get(i), tested.pollFirst());
+		}
+		assertTrue(tested.isEmpty());
+	}
+
+	@Test
+	public void testRemoveAllTaskEvents() {
+		// GIVEN events of two tasks
+		Task task1 = mock(Task.class);
+		Task task2 = mock(Task.class);
+		for (int i = 0; i < 10; i++) {
+			tested.add(createEvent(task1, i));
+			tested.add(createEvent(task2, i));
+		}
+
+		// WHEN the events of one task are removed
+		assertEquals(10, tested.removeAllTaskEvents(task1).size());
+
+		// THEN only the events of the other task remain
+		assertTrue(tested.getTaskEvents(task1).isEmpty());
+		assertEquals(10, tested.size());
+		while (!tested.isEmpty()) {
+			assertSame(task2, tested.pollFirst().executable);
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testEventAddedTwice() {
+		SchedulerEvent event = createEvent(mock(Task.class), 1);
+		tested.add(event);
+		tested.add(event);
+	}
+
+	private SchedulerEvent createEvent(Task task, long time) {
+		SchedulerEvent event = new SchedulerEvent(task, null);
+		event.nextExecutionTime = time;
+		event.nextPeriodStart = time;
+		return event;
+	}
+}
@@ -0,0 +1,70 @@
+package cz.cuni.mff.d3s.deeco.scheduler;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import cz.cuni.mff.d3s.deeco.executor.Executor;
+import cz.cuni.mff.d3s.deeco.model.runtime.api.TimeTrigger;
+import cz.cuni.mff.d3s.deeco.model.runtime.api.Trigger;
+import cz.cuni.mff.d3s.deeco.runtime.DEECoContainer;
+import cz.cuni.mff.d3s.deeco.runtime.DEECoNode;
+import cz.cuni.mff.d3s.deeco.task.Task;
+import cz.cuni.mff.d3s.deeco.task.TaskTriggerListener;
+import cz.cuni.mff.d3s.deeco.timer.Timer;
+import cz.cuni.mff.d3s.deeco.timer.TimerEventListener;
+
+public class MultiThreadedSchedulerTest {
+
+	private Executor executor;
+	private Timer timer;
+	private MultiThreadedScheduler tested;
+
+	@Before
+	public void setUp() throws NoExecutorAvailableException {
+		executor = mock(Executor.class);
+		timer = mock(Timer.class);
+		tested = new MultiThreadedScheduler(executor, timer, mock(DEECoNode.class));
+	}
+
+	@Test
+	public void testTriggeredTaskExecutedOncePerTrigger() {
+		// GIVEN a scheduled periodic task
+		Task task = mock(Task.class);
+		TimeTrigger timeTrigger = mock(TimeTrigger.class);
+		when(timeTrigger.getPeriod()).thenReturn(1000L);
+		when(task.getTimeTrigger()).thenReturn(timeTrigger);
+		Trigger trigger = mock(Trigger.class);
+		tested.addTask(task);
+		ArgumentCaptor<TaskTriggerListener> listener = ArgumentCaptor.forClass(TaskTriggerListener.class);
+		verify(task).setTriggerListener(listener.capture());
+
+		// WHEN the task is triggered repeatedly before its execution completes
+		listener.getValue().triggered(task, trigger);
+		listener.getValue().triggered(task, trigger);
+
+		// THEN it is queued only once and the timer is woken up to pass it to the executor
+		verify(executor, never()).execute(task, trigger);
+		verify(timer, times(1)).interruptionEvent(any(TimerEventListener.class), anyString(),
+				any(DEECoContainer.class));
+		tested.at(0);
+		tested.at(0);
+		verify(executor, times(1)).execute(task, trigger);
+
+		// WHEN the execution fails and the task is triggered again
+		tested.executionFailed(task, trigger, new RuntimeException("Failed invoke"));
+		listener.getValue().triggered(task, trigger);
+		tested.at(0);
+
+		// THEN it is executed again
+		verify(executor, times(2)).execute(task, trigger);
+	}
+}
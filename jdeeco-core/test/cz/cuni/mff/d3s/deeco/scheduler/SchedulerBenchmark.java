@@ -0,0 +1,113 @@
+package cz.cuni.mff.d3s.deeco.scheduler;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import cz.cuni.mff.d3s.deeco.executor.SameThreadExecutor;
+import cz.cuni.mff.d3s.deeco.runtime.DEECoContainer;
+import cz.cuni.mff.d3s.deeco.task.TimerTask;
+import cz.cuni.mff.d3s.deeco.task.TimerTaskListener;
+import cz.cuni.mff.d3s.deeco.timer.Timer;
+import cz.cuni.mff.d3s.deeco.timer.TimerEventListener;
+
+/**
+ * Measures the throughput of {@link SingleThreadedScheduler} with 10k one-shot
+ * {@link TimerTask}s in flight, i.e. the way the network layer schedules a task
+ * per packet.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SchedulerBenchmark {
+
+	private static final int IN_FLIGHT = 10000;
+
+	private ManualTimer timer;
+	private SingleThreadedScheduler scheduler;
+	private TimerTask[] tasks;
+	private Random random;
+	private int next;
+
+	private final TimerTaskListener listener = new TimerTaskListener() {
+		@Override
+		public void at(long time, Object triger) {
+		}
+	};
+
+	@Setup
+	public void setUp() throws NoExecutorAvailableException {
+		timer = new ManualTimer();
+		SameThreadExecutor executor = new SameThreadExecutor();
+		scheduler = new SingleThreadedScheduler(executor, timer, null);
+		executor.setExecutionListener(scheduler);
+		random = new Random(42);
+
+		tasks = new TimerTask[IN_FLIGHT];
+		for (int i = 0; i < IN_FLIGHT; i++) {
+			tasks[i] = schedule(1 + random.nextInt(2 * IN_FLIGHT));
+		}
+	}
+
+	/**
+	 * Schedules a one-shot task and cancels the oldest one in flight.
+	 */
+	@Benchmark
+	public void scheduleAndCancel() {
+		tasks[next].unSchedule();
+		tasks[next] = schedule(1 + random.nextInt(2 * IN_FLIGHT));
+		next = (next + 1) % IN_FLIGHT;
+	}
+
+	/**
+	 * Schedules a one-shot task and advances the time by 1 ms, firing the due
+	 * tasks. The delays are chosen so that one task fires per call on average.
+	 */
+	@Benchmark
+	public void scheduleAndFire() {
+		schedule(1 + random.nextInt(2 * IN_FLIGHT));
+		timer.time++;
+		scheduler.at(timer.time);
+	}
+
+	private TimerTask schedule(long delay) {
+		TimerTask task = new TimerTask(scheduler, listener, "packet", delay);
+		task.schedule();
+		return task;
+	}
+
+	/**
+	 * Timer driven by the benchmark, the scheduler is invoked directly.
+	 */
+	private static class ManualTimer implements Timer {
+		long time;
+
+		@Override
+		public long getCurrentMilliseconds() {
+			return time;
+		}
+
+		@Override
+		public void notifyAt(long time, TimerEventListener listener, String eventName, DEECoContainer node) {
+		}
+
+		@Override
+		public void interruptionEvent(TimerEventListener listener, String eventName, DEECoContainer node) {
+		}
+
+		@Override
+		public void addShutdownListener(ShutdownListener listener) {
+		}
+
+		@Override
+		public void addStartupListener(StartupListener listener) {
+		}
+	}
+}
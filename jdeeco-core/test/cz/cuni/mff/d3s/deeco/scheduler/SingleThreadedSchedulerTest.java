@@ -1,10 +1,24 @@
 package cz.cuni.mff.d3s.deeco.scheduler;
 
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.Test;
 import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 import cz.cuni.mff.d3s.deeco.executor.Executor;
+import cz.cuni.mff.d3s.deeco.model.runtime.api.TimeTrigger;
+import cz.cuni.mff.d3s.deeco.model.runtime.api.Trigger;
 import cz.cuni.mff.d3s.deeco.runtime.DEECoNode;
+import cz.cuni.mff.d3s.deeco.task.Task;
 import cz.cuni.mff.d3s.deeco.timer.DiscreteEventTimer;
+import cz.cuni.mff.d3s.deeco.timer.Timer;
 
 /**
  * TODO 
@@ -17,6 +31,39 @@ public class SingleThreadedSchedulerTest extends SchedulerTest {
 		return new SingleThreadedScheduler(executor, simulation, Mockito.mock(DEECoNode.class));
 	}
 	
+	@Test
+	public void testPeriodicTaskReAddedDuringExecutionRunsOncePerPeriod() throws NoExecutorAvailableException {
+		// GIVEN a periodic task with the period 100 and the offset 50
+		Executor executor = mock(Executor.class);
+		final Timer timer = mock(Timer.class);
+		final SingleThreadedScheduler scheduler = new SingleThreadedScheduler(executor, timer, mock(DEECoNode.class));
+		final Task task = mock(Task.class);
+		TimeTrigger trigger = mock(TimeTrigger.class);
+		when(trigger.getPeriod()).thenReturn(100L);
+		when(trigger.getOffset()).thenReturn(50L);
+		when(task.getTimeTrigger()).thenReturn(trigger);
+		scheduler.addTask(task);
 
-	
-}
\ No newline at end of file
+		// WHEN the task removes and adds itself again during its first execution at 50
+		doAnswer(new Answer<Object>() {
+			boolean first = true;
+
+			@Override
+			public Object answer(InvocationOnMock invocation) {
+				if (first) {
+					first = false;
+					when(timer.getCurrentMilliseconds()).thenReturn(50L);
+					scheduler.removeTask(task);
+					scheduler.addTask(task);
+				}
+				return null;
+			}
+		}).when(executor).execute(any(Task.class), any(Trigger.class));
+		for (long time = 50; time <= 300; time += 50) {
+			scheduler.at(time);
+		}
+
+		// THEN only the new schedule is kept, the task runs at 50, 100, 200 and 300
+		verify(executor, times(4)).execute(task, trigger);
+	}
+}
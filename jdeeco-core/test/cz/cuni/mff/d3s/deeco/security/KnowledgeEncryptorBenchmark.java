@@ -0,0 +1,94 @@
+package cz.cuni.mff.d3s.deeco.security;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import cz.cuni.mff.d3s.deeco.knowledge.BaseKnowledgeManager;
+import cz.cuni.mff.d3s.deeco.knowledge.ChangeSet;
+import cz.cuni.mff.d3s.deeco.knowledge.ValueSet;
+import cz.cuni.mff.d3s.deeco.model.runtime.RuntimeModelHelper;
+import cz.cuni.mff.d3s.deeco.model.runtime.api.ComponentInstance;
+import cz.cuni.mff.d3s.deeco.model.runtime.api.KnowledgePath;
+import cz.cuni.mff.d3s.deeco.model.runtime.api.KnowledgeSecurityTag;
+import cz.cuni.mff.d3s.deeco.model.runtime.api.SecurityRole;
+import cz.cuni.mff.d3s.deeco.model.runtime.api.SecurityTag;
+import cz.cuni.mff.d3s.deeco.model.runtime.custom.RuntimeMetadataFactoryExt;
+import cz.cuni.mff.d3s.deeco.model.runtime.meta.RuntimeMetadataFactory;
+import cz.cuni.mff.d3s.deeco.network.KnowledgeData;
+import cz.cuni.mff.d3s.deeco.network.KnowledgeMetaData;
+
+/**
+ * Measures the decryption of received knowledge secured for a role of the receiving
+ * component, as when the same knowledge is received repeatedly, e.g. from several
+ * neighbours or before the sender changes its symmetric key.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class KnowledgeEncryptorBenchmark {
+
+	@Param({ "1", "10" })
+	public int securedFields;
+
+	private KnowledgeEncryptor encryptor;
+	private BaseKnowledgeManager replica;
+	private KnowledgeData received;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		RuntimeMetadataFactory factory = RuntimeMetadataFactoryExt.eINSTANCE;
+		ComponentInstance component = factory.createComponentInstance();
+		BaseKnowledgeManager sender = new BaseKnowledgeManager("sender", component, null);
+		replica = new BaseKnowledgeManager("receiver", component, null);
+		component.setKnowledgeManager(replica);
+		for (String roleName : new String[] { "observer", "driver", "leader" }) {
+			SecurityRole role = factory.createSecurityRole();
+			role.setRoleName(roleName);
+			component.getSecurityRoles().add(role);
+		}
+
+		ValueSet valueSet = new ValueSet();
+		ChangeSet changeSet = new ChangeSet();
+		for (int i = 0; i < securedFields; i++) {
+			KnowledgePath path = RuntimeModelHelper.createKnowledgePath("secured" + i);
+			valueSet.setValue(path, i);
+			changeSet.setValue(path, i);
+			Collection<SecurityTag> tags = new ArrayList<>();
+			KnowledgeSecurityTag tag = factory.createKnowledgeSecurityTag();
+			tag.setRequiredRole(factory.createSecurityRole());
+			tag.getRequiredRole().setRoleName("leader");
+			tags.add(tag);
+			sender.setSecurityTags(path, tags);
+		}
+		sender.update(changeSet, "sender");
+
+		encryptor = new KnowledgeEncryptor(new SecurityKeyManagerImpl());
+		List<KnowledgeData> published = encryptor.encryptValueSet(valueSet, sender,
+				new KnowledgeMetaData("sender", 1, "sender", 0, 1));
+		received = published.get(0);
+		KnowledgeData decrypted = encryptor.decryptValueSet(received, replica, received.getMetaData());
+		if (decrypted.getKnowledge().getKnowledgePaths().size() != securedFields) {
+			throw new IllegalStateException("The knowledge was not decrypted.");
+		}
+	}
+
+	/**
+	 * Decrypts the received knowledge, its security tags and authors.
+	 */
+	@Benchmark
+	public KnowledgeData decrypt() {
+		return encryptor.decryptValueSet(received, replica, received.getMetaData());
+	}
+}
@@ -0,0 +1,102 @@
+package cz.cuni.mff.d3s.deeco.security;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import cz.cuni.mff.d3s.deeco.knowledge.BaseKnowledgeManager;
+import cz.cuni.mff.d3s.deeco.knowledge.ChangeSet;
+import cz.cuni.mff.d3s.deeco.knowledge.KnowledgeManager;
+import cz.cuni.mff.d3s.deeco.knowledge.ValueSet;
+import cz.cuni.mff.d3s.deeco.model.runtime.RuntimeModelHelper;
+import cz.cuni.mff.d3s.deeco.model.runtime.api.KnowledgePath;
+import cz.cuni.mff.d3s.deeco.model.runtime.api.KnowledgeSecurityTag;
+import cz.cuni.mff.d3s.deeco.model.runtime.api.SecurityTag;
+import cz.cuni.mff.d3s.deeco.model.runtime.custom.RuntimeMetadataFactoryExt;
+import cz.cuni.mff.d3s.deeco.model.runtime.meta.RuntimeMetadataFactory;
+import cz.cuni.mff.d3s.deeco.network.KnowledgeData;
+import cz.cuni.mff.d3s.deeco.network.KnowledgeMetaData;
+
+/**
+ * Measures the publication of 20 knowledge fields secured for two roles, when the given fraction
+ * of the fields changes between the publications. The key rotation period of 1 corresponds
+ * to sealing all the values by a new key on every publication.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class KnowledgeEncryptorPublishBenchmark {
+
+	private static final int FIELDS = 20;
+
+	@Param({ "0", "0.1", "0.5", "1" })
+	public double changedFraction;
+
+	@Param({ "1", "10" })
+	public int keyRotationPeriod;
+
+	private KnowledgeEncryptor encryptor;
+	private KnowledgeManager knowledgeManager;
+	private List<KnowledgePath> paths;
+	private KnowledgeMetaData metaData;
+	private int publication;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		RuntimeMetadataFactory factory = RuntimeMetadataFactoryExt.eINSTANCE;
+		knowledgeManager = new BaseKnowledgeManager("sender", factory.createComponentInstance(), null);
+		paths = new ArrayList<>();
+		ChangeSet changeSet = new ChangeSet();
+		for (int i = 0; i < FIELDS; i++) {
+			KnowledgePath path = RuntimeModelHelper.createKnowledgePath("secured" + i);
+			paths.add(path);
+			changeSet.setValue(path, "value" + i);
+			Collection<SecurityTag> tags = new ArrayList<>();
+			for (String roleName : new String[] { "driver", "leader" }) {
+				KnowledgeSecurityTag tag = factory.createKnowledgeSecurityTag();
+				tag.setRequiredRole(factory.createSecurityRole());
+				tag.getRequiredRole().setRoleName(roleName);
+				tags.add(tag);
+			}
+			knowledgeManager.setSecurityTags(path, tags);
+		}
+		knowledgeManager.update(changeSet);
+
+		encryptor = new KnowledgeEncryptor(new SecurityKeyManagerImpl(), keyRotationPeriod);
+		metaData = new KnowledgeMetaData("sender", 0, "sender", 0, 1);
+	}
+
+	/**
+	 * Changes the fraction of the fields and publishes the knowledge.
+	 */
+	@Benchmark
+	public List<KnowledgeData> publish() throws Exception {
+		publication++;
+		int changed = (int) Math.round(changedFraction * FIELDS);
+		if (changed > 0) {
+			ChangeSet changeSet = new ChangeSet();
+			for (int i = 0; i < changed; i++) {
+				changeSet.setValue(paths.get(i), "value" + i + "_" + publication);
+			}
+			knowledgeManager.update(changeSet);
+		}
+
+		metaData.versionId = publication;
+		Map<KnowledgePath, Long> versions = new HashMap<>();
+		ValueSet valueSet = knowledgeManager.get(paths, versions);
+		return encryptor.encryptValueSet(valueSet, versions, knowledgeManager, metaData);
+	}
+}
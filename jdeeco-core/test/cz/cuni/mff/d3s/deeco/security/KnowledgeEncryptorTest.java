@@ -18,8 +18,10 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
@@ -224,6 +226,86 @@ public class KnowledgeEncryptorTest {
 		assertTrue(securedDataForRole2.getSecuritySet().getValue(RuntimeModelHelper.createKnowledgePath("secured2")) instanceof SealedObject);
 	}
 	
+	@Test
+	public void encryptValueSet_ReuseTest() throws Exception {
+		// given the secured knowledge is published with a key rotation period of 3 publications
+		target = new KnowledgeEncryptor(keyManagerMock, 3);
+		KnowledgePath securedPath = RuntimeModelHelper.createKnowledgePath("secured");
+		KnowledgeSecurityTag tag1 = factory.createKnowledgeSecurityTag();
+		tag1.setRequiredRole(factory.createSecurityRole());
+		tag1.getRequiredRole().setRoleName("testrole1");
+		localKnowledgeManager.setSecurityTags(securedPath, Arrays.asList(tag1));
+		KnowledgeData first = publish(securedPath);
+		
+		// when the unchanged knowledge is published again
+		metaData.versionId++;
+		KnowledgeData second = publish(securedPath);
+		
+		// then the sealed values and the key are reused, but the metadata are signed for the new version
+		assertSame(first.getKnowledge().getValue(securedPath), second.getKnowledge().getValue(securedPath));
+		assertSame(first.getSecuritySet().getValue(securedPath), second.getSecuritySet().getValue(securedPath));
+		assertSame(first.getAuthors().getValue(securedPath), second.getAuthors().getValue(securedPath));
+		assertSame(first.getMetaData().encryptedKey, second.getMetaData().encryptedKey);
+		assertFalse(Arrays.equals(first.getMetaData().signature, second.getMetaData().signature));
+		assertEquals("secured_value", target.decryptValueSet(second, replicaKnowledgeManager, second.getMetaData()).getKnowledge().getValue(securedPath));
+		
+		// when the knowledge changes
+		ChangeSet changeSet = new ChangeSet();
+		changeSet.setValue(securedPath, "changed_value");
+		localKnowledgeManager.update(changeSet, "author_secured");
+		metaData.versionId++;
+		KnowledgeData third = publish(securedPath);
+		
+		// then the value is sealed again by the same key
+		assertNotSame(second.getKnowledge().getValue(securedPath), third.getKnowledge().getValue(securedPath));
+		assertSame(second.getMetaData().encryptedKey, third.getMetaData().encryptedKey);
+		assertEquals("changed_value", target.decryptValueSet(third, replicaKnowledgeManager, third.getMetaData()).getKnowledge().getValue(securedPath));
+		
+		// when the knowledge is published after the key rotation period
+		metaData.versionId++;
+		KnowledgeData fourth = publish(securedPath);
+		
+		// then a new key is used
+		assertNotSame(third.getKnowledge().getValue(securedPath), fourth.getKnowledge().getValue(securedPath));
+		assertFalse(Arrays.equals(third.getMetaData().encryptedKey, fourth.getMetaData().encryptedKey));
+		assertEquals("changed_value", target.decryptValueSet(fourth, replicaKnowledgeManager, fourth.getMetaData()).getKnowledge().getValue(securedPath));
+	}
+	
+	@Test
+	public void encryptValueSet_ReuseReadVersionsTest() throws Exception {
+		// given the secured knowledge is read along with its versions
+		KnowledgePath securedPath = RuntimeModelHelper.createKnowledgePath("secured");
+		KnowledgeSecurityTag tag1 = factory.createKnowledgeSecurityTag();
+		tag1.setRequiredRole(factory.createSecurityRole());
+		tag1.getRequiredRole().setRoleName("testrole1");
+		localKnowledgeManager.setSecurityTags(securedPath, Arrays.asList(tag1));
+		Map<KnowledgePath, Long> versions = new HashMap<>();
+		ValueSet securedSet = localKnowledgeManager.get(Arrays.asList(securedPath), versions);
+		
+		// when the knowledge changes before the read values are published
+		ChangeSet changeSet = new ChangeSet();
+		changeSet.setValue(securedPath, "changed_value");
+		localKnowledgeManager.update(changeSet, "author_secured");
+		KnowledgeData first = target.encryptValueSet(securedSet, versions, localKnowledgeManager, metaData).get(0);
+		
+		// then the read value is published
+		assertEquals("secured_value", target.decryptValueSet(first, replicaKnowledgeManager, first.getMetaData()).getKnowledge().getValue(securedPath));
+		
+		// when the knowledge is published again
+		metaData.versionId++;
+		KnowledgeData second = publish(securedPath);
+		
+		// then the value sealed for the read versions is not reused for the changed knowledge
+		assertNotSame(first.getKnowledge().getValue(securedPath), second.getKnowledge().getValue(securedPath));
+		assertEquals("changed_value", target.decryptValueSet(second, replicaKnowledgeManager, second.getMetaData()).getKnowledge().getValue(securedPath));
+	}
+	
+	private KnowledgeData publish(KnowledgePath knowledgePath) throws KnowledgeNotFoundException {
+		Map<KnowledgePath, Long> versions = new HashMap<>();
+		ValueSet valueSet = localKnowledgeManager.get(Arrays.asList(knowledgePath), versions);
+		return target.encryptValueSet(valueSet, versions, localKnowledgeManager, metaData).get(0);
+	}
+	
 	@Test
 	public void decryptValueSet_NullTest() {
 		// given null is passed
@@ -369,4 +451,25 @@ public class KnowledgeEncryptorTest {
 	}
 	
 	
+	@Test
+	public void decryptValueSet_CachedKeyTest() throws Exception {
+		// given local component has testrole1 and the data are encrypted
+		Collection<SecurityTag> tags = new LinkedList<>();
+		KnowledgeSecurityTag tag1 = factory.createKnowledgeSecurityTag();
+		tag1.setRequiredRole(factory.createSecurityRole());
+		tag1.getRequiredRole().setRoleName("testrole1");
+		tags.add(tag1);
+		localKnowledgeManager.setSecurityTags(RuntimeModelHelper.createKnowledgePath("secured"), tags);
+		KnowledgeData encryptedData = target.encryptValueSet(valueSet, localKnowledgeManager, metaData).get(1);
+		
+		// when the same data are decrypted twice
+		target.decryptValueSet(encryptedData, replicaKnowledgeManager, encryptedData.getMetaData());
+		KnowledgeData decryptedData = target.decryptValueSet(encryptedData, replicaKnowledgeManager, encryptedData.getMetaData());
+		
+		// then the value is restored while the signature is verified and the symmetric key is decrypted only once
+		assertEquals(666, decryptedData.getKnowledge().getValue(RuntimeModelHelper.createKnowledgePath("secured")));
+		verify(keyManagerMock, times(1)).getPrivateKey(eq("testrole1"), anyMap());
+		verify(keyManagerMock, times(1)).getIntegrityPublicKey();
+	}
+	
 }
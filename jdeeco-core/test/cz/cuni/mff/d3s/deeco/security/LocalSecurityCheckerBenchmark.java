@@ -0,0 +1,149 @@
+package cz.cuni.mff.d3s.deeco.security;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import cz.cuni.mff.d3s.deeco.knowledge.ChangeSet;
+import cz.cuni.mff.d3s.deeco.knowledge.CloningKnowledgeManager;
+import cz.cuni.mff.d3s.deeco.knowledge.CloningKnowledgeManagerFactory;
+import cz.cuni.mff.d3s.deeco.knowledge.KnowledgeManager;
+import cz.cuni.mff.d3s.deeco.knowledge.KnowledgeManagerContainer;
+import cz.cuni.mff.d3s.deeco.model.runtime.RuntimeModelHelper;
+import cz.cuni.mff.d3s.deeco.model.runtime.api.ComponentInstance;
+import cz.cuni.mff.d3s.deeco.model.runtime.api.EnsembleController;
+import cz.cuni.mff.d3s.deeco.model.runtime.api.EnsembleDefinition;
+import cz.cuni.mff.d3s.deeco.model.runtime.api.KnowledgePath;
+import cz.cuni.mff.d3s.deeco.model.runtime.api.KnowledgeSecurityTag;
+import cz.cuni.mff.d3s.deeco.model.runtime.api.Parameter;
+import cz.cuni.mff.d3s.deeco.model.runtime.api.ParameterKind;
+import cz.cuni.mff.d3s.deeco.model.runtime.api.PathSecurityRoleArgument;
+import cz.cuni.mff.d3s.deeco.model.runtime.api.SecurityRole;
+import cz.cuni.mff.d3s.deeco.model.runtime.custom.RuntimeMetadataFactoryExt;
+import cz.cuni.mff.d3s.deeco.model.runtime.meta.RuntimeMetadataFactory;
+import cz.cuni.mff.d3s.deeco.task.KnowledgePathHelper.PathRoot;
+import cz.cuni.mff.d3s.deeco.task.TaskInvocationException;
+
+/**
+ * Measures the security checks of an ensemble evaluation against 500 shadow knowledge managers,
+ * whose knowledge is secured by a role with an argument, when the given fraction of them
+ * changes the argument between the evaluations. The fraction of 1 corresponds to checking
+ * everything again on every evaluation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LocalSecurityCheckerBenchmark {
+
+	private static final int SHADOWS = 500;
+
+	@Param({ "0", "0.1", "1" })
+	public double changedFraction;
+
+	private LocalSecurityChecker checker;
+	private List<KnowledgeManager> shadowKnowledgeManagers;
+	private KnowledgePath argumentPath;
+	private int evaluation;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		RuntimeMetadataFactory factory = RuntimeMetadataFactoryExt.eINSTANCE;
+		argumentPath = RuntimeModelHelper.createKnowledgePath("group");
+		KnowledgePath securedPath = RuntimeModelHelper.createKnowledgePath("position");
+
+		EnsembleDefinition ensembleDefinition = factory.createEnsembleDefinition();
+		ensembleDefinition.setMembership(factory.createCondition());
+		ensembleDefinition.setKnowledgeExchange(factory.createExchange());
+		for (String field : new String[] { "position", "group" }) {
+			Parameter parameter = factory.createParameter();
+			parameter.setKnowledgePath(RuntimeModelHelper.createKnowledgePath("<M>", field));
+			parameter.setKind(ParameterKind.IN);
+			ensembleDefinition.getMembership().getParameters().add(parameter);
+		}
+		Parameter parameter = factory.createParameter();
+		parameter.setKnowledgePath(RuntimeModelHelper.createKnowledgePath("<M>", "position"));
+		parameter.setKind(ParameterKind.IN);
+		ensembleDefinition.getKnowledgeExchange().getParameters().add(parameter);
+
+		ComponentInstance localComponent = factory.createComponentInstance();
+		KnowledgeManager localKnowledgeManager = new CloningKnowledgeManager("leader", localComponent, null);
+		localComponent.setKnowledgeManager(localKnowledgeManager);
+		localComponent.getSecurityRoles().add(createRole(factory));
+		ChangeSet changeSet = new ChangeSet();
+		changeSet.setValue(argumentPath, 0);
+		localKnowledgeManager.update(changeSet);
+
+		EnsembleController ensembleController = factory.createEnsembleController();
+		ensembleController.setEnsembleDefinition(ensembleDefinition);
+		ensembleController.setComponentInstance(localComponent);
+		checker = new LocalSecurityChecker(ensembleController,
+				new KnowledgeManagerContainer(new CloningKnowledgeManagerFactory(), factory.createRuntimeMetadata()));
+
+		shadowKnowledgeManagers = new ArrayList<>();
+		for (int i = 0; i < SHADOWS; i++) {
+			ComponentInstance shadowComponent = factory.createComponentInstance();
+			KnowledgeManager shadowKnowledgeManager = new CloningKnowledgeManager("member" + i, shadowComponent, null);
+			shadowComponent.setKnowledgeManager(shadowKnowledgeManager);
+			shadowComponent.getSecurityRoles().add(createRole(factory));
+
+			KnowledgeSecurityTag tag = factory.createKnowledgeSecurityTag();
+			tag.setRequiredRole(createRole(factory));
+			shadowKnowledgeManager.setSecurityTags(securedPath, Arrays.asList(tag));
+
+			changeSet = new ChangeSet();
+			changeSet.setValue(securedPath, i);
+			changeSet.setValue(argumentPath, 0);
+			shadowKnowledgeManager.update(changeSet);
+			shadowKnowledgeManagers.add(shadowKnowledgeManager);
+		}
+
+		if (!checkAll()) {
+			throw new IllegalStateException("The access was denied.");
+		}
+	}
+
+	private static SecurityRole createRole(RuntimeMetadataFactory factory) {
+		SecurityRole role = factory.createSecurityRole();
+		role.setRoleName("platoon");
+		PathSecurityRoleArgument argument = factory.createPathSecurityRoleArgument();
+		argument.setName("group");
+		argument.setKnowledgePath(RuntimeModelHelper.createKnowledgePath("group"));
+		role.getArguments().add(argument);
+		return role;
+	}
+
+	/**
+	 * Changes the role argument of the fraction of the shadow knowledge managers to the same value
+	 * and checks the access to the knowledge of all of them.
+	 */
+	@Benchmark
+	public boolean evaluate() throws Exception {
+		evaluation++;
+		int changed = (int) Math.round(changedFraction * SHADOWS);
+		for (int i = 0; i < changed; i++) {
+			ChangeSet changeSet = new ChangeSet();
+			changeSet.setValue(argumentPath, 0);
+			shadowKnowledgeManagers.get((evaluation * changed + i) % SHADOWS).update(changeSet);
+		}
+		return checkAll();
+	}
+
+	private boolean checkAll() throws TaskInvocationException {
+		boolean canAccessAll = true;
+		for (KnowledgeManager shadowKnowledgeManager : shadowKnowledgeManagers) {
+			canAccessAll &= checker.checkSecurity(PathRoot.COORDINATOR, shadowKnowledgeManager);
+		}
+		return canAccessAll;
+	}
+}
@@ -19,6 +19,7 @@ import cz.cuni.mff.d3s.deeco.knowledge.KnowledgeManager;
 import cz.cuni.mff.d3s.deeco.knowledge.KnowledgeManagerContainer;
 import cz.cuni.mff.d3s.deeco.knowledge.KnowledgeNotFoundException;
 import cz.cuni.mff.d3s.deeco.knowledge.KnowledgeUpdateException;
+import cz.cuni.mff.d3s.deeco.knowledge.ReadOnlyKnowledgeManager;
 import cz.cuni.mff.d3s.deeco.knowledge.ShadowKnowledgeManagerRegistry;
 import cz.cuni.mff.d3s.deeco.model.runtime.RuntimeModelHelper;
 import cz.cuni.mff.d3s.deeco.model.runtime.api.AbsoluteSecurityRoleArgument;
@@ -349,6 +350,61 @@ public class LocalSecurityCheckerTest {
 		assertTrue(target.checkSecurity(PathRoot.MEMBER, shadowKnowledgeManager));
 	}
 	
+	@Test
+	public void checkSecurity_cacheTest() throws TaskInvocationException, KnowledgeUpdateException {
+		// given the coordinator knowledge is secured by a role with an argument
+		EnsembleDefinition ensembleDefinition = factory.createEnsembleDefinition();
+		ensembleDefinition.setMembership(factory.createCondition());
+		ensembleDefinition.getMembership().getParameters().add(param1);
+		ensembleDefinition.setKnowledgeExchange(factory.createExchange());
+		when(ensembleController.getEnsembleDefinition()).thenReturn(ensembleDefinition);
+		
+		shadowKnowledgeManager.setSecurityTags(RuntimeModelHelper.createKnowledgePath("field1_oc"), Arrays.asList(createSecurityTag("roleA", "some_param")));
+		
+		ChangeSet changeSet = new ChangeSet();
+		changeSet.setValue(RuntimeModelHelper.createKnowledgePath("some_param"), 123);
+		changeSet.setValue(RuntimeModelHelper.createKnowledgePath("field1_oc"), 123);
+		shadowKnowledgeManager.update(changeSet);
+		localKnowledgeManager.update(changeSet);
+		
+		SecurityRole roleA = factory.createSecurityRole();
+		roleA.setRoleName("roleA");
+		PathSecurityRoleArgument arg_some_param = factory.createPathSecurityRoleArgument();
+		arg_some_param.setName("roleA_some_param");
+		arg_some_param.setKnowledgePath(RuntimeModelHelper.createKnowledgePath("some_param"));
+		roleA.getArguments().add(arg_some_param);
+		localComponent.getSecurityRoles().add(roleA);
+		
+		target.modelSecurityValidator = spy(new ModelSecurityValidator());
+		
+		// when checkSecurity() as member is called twice
+		assertTrue(target.checkSecurity(PathRoot.MEMBER, shadowKnowledgeManager));
+		assertTrue(target.checkSecurity(PathRoot.MEMBER, shadowKnowledgeManager));
+		
+		// then the decision is made only once
+		verify(target.modelSecurityValidator, times(1)).validate(any(PathRoot.class), any(Exchange.class), any(ComponentInstance.class), any(ReadOnlyKnowledgeManager.class));
+		
+		// when the role argument of the security tag changes
+		changeSet = new ChangeSet();
+		changeSet.setValue(RuntimeModelHelper.createKnowledgePath("some_param"), 456);
+		shadowKnowledgeManager.update(changeSet);
+		
+		// then access is denied
+		assertFalse(target.checkSecurity(PathRoot.MEMBER, shadowKnowledgeManager));
+		
+		// when the role argument of the local component changes as well
+		localKnowledgeManager.update(changeSet);
+		
+		// then access is granted
+		assertTrue(target.checkSecurity(PathRoot.MEMBER, shadowKnowledgeManager));
+		
+		// when the security tags change
+		shadowKnowledgeManager.setSecurityTags(RuntimeModelHelper.createKnowledgePath("field1_oc"), Arrays.asList(createSecurityTag("roleC")));
+		
+		// then access is denied
+		assertFalse(target.checkSecurity(PathRoot.MEMBER, shadowKnowledgeManager));
+	}
+	
 	private KnowledgeSecurityTag createSecurityTag(String roleName, String... args) {
 		KnowledgeSecurityTag tag = factory.createKnowledgeSecurityTag();
 		tag.setRequiredRole(factory.createSecurityRole());
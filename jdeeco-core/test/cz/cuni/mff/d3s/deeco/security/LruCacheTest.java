@@ -0,0 +1,28 @@
+package cz.cuni.mff.d3s.deeco.security;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class LruCacheTest {
+
+	@Test
+	public void removesLeastRecentlyAccessedEntryTest() {
+		// given a full cache
+		LruCache<String, Integer> target = new LruCache<>(2);
+		target.put("a", 1);
+		target.put("b", 2);
+		
+		// when the older entry is accessed and another entry is added
+		target.get("a");
+		target.put("c", 3);
+		
+		// then the entry accessed least recently is removed
+		assertEquals(2, target.size());
+		assertTrue(target.containsKey("a"));
+		assertFalse(target.containsKey("b"));
+		assertTrue(target.containsKey("c"));
+	}
+}
@@ -0,0 +1,68 @@
+package cz.cuni.mff.d3s.deeco.task;
+
+import static org.mockito.Mockito.mock;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import cz.cuni.mff.d3s.deeco.executor.SameThreadExecutor;
+import cz.cuni.mff.d3s.deeco.integrity.RatingsManagerImpl;
+import cz.cuni.mff.d3s.deeco.knowledge.ChangeSet;
+import cz.cuni.mff.d3s.deeco.knowledge.KnowledgeManager;
+import cz.cuni.mff.d3s.deeco.knowledge.TrieKnowledgeManager;
+import cz.cuni.mff.d3s.deeco.model.architecture.api.Architecture;
+import cz.cuni.mff.d3s.deeco.model.runtime.RuntimeModelHelper;
+import cz.cuni.mff.d3s.deeco.model.runtime.SampleRuntimeModel;
+import cz.cuni.mff.d3s.deeco.runtimelog.RuntimeLogger;
+import cz.cuni.mff.d3s.deeco.scheduler.SingleThreadedScheduler;
+import cz.cuni.mff.d3s.deeco.timer.DiscreteEventTimer;
+
+/**
+ * Measures the invocation of a {@link ProcessTask} with IN, OUT, INOUT and
+ * RATING parameters on a {@link TrieKnowledgeManager}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ProcessTaskBenchmark {
+
+	private ProcessTask task;
+
+	@Setup
+	public void setUp() throws Exception {
+		SampleRuntimeModel model = new SampleRuntimeModel();
+		KnowledgeManager knowledgeManager = new TrieKnowledgeManager("bench", model.componentInstance, null);
+		ChangeSet initial = new ChangeSet();
+		initial.setValue(RuntimeModelHelper.createKnowledgePath("level1"), new Level1());
+		knowledgeManager.update(initial);
+		model.setKnowledgeManager(knowledgeManager);
+
+		task = new ProcessTask(model.process, new SingleThreadedScheduler(new SameThreadExecutor(), new DiscreteEventTimer(), null), mock(Architecture.class),
+				mock(RuntimeLogger.class), RatingsManagerImpl.getInstance());
+	}
+
+	@TearDown
+	public void tearDown() {
+		RatingsManagerImpl.resetSingleton();
+	}
+
+	@Benchmark
+	public void invoke() throws TaskInvocationException {
+		task.invoke(null);
+	}
+
+	public static class Level1 {
+		public Integer in = 1;
+		public Integer out = 0;
+		public Integer inout = 0;
+		public Integer rating = 0;
+	}
+}
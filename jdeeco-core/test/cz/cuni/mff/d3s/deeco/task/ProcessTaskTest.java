@@ -1,11 +1,13 @@
 package cz.cuni.mff.d3s.deeco.task;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyCollectionOf;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
@@ -179,6 +181,45 @@ public class ProcessTaskTest {
 		assertTrue(cs.getUpdatedReferences().size() == 2);
 	}
 	
+	@Test
+	public void testProcessTaskInvokedRepeatedly() throws Exception {
+		// GIVEN a ProcessTask which has been invoked already
+		task.invoke(null);
+		model.resetProcessMethodCallCounter();
+		inOutValue = 1;
+
+		// WHEN invoke on the task is called again
+		task.invoke(null);
+
+		// THEN it executes the process method with the current knowledge
+		assertTrue(model.getProcessMethodCallCounter() == 1);
+		ArgumentCaptor<ChangeSet> changeSetCaptor = ArgumentCaptor.forClass(ChangeSet.class);
+		verify(knowledgeManager, times(2)).update(changeSetCaptor.capture());
+		ChangeSet cs = changeSetCaptor.getValue();
+		assertEquals(expectedOutValue.value, cs.getValue(model.processParamOut.getKnowledgePath()));
+		assertEquals(1 + expectedOutValue.value, cs.getValue(model.processParamInOut.getKnowledgePath()));
+	}
+
+	@Test
+	public void testProcessTaskChangeSetsDoNotSharePaths() throws Exception {
+		// WHEN the task is invoked twice
+		task.invoke(null);
+		task.invoke(null);
+
+		// THEN each of the change sets passed to the knowledge manager has its own paths
+		ArgumentCaptor<ChangeSet> changeSetCaptor = ArgumentCaptor.forClass(ChangeSet.class);
+		verify(knowledgeManager, times(2)).update(changeSetCaptor.capture());
+		ChangeSet first = changeSetCaptor.getAllValues().get(0);
+		ChangeSet second = changeSetCaptor.getAllValues().get(1);
+		for (KnowledgePath firstPath : first.getUpdatedReferences()) {
+			for (KnowledgePath secondPath : second.getUpdatedReferences()) {
+				assertNotSame(firstPath, secondPath);
+			}
+			assertNotSame(model.processParamInOut.getKnowledgePath(), firstPath);
+			assertNotSame(model.processParamOut.getKnowledgePath(), firstPath);
+		}
+	}
+
 	@Test(expected = TaskInvocationException.class)
 	public void testProcessTaskLockedPath() throws TaskInvocationException {
 		// GIVEN inout path is locked
@@ -0,0 +1,83 @@
+package cz.cuni.mff.d3s.deeco.timer;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import cz.cuni.mff.d3s.deeco.executor.SameThreadExecutor;
+import cz.cuni.mff.d3s.deeco.runtime.DEECoNode;
+import cz.cuni.mff.d3s.deeco.scheduler.NoExecutorAvailableException;
+import cz.cuni.mff.d3s.deeco.scheduler.SingleThreadedScheduler;
+import cz.cuni.mff.d3s.deeco.task.TimerTask;
+import cz.cuni.mff.d3s.deeco.task.TimerTaskListener;
+
+/**
+ * Measures the wall time of one simulated second of the
+ * {@link DiscreteEventTimer} driving 100 to 10,000 nodes. Each node has its
+ * own scheduler with a periodic task of 100 ms and a random offset, i.e. the
+ * timer handles ten notifications per node and simulated second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class DiscreteEventTimerBenchmark {
+
+	private static final long SIMULATED_SECOND = 1000;
+	private static final long PERIOD = 100;
+
+	@Param({ "100", "1000", "10000" })
+	public int nodes;
+
+	private DEECoNode[] deecoNodes;
+	private DiscreteEventTimer timer;
+
+	private final TimerTaskListener listener = new TimerTaskListener() {
+		@Override
+		public void at(long time, Object triger) {
+		}
+	};
+
+	@Setup(Level.Trial)
+	public void createNodes() {
+		deecoNodes = new DEECoNode[nodes];
+		for (int i = 0; i < nodes; i++) {
+			deecoNodes[i] = Mockito.mock(DEECoNode.class);
+		}
+	}
+
+	/**
+	 * The timer cannot be restarted after it terminates, so each simulated
+	 * second runs on a fresh timer.
+	 */
+	@Setup(Level.Invocation)
+	public void setUp() throws NoExecutorAvailableException {
+		timer = new DiscreteEventTimer();
+		Random random = new Random(42);
+		for (DEECoNode node : deecoNodes) {
+			SameThreadExecutor executor = new SameThreadExecutor();
+			SingleThreadedScheduler scheduler = new SingleThreadedScheduler(executor, timer, node);
+			executor.setExecutionListener(scheduler);
+			new TimerTask(scheduler, listener, "process", random.nextInt((int) PERIOD), PERIOD).schedule();
+		}
+	}
+
+	@Benchmark
+	public long simulatedSecond() {
+		timer.start(SIMULATED_SECOND);
+		return timer.getCurrentMilliseconds();
+	}
+}
@@ -0,0 +1,109 @@
+package cz.cuni.mff.d3s.deeco.timer;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import cz.cuni.mff.d3s.deeco.runtime.DEECoContainer;
+
+public class DiscreteEventTimerTest {
+	private DiscreteEventTimer timer;
+	private List<String> fired;
+
+	@Before
+	public void init() {
+		timer = new DiscreteEventTimer();
+		fired = new ArrayList<>();
+	}
+
+	/**
+	 * Tests that the events of different containers are fired in time order
+	 */
+	@Test
+	public void testEventsFiredInTimeOrder() {
+		for (int i = 10; i > 0; i--) {
+			timer.notifyAt(i * 10, recorder("event" + i), "event" + i, Mockito.mock(DEECoContainer.class));
+		}
+
+		timer.start(1000);
+
+		assertEquals(10, fired.size());
+		for (int i = 0; i < 10; i++) {
+			assertEquals("event" + (i + 1) + "@" + (i + 1) * 10, fired.get(i));
+		}
+		assertEquals(1000, timer.getCurrentMilliseconds());
+	}
+
+	/**
+	 * Tests that a new notification of a container replaces the previous one,
+	 * regardless whether it is earlier or later
+	 */
+	@Test
+	public void testNotificationReplaced() {
+		DEECoContainer container1 = Mockito.mock(DEECoContainer.class);
+		DEECoContainer container2 = Mockito.mock(DEECoContainer.class);
+		timer.notifyAt(50, recorder("a"), "a", container1);
+		timer.notifyAt(60, recorder("b"), "b", container2);
+
+		// postpone and bring forward
+		timer.notifyAt(100, recorder("a"), "a", container1);
+		timer.notifyAt(20, recorder("b"), "b", container2);
+
+		timer.start(1000);
+
+		assertEquals(2, fired.size());
+		assertEquals("b@20", fired.get(0));
+		assertEquals("a@100", fired.get(1));
+	}
+
+	/**
+	 * Tests that a container can be notified again from its own notification
+	 */
+	@Test
+	public void testRenotifyFromListener() {
+		final DEECoContainer container = Mockito.mock(DEECoContainer.class);
+		timer.notifyAt(10, new TimerEventListener() {
+			@Override
+			public void at(long time) {
+				fired.add("periodic@" + time);
+				timer.notifyAt(time + 10, this, "periodic", container);
+			}
+		}, "periodic", container);
+
+		timer.start(55);
+
+		assertEquals(5, fired.size());
+		assertEquals("periodic@50", fired.get(4));
+	}
+
+	/**
+	 * Tests that simultaneous events are fired in the order they were scheduled
+	 */
+	@Test
+	public void testSimultaneousEventsFiredInOrder() {
+		for (int i = 0; i < 10; i++) {
+			timer.notifyAt(10, recorder("event" + i), "event" + i, Mockito.mock(DEECoContainer.class));
+		}
+
+		timer.start(10);
+
+		assertEquals(10, fired.size());
+		for (int i = 0; i < 10; i++) {
+			assertEquals("event" + i + "@10", fired.get(i));
+		}
+	}
+
+	private TimerEventListener recorder(final String name) {
+		return new TimerEventListener() {
+			@Override
+			public void at(long time) {
+				fired.add(name + "@" + time);
+			}
+		};
+	}
+}
@@ -0,0 +1,172 @@
+package cz.cuni.mff.d3s.deeco.timer;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import cz.cuni.mff.d3s.deeco.runtime.DEECoContainer;
+
+public class ParallelDiscreteEventTimerTest {
+
+	private static final int CONTAINERS = 20;
+	private static final long PERIOD = 10;
+	private static final long DELAY = 5;
+
+	/**
+	 * Tests that the parallel timer fires the same events at the same times as
+	 * the sequential one, including the deliveries among containers
+	 */
+	@Test
+	public void testSameTraceAsSequential() {
+		List<List<String>> sequential = runPingPong(new SequentialDeliveryTimer());
+		List<List<String>> parallel = runPingPong(new ParallelDiscreteEventTimer(4));
+
+		assertEquals(sequential, parallel);
+		// the events at the termination time are fired as well
+		assertEquals(1000 / PERIOD + 1, countPrefix(parallel.get(0), "tick"));
+	}
+
+	/**
+	 * Tests that a delivery shorter than the declared delay is rejected
+	 */
+	@Test(expected = IllegalStateException.class)
+	public void testDeliveryShorterThanDelay() {
+		final ParallelDiscreteEventTimer timer = new ParallelDiscreteEventTimer(2);
+		timer.declareMinimalDelay(DELAY);
+		final DEECoContainer container = createContainer(1);
+		timer.notifyAt(10, new TimerEventListener() {
+			@Override
+			public void at(long time) {
+				timer.deliverAt(time + DELAY - 1, this, "delivery", container);
+			}
+		}, "event", container);
+
+		timer.start(100);
+	}
+
+	/**
+	 * Tests that only the container being processed can be notified
+	 */
+	@Test(expected = IllegalStateException.class)
+	public void testNotifyOtherContainer() {
+		final ParallelDiscreteEventTimer timer = new ParallelDiscreteEventTimer(2);
+		final DEECoContainer container1 = createContainer(1);
+		final DEECoContainer container2 = createContainer(2);
+		timer.notifyAt(10, new TimerEventListener() {
+			@Override
+			public void at(long time) {
+				timer.notifyAt(time + 1, this, "event", container2);
+			}
+		}, "event", container1);
+
+		timer.start(100);
+	}
+
+	/**
+	 * Tests that an interruption is processed by the container at its current time
+	 */
+	@Test
+	public void testInterruptionEvent() {
+		final ParallelDiscreteEventTimer timer = new ParallelDiscreteEventTimer(2);
+		timer.declareMinimalDelay(DELAY);
+		final DEECoContainer container = createContainer(1);
+		final List<Long> interruptions = new ArrayList<>();
+		timer.notifyAt(10, new TimerEventListener() {
+			@Override
+			public void at(long time) {
+				timer.interruptionEvent(new TimerEventListener() {
+					@Override
+					public void at(long time) {
+						interruptions.add(time);
+					}
+				}, "interruption", container);
+			}
+		}, "event", container);
+
+		timer.start(100);
+
+		assertEquals(Collections.singletonList(10L), interruptions);
+	}
+
+	/**
+	 * Tests that only the container being processed can be interrupted
+	 */
+	@Test(expected = IllegalStateException.class)
+	public void testInterruptOtherContainer() {
+		final ParallelDiscreteEventTimer timer = new ParallelDiscreteEventTimer(2);
+		final DEECoContainer container1 = createContainer(1);
+		final DEECoContainer container2 = createContainer(2);
+		timer.notifyAt(10, new TimerEventListener() {
+			@Override
+			public void at(long time) {
+				timer.interruptionEvent(this, "interruption", container2);
+			}
+		}, "event", container1);
+
+		timer.start(100);
+	}
+
+	/**
+	 * Runs containers which tick periodically and deliver the tick to the next
+	 * container, returning the events observed by each container
+	 */
+	private List<List<String>> runPingPong(final DeliveryTimer timer) {
+		timer.declareMinimalDelay(DELAY);
+		final List<List<String>> traces = new ArrayList<>();
+		final List<DEECoContainer> containers = new ArrayList<>();
+		for (int i = 0; i < CONTAINERS; i++) {
+			containers.add(createContainer(i));
+			traces.add(Collections.synchronizedList(new ArrayList<String>()));
+		}
+
+		for (int i = 0; i < CONTAINERS; i++) {
+			final int index = i;
+			final DEECoContainer container = containers.get(i);
+			timer.notifyAt(i % PERIOD, new TimerEventListener() {
+				@Override
+				public void at(long time) {
+					assertEquals(time, timer.getCurrentMilliseconds());
+					traces.get(index).add("tick@" + time);
+					for (int target = index + 1; target <= index + 2; target++) {
+						final int receiver = target % CONTAINERS;
+						final String message = "from " + index + " sent@" + time;
+						timer.deliverAt(time + DELAY + target - index - 1, new TimerEventListener() {
+							@Override
+							public void at(long time) {
+								assertEquals(time, timer.getCurrentMilliseconds());
+								traces.get(receiver).add(message + " received@" + time);
+							}
+						}, "delivery", containers.get(receiver));
+					}
+					timer.notifyAt(time + PERIOD, this, "tick", container);
+				}
+			}, "tick", container);
+		}
+
+		timer.start(1000);
+		assertEquals(1000, timer.getCurrentMilliseconds());
+		return traces;
+	}
+
+	private int countPrefix(List<String> trace, String prefix) {
+		int count = 0;
+		for (String event : trace) {
+			if (event.startsWith(prefix)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private DEECoContainer createContainer(int id) {
+		DEECoContainer container = Mockito.mock(DEECoContainer.class);
+		when(container.getId()).thenReturn(id);
+		return container;
+	}
+}
@@ -2,6 +2,7 @@ package cz.cuni.mff.d3s.jdeeco.ensembles.intelligent.z3;
 
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import javax.activation.UnsupportedDataTypeException;
@@ -23,7 +24,7 @@ class DataContainer {
 	private Map<String, DataContractInstancesContainer> containers;
 	private int maxEnsembleCount;
 	
-	public DataContainer(Context ctx, Optimize opt, String packageName, EdlDocument edlDocument, KnowledgeContainer knowledgeContainer,
+	public DataContainer(Context ctx, String packageName, EdlDocument edlDocument, KnowledgeContainer knowledgeContainer,
 			IDataTypeContext typeResolution, EnsembleDefinition ensembleDefinition)
 			throws ClassNotFoundException, KnowledgeContainerException, UnsupportedDataTypeException, NoSuchFieldException, SecurityException, IllegalArgumentException, IllegalAccessException {
 		
@@ -36,7 +37,7 @@ class DataContainer {
 		maxEnsembleCount = filteredKnowledgeContainer.getMaxEnsembleCount(edlDocument, ensembleDefinition);
 		
 		for (RoleDefinition roleDef : ensembleDefinition.getRoles()) {
-			containers.put(roleDef.getName(), new DataContractInstancesContainer(ctx, opt, roleDef, typeResolution, 
+			containers.put(roleDef.getName(), new DataContractInstancesContainer(ctx, roleDef, typeResolution, 
 					filteredKnowledgeContainer, roleDef.getWhereFilter(), maxEnsembleCount));
 		}
 	}
@@ -68,6 +69,27 @@ class DataContainer {
 	public BaseDataContract getInstance(String roleName, int componentIndex, int ensembleIndex) {
 		return get(roleName).getInstance(componentIndex, ensembleIndex);
 	}
+	
+	/**
+	 * Adds the constraints binding the knowledge of the components to the given optimizer.
+	 */
+	public void addKnowledgeConstraints(Optimize opt) {
+		for (DataContractInstancesContainer dataContract : containers.values()) {
+			dataContract.addKnowledgeConstraints(opt);
+		}
+	}
+	
+	/**
+	 * Gets the IDs of the components at the individual indices of each role and ensemble. All the constraints
+	 * except for the ones binding the knowledge depend only on these, so they can be reused while the IDs stay the same.
+	 */
+	public Map<String, List<List<String>>> getInstanceIds() {
+		Map<String, List<List<String>>> result = new HashMap<>();
+		for (Map.Entry<String, DataContractInstancesContainer> entry : containers.entrySet()) {
+			result.put(entry.getKey(), entry.getValue().getInstanceIds());
+		}
+		return result;
+	}
 	/*
 	public int getInstanceGlobalIndex(String roleName, int componentIndex, int ensembleIndex) {
 		return get(roleName).getInstanceGlobalIndex(componentIndex, ensembleIndex);
@@ -1,6 +1,7 @@
 package cz.cuni.mff.d3s.jdeeco.ensembles.intelligent.z3;
 
 import java.lang.reflect.Field;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -25,7 +26,7 @@ class DataContractInstancesPerEnsembleContainer {
 	//private int[] globalIndices;
 	private Map<String, KnowledgeFieldVector> knowledgeFields;
 	
-	public DataContractInstancesPerEnsembleContainer(Context ctx, Optimize opt, DataContractDefinition dataContractDefinition,
+	public DataContractInstancesPerEnsembleContainer(Context ctx, DataContractDefinition dataContractDefinition,
 			FilteredKnowledgeContainer filteredKnowledgeContainer, EquitableQuery whereClause, String roleName, int ensembleIndex)
 			throws UnsupportedDataTypeException, NoSuchFieldException, SecurityException, IllegalArgumentException, IllegalAccessException {
 		this.instances = filteredKnowledgeContainer.getFilteredTrackedKnowledge(dataContractDefinition.getName(), whereClause, ensembleIndex);
@@ -36,7 +37,7 @@ class DataContractInstancesPerEnsembleContainer {
 		for (FieldDeclaration fieldDecl : dataContractDefinition.getFields()) {
 			String fieldName = fieldDecl.getName();
 			String fieldType = fieldDecl.getType().toString();
-			KnowledgeFieldVector field = new KnowledgeFieldVector(ctx, opt, roleName, ensembleIndex, fieldName, fieldType);
+			KnowledgeFieldVector field = new KnowledgeFieldVector(ctx, roleName, ensembleIndex, fieldName, fieldType);
 			knowledgeFields.put(fieldName, field);
 			for (int i = 0; i < instances.size(); i++) {
 				Object value = readField(fieldName, instances.get(i));
@@ -75,6 +76,12 @@ class DataContractInstancesPerEnsembleContainer {
 	public Map<String, KnowledgeFieldVector> getKnowledgeFields() {
 		return knowledgeFields;
 	}
+	
+	public void addKnowledgeConstraints(Optimize opt) {
+		for (KnowledgeFieldVector field : knowledgeFields.values()) {
+			opt.Add(field.getValuesConstraint());
+		}
+	}
 	/*
 	public int[] getGlobalIndices() {
 		return globalIndices;
@@ -88,7 +95,7 @@ class DataContractInstancesContainer {
 	private String dataContractName;
 	private EquitableQuery whereClause;
 	
-	public DataContractInstancesContainer(Context ctx, Optimize opt, RoleDefinition roleDefinition, IDataTypeContext typeResolution,
+	public DataContractInstancesContainer(Context ctx, RoleDefinition roleDefinition, IDataTypeContext typeResolution,
 			FilteredKnowledgeContainer filteredKnowledgeContainer, EquitableQuery whereClause, int maxEnsembleCount)
 			throws ClassNotFoundException, KnowledgeContainerException, UnsupportedDataTypeException, NoSuchFieldException, SecurityException, IllegalArgumentException, IllegalAccessException {
 		
@@ -98,7 +105,7 @@ class DataContractInstancesContainer {
 		this.whereClause = whereClause;
 		this.instances = new DataContractInstancesPerEnsembleContainer[maxEnsembleCount];
 		for (int e = 0; e < maxEnsembleCount; e++) {
-			this.instances[e] = new DataContractInstancesPerEnsembleContainer(ctx, opt, dataContractDefinition, filteredKnowledgeContainer, 
+			this.instances[e] = new DataContractInstancesPerEnsembleContainer(ctx, dataContractDefinition, filteredKnowledgeContainer, 
 					whereClause, roleDefinition.getName(), e);
 		}
 	}
@@ -131,4 +138,22 @@ class DataContractInstancesContainer {
 		return instances[ensembleIndex].getInstances().size();
 	}
 	
+	public void addKnowledgeConstraints(Optimize opt) {
+		for (DataContractInstancesPerEnsembleContainer ensembleInstances : instances) {
+			ensembleInstances.addKnowledgeConstraints(opt);
+		}
+	}
+	
+	public List<List<String>> getInstanceIds() {
+		List<List<String>> result = new ArrayList<>();
+		for (DataContractInstancesPerEnsembleContainer ensembleInstances : instances) {
+			List<String> ids = new ArrayList<>();
+			for (BaseDataContract instance : ensembleInstances.getInstances()) {
+				ids.add(instance.id);
+			}
+			result.add(ids);
+		}
+		return result;
+	}
+	
 }
\ No newline at end of file
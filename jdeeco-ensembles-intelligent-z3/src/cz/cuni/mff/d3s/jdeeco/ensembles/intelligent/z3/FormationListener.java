@@ -0,0 +1,21 @@
+package cz.cuni.mff.d3s.jdeeco.ensembles.intelligent.z3;
+
+import com.microsoft.z3.Status;
+
+import cz.cuni.mff.d3s.jdeeco.edl.model.edl.EnsembleDefinition;
+
+/**
+ * Receives the statistics of the ensemble formation performed by {@link Z3IntelligentEnsembleFactory},
+ * e.g. to collect the solving times of the individual formation periods.
+ */
+public interface FormationListener {
+	/**
+	 * Called after the solver finishes the formation of the instances of an ensemble.
+	 * @param ensembleDefinition - the ensemble whose instances were formed.
+	 * @param status - the result of the solver.
+	 * @param constraintsReused - whether the constraints of the previous period were reused.
+	 * @param solveTime - the time spent by the solver in nanoseconds.
+	 * @param totalTime - the time of the whole formation in nanoseconds.
+	 */
+	void formationFinished(EnsembleDefinition ensembleDefinition, Status status, boolean constraintsReused, long solveTime, long totalTime);
+}
@@ -3,9 +3,9 @@ package cz.cuni.mff.d3s.jdeeco.ensembles.intelligent.z3;
 import javax.activation.UnsupportedDataTypeException;
 
 import com.microsoft.z3.ArrayExpr;
+import com.microsoft.z3.BoolExpr;
 import com.microsoft.z3.Context;
 import com.microsoft.z3.Expr;
-import com.microsoft.z3.Optimize;
 import com.microsoft.z3.Sort;
 
 import cz.cuni.mff.d3s.jdeeco.edl.PrimitiveTypes;
@@ -14,14 +14,12 @@ class KnowledgeFieldVector {
 	private ArrayExpr values; // for individual components
 	private ArrayExpr values_tmp;
 	private Context ctx;
-	private Optimize opt;
 	private boolean closed;
 	
-	public KnowledgeFieldVector(Context ctx, Optimize opt, String roleName, int ensembleIndex, String fieldName, String fieldType)
+	public KnowledgeFieldVector(Context ctx, String roleName, int ensembleIndex, String fieldName, String fieldType)
 			throws UnsupportedDataTypeException {
 		
 		this.ctx = ctx;
-		this.opt = opt;
 		
 		Sort sort = getSort(ctx, fieldType);
 				
@@ -38,10 +36,14 @@ class KnowledgeFieldVector {
 	}
 	
 	public void close() {
-		opt.Add(ctx.mkEq(values, values_tmp));
 		closed = true;
 	}
 	
+	// binds the field values of the individual components
+	public BoolExpr getValuesConstraint() {
+		return ctx.mkEq(values, values_tmp);
+	}
+	
 	public ArrayExpr getArray() {
 		return values;
 	}
@@ -23,6 +23,7 @@ import cz.cuni.mff.d3s.deeco.ensembles.EnsembleFactory;
 import cz.cuni.mff.d3s.deeco.ensembles.EnsembleFormationException;
 import cz.cuni.mff.d3s.deeco.ensembles.EnsembleInstance;
 import cz.cuni.mff.d3s.deeco.knowledge.container.KnowledgeContainer;
+import cz.cuni.mff.d3s.deeco.logging.Log;
 import cz.cuni.mff.d3s.jdeeco.edl.BaseDataContract;
 import cz.cuni.mff.d3s.jdeeco.edl.ContextSymbols;
 import cz.cuni.mff.d3s.jdeeco.edl.model.edl.EdlDocument;
@@ -51,45 +52,82 @@ class GlobalComponentAssignment {
 	}
 }
 
+/**
+ * The constraints of an ensemble kept between the formation periods in the incremental mode.
+ */
+class FormationState {
+	public Optimize opt;
+	public boolean knowledgeScope;
+	public Map<String, List<List<String>>> instanceIds;
+	public EnsembleAssignmentMatrix assignments;
+	public Handle objective;
+	public List<BoolExpr> previousAssignment = Collections.emptyList();
+	
+}
+
 public class Z3IntelligentEnsembleFactory implements EnsembleFactory {
 
 	private EdlDocument edlDocument;
 	private IDataTypeContext typeResolution;
 	private Context ctx;
 	private Optimize opt;
+	private boolean incremental;
+	private FormationListener formationListener;
+	private Map<EnsembleDefinition, FormationState> formationStates = new HashMap<>();
 	
 	public Z3IntelligentEnsembleFactory(EdlDocument edlDocument) {
 		this.edlDocument = edlDocument;
 		this.typeResolution = new SimpleDataTypeContext(edlDocument);
 	}
 	
+	/**
+	 * Sets whether the constraints not depending on the knowledge of the components are kept between the formation periods. 
+	 * The knowledge of each period is then added in a nested scope of the optimizer, which is replaced in the next period, 
+	 * and the previous assignment is preferred among the solutions of the same fitness. The constraints are created again 
+	 * whenever the components of the roles change. The solver context is kept in both modes.
+	 */
+	public void setIncremental(boolean incremental) {
+		this.incremental = incremental;
+		formationStates.clear();
+	}
+	
+	public boolean isIncremental() {
+		return incremental;
+	}
+	
+	/**
+	 * Sets the listener notified about the solving time of each formation period.
+	 */
+	public void setFormationListener(FormationListener formationListener) {
+		this.formationListener = formationListener;
+	}
+	
 	private void initConfiguration() {
 		HashMap<String, String> cfg = new HashMap<String, String>();
         cfg.put("model", "true");
         ctx = new Context(cfg);
-        opt = ctx.mkOptimize();
 	}
 
 	private void printModel(Model m, EnsembleAssignmentMatrix assignments, List<RoleDefinition> roles,
 			DataContainer dataContainer) {
 		for (int e = 0; e < assignments.getMaxEnsembleCount(); e++) {
 			if (m.getConstInterp(assignments.get(e).ensembleExists()).getBoolValue() == Z3_lbool.Z3_L_TRUE) {			
-				System.out.println("ensemble " + e + ":");
+				Log.d("ensemble " + e + ":");
 				for (int r = 0; r < assignments.get(e).getRoleCount(); r++) {
 					RoleDefinition role = roles.get(r);
-					System.out.print("  - " + role.getName() + ": [");
+					StringBuilder line = new StringBuilder("  - " + role.getName() + ": [");
 					
 					ComponentAssignmentResults assignmentResults = assignments.get(e, r).getResults(m);
 					String roleName = assignments.get(e, r).getRoleName();										
 					
 					for (int componentIndex : assignmentResults.getAssignedIndices()) {
-						System.out.print(dataContainer.getInstance(roleName, componentIndex, e).id + " ");
+						line.append(dataContainer.getInstance(roleName, componentIndex, e).id + " ");
 					}
 				
-					System.out.println("]");
+					Log.d(line.append("]").toString());
 				}
 			} else {
-				System.out.println("ensemble " + e + " not instantiated.");
+				Log.d("ensemble " + e + " not instantiated.");
 			}
 		}
 	}
@@ -153,15 +191,15 @@ public class Z3IntelligentEnsembleFactory implements EnsembleFactory {
 	private Collection<EnsembleInstance> createInstancesOfEnsemble(KnowledgeContainer container, 
 			EnsembleDefinition ensembleDefinition) throws EnsembleFormationException {
 		
-		System.out.println("\nEnsemble: " + ensembleDefinition.getName());
+		Log.d("Ensemble: " + ensembleDefinition.getName());
 		
 		try {
-    		long time_milis = System.currentTimeMillis();
+			long startTime = System.nanoTime();
 
-    		initConfiguration();
+			FormationState state = getFormationState(ensembleDefinition);
 
-    		List<RoleDefinition> roles = ensembleDefinition.getRoles();
-			DataContainer dataContainer = new DataContainer(ctx, opt, edlDocument.getPackage().toString(), edlDocument, container, 
+			List<RoleDefinition> roles = ensembleDefinition.getRoles();
+			DataContainer dataContainer = new DataContainer(ctx, edlDocument.getPackage().toString(), edlDocument, container, 
 					typeResolution, ensembleDefinition);			
 	        
 			
@@ -170,114 +208,206 @@ public class Z3IntelligentEnsembleFactory implements EnsembleFactory {
 			int maxEnsembleCount = dataContainer.getMaxEnsembleCount();
 	        
 	        if (maxEnsembleCount == 0) {
-	        	System.out.println("Not enough components of suitable roles to form any ensemble instance of the type " + ensembleDefinition.getName() + ".");
+	        	Log.d("Not enough components of suitable roles to form any ensemble instance of the type " + ensembleDefinition.getName() + ".");
 	        	return Collections.emptyList();
 	        }
-
 	        
-	        // Create assignment expressions 
+	        // The constraints can be reused while the same components are at the same indices, except for data contract bound ensembles 
+	        // whose constraints depend on the knowledge of the id classes
 	        
-			EnsembleAssignmentMatrix assignments = EnsembleAssignmentMatrix.create(
-					ctx, opt, maxEnsembleCount, ensembleDefinition, dataContainer);
-			
-			// Create expressions representing sizes of role assignment sets
-			assignments.createCounters();
-			
-			// Create the mapping between local ensemble id, and id data classes
-			
-			EnsembleIdMapping idMapping = null;
-			
-			if (Extensions.hasDataContractBoundId(ensembleDefinition))			
-				idMapping = new EnsembleIdMapping(edlDocument.getPackage().toString(), ensembleDefinition, typeResolution, container);
+	        Map<String, List<List<String>>> instanceIds = Extensions.hasDataContractBoundId(ensembleDefinition) ? null : dataContainer.getInstanceIds();
+	        boolean constraintsReused = instanceIds != null && instanceIds.equals(state.instanceIds);
+	        
+	        EnsembleIdMapping idMapping = null;
+	        
+	        if (!constraintsReused) {
+	        	// Start with a new optimizer, the knowledge constraints are added in a nested scope
+	        	opt = state.opt = ctx.mkOptimize();
+	        	state.knowledgeScope = false;
+	        	state.instanceIds = instanceIds;
+	        	state.previousAssignment = Collections.emptyList();
+	        	
+				// Create the mapping between local ensemble id, and id data classes
+				
+				if (Extensions.hasDataContractBoundId(ensembleDefinition))			
+					idMapping = new EnsembleIdMapping(edlDocument.getPackage().toString(), ensembleDefinition, typeResolution, container);
+				
+				createConstraints(state, ensembleDefinition, dataContainer, idMapping);
+	        } else {
+	        	opt = state.opt;
+	        }
+	        
+	        // The knowledge of the previous period is replaced by the current one
+	        if (state.knowledgeScope) {
+	        	opt.Pop();
+	        }
+	        opt.Push();
+	        state.knowledgeScope = true;
+	        dataContainer.addKnowledgeConstraints(opt);
+	        
+	        if (constraintsReused) {
+	        	// Prefer the previous assignment among the solutions of the same fitness
+	        	for (BoolExpr assigned : state.previousAssignment) {
+	        		opt.AssertSoft(assigned, 1, "previous_assignment");
+	        	}
+	        }
+	        
+	        EnsembleAssignmentMatrix assignments = state.assignments;
+								
+			long solveStartTime = System.nanoTime();
+			Status status = opt.Check();
+			long solveTime = System.nanoTime() - solveStartTime;
+			Log.d("Maximize: " + state.objective);
 			
-
-			// Check cardinality conditions for individual roles
-			for (int i = 0; i < maxEnsembleCount; i++) {
-				for (int j = 0; j < assignments.get(i).getRoleCount(); j++) {
-					RoleDefinition roleDefinition = roles.get(j);
-					
-					// Validate max cardinality bound, star cardinality gets treated separately as always true
-					int maxCardinality = roleDefinition.getCardinalityMax();
-					BoolExpr le;
-					if (maxCardinality != ContextSymbols.STAR_CARDINALITY_VALUE)
-						 le = ctx.mkLe(assignments.getAssignedCount(i, j), ctx.mkInt(maxCardinality));
-					else
-						 le = ctx.mkTrue();						
-					
-					BoolExpr ge = ctx.mkGe(assignments.getAssignedCount(i, j), ctx.mkInt(roleDefinition.getCardinalityMin()));
-					BoolExpr cardinalityOk = ctx.mkAnd(le, ge);
-					opt.Add(ctx.mkImplies(assignments.ensembleExists(i), cardinalityOk));
-					BoolExpr ensembleEmpty = ctx.mkEq(assignments.getAssignedCount(i, j), ctx.mkInt(0));
-					opt.Add(ctx.mkImplies(ctx.mkNot(assignments.ensembleExists(i)), ensembleEmpty));
+			List<EnsembleInstance> result;
+			if (status == Status.SATISFIABLE) {
+				Model model = opt.getModel();
+				if (Log.isDebugLoggable()) {
+					printModel(model, assignments, roles, dataContainer);
 				}
-			}
-			
-			// Only in case of integer ids - does not make sense to impose this for data contract bound ensembles
-			if (!Extensions.hasDataContractBoundId(ensembleDefinition)) {
-				// Enforce creation of at least one (or rather, first) ensemble
-				opt.Add(assignments.ensembleExists(0));
 				
-				// Nonexistence of an ensemble implies nonexistence of the following ensembles (use consecutive number set from 1)				
-				for (int i = 1; i < maxEnsembleCount; i++) {
-					opt.Add(ctx.mkImplies(ctx.mkNot(assignments.ensembleExists(i-1)), ctx.mkNot(assignments.ensembleExists(i))));
+				result = createEnsembles(model, assignments, ensembleDefinition, 
+						dataContainer, edlDocument.getPackage().toString(), idMapping);
+				
+				if (incremental) {
+					state.previousAssignment = getAssignment(model, assignments);
 				}
 			} else {
-				// TODO at least one ensemble exists
+				Log.d("Unsat :-(");
+				result = Collections.emptyList();
 			}
 			
-			
-			Map<String, GlobalComponentAssignment> allComponentEnsembles = new HashMap<>();
-			for (int e = 0; e < maxEnsembleCount; e++) {
-				for (int r = 0; r < assignments.get(e).getRoleCount(); r++) {
-					String roleName = assignments.get(e, r).getRoleName();
-					DataContractInstancesContainer dataContract = dataContainer.get(roleName);
-					for (int c = 0; c < dataContract.getNumInstances(e); c++) {
-						BaseDataContract instance = dataContainer.getInstance(roleName, c, e);
-						String id = instance.id;
-						GlobalComponentAssignment globalAssignment;
-						if (allComponentEnsembles.containsKey(id)) {
-							globalAssignment = allComponentEnsembles.get(id);
-						} else {
-							globalAssignment = new GlobalComponentAssignment(ctx, id);
-							allComponentEnsembles.put(id, globalAssignment);
-						}
-						
-						opt.Add(globalAssignment.createCondition(assignments, e, r, c));
-					}
-				}
-			}
-			
-			ArithExpr[] fitnesses = new ArithExpr[maxEnsembleCount];
-			for (int e = 0; e < assignments.getMaxEnsembleCount(); e++) {
-				ConstraintParser cp = new ConstraintParser(ctx, opt, dataContainer, assignments.get(e), e, typeResolution, idMapping);
-				cp.parseConstraints();
-				fitnesses[e] = cp.parseFitness();
+			long totalTime = System.nanoTime() - startTime;
+			Log.d("Time taken (ms): " + totalTime / 1000000);
+			if (formationListener != null) {
+				formationListener.formationFinished(ensembleDefinition, status, constraintsReused, solveTime, totalTime);
 			}
+			return result;
 			
-			Handle h = opt.MkMaximize(ctx.mkAdd(fitnesses));
-								
-			//System.out.println("Solver: " + opt);
-			Status status = opt.Check();
-			System.out.println("Maximize: " + h);
-			if (status == Status.SATISFIABLE) {
-				//System.out.println("Model = " + opt.getModel());
-				printModel(opt.getModel(), assignments, roles, dataContainer);
+		} catch (Exception e) {
+			throw new EnsembleFormationException(e);
+		}
+	}
+	
+	/**
+	 * Creates the assignment expressions and adds all the constraints except for the ones binding the knowledge of the components.
+	 */
+	private void createConstraints(FormationState state, EnsembleDefinition ensembleDefinition, DataContainer dataContainer, 
+			EnsembleIdMapping idMapping) {
+		List<RoleDefinition> roles = ensembleDefinition.getRoles();
+		int maxEnsembleCount = dataContainer.getMaxEnsembleCount();
+		
+		// Create assignment expressions 
+		
+		EnsembleAssignmentMatrix assignments = EnsembleAssignmentMatrix.create(
+				ctx, opt, maxEnsembleCount, ensembleDefinition, dataContainer);
+		
+		// Create expressions representing sizes of role assignment sets
+		assignments.createCounters();
+		
+		// Check cardinality conditions for individual roles
+		for (int i = 0; i < maxEnsembleCount; i++) {
+			for (int j = 0; j < assignments.get(i).getRoleCount(); j++) {
+				RoleDefinition roleDefinition = roles.get(j);
 				
-				List<EnsembleInstance> result = createEnsembles(opt.getModel(), assignments, ensembleDefinition, 
-						dataContainer, edlDocument.getPackage().toString(), idMapping);
-				System.out.println("Time taken (ms): " + (System.currentTimeMillis() - time_milis));
-				return result;
+				// Validate max cardinality bound, star cardinality gets treated separately as always true
+				int maxCardinality = roleDefinition.getCardinalityMax();
+				BoolExpr le;
+				if (maxCardinality != ContextSymbols.STAR_CARDINALITY_VALUE)
+					 le = ctx.mkLe(assignments.getAssignedCount(i, j), ctx.mkInt(maxCardinality));
+				else
+					 le = ctx.mkTrue();						
 				
-			} else {
-				System.out.println("Unsat :-(");
-				System.out.println("Time taken (ms): " + (System.currentTimeMillis() - time_milis));
-				return Collections.emptyList();
+				BoolExpr ge = ctx.mkGe(assignments.getAssignedCount(i, j), ctx.mkInt(roleDefinition.getCardinalityMin()));
+				BoolExpr cardinalityOk = ctx.mkAnd(le, ge);
+				opt.Add(ctx.mkImplies(assignments.ensembleExists(i), cardinalityOk));
+				BoolExpr ensembleEmpty = ctx.mkEq(assignments.getAssignedCount(i, j), ctx.mkInt(0));
+				opt.Add(ctx.mkImplies(ctx.mkNot(assignments.ensembleExists(i)), ensembleEmpty));
 			}
+		}
+		
+		// Only in case of integer ids - does not make sense to impose this for data contract bound ensembles
+		if (!Extensions.hasDataContractBoundId(ensembleDefinition)) {
+			// Enforce creation of at least one (or rather, first) ensemble
+			opt.Add(assignments.ensembleExists(0));
 			
-		} catch (Exception e) {
-			throw new EnsembleFormationException(e);
+			// Nonexistence of an ensemble implies nonexistence of the following ensembles (use consecutive number set from 1)				
+			for (int i = 1; i < maxEnsembleCount; i++) {
+				opt.Add(ctx.mkImplies(ctx.mkNot(assignments.ensembleExists(i-1)), ctx.mkNot(assignments.ensembleExists(i))));
+			}
+		} else {
+			// TODO at least one ensemble exists
+		}
+		
+		
+		Map<String, GlobalComponentAssignment> allComponentEnsembles = new HashMap<>();
+		for (int e = 0; e < maxEnsembleCount; e++) {
+			for (int r = 0; r < assignments.get(e).getRoleCount(); r++) {
+				String roleName = assignments.get(e, r).getRoleName();
+				DataContractInstancesContainer dataContract = dataContainer.get(roleName);
+				for (int c = 0; c < dataContract.getNumInstances(e); c++) {
+					BaseDataContract instance = dataContainer.getInstance(roleName, c, e);
+					String id = instance.id;
+					GlobalComponentAssignment globalAssignment;
+					if (allComponentEnsembles.containsKey(id)) {
+						globalAssignment = allComponentEnsembles.get(id);
+					} else {
+						globalAssignment = new GlobalComponentAssignment(ctx, id);
+						allComponentEnsembles.put(id, globalAssignment);
+					}
+					
+					opt.Add(globalAssignment.createCondition(assignments, e, r, c));
+				}
+			}
 		}
-	}	
+		
+		ArithExpr[] fitnesses = new ArithExpr[maxEnsembleCount];
+		for (int e = 0; e < assignments.getMaxEnsembleCount(); e++) {
+			ConstraintParser cp = new ConstraintParser(ctx, opt, dataContainer, assignments.get(e), e, typeResolution, idMapping);
+			cp.parseConstraints();
+			fitnesses[e] = cp.parseFitness();
+		}
+		
+		state.assignments = assignments;
+		state.objective = opt.MkMaximize(ctx.mkAdd(fitnesses));
+	}
+	
+	/**
+	 * Gets the expressions of the ensembles and role assignments that hold in the given model.
+	 */
+	private List<BoolExpr> getAssignment(Model m, EnsembleAssignmentMatrix assignments) {
+		List<BoolExpr> result = new ArrayList<>();
+		for (int e = 0; e < assignments.getMaxEnsembleCount(); e++) {
+			if (m.getConstInterp(assignments.ensembleExists(e)).getBoolValue() == Z3_lbool.Z3_L_TRUE) {
+				result.add(assignments.ensembleExists(e));
+				for (int r = 0; r < assignments.get(e).getRoleCount(); r++) {
+					for (int c : assignments.get(e, r).getResults(m).getAssignedIndices()) {
+						result.add(assignments.get(e, r, c));
+					}
+				}
+			}
+		}
+		
+		return result;
+	}
+	
+	private FormationState getFormationState(EnsembleDefinition ensembleDefinition) {
+		if (ctx == null) {
+			initConfiguration();
+		}
+		
+		if (!incremental) {
+			return new FormationState();
+		}
+		
+		FormationState state = formationStates.get(ensembleDefinition);
+		if (state == null) {
+			state = new FormationState();
+			formationStates.put(ensembleDefinition, state);
+		}
+		
+		return state;
+	}
 
 	@Override
 	public Collection<EnsembleInstance> createInstances(KnowledgeContainer container) throws EnsembleFormationException {
@@ -0,0 +1,64 @@
+package cz.cuni.mff.d3s.jdeeco.ensembles.intelligent.z3;
+
+import java.util.Collection;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import cz.cuni.mff.d3s.deeco.ensembles.EnsembleInstance;
+
+/**
+ * Measures the formation periods of the pendolino ensembles over a stable set of components,
+ * one tenth of them fire fighters and the rest rescuers, with and without the incremental mode.
+ *
+ * <p>
+ * Needs the Z3 library of the z3 profile.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class EnsembleFormationBenchmark {
+
+	@Param({ "10", "20", "30" })
+	public int components;
+
+	@Param({ "false", "true" })
+	public boolean incremental;
+
+	private Z3IntelligentEnsembleFactory factory;
+	private DataclassKnowledgeContainer container;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		factory = new pendolinoEdlFactory();
+		factory.setIncremental(incremental);
+
+		Random random = new Random(42);
+		container = new DataclassKnowledgeContainer();
+		for (int i = 0; i < components; i++) {
+			if (i % 10 == 0) {
+				container.storeDataClass(new DataclassFireFighter(Integer.toString(i), random.nextInt(100)));
+			} else {
+				container.storeDataClass(new DataclassRescuer(Integer.toString(i), random.nextInt(100)));
+			}
+		}
+	}
+
+	/**
+	 * Forms the ensembles of one period.
+	 */
+	@Benchmark
+	public Collection<EnsembleInstance> form() throws Exception {
+		return factory.createInstances(container);
+	}
+}
@@ -0,0 +1,93 @@
+package cz.cuni.mff.d3s.jdeeco.ensembles.intelligent.z3;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.microsoft.z3.Context;
+import com.microsoft.z3.Status;
+
+import cz.cuni.mff.d3s.jdeeco.edl.model.edl.EnsembleDefinition;
+
+/**
+ * Runs with the Z3 native library available; skipped without it unless the z3.required system property is set, as in the
+ * z3 profile.
+ */
+public class Z3IntelligentEnsembleFactoryTest {
+
+	/** Positions of the rescuers in the individual periods; no subset of the sevens sums to 60. */
+	private static final int[][] POSITIONS = {
+		{ 10, 20, 30, 40 },
+		{ 7, 7, 7, 7 },
+		{ 10, 20, 30, 40 },
+		{ 10, 20, 30, 40, 0 },
+		{ 10, 20, 30, 40, 0 },
+	};
+
+	@Before
+	public void setUp() {
+		if (Boolean.getBoolean("z3.required")) {
+			return;
+		}
+		boolean z3Available;
+		try {
+			new Context();
+			z3Available = true;
+		} catch (UnsatisfiedLinkError | NoClassDefFoundError e) {
+			z3Available = false;
+		}
+		assumeTrue(z3Available);
+	}
+
+	private static class StatusRecorder implements FormationListener {
+		List<Status> statuses = new ArrayList<>();
+		List<Boolean> constraintsReused = new ArrayList<>();
+
+		@Override
+		public void formationFinished(EnsembleDefinition ensembleDefinition, Status status, boolean constraintsReused,
+				long solveTime, long totalTime) {
+			this.statuses.add(status);
+			this.constraintsReused.add(constraintsReused);
+		}
+	}
+
+	private StatusRecorder form(boolean incremental) throws Exception {
+		Z3IntelligentEnsembleFactory factory = new pendolinoEdlFactory();
+		factory.setIncremental(incremental);
+		StatusRecorder recorder = new StatusRecorder();
+		factory.setFormationListener(recorder);
+
+		for (int[] positions : POSITIONS) {
+			DataclassKnowledgeContainer container = new DataclassKnowledgeContainer();
+			for (int i = 0; i < positions.length; i++) {
+				container.storeDataClass(new DataclassRescuer(Integer.toString(i), positions[i]));
+			}
+			container.storeDataClass(new DataclassFireFighter("100", 10));
+			factory.createInstances(container);
+		}
+
+		return recorder;
+	}
+
+	@Test
+	public void testIncrementalFormationAsNonIncremental() throws Exception {
+		// WHEN the ensembles are formed over the periods with and without the incremental mode
+		StatusRecorder nonIncremental = form(false);
+		StatusRecorder incremental = form(true);
+
+		// THEN the knowledge of each period replaces the previous one
+		List<Status> expected = Arrays.asList(Status.SATISFIABLE, Status.UNSATISFIABLE, Status.SATISFIABLE,
+				Status.SATISFIABLE, Status.SATISFIABLE);
+		assertEquals(expected, nonIncremental.statuses);
+		assertEquals(expected, incremental.statuses);
+
+		// AND the constraints are created again only when the components change
+		assertEquals(Arrays.asList(false, true, true, false, true), incremental.constraintsReused);
+	}
+}
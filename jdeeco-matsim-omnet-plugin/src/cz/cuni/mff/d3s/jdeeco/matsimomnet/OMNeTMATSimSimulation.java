@@ -154,10 +154,12 @@ public class OMNeTMATSimSimulation implements IMATSimSimulaton, IOMNeTSimulation
 		MATSimDataProvider provider = getMATSimProviderReceiver();
 		MATSimDataReceiver receiver = getMATSimProviderReceiver();
 
+		// The provider passes only the changes, so the data are taken once for all the attempts
+		Map<Id, MATSimInput> out = provider.getMATSimData();
+
 		// Try to exchange until it succeeds, or the MATSim is done 
 		while(matSimThread.isAlive()) {
 			try {
-				Map<Id, MATSimInput> out = provider.getMATSimData();
 				Object in = exchanger.exchange(out, EXCHANGE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
 				receiver.setMATSimData((Map<Id, MATSimOutput>) in);
 				break;
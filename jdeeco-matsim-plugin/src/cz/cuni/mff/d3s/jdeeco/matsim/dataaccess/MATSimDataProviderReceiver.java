@@ -1,9 +1,11 @@
 package cz.cuni.mff.d3s.jdeeco.matsim.dataaccess;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 import org.matsim.api.core.v01.Id;
 import org.matsim.core.basic.v01.IdImpl;
@@ -16,20 +18,26 @@ import cz.cuni.mff.d3s.jdeeco.matsim.simulation.MATSimOutput;
 /**
  * Input, output handling for MATSim simulation
  * 
+ * The data of each agent are kept in its {@link AgentData}, which the sensors and actuators of the
+ * agent hold directly. Only the data that changed are exchanged with MATSim: the actuator values of
+ * an agent are passed to MATSim only when they differ from the ones passed last time, and the
+ * MATSim output updates only the agents it contains.
+ * 
  * TODO: Handle parked cars in some more systematic way
  */
 public class MATSimDataProviderReceiver implements MATSimDataReceiver, MATSimDataProvider {
-	// This is coming from MATSim (i.e. its output) = sensors
-	protected final Map<Id, MATSimOutput> outputs;
+	// The data of the agents, both coming from MATSim (i.e. its output) = sensors
+	// and going to MATSim (i.e. its input) = actuators
+	protected final Map<Id, AgentData> agents;
 
-	// This is going to MATSim (i.e. its input) = actuators
-	protected final Map<Id, MATSimInput> inputs;
+	// The agents whose actuators were set since the last call of getMATSimData
+	protected final List<AgentData> actuated;
 
 	protected final Map<Id, List<Id>> parked;
 
 	public MATSimDataProviderReceiver(List<String> linksToDisable) {
-		this.outputs = new HashMap<Id, MATSimOutput>();
-		this.inputs = new HashMap<Id, MATSimInput>();
+		this.agents = new HashMap<Id, AgentData>();
+		this.actuated = new ArrayList<AgentData>();
 		this.parked = new HashMap<Id, List<Id>>();
 
 		List<Id> parkedVehicles;
@@ -41,21 +49,36 @@ public class MATSimDataProviderReceiver implements MATSimDataReceiver, MATSimDat
 		}
 	}
 
-	// Here we return next links ids for MATSim agents
+	// Here we return next links ids for MATSim agents, only for those whose route or speed changed
 	@Override
 	public Map<Id, MATSimInput> getMATSimData() {
 		Map<Id, MATSimInput> result = new HashMap<Id, MATSimInput>();
-		for (Map.Entry<Id, MATSimInput> entry : inputs.entrySet()) {
-			result.put(entry.getKey(), entry.getValue().clone());
+		for (AgentData agent : actuated) {
+			agent.pending = false;
+			if (agent.isInputChanged()) {
+				result.put(agent.id, agent.input.clone());
+				agent.inputSent();
+			}
 		}
+		actuated.clear();
 		return result;
 	}
 
-	// Here we update sensors
+	// Here we update sensors, the agents missing in the map keep their last output
 	@Override
 	public void setMATSimData(Map<Id, MATSimOutput> map) {
-		outputs.clear();
-		outputs.putAll(map);
+		for (Map.Entry<Id, MATSimOutput> entry : map.entrySet()) {
+			getAgentData(entry.getKey()).output = entry.getValue();
+		}
+	}
+
+	private AgentData getAgentData(Id agentId) {
+		AgentData agent = agents.get(agentId);
+		if (agent == null) {
+			agent = new AgentData(agentId);
+			agents.put(agentId, agent);
+		}
+		return agent;
 	}
 
 	public ActuatorProvider getActuatorProvider(final Id ownerId) {
@@ -95,6 +118,7 @@ public class MATSimDataProviderReceiver implements MATSimDataReceiver, MATSimDat
 	}
 
 	private Sensor<?> getSensorInternal(final Id requesterId, SensorType sensorType) {
+		final AgentData agent = getAgentData(requesterId);
 		if (sensorType == SensorType.CURRENT_LINK) {
 			return new Sensor<Id>() {
 
@@ -103,7 +127,7 @@ public class MATSimDataProviderReceiver implements MATSimDataReceiver, MATSimDat
 				}
 
 				public Id read() {
-					MATSimOutput out = outputs.get(requesterId);
+					MATSimOutput out = agent.output;
 					return out != null ? out.currentLinkId : null;
 				}
 			};
@@ -115,7 +139,7 @@ public class MATSimDataProviderReceiver implements MATSimDataReceiver, MATSimDat
 				}
 
 				public Boolean read() {
-					MATSimOutput mo = outputs.get(requesterId);
+					MATSimOutput mo = agent.output;
 					List<Id> parkedVehicles = parked.get(mo.currentLinkId);
 					if (parkedVehicles == null) {
 						return false;
@@ -132,7 +156,7 @@ public class MATSimDataProviderReceiver implements MATSimDataReceiver, MATSimDat
 				}
 
 				public Integer read() {
-					MATSimOutput mo = outputs.get(requesterId);
+					MATSimOutput mo = agent.output;
 					List<Id> parkedVehicles = parked.get(mo.currentLinkId);
 					if (parkedVehicles == null || parkedVehicles.size() == 0) {
 						return 1;
@@ -147,19 +171,20 @@ public class MATSimDataProviderReceiver implements MATSimDataReceiver, MATSimDat
 
 	private Actuator<?> getActuatorInternal(final Id requesterId, ActuatorType actuatorType,
 			final ActuatorProvider provider) {
-		final MATSimInput mData;
-		if (inputs.containsKey(requesterId)) {
-			mData = inputs.get(requesterId);
-		} else {
-			mData = new MATSimInput();
-			inputs.put(requesterId, mData);
+		final AgentData agent = getAgentData(requesterId);
+		if (agent.input == null) {
+			// the initial values are passed to MATSim as well
+			agent.input = new MATSimInput();
+			agent.setActuated();
 		}
+		final MATSimInput mData = agent.input;
 		if (actuatorType == ActuatorType.ROUTE) {
 			return new Actuator<List<Id>>() {
 				public void set(List<Id> value) {
 					mData.route = value;
+					agent.setActuated();
 					if (value == null || value.isEmpty()) {
-						MATSimOutput mo = outputs.get(requesterId);
+						MATSimOutput mo = agent.output;
 						List<Id> parkedVehicles;
 						if (parked.containsKey(mo.currentLinkId)) {
 							parkedVehicles = parked.get(mo.currentLinkId);
@@ -183,6 +208,7 @@ public class MATSimDataProviderReceiver implements MATSimDataReceiver, MATSimDat
 				@Override
 				public void set(Double meterPerSecond) {
 					mData.speed = meterPerSecond;
+					agent.setActuated();
 				}
 
 				@Override
@@ -193,4 +219,45 @@ public class MATSimDataProviderReceiver implements MATSimDataReceiver, MATSimDat
 		}
 		return null;
 	}
+
+	/**
+	 * The data of an agent exchanged with MATSim.
+	 */
+	protected class AgentData {
+		public final Id id;
+		// The last output of MATSim for the agent
+		public MATSimOutput output;
+		// The values of the actuators, null if the agent has no actuators
+		public MATSimInput input;
+
+		private boolean pending;
+		private boolean sent;
+		private List<Id> sentRoute;
+		private Double sentSpeed;
+
+		protected AgentData(Id id) {
+			this.id = id;
+		}
+
+		/**
+		 * Remembers the agent to be checked for changes on the next call of {@link #getMATSimData()}.
+		 */
+		protected void setActuated() {
+			if (!pending) {
+				pending = true;
+				actuated.add(this);
+			}
+		}
+
+		protected boolean isInputChanged() {
+			return !sent || !Objects.equals(input.route, sentRoute) || !Objects.equals(input.speed, sentSpeed);
+		}
+
+		protected void inputSent() {
+			// the route is copied, as the components may modify the list they set
+			sentRoute = input.route == null ? null : new ArrayList<Id>(input.route);
+			sentSpeed = input.speed;
+			sent = true;
+		}
+	}
 }
@@ -0,0 +1,167 @@
+package cz.cuni.mff.d3s.jdeeco.matsim.plugin;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Timeline of the host callbacks of the MATSim simulation, indexed by the MATSim simulation step
+ * the callbacks fall into.
+ *
+ * Each host has at most one callback scheduled. Scheduling a callback replaces the previous one
+ * of the host and cancelling removes it. Neither of them takes a lock, so the hosts may schedule
+ * their callbacks from any thread; a replaced callback stays in its step and is skipped when the
+ * step is drained. The callbacks of a step are drained in one batch by the simulation thread and
+ * run in the order of their time and, at the same time, of their host ID, so the order of the
+ * simulation does not depend on the order in which the callbacks were scheduled.
+ */
+class CallbackTimeline {
+
+	private static final Comparator<Callback> ORDER = Comparator.comparingLong(Callback::getAbsoluteTime)
+			.thenComparingInt(Callback::getHostId);
+
+	private final long stepSize;
+	private final ConcurrentSkipListMap<Long, Step> steps = new ConcurrentSkipListMap<>();
+	private final Map<Integer, AtomicReference<Callback>> scheduled = new ConcurrentHashMap<>();
+	// accessed by the simulation thread only: the drained batch sorted in the order the callbacks run,
+	// the index of the next one and the callbacks drained while the batch was being run
+	private final List<Callback> due = new ArrayList<>();
+	private int next;
+	private final PriorityQueue<Callback> late = new PriorityQueue<>(ORDER);
+
+	/**
+	 * @param stepSize The length of the MATSim simulation step in milliseconds.
+	 */
+	CallbackTimeline(long stepSize) {
+		this.stepSize = stepSize;
+	}
+
+	/**
+	 * Schedules the callback of the host at the given time, replacing the previously scheduled one.
+	 */
+	void schedule(int hostId, long absoluteTime) {
+		AtomicReference<Callback> slot = scheduled.computeIfAbsent(hostId, id -> new AtomicReference<>());
+		Callback callback = new Callback(hostId, absoluteTime, slot);
+		slot.set(callback);
+
+		Long stepIndex = Math.floorDiv(absoluteTime, stepSize);
+		Step step;
+		do {
+			step = steps.computeIfAbsent(stepIndex, index -> new Step());
+			step.callbacks.add(callback);
+			// a step closed meanwhile might have been drained already, the callback goes to a new one then;
+			// if it gets drained twice, only the first one runs
+		} while (step.closed);
+	}
+
+	/**
+	 * Cancels the callback scheduled for the host, if any.
+	 */
+	void cancel(int hostId) {
+		AtomicReference<Callback> callback = scheduled.get(hostId);
+		if (callback != null) {
+			callback.set(null);
+		}
+	}
+
+	/**
+	 * Takes the next callback scheduled before the given time. Meant to be called by the simulation
+	 * thread only, which then runs the callback; callbacks scheduled meanwhile are taken in turn.
+	 *
+	 * @param endTime The end of the current simulation step in milliseconds (exclusive).
+	 * @return The callback, or null if there are no more callbacks before the given time.
+	 */
+	Callback pollBefore(long endTime) {
+		drainSteps(Math.floorDiv(endTime - 1, stepSize));
+
+		while (true) {
+			Callback callback = next < due.size() ? due.get(next) : null;
+			boolean isLate = callback == null || !late.isEmpty() && ORDER.compare(late.peek(), callback) < 0;
+			if (isLate) {
+				callback = late.peek();
+			}
+			if (callback == null || callback.getAbsoluteTime() >= endTime) {
+				return null;
+			}
+
+			if (isLate) {
+				late.poll();
+			} else {
+				next++;
+			}
+			// the callbacks that were replaced or cancelled are no longer scheduled
+			if (callback.slot.compareAndSet(callback, null)) {
+				return callback;
+			}
+		}
+	}
+
+	private void drainSteps(long lastStepIndex) {
+		if (steps.isEmpty() || steps.firstKey() > lastStepIndex) {
+			return;
+		}
+
+		// a new batch is started once the previous one has been run, so that it is sorted only once
+		boolean newBatch = next == due.size();
+		if (newBatch) {
+			due.clear();
+			next = 0;
+		}
+
+		ConcurrentNavigableMap<Long, Step> drained = steps.headMap(lastStepIndex, true);
+		for (Map.Entry<Long, Step> entry : drained.entrySet()) {
+			Step step = entry.getValue();
+			steps.remove(entry.getKey(), step);
+			step.closed = true;
+			Callback callback;
+			while ((callback = step.callbacks.poll()) != null) {
+				if (newBatch) {
+					due.add(callback);
+				} else {
+					late.add(callback);
+				}
+			}
+		}
+
+		if (newBatch) {
+			due.sort(ORDER);
+		}
+	}
+
+	private static class Step {
+		final Queue<Callback> callbacks = new ConcurrentLinkedQueue<>();
+		volatile boolean closed;
+	}
+
+	static class Callback {
+		private final int hostId;
+		private final long milliseconds;
+		private final AtomicReference<Callback> slot;
+
+		Callback(int hostId, long milliseconds, AtomicReference<Callback> slot) {
+			this.hostId = hostId;
+			this.milliseconds = milliseconds;
+			this.slot = slot;
+		}
+
+		public long getAbsoluteTime() {
+			return milliseconds;
+		}
+
+		public int getHostId() {
+			return hostId;
+		}
+
+		public String toString() {
+			return hostId + " " + milliseconds;
+		}
+	}
+}
@@ -8,7 +8,6 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeSet;
 import java.util.concurrent.Exchanger;
 
 import org.matsim.api.core.v01.Id;
@@ -60,6 +59,7 @@ public class MATSimSimulation implements IMATSimSimulaton {
 			new LinkedList<String>());	
 	private long currentMilliseconds;
 	private final long simulationStep; // in milliseconds
+	private final CallbackTimeline timeline;
 	private final TravelTime travelTime;
 	protected final Controler controler;
 	private final JDEECoWithinDayMobsimListener listener;
@@ -107,6 +107,7 @@ public class MATSimSimulation implements IMATSimSimulaton {
 			public void notifyStartup(StartupEvent event) {
 				controler.getEvents().addHandler((TravelTimeCollector) travelTime);
 				controler.getMobsimListeners().add((TravelTimeCollector) travelTime);
+				controler.getMobsimListeners().add(router);
 				controler.setMobsimFactory(new JDEECoMobsimFactory(listener, agentSources));
 			}
 		});
@@ -122,6 +123,7 @@ public class MATSimSimulation implements IMATSimSimulaton {
 		}
 
 		simulationStep = SimulationUtils.secondsToMilliseconds(step);
+		timeline = new CallbackTimeline(simulationStep);
 		currentMilliseconds = SimulationUtils.secondsToMilliseconds(controler.getConfig().getQSimConfigGroup().getStartTime());
 
 		router = new MATSimRouter(controler, travelTime, 10 /* TODO: FAKE VALUE */);
@@ -181,8 +183,6 @@ public class MATSimSimulation implements IMATSimSimulaton {
 	 *
 	 */
 	public class Timer extends BaseTimer implements SimulationUtils, SimulationTimer, MATSimSimulationStepListener {
-		private final TreeSet<Callback> callbacks = new TreeSet<>();
-		private final Map<Integer, Callback> hostIdToCallback = new HashMap<>();
 		
 		@Override
 		public void notifyAt(long time, TimerEventListener listener, String eventName, DEECoContainer node) {
@@ -197,14 +197,15 @@ public class MATSimSimulation implements IMATSimSimulaton {
 		}
 
 		@Override
-		public synchronized void callAt(long absoluteTime, int hostId) {
-			Callback callback = hostIdToCallback.remove(hostId);
-			if (callback != null) {
-				callbacks.remove(callback);
-			}
-			callback = new Callback(hostId, absoluteTime);
-			hostIdToCallback.put(hostId, callback);
-			callbacks.add(callback);
+		public void callAt(long absoluteTime, int hostId) {
+			timeline.schedule(hostId, absoluteTime);
+		}
+		
+		/**
+		 * Cancels the callback of the host scheduled by {@link #callAt(long, int)}, if any.
+		 */
+		public void cancel(int hostId) {
+			timeline.cancel(hostId);
 		}
 
 		@Override
@@ -225,94 +226,14 @@ public class MATSimSimulation implements IMATSimSimulaton {
 			long milliseconds = SimulationUtils.secondsToMilliseconds(seconds);
 			matSimReceiver.setMATSimData(extractor.extractFromMATSim(listener.getAllJDEECoAgents(), mobsim));
 			listener.updateJDEECoAgents(matSimProvider.getMATSimData());
-			// Add callback for the MATSim step
-			callAt(milliseconds + simulationStep, Callback.SIMULATION_CALLBACK_HOSTID);
 			MATSimHost host;
-			Callback callback;
-			// Iterate through all the call-backs until the MATSim callback.
-			while (!callbacks.isEmpty()) {
-				callback = callbacks.pollFirst();
-				if (callback.isSimulationCallaback()) {
-					break;
-				}
+			CallbackTimeline.Callback callback;
+			// Iterate through all the call-backs until the next MATSim step.
+			while ((callback = timeline.pollBefore(milliseconds + simulationStep)) != null) {
 				currentMilliseconds = callback.getAbsoluteTime();
-				// System.out.println("At: " + currentMilliseconds);
-				host = hosts.get(callback.hostId);
+				host = hosts.get(callback.getHostId());
 				host.at(SimulationUtils.millisecondsToSeconds(currentMilliseconds));
 			}
 		}
 	}
-
-	private class Callback implements Comparable<Callback> {
-		static final int SIMULATION_CALLBACK_HOSTID = -1;
-		
-		private final long milliseconds;
-		private final int hostId;
-
-		public Callback(int hostId, long milliseconds) {
-			this.hostId = hostId;
-			this.milliseconds = milliseconds;
-		}
-
-		public long getAbsoluteTime() {
-			return milliseconds;
-		}
-
-		public int getHostId() {
-			return hostId;
-		}
-		
-		public boolean isSimulationCallaback() {
-			return getHostId() == SIMULATION_CALLBACK_HOSTID;
-		}
-
-		@Override
-		public int compareTo(Callback c) {
-			if (c.getAbsoluteTime() < milliseconds) {
-				return 1;
-			} else if (c.getAbsoluteTime() > milliseconds) {
-				return -1;
-			} else if (this == c) {
-				return 0;
-			} else {
-				return this.hashCode() < c.hashCode() ? 1 : -1;
-			}
-		}
-
-		public String toString() {
-			return hostId + " " + milliseconds;
-		}
-
-		@Override
-		public int hashCode() {
-			final int prime = 31;
-			int result = 1;
-			result = prime * result + getOuterType().hashCode();
-			result = prime * result + hostId;
-			result = prime * result + (int) (milliseconds ^ (milliseconds >>> 32));
-			return result;
-		}
-
-		@Override
-		public boolean equals(Object obj) {
-			if (this == obj)
-				return true;
-			if (obj == null)
-				return false;
-			if (getClass() != obj.getClass())
-				return false;
-			Callback other = (Callback) obj;
-			if (!getOuterType().equals(other.getOuterType()))
-				return false;
-			if (hostId != other.hostId)
-				return false;
-			if (milliseconds != other.milliseconds)
-				return false;
-			return true;
-		}
-
-		private MATSimSimulation getOuterType() {
-			return MATSimSimulation.this;
-		}
-	}
 }
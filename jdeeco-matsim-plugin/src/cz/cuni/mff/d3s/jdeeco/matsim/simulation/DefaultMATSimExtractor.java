@@ -3,21 +3,34 @@ package cz.cuni.mff.d3s.jdeeco.matsim.simulation;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
 
 import org.matsim.api.core.v01.Id;
 import org.matsim.core.mobsim.framework.Mobsim;
 
+/**
+ * Extracts the current link and state of the agents. Only the agents whose link or state changed
+ * since the previous extraction are included, as the receivers keep the last output of the others.
+ */
 public class DefaultMATSimExtractor implements MATSimExtractor {
 
+	private final Map<Id, MATSimOutput> extracted = new HashMap<Id, MATSimOutput>();
+
 	@Override
 	public Map<Id, MATSimOutput> extractFromMATSim(Collection<JDEECoAgent> agents,
 			Mobsim mobsim) {
 		Map<Id, MATSimOutput> map = new HashMap<Id, MATSimOutput>();
 		MATSimOutput matSimOutput;
 		for (JDEECoAgent agent : agents) {
-			matSimOutput = new MATSimOutput(agent.getCurrentLinkId(),
-					agent.getState());
-			map.put(agent.getId(), matSimOutput);
+			matSimOutput = extracted.get(agent.getId());
+			if (matSimOutput == null || matSimOutput.state != agent.getState()
+					|| !Objects.equals(matSimOutput.currentLinkId, agent.getCurrentLinkId())) {
+				// the output is passed to the receiver, so a new one is created rather than updating the old one
+				matSimOutput = new MATSimOutput(agent.getCurrentLinkId(),
+						agent.getState());
+				extracted.put(agent.getId(), matSimOutput);
+				map.put(agent.getId(), matSimOutput);
+			}
 		}
 		return map;
 	}
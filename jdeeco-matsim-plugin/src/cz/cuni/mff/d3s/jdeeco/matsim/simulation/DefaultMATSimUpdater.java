@@ -1,19 +1,33 @@
 package cz.cuni.mff.d3s.jdeeco.matsim.simulation;
 
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Map;
 
+import org.matsim.api.core.v01.Id;
+
+/**
+ * Sets the routes and speeds to the agents. The input holds only the agents whose route or speed
+ * changed, so the last input of each agent is kept and set to the agent on every update, as the
+ * agent trims its route by its current link whenever the route is set.
+ */
 public class DefaultMATSimUpdater implements MATSimUpdater {
 
+	private final Map<Id, MATSimInput> inputs = new HashMap<Id, MATSimInput>();
+
 	@SuppressWarnings("unchecked")
 	@Override
 	public void updateJDEECoAgents(Object input, Collection<JDEECoAgent> agents) {
 		if (input != null && input instanceof Map<?, ?>) {
-			Map<String, MATSimInput> map = (Map<String, MATSimInput>) input;
+			Map<Id, MATSimInput> map = (Map<Id, MATSimInput>) input;
+			inputs.putAll(map);
+			MATSimInput matSimInput;
 			for (JDEECoAgent agent: agents) {
-					if (map.containsKey(agent.getId())) {
-						agent.setRoute(map.get(agent.getId()).route);
-						agent.setSpeed(map.get(agent.getId()).speed);
+					matSimInput = inputs.get(agent.getId());
+					if (matSimInput != null) {
+						// the agent modifies the route it is given, so it gets a copy
+						agent.setRoute(matSimInput.clone().route);
+						agent.setSpeed(matSimInput.speed);
 					}
 			}
 		}
@@ -1,10 +1,17 @@
 package cz.cuni.mff.d3s.jdeeco.matsim.simulation;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.matsim.api.core.v01.Coord;
 import org.matsim.api.core.v01.Id;
@@ -14,6 +21,8 @@ import org.matsim.api.core.v01.population.Leg;
 import org.matsim.api.core.v01.population.PlanElement;
 import org.matsim.core.api.experimental.facilities.Facility;
 import org.matsim.core.controler.Controler;
+import org.matsim.core.mobsim.framework.events.MobsimBeforeSimStepEvent;
+import org.matsim.core.mobsim.framework.listeners.MobsimBeforeSimStepListener;
 import org.matsim.core.network.NetworkImpl;
 import org.matsim.core.population.routes.NetworkRoute;
 import org.matsim.core.router.TripRouter;
@@ -26,18 +35,40 @@ import org.matsim.core.router.util.TravelTime;
  * MATSim router. The class reuses the functionality available already in
  * MATSim.
  * 
+ * The router may be used by many components in the same simulation step.
+ * The MATSim trip routers are reused, each by one route calculation at a
+ * time, and the calculated routes are cached by their first and last link.
+ * The routes depend only on the links of the network and their travel times,
+ * which change as the simulation goes on. The router is notified of the
+ * simulation steps as a mobsim listener and, at the first route calculation
+ * in a step, compares the travel times with those the cached routes were
+ * calculated with. The cached routes are dropped only if they differ.
+ * 
  * @author Michal Kit <kit@d3s.mff.cuni.cz>
  * 
  */
-public class MATSimRouter {
+public class MATSimRouter implements MobsimBeforeSimStepListener {
+	
+	// the cache is dropped as a whole when it grows above this size
+	private static final int MAX_CACHED_ROUTES = 100000;
 	
 	private final Controler controler;
 	private final TripRouterFactory tripRouterFactory;
+	private final TravelTime travelTime;
 	private final int routeCalculationOffset;
+	private final Queue<TripRouter> idleTripRouters = new ConcurrentLinkedQueue<>();
+	private final Map<RouteKey, CachedRoute> cachedRoutes = new ConcurrentHashMap<>();
+	// incremented whenever the travel times have changed
+	private final AtomicLong travelTimeEpoch = new AtomicLong();
+	// travel times of the links the cached routes were calculated with
+	private final Map<Id, Double> linkTravelTimes = new HashMap<>();
+	// whether the travel times were compared in the current simulation step
+	private volatile boolean travelTimesChecked;
 
 	public MATSimRouter(Controler controler, TravelTime travelTime, int routeCalculationOffset) {
 		this.tripRouterFactory = new WithinDayTripRouterFactory(controler,
 				travelTime);
+		this.travelTime = travelTime;
 		this.controler = controler;
 		this.routeCalculationOffset = routeCalculationOffset;
 	}
@@ -71,46 +102,126 @@ public class MATSimRouter {
 	}
 
 	public List<Id> route(Id from, Id to, List<Id> currentRoute) {
-		List<Id> routePrefix = null;
-		Id newFrom;
 		if (currentRoute == null || currentRoute.isEmpty()) {
-			newFrom = from;
+			return new LinkedList<>(getCachedRoute(from, to));
+		}
+		
+		return route(currentRoute, Math.max(0, currentRoute.indexOf(from)), to);
+	}
+	
+	/**
+	 * Re-plans the current route from the given position in it. The route is kept up to the
+	 * route calculation offset from the position and the rest is calculated again. Unlike
+	 * {@link #route(Id, Id, List)}, the current link is not looked up in the route, so
+	 * the calculation does not scan the route if it supports random access.
+	 * 
+	 * @param currentRoute The current route, which must not be empty.
+	 * @param currentIndex The index of the current link in the route.
+	 * @param to The destination link.
+	 * @return The new route starting at the current link.
+	 */
+	public List<Id> route(List<Id> currentRoute, int currentIndex, Id to) {
+		int remaining = currentRoute.size() - currentIndex;
+		int fromIndex;
+		if (routeCalculationOffset < remaining) {
+			fromIndex = currentIndex + Math.max(0, routeCalculationOffset-1);
 		} else {
-			List<Id> truncatedCurrentRoute = new LinkedList<>(currentRoute);
-			int fromIndex = truncatedCurrentRoute.indexOf(from);
-			if (fromIndex > -1) {
-				truncatedCurrentRoute = truncatedCurrentRoute.subList(fromIndex, truncatedCurrentRoute.size());
+			fromIndex = currentIndex + remaining - 1;
+		}
+		
+		List<Id> calculatedRoute = new LinkedList<>(currentRoute.subList(currentIndex, fromIndex + 1));
+		calculatedRoute.addAll(getCachedRoute(currentRoute.get(fromIndex), to));
+		return calculatedRoute;
+	}
+	
+	/**
+	 * Notifies the router that the simulation proceeds to the next step, in which the travel times
+	 * may differ, so that they are compared before the routes calculated so far are reused.
+	 */
+	@Override
+	public void notifyMobsimBeforeSimStep(@SuppressWarnings("rawtypes") MobsimBeforeSimStepEvent event) {
+		travelTimesChecked = false;
+	}
+	
+	/**
+	 * Invalidates the cached routes, e.g. when the travel times of the links have changed.
+	 */
+	public void travelTimesChanged() {
+		travelTimeEpoch.incrementAndGet();
+		cachedRoutes.clear();
+	}
+	
+	/**
+	 * Invalidates the cached routes if a link was added to or removed from the network or its travel
+	 * time differs from the one the routes were calculated with. The comparison takes a pass over the
+	 * links, which is done at most once per simulation step and only if a route is requested.
+	 */
+	private void checkTravelTimes() {
+		if (travelTimesChecked) {
+			return;
+		}
+		synchronized (linkTravelTimes) {
+			if (travelTimesChecked) {
+				return;
 			}
-			if (routeCalculationOffset < truncatedCurrentRoute.size()) {
-				fromIndex = Math.max(0, routeCalculationOffset-1);
-			} else {
-				fromIndex = truncatedCurrentRoute.size()-1;
+			Map<Id, ? extends Link> links = controler.getNetwork().getLinks();
+			boolean changed = links.size() != linkTravelTimes.size();
+			for (Link link : links.values()) {
+				// the routes are calculated for the departure at 0.0
+				Double linkTravelTime = travelTime.getLinkTravelTime(link, 0.0, null, null);
+				if (!linkTravelTime.equals(linkTravelTimes.put(link.getId(), linkTravelTime))) {
+					changed = true;
+				}
 			}
-			routePrefix = truncatedCurrentRoute.subList(0, fromIndex + 1);
-			newFrom = truncatedCurrentRoute.get(fromIndex);
-			//System.out.println("from: "+from.toString()+" newFrom: " + newFrom.toString() + " to: " + to.toString());
+			if (changed) {
+				if (linkTravelTimes.size() != links.size()) {
+					linkTravelTimes.keySet().retainAll(links.keySet());
+				}
+				travelTimesChanged();
+			}
+			travelTimesChecked = true;
 		}
-		Link fromLink = controler.getNetwork().getLinks().get(newFrom);
-		Link toLink = controler.getNetwork().getLinks().get(to);
-		List<Id> calculatedRoute = route(fromLink, toLink);
-		//System.out.println("calculatedRoute: " + calculatedRoute.toString() + " prefix: " + ((routePrefix == null) ? "null" : routePrefix.toString()));
-		if (routePrefix != null && !routePrefix.isEmpty()) {
-			calculatedRoute.addAll(0, routePrefix);
+	}
+	
+	// the returned route is shared by the cache and must not be modified
+	private List<Id> getCachedRoute(Id from, Id to) {
+		checkTravelTimes();
+		RouteKey key = new RouteKey(from, to);
+		long epoch = travelTimeEpoch.get();
+		CachedRoute cachedRoute = cachedRoutes.get(key);
+		if (cachedRoute != null && cachedRoute.epoch == epoch) {
+			return cachedRoute.linkIds;
 		}
-		return calculatedRoute;
+		
+		// concurrent calculations of the same route are rare enough not to wait for each other
+		List<Id> route = Collections.unmodifiableList(route(getLink(from), getLink(to)));
+		if (cachedRoutes.size() >= MAX_CACHED_ROUTES) {
+			cachedRoutes.clear();
+		}
+		// a route calculated while the travel times changed is stored with the previous epoch and not reused
+		cachedRoutes.put(key, new CachedRoute(epoch, route));
+		return route;
 	}
 	
 	private List<Id> route(Link linkFrom, Link linkTo) {
-		TripRouter tr = tripRouterFactory.createTripRouter();
-		List<? extends PlanElement> legs = tr.calcRoute("car", new LinkWrapper(
-				linkFrom), new LinkWrapper(linkTo), 0.0, null);
+		TripRouter tr = idleTripRouters.poll();
+		if (tr == null) {
+			tr = tripRouterFactory.createTripRouter();
+		}
+		List<? extends PlanElement> legs;
+		try {
+			legs = tr.calcRoute("car", new LinkWrapper(
+					linkFrom), new LinkWrapper(linkTo), 0.0, null);
+		} finally {
+			idleTripRouters.offer(tr);
+		}
 		if (legs.size() == 0) {
 			throw new RuntimeException("Route calculation failed: "
 					+ linkFrom.getId().toString() + " - "
 					+ linkTo.getId().toString());
 		}
 		Leg leg = (Leg) legs.get(0);
-		List<Id> route = new LinkedList<>(((NetworkRoute) leg.getRoute()).getLinkIds());
+		List<Id> route = new ArrayList<>(((NetworkRoute) leg.getRoute()).getLinkIds());
 		if (!route.contains(linkTo.getId()) && !linkTo.equals(linkFrom))
 			route.add(linkTo.getId());
 		return route;
@@ -136,6 +247,44 @@ public class MATSimRouter {
 		return links;
 	}
 
+	private static class RouteKey {
+		
+		private final Id from;
+		private final Id to;
+		
+		public RouteKey(Id from, Id to) {
+			this.from = from;
+			this.to = to;
+		}
+		
+		@Override
+		public int hashCode() {
+			return 31 * from.hashCode() + to.hashCode();
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof RouteKey)) {
+				return false;
+			}
+			RouteKey other = (RouteKey) obj;
+			return from.equals(other.from) && to.equals(other.to);
+		}
+		
+	}
+	
+	private static class CachedRoute {
+		
+		private final long epoch;
+		private final List<Id> linkIds;
+		
+		public CachedRoute(long epoch, List<Id> linkIds) {
+			this.epoch = epoch;
+			this.linkIds = linkIds;
+		}
+		
+	}
+
 	private static class LinkWrapper implements Facility {
 
 		private final Link link;
@@ -0,0 +1,92 @@
+package cz.cuni.mff.d3s.jdeeco.matsim.dataaccess;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.core.basic.v01.IdImpl;
+import org.matsim.core.mobsim.framework.MobsimAgent.State;
+
+import cz.cuni.mff.d3s.jdeeco.matsim.simulation.MATSimInput;
+import cz.cuni.mff.d3s.jdeeco.matsim.simulation.MATSimOutput;
+
+public class MATSimDataProviderReceiverTest {
+
+	private final Id agent = new IdImpl("agent");
+	private final Id link1 = new IdImpl("1");
+	private final Id link2 = new IdImpl("2");
+
+	private MATSimDataProviderReceiver tested;
+
+	@Before
+	public void setUp() {
+		tested = new MATSimDataProviderReceiver(Collections.<String> emptyList());
+	}
+
+	private void setOutput(Id agentId, Id linkId) {
+		Map<Id, MATSimOutput> data = new HashMap<>();
+		data.put(agentId, new MATSimOutput(linkId, State.LEG));
+		tested.setMATSimData(data);
+	}
+
+	@Test
+	public void testOnlyChangedInputsAreProvided() {
+		// GIVEN an agent with a route actuator whose initial values were provided
+		Actuator<List<Id>> route = tested.getActuatorProvider(agent).createActuator(ActuatorType.ROUTE);
+		assertEquals(Collections.singleton(agent), tested.getMATSimData().keySet());
+
+		// WHEN the same route is set again
+		route.set(new ArrayList<>(Arrays.asList(link1, link2)));
+		Map<Id, MATSimInput> changed = tested.getMATSimData();
+		route.set(new ArrayList<>(Arrays.asList(link1, link2)));
+		Map<Id, MATSimInput> unchanged = tested.getMATSimData();
+
+		// THEN it is provided only the first time
+		assertEquals(Arrays.asList(link1, link2), changed.get(agent).route);
+		assertTrue(unchanged.isEmpty());
+	}
+
+	@Test
+	public void testRouteModifiedInPlaceIsProvided() {
+		// GIVEN a route that was provided
+		Actuator<List<Id>> route = tested.getActuatorProvider(agent).createActuator(ActuatorType.ROUTE);
+		List<Id> links = new ArrayList<>(Arrays.asList(link1, link2));
+		route.set(links);
+		tested.getMATSimData();
+
+		// WHEN the same list is modified and set again
+		links.remove(0);
+		route.set(links);
+
+		// THEN the modified route is provided
+		assertEquals(Arrays.asList(link2), tested.getMATSimData().get(agent).route);
+	}
+
+	@Test
+	public void testSensorsKeepLastOutput() {
+		// GIVEN a current link sensor of an agent
+		Sensor<Id> currentLink = tested.getSensorProvider(agent).createSensor(SensorType.CURRENT_LINK);
+		setOutput(agent, link1);
+
+		// WHEN MATSim provides output of other agents only
+		setOutput(new IdImpl("other"), link2);
+
+		// THEN the sensor reads the last output of the agent
+		assertEquals(link1, currentLink.read());
+
+		// WHEN the agent moves
+		setOutput(agent, link2);
+
+		// THEN the sensor reads the new link
+		assertEquals(link2, currentLink.read());
+	}
+}
@@ -0,0 +1,60 @@
+package cz.cuni.mff.d3s.jdeeco.matsim.plugin;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures one MATSim simulation step of the callback timeline, in which every vehicle host is called
+ * back once and schedules its callback in the next step. The time per step divided by the number
+ * of vehicles is the overhead per callback, which is expected to stay flat with the number of vehicles.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CallbackTimelineBenchmark {
+
+	private static final long STEP = 1000;
+
+	@Param({ "100", "1000", "10000", "50000" })
+	public int vehicles;
+
+	private CallbackTimeline timeline;
+	private long stepStart;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		timeline = new CallbackTimeline(STEP);
+		for (int i = 0; i < vehicles; i++) {
+			timeline.schedule(i, getOffset(i));
+		}
+	}
+
+	private static long getOffset(int hostId) {
+		return hostId * 7 % STEP;
+	}
+
+	/**
+	 * Runs the callbacks of one step, each of them rescheduling the host for the next step.
+	 */
+	@Benchmark
+	public int step() {
+		int called = 0;
+		long stepEnd = stepStart + STEP;
+		CallbackTimeline.Callback callback;
+		while ((callback = timeline.pollBefore(stepEnd)) != null) {
+			timeline.schedule(callback.getHostId(), stepEnd + getOffset(callback.getHostId()));
+			called++;
+		}
+		stepStart = stepEnd;
+		return called;
+	}
+}
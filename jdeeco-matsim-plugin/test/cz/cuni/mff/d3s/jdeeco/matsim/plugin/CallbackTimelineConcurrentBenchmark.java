@@ -0,0 +1,104 @@
+package cz.cuni.mff.d3s.jdeeco.matsim.plugin;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures one MATSim simulation step of the callback timeline, as {@link CallbackTimelineBenchmark} does,
+ * while other threads reschedule the callbacks of the hosts, as the hosts whose tasks run in the threads
+ * of a multi-threaded executor do. In every step, each of the other threads reschedules a third of the
+ * hosts within the next step and cancels and schedules again every tenth of them; it waits for the next
+ * step then. The time of the step includes the contention on the steps and the slots of the hosts and
+ * the replaced callbacks drained and skipped; the time of the rescheduling is averaged over the waiting.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CallbackTimelineConcurrentBenchmark {
+
+	private static final long STEP = 1000;
+
+	@Param({ "1000", "10000" })
+	public int vehicles;
+
+	private CallbackTimeline timeline;
+	// written by the simulation thread only
+	private volatile long stepStart;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		timeline = new CallbackTimeline(STEP);
+		for (int i = 0; i < vehicles; i++) {
+			timeline.schedule(i, getOffset(i));
+		}
+	}
+
+	private static long getOffset(int hostId) {
+		return hostId * 7 % STEP;
+	}
+
+	/**
+	 * Progress of one of the rescheduling threads
+	 */
+	@State(Scope.Thread)
+	public static class Rescheduling {
+		private long stepStart = -1;
+	}
+
+	/**
+	 * Runs the callbacks of one step, each of them rescheduling the host for the next step.
+	 */
+	@Benchmark
+	@Group("timeline")
+	@GroupThreads(1)
+	public int step() {
+		int called = 0;
+		long stepEnd = stepStart + STEP;
+		CallbackTimeline.Callback callback;
+		while ((callback = timeline.pollBefore(stepEnd)) != null) {
+			timeline.schedule(callback.getHostId(), stepEnd + getOffset(callback.getHostId()));
+			called++;
+		}
+		stepStart = stepEnd;
+		return called;
+	}
+
+	/**
+	 * Reschedules a third of the hosts, starting at a random one, unless it has been done in this step.
+	 */
+	@Benchmark
+	@Group("timeline")
+	@GroupThreads(3)
+	public int reschedule(Rescheduling rescheduling) {
+		long currentStepStart = stepStart;
+		if (rescheduling.stepStart == currentStepStart) {
+			Thread.yield();
+			return 0;
+		}
+		rescheduling.stepStart = currentStepStart;
+
+		long nextStep = currentStepStart + STEP;
+		int first = ThreadLocalRandom.current().nextInt(vehicles);
+		int count = vehicles / 3;
+		for (int i = 0; i < count; i++) {
+			int hostId = (first + i) % vehicles;
+			if (hostId % 10 == 0) {
+				timeline.cancel(hostId);
+			}
+			timeline.schedule(hostId, nextStep + (getOffset(hostId) + i) % STEP);
+		}
+		return count;
+	}
+}
@@ -0,0 +1,84 @@
+package cz.cuni.mff.d3s.jdeeco.matsim.plugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class CallbackTimelineTest {
+
+	private CallbackTimeline tested;
+
+	@Before
+	public void setUp() {
+		tested = new CallbackTimeline(1000);
+	}
+
+	private List<String> pollAll(long endTime) {
+		List<String> result = new ArrayList<>();
+		CallbackTimeline.Callback callback;
+		while ((callback = tested.pollBefore(endTime)) != null) {
+			result.add(callback.toString());
+		}
+		return result;
+	}
+
+	@Test
+	public void testOrderWithinStep() {
+		// WHEN callbacks are scheduled within one step in an arbitrary order
+		tested.schedule(3, 500);
+		tested.schedule(1, 700);
+		tested.schedule(2, 500);
+		tested.schedule(4, 0);
+
+		// THEN they are polled by their time and host ID
+		assertEquals(Arrays.asList("4 0", "2 500", "3 500", "1 700"), pollAll(1000));
+	}
+
+	@Test
+	public void testStepBoundary() {
+		// WHEN callbacks are scheduled at the end of the step and in the following steps
+		tested.schedule(1, 1000);
+		tested.schedule(2, 999);
+		tested.schedule(3, 2500);
+
+		// THEN only those before the end of the step are polled
+		assertEquals(Arrays.asList("2 999"), pollAll(1000));
+		assertEquals(Arrays.asList("1 1000"), pollAll(2000));
+		assertEquals(Arrays.asList("3 2500"), pollAll(3000));
+	}
+
+	@Test
+	public void testRescheduleAndCancel() {
+		// WHEN callbacks are rescheduled and cancelled
+		tested.schedule(1, 100);
+		tested.schedule(2, 200);
+		tested.schedule(3, 300);
+		tested.schedule(1, 1500);
+		tested.schedule(2, 250);
+		tested.cancel(3);
+
+		// THEN only the last scheduled callbacks are polled
+		assertEquals(Arrays.asList("2 250"), pollAll(1000));
+		assertEquals(Arrays.asList("1 1500"), pollAll(2000));
+	}
+
+	@Test
+	public void testScheduleWhilePolling() {
+		// WHEN a polled host schedules its next callback within the same step
+		tested.schedule(1, 100);
+		tested.schedule(2, 600);
+
+		CallbackTimeline.Callback callback = tested.pollBefore(1000);
+		tested.schedule(callback.getHostId(), 300);
+
+		// THEN the callback is polled in order along with the remaining ones
+		assertEquals(Arrays.asList("1 300", "2 600"), pollAll(1000));
+		assertNull(tested.pollBefore(2000));
+	}
+}
@@ -0,0 +1,110 @@
+package cz.cuni.mff.d3s.jdeeco.matsim.simulation;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.core.basic.v01.IdImpl;
+import org.matsim.core.mobsim.qsim.interfaces.MobsimVehicle;
+
+import cz.cuni.mff.d3s.jdeeco.matsim.dataaccess.Actuator;
+import cz.cuni.mff.d3s.jdeeco.matsim.dataaccess.ActuatorType;
+import cz.cuni.mff.d3s.jdeeco.matsim.dataaccess.MATSimDataProviderReceiver;
+
+public class DefaultMATSimUpdaterTest {
+
+	private static final int STEPS = 30;
+
+	private final Id agentId = new IdImpl("agent");
+
+	private static List<Id> links(int... ids) {
+		List<Id> result = new ArrayList<>();
+		for (int id : ids) {
+			result.add(new IdImpl(id));
+		}
+		return result;
+	}
+
+	/**
+	 * Gets the route set by the component in the given step, null if it sets none.
+	 */
+	private static List<Id> getRoute(int step) {
+		switch (step) {
+		case 0:
+		case 6:
+			return links(1, 2, 3, 4, 5, 6);
+		case 13:
+			return links();
+		case 18:
+			return links(7, 8, 9);
+		default:
+			return null;
+		}
+	}
+
+	private JDEECoAgent createAgent() {
+		JDEECoAgent agent = new JDEECoAgent(agentId, new IdImpl(0));
+		agent.setVehicle(mock(MobsimVehicle.class, RETURNS_DEEP_STUBS));
+		return agent;
+	}
+
+	/**
+	 * Moves the agent as MATSim does. The agent is asked for its destination when entering the
+	 * buffer of its link and for the next link when leaving it, which fails every other time.
+	 */
+	private static void move(JDEECoAgent agent, int step) {
+		if (step % 2 == 0) {
+			agent.getDestinationLinkId();
+		} else {
+			Id next = agent.chooseNextLinkId();
+			if (next != null && step % 4 == 1) {
+				agent.notifyMoveOverNode(next);
+			}
+		}
+	}
+
+	@Test
+	public void testTrajectoryAsWithCompleteInputs() {
+		// GIVEN an agent updated by the complete inputs every step, as they used to be passed
+		JDEECoAgent expected = createAgent();
+		MATSimInput input = new MATSimInput();
+
+		// AND an agent updated by the changed inputs only
+		JDEECoAgent actual = createAgent();
+		MATSimDataProviderReceiver providerReceiver = new MATSimDataProviderReceiver(Collections.<String> emptyList());
+		Actuator<List<Id>> route = providerReceiver.getActuatorProvider(agentId).createActuator(ActuatorType.ROUTE);
+		DefaultMATSimExtractor extractor = new DefaultMATSimExtractor();
+		DefaultMATSimUpdater updater = new DefaultMATSimUpdater();
+
+		// WHEN the component sets the routes and the agents move
+		List<Id> expectedTrajectory = new ArrayList<>();
+		List<Id> actualTrajectory = new ArrayList<>();
+		for (int step = 0; step < STEPS; step++) {
+			providerReceiver.setMATSimData(extractor.extractFromMATSim(Arrays.asList(actual), null));
+			if (getRoute(step) != null) {
+				input.route = getRoute(step);
+				route.set(getRoute(step));
+			}
+
+			expected.setRoute(input.clone().route);
+			expected.setSpeed(input.speed);
+			updater.updateJDEECoAgents(providerReceiver.getMATSimData(), Arrays.asList(actual));
+
+			move(expected, step);
+			move(actual, step);
+			expectedTrajectory.add(expected.getCurrentLinkId());
+			actualTrajectory.add(actual.getCurrentLinkId());
+		}
+
+		// THEN they follow the same trajectory
+		assertEquals(expectedTrajectory, actualTrajectory);
+		assertEquals(new IdImpl(9), actual.getCurrentLinkId());
+	}
+}
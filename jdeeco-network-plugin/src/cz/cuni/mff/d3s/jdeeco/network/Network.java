@@ -39,8 +39,8 @@ public class Network implements DEECoPlugin {
 	@Override
 	public void init(DEECoContainer container) {
 		// Initialize Layer 1
-		l1 = new Layer1((byte) container.getId(), DefaultDataIDSource.getInstance(), container.getRuntimeFramework()
-				.getScheduler());
+		l1 = new Layer1((byte) container.getId(), new DefaultDataIDSource(container.getId()), container
+				.getRuntimeFramework().getScheduler());
 
 		// Initialize Layer 2
 		l2 = new Layer2(registery);
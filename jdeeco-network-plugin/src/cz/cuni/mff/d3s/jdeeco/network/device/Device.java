@@ -59,7 +59,8 @@ public abstract class Device {
 	/**
 	 * Passes data to upper layer
 	 * 
-	 * To be called whenever data is received from network.
+	 * To be called whenever data is received from network. The data must not be modified afterwards, as the received
+	 * packets refer to it.
 	 * 
 	 * @param data
 	 *            L0 packet data
@@ -1,5 +1,6 @@
 package cz.cuni.mff.d3s.jdeeco.network.device;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
@@ -12,14 +13,17 @@ import cz.cuni.mff.d3s.deeco.runtime.DEECoPlugin;
 import cz.cuni.mff.d3s.deeco.scheduler.Scheduler;
 import cz.cuni.mff.d3s.deeco.task.TimerTask;
 import cz.cuni.mff.d3s.deeco.task.TimerTaskListener;
+import cz.cuni.mff.d3s.deeco.timer.DeliveryTimer;
+import cz.cuni.mff.d3s.deeco.timer.Timer;
+import cz.cuni.mff.d3s.deeco.timer.TimerEventListener;
 import cz.cuni.mff.d3s.jdeeco.network.Network;
 import cz.cuni.mff.d3s.jdeeco.network.address.Address;
 import cz.cuni.mff.d3s.jdeeco.network.address.MANETBroadcastAddress;
 import cz.cuni.mff.d3s.jdeeco.network.l1.Layer1;
 import cz.cuni.mff.d3s.jdeeco.network.l1.MANETReceivedInfo;
 import cz.cuni.mff.d3s.jdeeco.position.Position;
+import cz.cuni.mff.d3s.jdeeco.position.PositionListener;
 import cz.cuni.mff.d3s.jdeeco.position.PositionPlugin;
-import cz.cuni.mff.d3s.jdeeco.position.PositionProvider;
 
 /**
  * Simple broadcast device plug-in
@@ -32,6 +36,18 @@ import cz.cuni.mff.d3s.jdeeco.position.PositionProvider;
  * Range can be also parameterized. By default the range is 250 meters. The received packets have RSSi set depending on
  * the distance between sender and receiver.
  * 
+ * A packet is delivered to the nodes which are in range of the sender at the time of the delivery. The nodes without
+ * position information receive all the packets. The receivers are looked up in a grid of the node positions. The grid
+ * is updated with the nodes whose static position has been set ({@link PositionPlugin#setStaticPosition}) since the
+ * last update, while the nodes with a position provider, whose changes are not notified, are read again at most once
+ * per millisecond of the time of the sending node.
+ * 
+ * When the timer delivers the packets ({@link DeliveryTimer}), the nodes may run in parallel, so the position of the
+ * sender is taken when sending and the grid is updated only at the synchronization points of the timer. The grid then
+ * serves only to narrow the candidate receivers, which needs the maximal speed of the nodes to be given. The maximal
+ * speed is not bounded by default, as the nodes may be moved anywhere at once by setting their static position, so all
+ * the nodes are candidates unless it is given. The range is checked exactly at the delivery.
+ * 
  * @author Vladimir Matena <matena@d3s.mff.cuni.cz>
  *
  */
@@ -40,30 +56,47 @@ public class SimpleBroadcastDevice implements DEECoPlugin {
 	public static final int DEFAULT_RANGE = 250; // meters
 	public static final long DEFAULT_DELAY_MEAN_MS = 0; // ms
 	public static final long DEFAULT_DELAY_VARIANCE_MS = 0; // ms
+	public static final double DEFAULT_MAX_SPEED = Double.POSITIVE_INFINITY; // meters per second, not bounded
 
 	final int mtu;
 	final long delayMean;
 	final long delayDeviation;
 	final double rangeM;
-	private Random random;
+	final double maxSpeed;
 
 	// Loop devices this loop-back network is registered with
 	protected Set<LoopDevice> loops = new HashSet<>();
 
+	// Positions of the loop devices, guarded by this
+	private final SpatialGrid<LoopDevice> grid;
+	// Loop devices whose static position has been set since the last update of the grid, guarded by this
+	private final Set<LoopDevice> moved = new HashSet<>();
+	// Loop devices whose position is provided and has to be read at each update of the grid, guarded by this
+	private final Set<LoopDevice> provided = new HashSet<>();
+	// Time the grid was last updated at
+	private long gridTime = Long.MIN_VALUE;
+	// Timer delivering the packets whose synchronization points update the grid, null if none
+	private DeliveryTimer synchronizingTimer;
+	// Generator of the delays shared by the loop devices which do not deliver by a timer
+	private Random random;
+
 	/**
 	 * Loop device used to provide broadcast device to layer 1
 	 */
 	public class LoopDevice extends Device {
 		final MANETBroadcastAddress address;
 		final DEECoContainer container;
-		private PositionProvider positionProvider;
+		private final PositionPlugin positionProvider;
 		private final Scheduler scheduler;
+		// Generator of the delays when delivering by a timer, so that the nodes running in parallel do not share it
+		private final Random deliveryRandom;
 
 		public LoopDevice(DEECoContainer container) {
 			this.container = container;
 			address = new MANETBroadcastAddress(getId());
 			positionProvider = container.getPluginInstance(PositionPlugin.class);
 			scheduler = container.getRuntimeFramework().getScheduler();
+			deliveryRandom = scheduler.getTimer() instanceof DeliveryTimer ? new Random(container.getId()) : null;
 
 			if (positionProvider != null) {
 				Log.i(container.getId() + ": " + LoopDevice.class.getSimpleName() + " using node position information provided by "
@@ -103,11 +136,16 @@ public class SimpleBroadcastDevice implements DEECoPlugin {
 		@Override
 		public void send(byte[] data, Address addressNotUsed) {
 			// Get task delay
-			long deviationMs = (long) (random.nextGaussian() * delayDeviation);
+			long deviationMs = (long) ((deliveryRandom != null ? deliveryRandom : random).nextGaussian() * delayDeviation);
 			long delayMs = Math.max(0, delayMean + deviationMs);
 
-			// Schedule send task
-			new DeliveryListener(new PacketWrapper(data, this), scheduler, delayMs);
+			Timer timer = scheduler.getTimer();
+			if (timer instanceof DeliveryTimer) {
+				deliverToAll(new PacketWrapper(data, this), (DeliveryTimer) timer, timer.getCurrentMilliseconds() + delayMs);
+			} else {
+				// Schedule send task
+				new DeliveryListener(new PacketWrapper(data, this), scheduler, delayMs);
+			}
 		}
 	}
 
@@ -157,10 +195,35 @@ public class SimpleBroadcastDevice implements DEECoPlugin {
 	 *            Device MTU in bytes
 	 */
 	public SimpleBroadcastDevice(long delayMeanMs, long delayDeviationMs, double rangeM, int mtu) {
+		this(delayMeanMs, delayDeviationMs, rangeM, mtu, DEFAULT_MAX_SPEED);
+	}
+
+	/**
+	 * Constructs loop-back broadcast
+	 * 
+	 * @param delayMeanMs
+	 *            Mean delay between sending and delivering the packets in milliseconds
+	 * @param delayDeviationMs
+	 *            Delay deviation between sending and delivering the packets in milliseconds
+	 * @param rangeM
+	 *            Device range in meters
+	 * @param mtu
+	 *            Device MTU in bytes
+	 * @param maxSpeed
+	 *            Maximal speed of the nodes in meters per second used to narrow the receivers when the timer delivers
+	 *            the packets, a node must not get farther than maxSpeed * d in any time d a packet may take to be
+	 *            delivered, including the nodes moving in steps
+	 */
+	public SimpleBroadcastDevice(long delayMeanMs, long delayDeviationMs, double rangeM, int mtu, double maxSpeed) {
+		if (!(maxSpeed >= 0)) {
+			throw new IllegalArgumentException("Maximal speed cannot be negative: " + maxSpeed);
+		}
 		this.delayMean = delayMeanMs;
 		this.delayDeviation = delayDeviationMs;
 		this.rangeM = rangeM;
 		this.mtu = mtu;
+		this.maxSpeed = maxSpeed;
+		this.grid = new SpatialGrid<>(rangeM > 0 ? rangeM : 1);
 	}
 
 	/**
@@ -179,25 +242,147 @@ public class SimpleBroadcastDevice implements DEECoPlugin {
 	 *            Container containing packet data and sender information
 	 */
 	public void sendToAll(PacketWrapper packet) {
-		for (LoopDevice loop : loops) {
-			Position srcPos = packet.source.getPosition();
-			Position dstPos = loop.getPosition();
-
-			// Get distance
-			// 0 means that distance is not relevant and packet should be delivered
-			double distance = 0;
-			if (dstPos != null && srcPos != null) {
-				distance = srcPos.euclidDistanceTo(dstPos);
-			}
+		Position srcPos = packet.source.getPosition();
+		for (LoopDevice loop : getReceivers(packet.source, srcPos)) {
+			deliver(packet, srcPos, loop);
+		}
+	}
 
-			if (loop != packet.source && distance <= rangeM) {
-				// Calculates logarithmic RSSI
-				double rssi = calcRssiForDistance(rangeM);
+	/**
+	 * Schedules delivery of the packet to all the other registered loop devices by the timer
+	 * 
+	 * @param packet
+	 *            Container containing packet data and sender information
+	 * @param timer
+	 *            Timer delivering the packet
+	 * @param deliveryTime
+	 *            Delivery time
+	 */
+	void deliverToAll(final PacketWrapper packet, DeliveryTimer timer, long deliveryTime) {
+		final Position srcPos = packet.source.getPosition();
+		for (final LoopDevice loop : getCandidates(packet.source, srcPos, deliveryTime)) {
+			timer.deliverAt(deliveryTime, new TimerEventListener() {
+				@Override
+				public void at(long time) {
+					deliver(packet, srcPos, loop);
+				}
+			}, "SimpleBroadcastDevice_delivery", loop.container);
+		}
+	}
 
-				// Receive packet on the destination node
-				MANETReceivedInfo info = new MANETReceivedInfo(packet.source.address, rssi);
-				loop.receive(packet.data, info);
+	/**
+	 * Gets the loop devices in range of the source
+	 * 
+	 * Updates the grid with the loop devices which have moved first and, unless it has been updated at the current time
+	 * of the source already, with the current positions of the loop devices whose position is provided.
+	 * 
+	 * @param source
+	 *            Sending loop device
+	 * @param srcPos
+	 *            Position of the sender, null if not known
+	 * 
+	 * @return Loop devices other than the source which are in range or have no position
+	 */
+	synchronized List<LoopDevice> getReceivers(LoopDevice source, Position srcPos) {
+		long time = source.getScheduler().getTimer().getCurrentMilliseconds();
+		if (time != gridTime) {
+			for (LoopDevice loop : provided) {
+				grid.update(loop, loop.getPosition());
 			}
+			gridTime = time;
+		}
+		updateMoved();
+		grid.update(source, srcPos);
+
+		List<LoopDevice> receivers = new ArrayList<>();
+		grid.collect(srcPos, rangeM, receivers);
+		receivers.remove(source);
+		return receivers;
+	}
+
+	/**
+	 * Gets the loop devices which may be in range of the source at the delivery time
+	 * 
+	 * The grid holds the positions at the last synchronization point of the timer, so it is searched in the range
+	 * extended by the distance the nodes may travel until the delivery.
+	 * 
+	 * @param source
+	 *            Sending loop device
+	 * @param srcPos
+	 *            Position of the sender, null if not known
+	 * @param deliveryTime
+	 *            Delivery time
+	 * 
+	 * @return Loop devices other than the source
+	 */
+	synchronized List<LoopDevice> getCandidates(LoopDevice source, Position srcPos, long deliveryTime) {
+		List<LoopDevice> candidates = new ArrayList<>();
+		if (synchronizingTimer == null || gridTime == Long.MIN_VALUE) {
+			candidates.addAll(loops);
+		} else {
+			grid.collect(srcPos, rangeM + maxSpeed * (deliveryTime - gridTime) / 1000, candidates);
+		}
+		candidates.remove(source);
+		return candidates;
+	}
+
+	/**
+	 * Updates the grid with the positions of the loop devices which have moved or whose position is provided at the
+	 * synchronization point of the timer
+	 */
+	private synchronized void synchronize(long time) {
+		for (LoopDevice loop : provided) {
+			grid.update(loop, loop.getPosition());
+		}
+		updateMoved();
+		gridTime = time;
+	}
+
+	private void updateMoved() {
+		for (LoopDevice loop : moved) {
+			grid.update(loop, loop.getPosition());
+		}
+		moved.clear();
+	}
+
+	/**
+	 * Records that the position of the loop device has changed or that it is provided from now on
+	 */
+	private synchronized void positionChanged(LoopDevice loop, PositionPlugin plugin) {
+		if (plugin.isProvided()) {
+			provided.add(loop);
+		} else {
+			moved.add(loop);
+		}
+	}
+
+	/**
+	 * Delivers packet to the loop device if it is in range of the sender
+	 * 
+	 * @param packet
+	 *            Container containing packet data and sender information
+	 * @param srcPos
+	 *            Position of the sender, null if not known
+	 * @param loop
+	 *            Destination loop device
+	 */
+	private void deliver(PacketWrapper packet, Position srcPos, LoopDevice loop) {
+		Position dstPos = loop.getPosition();
+
+		// Get distance
+		// 0 means that distance is not relevant and packet should be delivered
+		double distance = 0;
+		if (dstPos != null && srcPos != null) {
+			distance = srcPos.euclidDistanceTo(dstPos);
+		}
+
+		if (distance <= rangeM) {
+			// Calculates logarithmic RSSI
+			double rssi = calcRssiForDistance(rangeM);
+
+			// Receive packet on the destination node
+			MANETReceivedInfo info = new MANETReceivedInfo(packet.source.address, rssi);
+			loop.receive(packet.data, info);
 		}
 	}
 
@@ -221,10 +406,41 @@ public class SimpleBroadcastDevice implements DEECoPlugin {
 
 	@Override
 	public void init(DEECoContainer container) {
-		random = new Random(container.getId());
-		LoopDevice loop = new LoopDevice(container);
+		final LoopDevice loop = new LoopDevice(container);
+		Timer timer = loop.getScheduler().getTimer();
+		if (timer instanceof DeliveryTimer) {
+			DeliveryTimer deliveryTimer = (DeliveryTimer) timer;
+			// Packets can be delivered immediately if the delay deviates
+			deliveryTimer.declareMinimalDelay(delayDeviation == 0 ? delayMean : 0);
+			synchronized (this) {
+				if (!Double.isInfinite(maxSpeed) && synchronizingTimer != deliveryTimer) {
+					synchronizingTimer = deliveryTimer;
+					deliveryTimer.addSynchronizationListener(new TimerEventListener() {
+						@Override
+						public void at(long time) {
+							synchronize(time);
+						}
+					});
+				}
+			}
+		}
 		Layer1 l1 = container.getPluginInstance(Network.class).getL1();
 		l1.registerDevice(loop);
-		loops.add(loop);
+		synchronized (this) {
+			random = new Random(container.getId());
+			loops.add(loop);
+			grid.update(loop, loop.getPosition());
+			if (loop.positionProvider != null) {
+				if (loop.positionProvider.isProvided()) {
+					provided.add(loop);
+				}
+				loop.positionProvider.addListener(new PositionListener() {
+					@Override
+					public void positionChanged(PositionPlugin plugin) {
+						SimpleBroadcastDevice.this.positionChanged(loop, plugin);
+					}
+				});
+			}
+		}
 	}
 }
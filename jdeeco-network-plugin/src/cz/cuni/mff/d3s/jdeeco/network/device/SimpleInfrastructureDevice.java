@@ -10,6 +10,9 @@ import cz.cuni.mff.d3s.deeco.runtime.DEECoPlugin;
 import cz.cuni.mff.d3s.deeco.scheduler.Scheduler;
 import cz.cuni.mff.d3s.deeco.task.TimerTask;
 import cz.cuni.mff.d3s.deeco.task.TimerTaskListener;
+import cz.cuni.mff.d3s.deeco.timer.DeliveryTimer;
+import cz.cuni.mff.d3s.deeco.timer.Timer;
+import cz.cuni.mff.d3s.deeco.timer.TimerEventListener;
 import cz.cuni.mff.d3s.jdeeco.network.Network;
 import cz.cuni.mff.d3s.jdeeco.network.address.Address;
 import cz.cuni.mff.d3s.jdeeco.network.address.IPAddress;
@@ -22,6 +25,8 @@ import cz.cuni.mff.d3s.jdeeco.network.l1.ReceivedInfo;
  * Can be initialized by more DEECo run-times at the same time. Packets send are then delivered (instantly or with
  * delay) to destination loop device.
  * 
+ * When the nodes run on a {@link DeliveryTimer}, the packets are delivered to the destination by the timer.
+ * 
  * @author Vladimir Matena <matena@d3s.mff.cuni.cz>
  *
  */
@@ -34,9 +39,12 @@ public class SimpleInfrastructureDevice implements DEECoPlugin {
 
 		private String id;
 
-		public LoopDevice(String id, IPAddress address, Layer1 layer1) {
+		private final DEECoContainer container;
+
+		public LoopDevice(String id, IPAddress address, Layer1 layer1, DEECoContainer container) {
 			this.id = id;
 			this.address = address;
+			this.container = container;
 		}
 
 		@Override
@@ -62,9 +70,24 @@ public class SimpleInfrastructureDevice implements DEECoPlugin {
 			IPAddress ipAddress = (IPAddress) (destination);
 
 			// Schedule packet delivery
-			PacketWrapper packet = new PacketWrapper(data, this, ipAddress);
-			Scheduler scheduler = SimpleInfrastructureDevice.this.scheduler;
-			new DeliveryListener(packet, scheduler);
+			final PacketWrapper packet = new PacketWrapper(data, this, ipAddress);
+			Timer timer = container.getRuntimeFramework().getScheduler().getTimer();
+			if (timer instanceof DeliveryTimer) {
+				LoopDevice loop = loops.get(packet.destination);
+				if (loop == null) {
+					throw new UnsupportedOperationException("Destination address not found in loop network");
+				}
+				((DeliveryTimer) timer).deliverAt(timer.getCurrentMilliseconds() + DELIVERY_DELAY,
+						new TimerEventListener() {
+							@Override
+							public void at(long time) {
+								route(packet);
+							}
+						}, "SimpleInfrastructureDevice_delivery", loop.container);
+			} else {
+				Scheduler scheduler = SimpleInfrastructureDevice.this.scheduler;
+				new DeliveryListener(packet, scheduler);
+			}
 		}
 	}
 
@@ -105,6 +128,11 @@ public class SimpleInfrastructureDevice implements DEECoPlugin {
 
 	final int PACKET_SIZE = 128;
 
+	/**
+	 * Delay of the delivery, the same as of the instant {@link TimerTask} used otherwise
+	 */
+	static final long DELIVERY_DELAY = 1;
+
 	final long constantDelay;
 
 	Scheduler scheduler;
@@ -157,10 +185,13 @@ public class SimpleInfrastructureDevice implements DEECoPlugin {
 	@Override
 	public void init(DEECoContainer container) {
 		scheduler = container.getRuntimeFramework().getScheduler();
+		if (scheduler.getTimer() instanceof DeliveryTimer) {
+			((DeliveryTimer) scheduler.getTimer()).declareMinimalDelay(DELIVERY_DELAY);
+		}
 		Layer1 l1 = container.getPluginInstance(Network.class).getL1();
 		String name = String.valueOf(container.getId());
 		IPAddress address = new IPAddress(name);
-		LoopDevice loop = new LoopDevice(name, address, l1);
+		LoopDevice loop = new LoopDevice(name, address, l1, container);
 		l1.registerDevice(loop);
 		loops.put(address, loop);
 	}
@@ -0,0 +1,149 @@
+package cz.cuni.mff.d3s.jdeeco.network.device;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import cz.cuni.mff.d3s.jdeeco.position.Position;
+
+/**
+ * Uniform grid of items placed in the x-y plane
+ *
+ * Each item is kept in the cell containing its last known position. Updating an item which stays in its cell does not
+ * change the grid, so the grid can be updated with the current positions of all the items often. Items with unknown
+ * position are kept aside and returned by every query.
+ *
+ * @param <T>
+ *            Type of the items
+ */
+class SpatialGrid<T> {
+	private final double cellSize;
+
+	private final Map<T, Entry<T>> entries = new HashMap<>();
+	private final Map<Long, List<Entry<T>>> cells = new HashMap<>();
+	private final List<Entry<T>> unplaced = new ArrayList<>();
+
+	private static final class Entry<T> {
+		final T item;
+		Position position;
+		Long cell;
+
+		Entry(T item) {
+			this.item = item;
+		}
+	}
+
+	/**
+	 * Constructs the grid
+	 *
+	 * @param cellSize
+	 *            Size of the cell in meters, queries are cheapest with the range not exceeding the cell size
+	 */
+	SpatialGrid(double cellSize) {
+		if (!(cellSize > 0)) {
+			throw new IllegalArgumentException("Cell size has to be positive: " + cellSize);
+		}
+		this.cellSize = cellSize;
+	}
+
+	/**
+	 * Adds the item to the grid or updates its position
+	 *
+	 * @param item
+	 *            Item to update
+	 * @param position
+	 *            Current position of the item, null if not known
+	 */
+	void update(T item, Position position) {
+		Entry<T> entry = entries.get(item);
+		if (entry == null) {
+			entry = new Entry<>(item);
+			entries.put(item, entry);
+		} else if (position == entry.position) {
+			return;
+		}
+
+		Long cell = position == null ? null : cellOf(position.x, position.y);
+		entry.position = position;
+		if (entry.cell != null && entry.cell.equals(cell)) {
+			return;
+		}
+
+		List<Entry<T>> from = entry.cell == null ? unplaced : cells.get(entry.cell);
+		if (from != null && from.remove(entry) && from.isEmpty() && from != unplaced) {
+			cells.remove(entry.cell);
+		}
+
+		entry.cell = cell;
+		if (cell == null) {
+			unplaced.add(entry);
+		} else {
+			List<Entry<T>> to = cells.get(cell);
+			if (to == null) {
+				to = new ArrayList<>();
+				cells.put(cell, to);
+			}
+			to.add(entry);
+		}
+	}
+
+	/**
+	 * Collects the items within the range from the center and the items with unknown position
+	 *
+	 * @param center
+	 *            Center of the query, all the items are collected if null
+	 * @param range
+	 *            Range in meters
+	 * @param result
+	 *            Collection the items are added to
+	 */
+	void collect(Position center, double range, Collection<? super T> result) {
+		if (center == null) {
+			result.addAll(entries.keySet());
+			return;
+		}
+
+		for (Entry<T> entry : unplaced) {
+			result.add(entry.item);
+		}
+
+		int minX = index(center.x - range);
+		int maxX = index(center.x + range);
+		int minY = index(center.y - range);
+		int maxY = index(center.y + range);
+		for (int x = minX; x <= maxX; x++) {
+			for (int y = minY; y <= maxY; y++) {
+				List<Entry<T>> cell = cells.get(key(x, y));
+				if (cell == null) {
+					continue;
+				}
+				for (Entry<T> entry : cell) {
+					if (center.euclidDistanceTo(entry.position) <= range) {
+						result.add(entry.item);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gets the number of items in the grid
+	 */
+	int size() {
+		return entries.size();
+	}
+
+	private Long cellOf(double x, double y) {
+		return key(index(x), index(y));
+	}
+
+	private int index(double coordinate) {
+		return (int) Math.floor(coordinate / cellSize);
+	}
+
+	private static Long key(int x, int y) {
+		return ((long) x << 32) | (y & 0xffffffffL);
+	}
+}
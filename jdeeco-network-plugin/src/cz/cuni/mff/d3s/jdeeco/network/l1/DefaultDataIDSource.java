@@ -1,7 +1,12 @@
 package cz.cuni.mff.d3s.jdeeco.network.l1;
 
 /**
- * Singleton class providing default data ID source.
+ * Default data ID source.
+ * 
+ * Each node has its own source, so the IDs the node creates do not depend on the other nodes, which may run in
+ * parallel. The IDs wrap around within the two bytes they are encoded to in the L1 packets. Nodes sharing the lower
+ * byte of their ID, which is the source node of the L1 packets, start at distant IDs, so that their data are unlikely
+ * to be mixed.
  * 
  * @author Michal Kit <kit@d3s.mff.cuni.cz>
  *
@@ -9,24 +14,39 @@ package cz.cuni.mff.d3s.jdeeco.network.l1;
 public class DefaultDataIDSource implements DataIDSource {
 
 	private static DefaultDataIDSource instance;
-	private static int COUNTER = 0;
+	private static final int MAX_DATA_ID = 0xFFFF;
+	private static final int NODE_STRIDE = 4099;
+	private int counter;
 
+	/**
+	 * Gets the source shared by all the callers.
+	 */
 	public static synchronized DefaultDataIDSource getInstance() {
 		if (instance == null) {
-			instance = new DefaultDataIDSource();
+			instance = new DefaultDataIDSource(0);
 		}
 		return instance;
 	}
 
+	/**
+	 * Creates the data ID source of a node.
+	 * 
+	 * @param nodeId
+	 *            ID of the node
+	 */
+	public DefaultDataIDSource(int nodeId) {
+		counter = (int) (((nodeId >>> 8) * (long) NODE_STRIDE) % MAX_DATA_ID);
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
 	 * @see cz.cuni.mff.d3s.jdeeco.network.l1.DataIDSource#createDataID()
 	 */
 	@Override
-	public int createDataID() {
-		COUNTER++;
-		return COUNTER;
+	public synchronized int createDataID() {
+		counter = counter % MAX_DATA_ID + 1;
+		return counter;
 	}
 
 }
@@ -1,5 +1,6 @@
 package cz.cuni.mff.d3s.jdeeco.network.l1;
 
+import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
 
@@ -37,15 +38,16 @@ public class DeviceOutputQueue {
 	private final long timeout; // in milliseconds
 	private TimerTask delayedTask;
 	private DelayedSendListener delayedListener = new DelayedSendListener();
-	private final byte[] l0Packet;
-	private int l0PacketSize;
+	private final int mtu;
+	// L0 packet being filled, handed over to the device when sent
+	private ByteBuffer l0Packet;
 	
 	public DeviceOutputQueue(Device device, Address address, Scheduler scheduler, long timeout) {
 		this.scheduler = scheduler;
 		this.timeout = timeout;
 		this.device = device;
 		this.address = address;
-		this.l0Packet = new byte[device.getMTU()];
+		this.mtu = device.getMTU();
 	}
 	
 	public DeviceOutputQueue(Device device, Address address, Scheduler scheduler) {
@@ -58,7 +60,7 @@ public class DeviceOutputQueue {
 	 * @return remaining space in L0 packet
 	 */
 	public int availableL0Space() {
-		return l0Packet.length - l0PacketSize;
+		return l0Packet == null ? mtu : l0Packet.remaining();
 	}
 
 	/**
@@ -107,24 +109,33 @@ public class DeviceOutputQueue {
 		// We are going to send the packet, no need to send it later
 		removeDelayedSendTask();
 
-		if (l0PacketSize > 0) {
-			byte[] validL0PacketData = Arrays.copyOfRange(l0Packet, 0, l0PacketSize);
-			device.send(validL0PacketData, address);
-			l0PacketSize = 0;
+		if (l0Packet != null && l0Packet.position() > 0) {
+			byte[] data = l0Packet.array();
+			// The full packet is handed over as it is, the device may keep it
+			if (l0Packet.hasRemaining()) {
+				data = Arrays.copyOf(data, l0Packet.position());
+			}
+			l0Packet = null;
+			device.send(data, address);
 		}
 	}
 
 	protected void fillL0Packet(L1Packet l1Packet) {
-		byte[] bytes = l1Packet.getBytes();
 		// L1 packet is too big to fit into the remaining L0 packet space.
-		if (bytes.length > availableL0Space()) {
+		if (l1Packet.getByteSize() > availableL0Space()) {
 			// Send the current L0 packet to release L0 space.
 			send();
 		}
-		ByteBuffer byteBuffer = ByteBuffer.wrap(l0Packet);
-		byteBuffer.position(l0PacketSize);
-		byteBuffer.put(bytes);
-		l0PacketSize += bytes.length;
+		if (l0Packet == null) {
+			l0Packet = ByteBuffer.allocate(mtu);
+		}
+		int position = l0Packet.position();
+		try {
+			l1Packet.writeTo(l0Packet);
+		} catch (RuntimeException e) {
+			((Buffer) l0Packet).position(position);
+			throw e;
+		}
 	}
 
 }
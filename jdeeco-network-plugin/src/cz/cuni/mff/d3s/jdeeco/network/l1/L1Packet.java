@@ -1,7 +1,6 @@
 package cz.cuni.mff.d3s.jdeeco.network.l1;
 
 import java.nio.ByteBuffer;
-import java.util.Arrays;
 import java.util.Objects;
 
 import cz.cuni.mff.d3s.jdeeco.network.exceptions.PacketTooBig;
@@ -11,6 +10,10 @@ import cz.cuni.mff.d3s.jdeeco.network.exceptions.PacketTooBig;
  * 
  * Layer 1 packet is uniquely identified by source node, data id and start position.
  * 
+ * The payload is a read-only view, which can share its content with the fragmented L2 packet data or with the received
+ * L0 packet. The content is copied only when the packet is written into an L0 packet and when the fragments are
+ * reassembled.
+ * 
  * @author Michal Kit <kit@d3s.mff.cuni.cz>
  *
  */
@@ -18,7 +21,7 @@ public class L1Packet {
 
 	public static int HEADER_SIZE = 9; // TotalSize + PayloadSize + SrcNode + StartPos + DataID
 
-	public final byte[] payload;
+	public final ByteBuffer payload;
 	/** payload carried by this packet */
 	public final byte srcNode;
 	/** ID of the source that the data originates from */
@@ -34,14 +37,23 @@ public class L1Packet {
 
 	/** Receival additional information */
 
-	public L1Packet(byte[] payload, byte srcNode, int dataId, int startPos, int totalSize, ReceivedInfo receivedInfo) {
-		this.payload = payload;
+	/**
+	 * Creates the packet with the payload between the position and the limit of the buffer, without copying the
+	 * content. The position and the limit of the given buffer are not changed by the packet.
+	 */
+	public L1Packet(ByteBuffer payload, byte srcNode, int dataId, int startPos, int totalSize,
+			ReceivedInfo receivedInfo) {
+		this.payload = payload.slice().asReadOnlyBuffer();
 		this.srcNode = srcNode;
 		this.dataId = dataId;
 		this.startPos = startPos;
 		this.totalSize = totalSize;
 		this.receivedInfo = receivedInfo;
-		this.payloadSize = payload.length;
+		this.payloadSize = this.payload.remaining();
+	}
+
+	public L1Packet(byte[] payload, byte srcNode, int dataId, int startPos, int totalSize, ReceivedInfo receivedInfo) {
+		this(ByteBuffer.wrap(payload), srcNode, dataId, startPos, totalSize, receivedInfo);
 	}
 
 	public L1Packet(byte[] payload, byte srcNode, int dataId, int startPos, int totalSize) {
@@ -58,30 +70,54 @@ public class L1Packet {
 	 */
 	public byte[] getBytes() {
 		ByteBuffer byteBuffer = ByteBuffer.allocate(HEADER_SIZE + payloadSize);
-		byteBuffer.put(encodeIntegerInto2Bytes(totalSize));
-		byteBuffer.put(encodeIntegerInto2Bytes(payloadSize));
-		byteBuffer.put(encodeIntegerInto2Bytes(startPos));
-		byteBuffer.put(encodeIntegerInto2Bytes(dataId));
-		byteBuffer.put(srcNode);
-		byteBuffer.put(payload);
+		writeTo(byteBuffer);
 		return byteBuffer.array();
 	}
 
+	/**
+	 * Writes the byte representation of the L1 packet into the buffer at its position.
+	 * 
+	 * @param byteBuffer
+	 *            buffer with at least {@link #getByteSize()} bytes remaining
+	 */
+	public void writeTo(ByteBuffer byteBuffer) {
+		putIntegerAs2Bytes(byteBuffer, totalSize);
+		putIntegerAs2Bytes(byteBuffer, payloadSize);
+		putIntegerAs2Bytes(byteBuffer, startPos);
+		putIntegerAs2Bytes(byteBuffer, dataId);
+		byteBuffer.put(srcNode);
+		byteBuffer.put(payload.duplicate());
+	}
+
 	/**
 	 * Decodes L1 packet from given bytes.
 	 * 
+	 * The payload of the packet refers to the given bytes, which must not be modified afterwards.
+	 * 
 	 * @param bytes
 	 *            bytes to be decoded
 	 * @return L1 packet
 	 */
 	public static L1Packet fromBytes(byte[] bytes, int offset) {
-		int totalSize = decodeIntegerFrom2Bytes(Arrays.copyOfRange(bytes, offset, offset + 2));
-		int payloadSize = decodeIntegerFrom2Bytes(Arrays.copyOfRange(bytes, offset + 2, offset + 4));
-		int startPos = decodeIntegerFrom2Bytes(Arrays.copyOfRange(bytes, offset + 4, offset + 6));
-		int dataId = decodeIntegerFrom2Bytes(Arrays.copyOfRange(bytes, offset + 6, offset + 8));
+		int totalSize = decodeIntegerFrom2Bytes(bytes, offset);
+		int payloadSize = decodeIntegerFrom2Bytes(bytes, offset + 2);
+		int startPos = decodeIntegerFrom2Bytes(bytes, offset + 4);
+		int dataId = decodeIntegerFrom2Bytes(bytes, offset + 6);
 		byte srcNode = bytes[offset + 8];
-		return new L1Packet(Arrays.copyOfRange(bytes, offset + 9, offset + payloadSize + 9), srcNode, dataId, startPos,
-				totalSize);
+		return new L1Packet(ByteBuffer.wrap(bytes, offset + HEADER_SIZE, payloadSize), srcNode, dataId, startPos,
+				totalSize, null);
+	}
+
+	/**
+	 * Copies the payload into the array.
+	 * 
+	 * @param target
+	 *            array to copy the payload to
+	 * @param offset
+	 *            position in the array to copy the payload to
+	 */
+	public void copyPayload(byte[] target, int offset) {
+		payload.duplicate().get(target, offset, payloadSize);
 	}
 
 	/**
@@ -94,9 +130,11 @@ public class L1Packet {
 	}
 
 	protected static int decodeIntegerFrom2Bytes(byte[] value) {
-		int high = value[1] >= 0 ? value[1] : 256 + value[1];
-		int low = value[0] >= 0 ? value[0] : 256 + value[0];
-		return low | (high << 8);
+		return decodeIntegerFrom2Bytes(value, 0);
+	}
+
+	private static int decodeIntegerFrom2Bytes(byte[] bytes, int offset) {
+		return (bytes[offset] & 0xFF) | ((bytes[offset + 1] & 0xFF) << 8);
 	}
 
 	protected static byte[] encodeIntegerInto2Bytes(int value) {
@@ -109,6 +147,14 @@ public class L1Packet {
 		return result;
 	}
 
+	private static void putIntegerAs2Bytes(ByteBuffer byteBuffer, int value) {
+		if(value > 0xffff) {
+			throw new PacketTooBig("Cannot encode size value " + value + " into 2 bytes. Network L2 packet too big?");
+		}
+		byteBuffer.put((byte) (value & 0xFF));
+		byteBuffer.put((byte) ((value >> 8) & 0xFF));
+	}
+
 	@Override
 	public boolean equals(Object obj) {
 		if (!(obj instanceof L1Packet))
@@ -1,11 +1,14 @@
 package cz.cuni.mff.d3s.jdeeco.network.l1;
 
-import java.util.Arrays;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -119,16 +122,17 @@ public class Layer1 implements L2PacketProcessor, L1StrategyManager {
 	 * cz.cuni.mff.d3s.jdeeco.network.Address)
 	 */
 	public boolean processL2Packet(L2Packet l2Packet, Address address) {
-		if (l2Packet != null && l2Packet.getData().length > 0) {
+		byte[] data = l2Packet != null ? l2Packet.getData() : null;
+		if (data != null && data.length > 0) {
 			DeviceOutputQueue outputQueue = getDeviceOutputQueue(address);
 			if (outputQueue == null) {
 				return false;
 			}
 			/**
-			 * Fragment the L2 packet into L1 packets.
+			 * Fragment the L2 packet into L1 packets. The fragments are views of the L2 packet data.
 			 */
 			L2ReceivedInfo receivedInfo = l2Packet.getReceivedInfo();
-			int totalSize = l2Packet.getData().length;
+			int totalSize = data.length;
 			byte srcNode;
 			int dataId;
 			if (receivedInfo == null) {
@@ -140,11 +144,11 @@ public class Layer1 implements L2PacketProcessor, L1StrategyManager {
 			}
 			int fragmentSize;
 			int current = 0;
-			byte[] payload;
-			while (current < l2Packet.getData().length) {
+			ByteBuffer payload = ByteBuffer.wrap(data);
+			while (current < data.length) {
 				fragmentSize = outputQueue.availableL0Space() - L1Packet.HEADER_SIZE;
-				payload = Arrays.copyOfRange(l2Packet.getData(), current,
-						Math.min(current + fragmentSize, l2Packet.getData().length));
+				((Buffer) payload).limit(Math.min(current + fragmentSize, data.length));
+				((Buffer) payload).position(current);
 				outputQueue.sendDelayed(new L1Packet(payload, srcNode, dataId, current, totalSize, null));
 				current += fragmentSize;
 			}
@@ -180,6 +184,8 @@ public class Layer1 implements L2PacketProcessor, L1StrategyManager {
 	/**
 	 * Processes L0 packet coming from a device.
 	 * 
+	 * The received L1 packets refer to the L0 packet data, so the data must not be modified by the device afterwards.
+	 * 
 	 * @param l0Packet
 	 *            L0 packet to be processed
 	 * @param device
@@ -195,7 +201,7 @@ public class Layer1 implements L2PacketProcessor, L1StrategyManager {
 		while (position < l0Packet.length) {
 			l1Packet = L1Packet.fromBytes(l0Packet, position);
 			l1Packet.receivedInfo = receivedInfo;
-			if (key == null || key.equals(new CollectorKey(l1Packet.dataId, l1Packet.srcNode))) {
+			if (key == null || key.dataId != l1Packet.dataId || key.srcNode != l1Packet.srcNode) {
 				key = new CollectorKey(l1Packet.dataId, l1Packet.srcNode);
 				collector = collectors.get(key);
 				if (collector == null) {
@@ -213,6 +219,7 @@ public class Layer1 implements L2PacketProcessor, L1StrategyManager {
 					processor.processL2Packet(packet);
 				}
 				collectors.remove(key);
+				key = null;
 			}
 			position += l1Packet.payloadSize + L1Packet.HEADER_SIZE;
 		}
@@ -261,7 +268,7 @@ public class Layer1 implements L2PacketProcessor, L1StrategyManager {
 
 	/**
 	 * Stores incoming L1 packets from the network. It provides facilities that help to assemble L2 packets from
-	 * retrieved L1 packets.
+	 * retrieved L1 packets. The payloads are copied into the assembled data as the packets arrive.
 	 * 
 	 * Collector removes itself from the collectors collection when it reaches its lifetime.
 	 * 
@@ -269,26 +276,23 @@ public class Layer1 implements L2PacketProcessor, L1StrategyManager {
 	 *
 	 */
 	protected class Collector {
-		private final LinkedList<L1Packet> l1Packets; // incoming L1 packets
+		private final List<L1Packet> l1Packets; // incoming L1 packets
 		private final long timeCreated;
+		private final byte[] data; // assembled data
 
 		/**
 		 * Facility map representing the complete payload. Initially all elements are false indicating no data. While L1
 		 * packets arrive its false entries turn into true
 		 */
 		private final boolean[] map;
-		/**
-		 * Indicates whether it is possible to assemble L2 packet from the available L1 packets. This field is for
-		 * optimization
-		 */
-		private boolean isComplete = false;
-
-		/** Indicates whether the value in the isContinue field is valid */
-		private boolean isCompleteValid = true;
+		/** Number of bytes of the payload not received yet */
+		private int missing;
 
 		public Collector(int totalSize) {
-			this.l1Packets = new LinkedList<L1Packet>();
+			this.l1Packets = new ArrayList<L1Packet>();
 			this.map = new boolean[totalSize];
+			this.data = new byte[totalSize];
+			this.missing = totalSize;
 			this.timeCreated = scheduler.getTimer().getCurrentMilliseconds();
 		}
 
@@ -308,10 +312,13 @@ public class Layer1 implements L2PacketProcessor, L1StrategyManager {
 		 *            L1 packet to be added
 		 */
 		public void addL1Packet(L1Packet l1Packet) {
-			isCompleteValid = false;
 			this.l1Packets.add(l1Packet);
+			l1Packet.copyPayload(data, l1Packet.startPos);
 			for (int i = l1Packet.startPos; i < l1Packet.startPos + l1Packet.payloadSize; i++) {
-				map[i] = true;
+				if (!map[i]) {
+					map[i] = true;
+					missing--;
+				}
 			}
 		}
 
@@ -321,21 +328,7 @@ public class Layer1 implements L2PacketProcessor, L1StrategyManager {
 		 * @return true whenever L2 packet is complete. False otherwise.
 		 */
 		public boolean isComplete() {
-			if (!isCompleteValid) {
-				isCompleteValid = true;
-				if (l1Packets.isEmpty()) {
-					isComplete = false;
-				} else {
-					isComplete = true;
-					for (boolean fill : map) {
-						if (!fill) {
-							isComplete = false;
-							break;
-						}
-					}
-				}
-			}
-			return isComplete;
+			return missing == 0 && !l1Packets.isEmpty();
 		}
 
 		/**
@@ -345,16 +338,7 @@ public class Layer1 implements L2PacketProcessor, L1StrategyManager {
 		 */
 		public byte[] getMarshalledData() {
 			if (isComplete()) {
-				int totalSize = l1Packets.getFirst().totalSize;
-				byte[] result = new byte[totalSize];
-				int to;
-				for (L1Packet l1Packet : l1Packets) {
-					to = l1Packet.startPos + l1Packet.payloadSize;
-					for (int i = l1Packet.startPos, j = 0; i < to && j < l1Packet.payloadSize; i++, j++) {
-						result[i] = l1Packet.payload[j];
-					}
-				}
-				return result;
+				return data;
 			} else {
 				return null;
 			}
@@ -367,8 +351,8 @@ public class Layer1 implements L2PacketProcessor, L1StrategyManager {
 		 */
 		public L2ReceivedInfo getL2ReceivedInfo() {
 			if (isComplete()) {
-				L1Packet first = l1Packets.getFirst();
-				return new L2ReceivedInfo(new LinkedList<L1Packet>(l1Packets), first.srcNode, first.dataId);
+				L1Packet first = l1Packets.get(0);
+				return new L2ReceivedInfo(new ArrayList<L1Packet>(l1Packets), first.srcNode, first.dataId);
 			} else {
 				return null;
 			}
@@ -27,6 +27,9 @@ public class L2Packet {
 	// Marshalled packet data
 	private byte[] data;
 
+	// Marshalled packet data with the header
+	private byte[] packetData;
+
 	// Unmarshalled packet data
 	private Object object;
 
@@ -99,6 +102,7 @@ public class L2Packet {
 		this.header = new PacketHeader(new L2PacketType(type));
 		this.receivedInfo = receivedInfo;
 		this.data = data;
+		this.packetData = packet;
 	}
 
 	/**
@@ -123,21 +127,25 @@ public class L2Packet {
 	/**
 	 * Gets binary representation of packet content
 	 * 
-	 * The resulting binary data are created on demand and cached. The call to this method has to be preceded by setting
-	 * Layer 2 reference by setLayer method.
+	 * The resulting binary data are created on demand and cached, so the returned array must not be modified. The call
+	 * to this method has to be preceded by setting Layer 2 reference by setLayer method.
 	 * 
 	 * @see setLayer
 	 * 
 	 * @return Binary data representing packet content
 	 */
 	public byte[] getData() {
-		if (data == null) {
-			assert (l2Layer != null);
-			data = l2Layer.getMarshallers().marshall(header.type, object);
+		if (packetData == null) {
+			if (data == null) {
+				assert (l2Layer != null);
+				data = l2Layer.getMarshallers().marshall(header.type, object);
+			}
+
+			// Combine data and packet type
+			packetData = createL2PacketData(header, data);
 		}
 
-		// Combine data and packet type
-		return createL2PacketData(header, data);
+		return packetData;
 	}
 
 	/**
@@ -1,10 +1,18 @@
 package cz.cuni.mff.d3s.jdeeco.network.l2.strategy;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
+import cz.cuni.mff.d3s.deeco.executor.Executor;
+import cz.cuni.mff.d3s.deeco.executor.KnowledgeLockingExecutor;
 import cz.cuni.mff.d3s.deeco.knowledge.ChangeSet;
 import cz.cuni.mff.d3s.deeco.knowledge.KnowledgeManager;
 import cz.cuni.mff.d3s.deeco.knowledge.KnowledgeManagerContainer;
@@ -24,6 +32,21 @@ import cz.cuni.mff.d3s.jdeeco.network.l2.L2Strategy;
 /**
  * L2 Strategy and DEECo plug-in for incorporating received knowledge data to knowledge managers
  * 
+ * Knowledge data holding a delta are applied to the replicas only once the complete knowledge of the component has
+ * been received. A delta whose base version is not the last version received reveals that some knowledge data were
+ * missed. Then the replicas are resynchronized: the deltas of the component are dropped until its next complete
+ * knowledge data, which replace the knowledge of the replicas, the knowledge paths they do not hold being deleted.
+ * 
+ * The knowledge data received in a packet are incorporated right away, at the time of the packet, unless the knowledge
+ * data received before are still being incorporated. The packets may be received concurrently with incorporating them,
+ * so the knowledge data received in the meantime are kept, guarded by their map, and incorporated one at a time by the
+ * thread incorporating the former ones once it is done. The knowledge data of a component kept this way are coalesced
+ * into the newest ones, which are then incorporated in a single update of each replica. The role classes and the
+ * replicas of each component are looked up only when the component declares different role classes than before.
+ * 
+ * When the tasks are executed concurrently by
+ * a {@link KnowledgeLockingExecutor}, each replica is updated through it, as if by a task accessing it.
+ * 
  * This is implementation is not complete, it does not implement security
  * 
  * @author Vladimir Matena <matena@d3s.mff.cuni.cz>
@@ -32,12 +55,40 @@ import cz.cuni.mff.d3s.jdeeco.network.l2.L2Strategy;
 public class KnowledgeInsertingStrategy implements L2Strategy, DEECoPlugin {
 	private KnowledgeManagerContainer knowledgeManagerContainer;
 	private CurrentTimeProvider timeProvider;
+	private Executor executor;
 
 	/**
 	 * Keeps track of versions of the knowledge currently stored
 	 */
 	private Map<String, Long> currentVersions = new HashMap<String, Long>();
 
+	/**
+	 * Ids of the components whose knowledge data were missed, so that their deltas are dropped until their complete
+	 * knowledge data are received
+	 */
+	private final Set<String> resynchronizing = new HashSet<>();
+
+	/**
+	 * Role classes and replicas of the components, by component id
+	 */
+	private final Map<String, RemoteComponent> remoteComponents = new HashMap<>();
+
+	/**
+	 * Role classes by their names, null for the names that could not be resolved
+	 */
+	private final Map<String, Class<?>> roleClasses = new HashMap<>();
+
+	/**
+	 * Knowledge data received while incorporating the ones received before, coalesced by component id in the order of
+	 * receipt, guarded by itself
+	 */
+	private final Map<String, KnowledgeData> received = new LinkedHashMap<>();
+
+	/**
+	 * Whether the received knowledge data are being incorporated, guarded by {@link #received}
+	 */
+	private boolean incorporating;
+
 	@Override
 	public void processL2Packet(L2Packet packet) {
 		Object data = packet.getObject();
@@ -47,7 +98,118 @@ public class KnowledgeInsertingStrategy implements L2Strategy, DEECoPlugin {
 			throw new UnsupportedOperationException(data.getClass().getName() + " is not a knowledge data");
 		}
 
-		receiveKnowledge((KnowledgeData) data);
+		KnowledgeData knowledgeData = (KnowledgeData) data;
+		String componentId = knowledgeData.getMetaData().componentId;
+		synchronized (received) {
+			KnowledgeData previous = received.get(componentId);
+			received.put(componentId, previous == null ? knowledgeData : coalesce(previous, knowledgeData));
+			if (incorporating) {
+				// Incorporated by the thread incorporating the knowledge data received before
+				return;
+			}
+			incorporating = true;
+		}
+		incorporateReceived();
+	}
+
+	/**
+	 * Incorporates the received knowledge data until no more are received in the meantime
+	 */
+	private void incorporateReceived() {
+		boolean done = false;
+		try {
+			while (true) {
+				KnowledgeData[] knowledgeData;
+				synchronized (received) {
+					if (received.isEmpty()) {
+						incorporating = false;
+						done = true;
+						return;
+					}
+					knowledgeData = received.values().toArray(new KnowledgeData[received.size()]);
+					received.clear();
+				}
+				for (KnowledgeData data : knowledgeData) {
+					receiveKnowledge(data);
+				}
+			}
+		} finally {
+			if (!done) {
+				synchronized (received) {
+					incorporating = false;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Coalesces knowledge data of the same component into the newer ones
+	 * 
+	 * The older knowledge data are dropped, as they would be if received after the newer ones, unless the newer ones
+	 * are a delta. Then the delta is applied to the older knowledge data, along with its authors, security set and
+	 * deleted paths. A delta not based on the older knowledge data cannot be applied to them, so the complete ones of
+	 * the two are kept, or the delta, whose gap then causes the resynchronization of the replicas.
+	 * 
+	 * @return Knowledge data to be incorporated instead of both of them
+	 */
+	private KnowledgeData coalesce(KnowledgeData previous, KnowledgeData next) {
+		KnowledgeMetaData previousMetadata = previous.getMetaData();
+		KnowledgeMetaData nextMetadata = next.getMetaData();
+		if (nextMetadata.versionId <= previousMetadata.versionId) {
+			return previous;
+		}
+		if (!nextMetadata.isDelta()) {
+			return next;
+		}
+		if (nextMetadata.baseVersionId != previousMetadata.versionId) {
+			return previousMetadata.isDelta() ? next : previous;
+		}
+
+		KnowledgeMetaData metaData = nextMetadata.clone();
+		metaData.baseVersionId = previousMetadata.baseVersionId;
+		metaData.deletedPaths = null;
+		if (previousMetadata.isDelta()) {
+			Set<String> deletedPaths = new LinkedHashSet<>();
+			if (previousMetadata.deletedPaths != null) {
+				deletedPaths.addAll(previousMetadata.deletedPaths);
+			}
+			for (KnowledgePath kp : next.getKnowledge().getKnowledgePaths()) {
+				deletedPaths.remove(kp.toString());
+			}
+			if (nextMetadata.deletedPaths != null) {
+				deletedPaths.addAll(nextMetadata.deletedPaths);
+			}
+			if (!deletedPaths.isEmpty()) {
+				metaData.deletedPaths = new ArrayList<>(deletedPaths);
+			}
+		}
+		List<String> deleted = nextMetadata.deletedPaths;
+		return new KnowledgeData(merge(previous.getKnowledge(), next.getKnowledge(), deleted), merge(
+				previous.getSecuritySet(), next.getSecuritySet(), deleted), merge(previous.getAuthors(),
+				next.getAuthors(), deleted), next.getRoleClasses(), metaData);
+	}
+
+	/**
+	 * Merges the values by knowledge path, the newer ones replacing the older ones
+	 * 
+	 * @param deletedPaths
+	 *            Knowledge paths deleted along with the newer values, whose older values are dropped, or null
+	 * @return Merged values, null if both of them are null
+	 */
+	private static ValueSet merge(ValueSet older, ValueSet newer, List<String> deletedPaths) {
+		if (older == null || newer == null) {
+			return newer == null ? older : newer;
+		}
+		ValueSet result = new ValueSet();
+		for (KnowledgePath kp : older.getKnowledgePaths()) {
+			if (deletedPaths == null || !deletedPaths.contains(kp.toString())) {
+				result.setValue(kp, older.getValue(kp));
+			}
+		}
+		for (KnowledgePath kp : newer.getKnowledgePaths()) {
+			result.setValue(kp, newer.getValue(kp));
+		}
+		return result;
 	}
 
 	/**
@@ -56,7 +218,7 @@ public class KnowledgeInsertingStrategy implements L2Strategy, DEECoPlugin {
 	 * @param knowledgeData
 	 *            Knowledge data to be incorporated
 	 */
-	public void receiveKnowledge(KnowledgeData knowledgeData) {
+	public synchronized void receiveKnowledge(KnowledgeData knowledgeData) {
 		KnowledgeMetaData newMetadata = knowledgeData.getMetaData();
 		if (knowledgeManagerContainer.hasLocal(newMetadata.componentId)) {
 			if (Log.isDebugLoggable())
@@ -68,10 +230,31 @@ public class KnowledgeInsertingStrategy implements L2Strategy, DEECoPlugin {
 		// Accept only fresh knowledge data (drop if we have already a newer value)
 		Long currentVersion = currentVersions.get(newMetadata.componentId);
 		if ((currentVersion == null) || (currentVersion < newMetadata.versionId)) {
-			for (KnowledgeManager replica : knowledgeManagerContainer.createReplica(newMetadata.componentId,
-					toRoleArray(knowledgeData.getRoleClasses(), newMetadata.componentId))) {
+			if (newMetadata.isDelta()) {
+				if (currentVersion == null) {
+					if (Log.isDebugLoggable())
+						Log.d("KnowledgeDataManager.receive: Dropping knowledge delta of " + newMetadata.componentId
+								+ " received before its complete knowledge");
+					return;
+				}
+				if (currentVersion != newMetadata.baseVersionId && resynchronizing.add(newMetadata.componentId)) {
+					Log.w(String.format("KnowledgeDataManager.receive: Missed knowledge of %s between v%d and v%d, "
+							+ "waiting for its complete knowledge", newMetadata.componentId, currentVersion,
+							newMetadata.baseVersionId));
+				}
+				if (resynchronizing.contains(newMetadata.componentId)) {
+					if (Log.isDebugLoggable())
+						Log.d("KnowledgeDataManager.receive: Dropping knowledge delta of " + newMetadata.componentId
+								+ " received before its complete knowledge");
+					return;
+				}
+			} else {
+				resynchronizing.remove(newMetadata.componentId);
+			}
+
+			for (KnowledgeManager replica : getReplicas(newMetadata.componentId, knowledgeData.getRoleClasses())) {
 				try {
-					replica.update(toChangeSet(knowledgeData.getKnowledge()));
+					update(replica, knowledgeData);
 				} catch (KnowledgeUpdateException e) {
 					Log.w(String.format("KnowledgeDataManager.receive: Could not update replica of %s.",
 							newMetadata.componentId), e);
@@ -90,35 +273,100 @@ public class KnowledgeInsertingStrategy implements L2Strategy, DEECoPlugin {
 		}
 	}
 
-	private Class<?>[] toRoleArray(List<String> roleClasses, String componentId) {
-		Class<?>[] result = new Class<?>[roleClasses.size()];
+	/**
+	 * Updates the replica by the knowledge data, through the executor if it executes the tasks concurrently
+	 */
+	private void update(KnowledgeManager replica, KnowledgeData knowledgeData) throws KnowledgeUpdateException {
+		if (!(executor instanceof KnowledgeLockingExecutor)) {
+			replica.update(toChangeSet(replica, knowledgeData));
+			return;
+		}
+		((KnowledgeLockingExecutor) executor).accessKnowledge(replica,
+				() -> replica.update(toChangeSet(replica, knowledgeData)));
+	}
+
+	/**
+	 * Gets replicas of the component, which are created when not existing
+	 * 
+	 * @param componentId
+	 *            Id of the component
+	 * @param roleClassNames
+	 *            Names of the role classes declared by the component
+	 * @return Replicas of the component
+	 */
+	private Collection<KnowledgeManager> getReplicas(String componentId, List<String> roleClassNames) {
+		RemoteComponent remoteComponent = remoteComponents.get(componentId);
+		if (remoteComponent == null || !remoteComponent.roleClassNames.equals(roleClassNames)) {
+			remoteComponent = new RemoteComponent(roleClassNames, knowledgeManagerContainer.createReplica(componentId,
+					toRoleArray(roleClassNames, componentId)));
+			remoteComponents.put(componentId, remoteComponent);
+		}
+		return remoteComponent.replicas;
+	}
+
+	private Class<?>[] toRoleArray(List<String> roleClassNames, String componentId) {
+		Class<?>[] result = new Class<?>[roleClassNames.size()];
 		int i = 0;
-		for(String roleClassName : roleClasses) {
-			try {
-				result[i++] = Class.forName(roleClassName);
-			} catch (ClassNotFoundException e) {
-				Log.w(String.format("Role class '%s' declared by component with id '%s' does not exist.",
-						roleClassName, componentId));
+		for(String roleClassName : roleClassNames) {
+			if (!roleClasses.containsKey(roleClassName)) {
+				try {
+					roleClasses.put(roleClassName, Class.forName(roleClassName));
+				} catch (ClassNotFoundException e) {
+					roleClasses.put(roleClassName, null);
+					Log.w(String.format("Role class '%s' declared by component with id '%s' does not exist.",
+							roleClassName, componentId));
+				}
 			}
+			result[i++] = roleClasses.get(roleClassName);
 		}
 		
 		return result;
 	}
 
 	/**
-	 * Converts value set to change set
+	 * Role classes declared by a component along with its replicas
+	 */
+	private static class RemoteComponent {
+		final List<String> roleClassNames;
+		final Collection<KnowledgeManager> replicas;
+
+		RemoteComponent(List<String> roleClassNames, Collection<KnowledgeManager> replicas) {
+			this.roleClassNames = roleClassNames;
+			this.replicas = replicas;
+		}
+	}
+
+	/**
+	 * Converts knowledge data to change set of the replica
+	 * 
+	 * The knowledge paths of the replica deleted by the knowledge data are deleted, which are the deleted paths of a
+	 * delta or the paths not held by the complete knowledge.
 	 * 
-	 * @param knowledge
-	 *            Knowledge
+	 * @param replica
+	 *            Replica to be updated
+	 * @param knowledgeData
+	 *            Knowledge data
 	 * @return Change set composed from input knowledge
 	 */
-	private ChangeSet toChangeSet(ValueSet knowledge) {
+	private ChangeSet toChangeSet(KnowledgeManager replica, KnowledgeData knowledgeData) {
 		ChangeSet result = new ChangeSet();
+		ValueSet knowledge = knowledgeData.getKnowledge();
 
 		for (KnowledgePath kp : knowledge.getKnowledgePaths()) {
 			result.setValue(kp, knowledge.getValue(kp));
 		}
 
+		List<String> deletedPaths = knowledgeData.getMetaData().deletedPaths;
+		if (knowledgeData.getMetaData().isDelta() && deletedPaths == null) {
+			return result;
+		}
+		for (KnowledgePath kp : replica.getAllPaths()) {
+			if (knowledgeData.getMetaData().isDelta() ? deletedPaths.contains(kp.toString()) : !knowledge
+					.getKnowledgePaths().contains(kp)) {
+				result.setDeleted(kp);
+			}
+		}
+
 		return result;
 	}
 
@@ -132,6 +380,7 @@ public class KnowledgeInsertingStrategy implements L2Strategy, DEECoPlugin {
 		// Resolve dependencies
 		knowledgeManagerContainer = container.getRuntimeFramework().getContainer();
 		Network network = container.getPluginInstance(Network.class);
+		executor = container.getRuntimeFramework().getExecutor();
 		timeProvider = container.getRuntimeFramework().getScheduler().getTimer();
 
 		// Register as network L2 strategy
@@ -1,12 +1,17 @@
 package cz.cuni.mff.d3s.jdeeco.publishing;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import java.util.stream.Collectors;
 
+import org.nustaq.serialization.FSTConfiguration;
+
 import cz.cuni.mff.d3s.deeco.knowledge.KnowledgeManager;
 import cz.cuni.mff.d3s.deeco.knowledge.KnowledgeManagerContainer;
 import cz.cuni.mff.d3s.deeco.knowledge.KnowledgeNotFoundException;
@@ -35,19 +40,28 @@ import cz.cuni.mff.d3s.jdeeco.network.l2.PacketHeader;
  * 
  * This uses only broadcast and static list of IP peers, ignores security
  * 
+ * The complete knowledge is published every publishing period unless a keyframe interval greater than 1 is given.
+ * Then the complete knowledge is published once in the keyframe interval of publishing periods. In the other periods,
+ * only the knowledge paths whose values changed since the previous publication are published, along with the paths
+ * deleted meanwhile, and nothing when there are none. The receivers that missed some of the publications or started
+ * receiving later recover the complete knowledge from the next keyframe.
+ * 
  * @author Vladimir Matena <matena@d3s.mff.cuni.cz>
  *
  */
 public class DefaultKnowledgePublisher implements DEECoPlugin, TimerTaskListener {
 	public static final int DEFAULT_PUBLISHING_PERIOD = 1000;
+	public static final int DEFAULT_KEYFRAME_INTERVAL = 1;
 
 	private final int publishingPeriod;
+	private final int keyframeInterval;
 	private Network network;
 	private KnowledgeManagerContainer knowledgeManagerContainer;
 	private CurrentTimeProvider timeProvider;
 	private DEECoContainer container;
 	private List<IPAddress> infrastructurePeers;
 	private final List<KnowledgePath> empty;
+	private final Map<String, PublishedKnowledge> published = new HashMap<>();
 
 	/**
 	 * Constructs DefaultKnowledgePublisher with broadcast only publishing and default publishing period
@@ -70,6 +84,17 @@ public class DefaultKnowledgePublisher implements DEECoPlugin, TimerTaskListener
 		this(Collections.emptyList(), publishingPeriod);
 	}
 
+	/**
+	 * Constructs DefaultKnowledgePublisher with broadcast only publishing
+	 * 
+	 * @param keyframeInterval
+	 *            Number of publishing periods between publications of the complete knowledge, 1 to always publish the
+	 *            complete knowledge
+	 */
+	public DefaultKnowledgePublisher(int publishingPeriod, int keyframeInterval) {
+		this(Collections.emptyList(), publishingPeriod, keyframeInterval);
+	}
+
 	/**
 	 * Constructs DefaultKnowledgePublisher with broadcast and static infrastructure publishing
 	 * 
@@ -77,14 +102,31 @@ public class DefaultKnowledgePublisher implements DEECoPlugin, TimerTaskListener
 	 *            Infrastructure peers
 	 */
 	public DefaultKnowledgePublisher(List<IPAddress> peers, int publishingPeriod) {
+		this(peers, publishingPeriod, DEFAULT_KEYFRAME_INTERVAL);
+	}
+
+	/**
+	 * Constructs DefaultKnowledgePublisher with broadcast and static infrastructure publishing
+	 * 
+	 * @param peers
+	 *            Infrastructure peers
+	 * @param keyframeInterval
+	 *            Number of publishing periods between publications of the complete knowledge, 1 to always publish the
+	 *            complete knowledge
+	 */
+	public DefaultKnowledgePublisher(List<IPAddress> peers, int publishingPeriod, int keyframeInterval) {
+		if (keyframeInterval < 1) {
+			throw new IllegalArgumentException("The keyframe interval must be positive.");
+		}
 		this.infrastructurePeers = peers;
 		this.publishingPeriod = publishingPeriod;
+		this.keyframeInterval = keyframeInterval;
 		RuntimeMetadataFactory factory = RuntimeMetadataFactoryExt.eINSTANCE;
 		empty = new LinkedList<>(Arrays.asList(factory.createKnowledgePath()));
 	}
 
 	/**
-	 * Gets local knowledge data from all knowledge managers
+	 * Gets local knowledge data to be published from all knowledge managers
 	 * 
 	 * @return Knowledge data set
 	 */
@@ -92,7 +134,10 @@ public class DefaultKnowledgePublisher implements DEECoPlugin, TimerTaskListener
 		List<KnowledgeData> result = new LinkedList<>();
 		for (KnowledgeManager km : knowledgeManagerContainer.getLocals()) {
 			try {
-				result.add(getLocalKnowledgeData(km));
+				KnowledgeData data = getLocalKnowledgeData(km);
+				if (data != null) {
+					result.add(data);
+				}
 			} catch (Exception e) {
 				Log.e("prepareKnowledgeData error", e);
 			}
@@ -101,21 +146,99 @@ public class DefaultKnowledgePublisher implements DEECoPlugin, TimerTaskListener
 	}
 
 	/**
-	 * Gets local knowledge data from specific knowledge manager
+	 * Gets local knowledge data to be published from specific knowledge manager
+	 * 
+	 * The data holds either the complete knowledge or, as a delta, the knowledge changed since the previous
+	 * publication.
 	 * 
 	 * @param km
 	 *            KnowledgeManager to get data from
-	 * @return Knowledge data
+	 * @return Knowledge data, or null if the data is a delta and no knowledge changed
 	 * @throws KnowledgeNotFoundException
 	 */
 	protected KnowledgeData getLocalKnowledgeData(KnowledgeManager km) throws KnowledgeNotFoundException {
 		// TODO: version is implemented by current time
 		long time = timeProvider.getCurrentMilliseconds();
-		ValueSet knowledge = getTransferableKnowledge(km.get(empty), km);
 		String id = String.valueOf(container.getId());
+		KnowledgeMetaData metaData = new KnowledgeMetaData(km.getId(), time, id, time, 1);
+		ValueSet knowledge;
+		if (keyframeInterval > 1) {
+			knowledge = getPublishedKnowledge(km, metaData);
+			if (knowledge == null) {
+				return null;
+			}
+		} else {
+			knowledge = getTransferableKnowledge(km.get(empty), km);
+		}
 		List<String> roleClasses = Arrays.asList(km.getRoles()).stream().map(c -> c.getName()).collect(Collectors.toList());
-		return new KnowledgeData(knowledge, new ValueSet(), new ValueSet(), roleClasses, new KnowledgeMetaData(km.getId(), time, id,
-				time, 1));
+		return new KnowledgeData(knowledge, new ValueSet(), new ValueSet(), roleClasses, metaData);
+	}
+
+	/**
+	 * Gets knowledge to be published when publishing deltas and remembers the versions and values of its knowledge
+	 * paths
+	 * 
+	 * Only the values of the knowledge paths whose versions in the knowledge manager differ from the versions
+	 * published are compared to the values published, as processes write their output knowledge every period even when
+	 * it does not change. Values changed in place, without updating the knowledge manager, are therefore published
+	 * only by the next keyframe.
+	 * 
+	 * @param km
+	 *            Knowledge manager of the component
+	 * @param metaData
+	 *            Meta data of the publication, its base version and deleted paths are set when publishing a delta
+	 * @return Complete knowledge, the changed knowledge or null if there is no changed knowledge to publish
+	 * @throws KnowledgeNotFoundException
+	 */
+	private ValueSet getPublishedKnowledge(KnowledgeManager km, KnowledgeMetaData metaData)
+			throws KnowledgeNotFoundException {
+		PublishedKnowledge publishedKnowledge = published.computeIfAbsent(km.getId(), id -> new PublishedKnowledge());
+		boolean keyframe = publishedKnowledge.periods++ % keyframeInterval == 0;
+
+		// The versions are read before the values, so that the values updated meanwhile are published again
+		long knowledgeVersion = km.getVersion(empty.get(0));
+		if (!keyframe && knowledgeVersion == publishedKnowledge.knowledgeVersion) {
+			return null;
+		}
+		Map<KnowledgePath, Long> versions = new HashMap<>();
+		for (KnowledgePath kp : new ArrayList<>(km.getAllPaths())) {
+			if (isTransferable(kp, km)) {
+				versions.put(kp, km.getVersion(kp));
+			}
+		}
+
+		List<KnowledgePath> updated = new LinkedList<>();
+		for (Map.Entry<KnowledgePath, Long> entry : versions.entrySet()) {
+			if (!entry.getValue().equals(publishedKnowledge.versions.get(entry.getKey()))) {
+				updated.add(entry.getKey());
+			}
+		}
+		ValueSet changed = publishedKnowledge.getChanged(updated.isEmpty() ? new ValueSet() : km.get(updated));
+		List<String> deleted = new LinkedList<>();
+		for (KnowledgePath kp : publishedKnowledge.versions.keySet()) {
+			if (!versions.containsKey(kp)) {
+				deleted.add(kp.toString());
+				publishedKnowledge.values.remove(kp);
+			}
+		}
+		publishedKnowledge.knowledgeVersion = knowledgeVersion;
+		publishedKnowledge.versions = versions;
+
+		ValueSet knowledge;
+		if (keyframe) {
+			knowledge = getTransferableKnowledge(km.get(empty), km);
+		} else {
+			if (changed.getKnowledgePaths().isEmpty() && deleted.isEmpty()) {
+				return null;
+			}
+			knowledge = changed;
+			metaData.baseVersionId = publishedKnowledge.version;
+			if (!deleted.isEmpty()) {
+				metaData.deletedPaths = deleted;
+			}
+		}
+		publishedKnowledge.version = metaData.versionId;
+		return knowledge;
 	}
 
 	/**
@@ -130,13 +253,56 @@ public class DefaultKnowledgePublisher implements DEECoPlugin, TimerTaskListener
 	protected ValueSet getTransferableKnowledge(ValueSet source, KnowledgeManager knowledgeManager) {
 		ValueSet result = new ValueSet();
 		for (KnowledgePath kp : source.getKnowledgePaths()) {
-			if (!(knowledgeManager.isLocal(kp) || knowledgeManager.isOfSystemComponent())) {
+			if (isTransferable(kp, knowledgeManager)) {
 				result.setValue(kp, source.getValue(kp));
 			}
 		}
 		return result;
 	}
 
+	private static boolean isTransferable(KnowledgePath kp, KnowledgeManager knowledgeManager) {
+		return !(knowledgeManager.isLocal(kp) || knowledgeManager.isOfSystemComponent());
+	}
+
+	/**
+	 * Versions of the knowledge of a local component as published
+	 */
+	private static class PublishedKnowledge {
+		static FSTConfiguration conf = FSTConfiguration.createDefaultConfiguration();
+
+		// Version of the last publication
+		long version = -1;
+		// Version of the whole knowledge in the knowledge manager as last compared
+		long knowledgeVersion = -1;
+		// Number of publishing periods so far
+		int periods;
+		// Versions of the published knowledge paths in the knowledge manager
+		Map<KnowledgePath, Long> versions = new HashMap<>();
+		// Serialized values of the published knowledge paths
+		final Map<KnowledgePath, byte[]> values = new HashMap<>();
+
+		/**
+		 * Gets the values that differ from the values published and remembers them
+		 */
+		ValueSet getChanged(ValueSet knowledge) {
+			ValueSet changed = new ValueSet();
+			for (KnowledgePath kp : knowledge.getKnowledgePaths()) {
+				Object value = knowledge.getValue(kp);
+				byte[] serialized;
+				try {
+					serialized = conf.asByteArray(value);
+				} catch (Exception e) {
+					serialized = null;
+				}
+				if (serialized == null || !Arrays.equals(serialized, values.get(kp))) {
+					changed.setValue(kp, value);
+					values.put(kp, serialized);
+				}
+			}
+			return changed;
+		}
+	}
+
 	@Override
 	public void at(long time, Object triger) {
 		Log.d("Publisher called at: " + time);
@@ -0,0 +1,167 @@
+package cz.cuni.mff.d3s.jdeeco.network.device;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import cz.cuni.mff.d3s.deeco.annotations.Component;
+import cz.cuni.mff.d3s.deeco.annotations.Ensemble;
+import cz.cuni.mff.d3s.deeco.annotations.In;
+import cz.cuni.mff.d3s.deeco.annotations.InOut;
+import cz.cuni.mff.d3s.deeco.annotations.KnowledgeExchange;
+import cz.cuni.mff.d3s.deeco.annotations.Membership;
+import cz.cuni.mff.d3s.deeco.annotations.PeriodicScheduling;
+import cz.cuni.mff.d3s.deeco.annotations.Process;
+import cz.cuni.mff.d3s.deeco.runners.DEECoSimulation;
+import cz.cuni.mff.d3s.deeco.runtime.DEECoNode;
+import cz.cuni.mff.d3s.deeco.runtimelog.RuntimeLogWriters;
+import cz.cuni.mff.d3s.deeco.task.ParamHolder;
+import cz.cuni.mff.d3s.deeco.task.TimerTask;
+import cz.cuni.mff.d3s.deeco.task.TimerTaskListener;
+import cz.cuni.mff.d3s.deeco.timer.SequentialDeliveryTimer;
+import cz.cuni.mff.d3s.deeco.timer.ParallelDiscreteEventTimer;
+import cz.cuni.mff.d3s.deeco.timer.SimulationTimer;
+import cz.cuni.mff.d3s.jdeeco.network.Network;
+import cz.cuni.mff.d3s.jdeeco.network.l2.strategy.KnowledgeInsertingStrategy;
+import cz.cuni.mff.d3s.jdeeco.position.PositionPlugin;
+import cz.cuni.mff.d3s.jdeeco.publishing.DefaultKnowledgePublisher;
+
+/**
+ * Tests that the simulation of nodes communicating over the
+ * {@link SimpleBroadcastDevice} produces the same runtime logs with the
+ * {@link ParallelDiscreteEventTimer} as with the {@link SequentialDeliveryTimer}.
+ */
+public class ParallelSimulationTest {
+	static final int NODES = 12;
+	static final long DURATION = 20000;
+	static final long DELAY_MS = 20;
+	static final double SPEED = 300; // meters per second
+	static final long SWING_PERIOD = 1000;
+	static final long STEP_PERIOD = 10;
+
+	@Test
+	public void testSameLogsAsSequential() throws Exception {
+		// WHEN the same simulation is run sequentially and in parallel
+		List<String> sequential = runSimulation(new SequentialDeliveryTimer(), false,
+				SimpleBroadcastDevice.DEFAULT_MAX_SPEED);
+		List<String> parallel = runSimulation(new ParallelDiscreteEventTimer(4), false,
+				SimpleBroadcastDevice.DEFAULT_MAX_SPEED);
+
+		// THEN each node logs the same records at the same times
+		assertSameLogs(sequential, parallel);
+	}
+
+	@Test
+	public void testSameLogsAsSequentialWithMovingNodes() throws Exception {
+		// WHEN the same simulation with the nodes moving in and out of range is run sequentially and in parallel
+		List<String> sequential = runSimulation(new SequentialDeliveryTimer(), true,
+				SimpleBroadcastDevice.DEFAULT_MAX_SPEED);
+		List<String> parallel = runSimulation(new ParallelDiscreteEventTimer(4), true,
+				SimpleBroadcastDevice.DEFAULT_MAX_SPEED);
+		// AND with the receivers looked up by the maximal speed of the nodes, doubled to cover the steps
+		List<String> sequentialBounded = runSimulation(new SequentialDeliveryTimer(), true, 2 * SPEED);
+		List<String> parallelBounded = runSimulation(new ParallelDiscreteEventTimer(4), true, 2 * SPEED);
+
+		// THEN each node logs the same records at the same times
+		assertSameLogs(sequential, parallel);
+		assertSameLogs(sequential, sequentialBounded);
+		assertSameLogs(sequential, parallelBounded);
+	}
+
+	private static void assertSameLogs(List<String> expected, List<String> actual) {
+		assertEquals(NODES, actual.size());
+		for (int i = 0; i < NODES; i++) {
+			assertTrue("Node " + i + " logged ensembles", expected.get(i).contains("BeaconExchange"));
+			assertEquals("Log of node " + i, expected.get(i), actual.get(i));
+		}
+	}
+
+	private List<String> runSimulation(SimulationTimer timer, boolean moving, double maxSpeed) throws Exception {
+		DEECoSimulation realm = new DEECoSimulation(timer);
+		realm.addPlugin(new SimpleBroadcastDevice(DELAY_MS, 0, SimpleBroadcastDevice.DEFAULT_RANGE,
+				SimpleBroadcastDevice.DEFAULT_MTU, maxSpeed));
+		realm.addPlugin(Network.class);
+		realm.addPlugin(DefaultKnowledgePublisher.class);
+		realm.addPlugin(KnowledgeInsertingStrategy.class);
+
+		List<StringWriter> logs = new ArrayList<>();
+		for (int i = 0; i < NODES; i++) {
+			StringWriter log = new StringWriter();
+			logs.add(log);
+			RuntimeLogWriters writers = new RuntimeLogWriters(log, new StringWriter(), new StringWriter());
+			// nodes placed on a line, each of them reaches only some of the others
+			final PositionPlugin position = new PositionPlugin(i * 100, 0);
+			DEECoNode node = realm.createNode(i, writers, position);
+			if (moving) {
+				// the even nodes swing to the right and the odd ones to the left, moving in steps of their own
+				final double start = i * 100;
+				final int direction = i % 2 == 0 ? 1 : -1;
+				new TimerTask(node.getRuntimeFramework().getScheduler(), new TimerTaskListener() {
+					@Override
+					public void at(long time, Object triger) {
+						position.setStaticPosition(start + direction * swing(time), 0);
+					}
+				}, "move", 0, STEP_PERIOD).schedule();
+			}
+			node.deployComponent(new Beacon("Beacon" + i));
+			node.deployEnsemble(BeaconExchange.class);
+		}
+
+		realm.start(DURATION);
+
+		List<String> result = new ArrayList<>();
+		for (StringWriter log : logs) {
+			result.add(log.toString());
+		}
+		return result;
+	}
+
+	/**
+	 * Gets the distance from the start position swinging between 0 and SPEED * SWING_PERIOD / 2 at the speed SPEED
+	 */
+	static double swing(long time) {
+		long phase = time % SWING_PERIOD;
+		long forward = Math.min(phase, SWING_PERIOD - phase);
+		return SPEED * forward / 1000;
+	}
+
+	@Component
+	public static class Beacon {
+		public String id;
+		public Integer counter;
+		public Integer heard;
+
+		public Beacon(String id) {
+			this.id = id;
+			this.counter = 0;
+			this.heard = 0;
+		}
+
+		@Process
+		@PeriodicScheduling(period = 300)
+		public static void count(@In("heard") Integer heard, @InOut("counter") ParamHolder<Integer> counter) {
+			counter.value = counter.value + 1 + heard % 7;
+		}
+	}
+
+	@Ensemble(enableLogging = true)
+	@PeriodicScheduling(period = 500)
+	public static class BeaconExchange {
+		@Membership
+		public static boolean membership(@In("member.id") String memberId, @In("coord.id") String coordId,
+				@In("coord.counter") Integer coordCounter) {
+			return !memberId.equals(coordId) && coordCounter % 3 != 0;
+		}
+
+		@KnowledgeExchange
+		public static void map(@In("coord.counter") Integer coordCounter,
+				@InOut("member.heard") ParamHolder<Integer> heard) {
+			heard.value = heard.value + coordCounter;
+		}
+	}
+}
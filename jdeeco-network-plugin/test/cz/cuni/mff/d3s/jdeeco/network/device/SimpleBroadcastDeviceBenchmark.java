@@ -0,0 +1,165 @@
+package cz.cuni.mff.d3s.jdeeco.network.device;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import cz.cuni.mff.d3s.deeco.runtime.DEECoContainer;
+import cz.cuni.mff.d3s.deeco.runtime.RuntimeFramework;
+import cz.cuni.mff.d3s.deeco.scheduler.Scheduler;
+import cz.cuni.mff.d3s.deeco.timer.Timer;
+import cz.cuni.mff.d3s.deeco.timer.TimerEventListener;
+import cz.cuni.mff.d3s.jdeeco.network.InstantSchedulerMock;
+import cz.cuni.mff.d3s.jdeeco.network.Network;
+import cz.cuni.mff.d3s.jdeeco.network.l1.DefaultDataIDSource;
+import cz.cuni.mff.d3s.jdeeco.network.l1.Layer1;
+import cz.cuni.mff.d3s.jdeeco.network.l1.ReceivedInfo;
+import cz.cuni.mff.d3s.jdeeco.position.Position;
+import cz.cuni.mff.d3s.jdeeco.position.PositionPlugin;
+
+/**
+ * Measures the delivery of a broadcast packet by the {@link SimpleBroadcastDevice} to randomly placed nodes, with 10
+ * and 100 nodes in range of each node on average, all the packets at the same time or each of them at the next
+ * millisecond after one node has moved.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SimpleBroadcastDeviceBenchmark {
+
+	@Param({ "500", "5000" })
+	public int nodes;
+
+	@Param({ "10", "100" })
+	public int neighbours;
+
+	private SimpleBroadcastDevice device;
+	private ClockSchedulerMock scheduler;
+	private List<SimpleBroadcastDevice.LoopDevice> loops;
+	private List<PositionPlugin> positions;
+	private byte[] data = new byte[SimpleBroadcastDevice.DEFAULT_MTU];
+	private int next;
+
+	/**
+	 * Layer counting the received packets instead of processing them
+	 */
+	static class CountingLayer1 extends Layer1 {
+		int received;
+
+		CountingLayer1(Scheduler scheduler) {
+			super((byte) 0, DefaultDataIDSource.getInstance(), scheduler);
+		}
+
+		@Override
+		public void processL0Packet(byte[] l0Packet, Device device, ReceivedInfo receivedInfo) {
+			received++;
+		}
+	}
+
+	/**
+	 * Scheduler whose timer shows the time set by the benchmark
+	 */
+	static class ClockSchedulerMock extends InstantSchedulerMock {
+		long time;
+
+		private final Timer timer = new Timer() {
+			@Override
+			public long getCurrentMilliseconds() {
+				return time;
+			}
+
+			@Override
+			public void notifyAt(long time, TimerEventListener listener, String eventName, DEECoContainer node) {
+				throw new UnsupportedOperationException();
+			}
+
+			@Override
+			public void interruptionEvent(TimerEventListener listener, String eventName, DEECoContainer node) {
+				throw new UnsupportedOperationException();
+			}
+
+			@Override
+			public void addShutdownListener(ShutdownListener listener) {
+				throw new UnsupportedOperationException();
+			}
+
+			@Override
+			public void addStartupListener(StartupListener listener) {
+				throw new UnsupportedOperationException();
+			}
+		};
+
+		@Override
+		public Timer getTimer() {
+			return timer;
+		}
+	}
+
+	@Setup
+	public void setUp() {
+		device = new SimpleBroadcastDevice();
+		scheduler = new ClockSchedulerMock();
+		RuntimeFramework runtime = Mockito.mock(RuntimeFramework.class);
+		Mockito.when(runtime.getScheduler()).thenReturn(scheduler);
+
+		// area with the requested number of nodes in range of each node on average
+		double range = SimpleBroadcastDevice.DEFAULT_RANGE;
+		double side = Math.sqrt(nodes * Math.PI * range * range / neighbours);
+		Random random = new Random(42);
+		Map<Position, PositionPlugin> plugins = new HashMap<>();
+		for (int i = 0; i < nodes; i++) {
+			DEECoContainer node = Mockito.mock(DEECoContainer.class);
+			Mockito.when(node.getId()).thenReturn(i);
+			Mockito.when(node.getRuntimeFramework()).thenReturn(runtime);
+			PositionPlugin position = new PositionPlugin(random.nextDouble() * side, random.nextDouble() * side);
+			plugins.put(position.getPosition(), position);
+			Mockito.when(node.getPluginInstance(PositionPlugin.class)).thenReturn(position);
+			Network network = Mockito.mock(Network.class);
+			Mockito.when(network.getL1()).thenReturn(new CountingLayer1(scheduler));
+			Mockito.when(node.getPluginInstance(Network.class)).thenReturn(network);
+			device.init(node);
+		}
+
+		loops = new ArrayList<>(device.loops);
+		positions = new ArrayList<>();
+		for (SimpleBroadcastDevice.LoopDevice loop : loops) {
+			positions.add(plugins.get(loop.getPosition()));
+		}
+	}
+
+	/**
+	 * Broadcasts a packet from the next node.
+	 */
+	@Benchmark
+	public SimpleBroadcastDevice.PacketWrapper broadcast() {
+		SimpleBroadcastDevice.PacketWrapper packet = device.new PacketWrapper(data, loops.get(next));
+		next = (next + 1) % loops.size();
+		device.sendToAll(packet);
+		return packet;
+	}
+
+	/**
+	 * Moves the next node by a meter back and forth and broadcasts a packet from it at the next millisecond.
+	 */
+	@Benchmark
+	public SimpleBroadcastDevice.PacketWrapper broadcastMoving() {
+		scheduler.time++;
+		PositionPlugin position = positions.get(next);
+		Position current = position.getPosition();
+		position.setStaticPosition(current.x + ((scheduler.time / nodes) % 2 == 0 ? 1 : -1), current.y);
+		return broadcast();
+	}
+}
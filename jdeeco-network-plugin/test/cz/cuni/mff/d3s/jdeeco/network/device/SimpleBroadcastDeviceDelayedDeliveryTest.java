@@ -10,13 +10,17 @@ import cz.cuni.mff.d3s.deeco.runners.DEECoSimulation;
 import cz.cuni.mff.d3s.deeco.runtime.DEECoException;
 import cz.cuni.mff.d3s.deeco.runtime.DEECoNode;
 import cz.cuni.mff.d3s.deeco.runtimelog.RuntimeLogWritersMock;
+import cz.cuni.mff.d3s.deeco.task.TimerTask;
+import cz.cuni.mff.d3s.deeco.task.TimerTaskListener;
 import cz.cuni.mff.d3s.deeco.timer.CurrentTimeProvider;
 import cz.cuni.mff.d3s.deeco.timer.DiscreteEventTimer;
+import cz.cuni.mff.d3s.deeco.timer.SequentialDeliveryTimer;
 import cz.cuni.mff.d3s.deeco.timer.SimulationTimer;
 import cz.cuni.mff.d3s.jdeeco.network.Network;
 import cz.cuni.mff.d3s.jdeeco.network.address.MANETBroadcastAddress;
 import cz.cuni.mff.d3s.jdeeco.network.l1.L1Packet;
 import cz.cuni.mff.d3s.jdeeco.network.l1.L1Strategy;
+import cz.cuni.mff.d3s.jdeeco.position.PositionPlugin;
 
 /**
  * Tests delayed deliver for simple broadcasting device
@@ -65,6 +69,57 @@ public class SimpleBroadcastDeviceDelayedDeliveryTest {
 				"Test if delay is close enough to expected value (it may not be strictly equal as devices have some queues)",
 				Math.abs(TEST_DELAY_MS - receivedRegister.lasteReceivedAt) < TEST_DELAY_ALLOWED_INACCURACY_MS);
 	}
+
+	@Test
+	public void testDeliveryToNodeMovingIntoRange() throws Exception {
+		Assert.assertTrue(deliveredToNodeMovingIntoRange(SimpleBroadcastDevice.DEFAULT_MAX_SPEED) >= TEST_DELAY_MS);
+		Assert.assertTrue(deliveredToNodeMovingIntoRange(100) >= TEST_DELAY_MS);
+	}
+
+	/**
+	 * Sends packet from a node to a node which is out of range when sending and moves into range before the delivery
+	 * 
+	 * @return Time the packet was received at, -1 if not received
+	 */
+	private long deliveredToNodeMovingIntoRange(double maxSpeed) throws Exception {
+		// Setup simulation delivering the packets by the timer
+		SimulationTimer simulationTimer = new SequentialDeliveryTimer();
+		DEECoSimulation realm = new DEECoSimulation(simulationTimer);
+		realm.addPlugin(new SimpleBroadcastDevice(TEST_DELAY_MS, 0, 250, SimpleBroadcastDevice.DEFAULT_MTU, maxSpeed));
+		realm.addPlugin(Network.class);
+
+		// Setup two nodes out of range of each other
+		final PositionPlugin node0Position = new PositionPlugin(400, 0);
+		DEECoNode node0 = realm.createNode(runtimeLogWriters, node0Position);
+		DEECoNode node1 = realm.createNode(runtimeLogWriters, new PositionPlugin(0, 0));
+
+		// Register strategy for received packets to obtain received time
+		Network node0Net = node0.getPluginInstance(Network.class);
+		TimestampingL1Strategy receivedRegister = new TimestampingL1Strategy(simulationTimer);
+		node0Net.getL1().registerL1Strategy(receivedRegister);
+
+		// Send packet from node 1 at time 100
+		final Network node1Net = node1.getPluginInstance(Network.class);
+		new TimerTask(node1.getRuntimeFramework().getScheduler(), new TimerTaskListener() {
+			@Override
+			public void at(long time, Object triger) {
+				node1Net.getL1().sendL1Packet(new L1Packet(new byte[] { 10 }, (byte) 0, 12, 5, 100),
+						MANETBroadcastAddress.BROADCAST);
+			}
+		}, "send", 100).schedule();
+
+		// Move node 0 into range at time 1000
+		new TimerTask(node0.getRuntimeFramework().getScheduler(), new TimerTaskListener() {
+			@Override
+			public void at(long time, Object triger) {
+				node0Position.setStaticPosition(200, 0);
+			}
+		}, "move", 1000).schedule();
+
+		realm.start(TEST_DELAY_MS * 2);
+
+		return receivedRegister.lasteReceivedAt;
+	}
 }
 
 /**
@@ -136,7 +136,31 @@ public class SimpleBroadcastDeviceTest {
 		Layer1 node2layer1 = node2.getPluginInstance(Network.class).getL1();
 		Mockito.verify(node2layer1, Mockito.atLeastOnce()).processL0Packet(Mockito.any(), Mockito.any(), Mockito.any());
 	}
-	
+
+	/**
+	 * Tests sending packet to a node moved into range at the time of the previous packet
+	 */
+	@Test
+	public void testNodeMovedIntoRange() {
+		SimpleBroadcastDevice loop = new SimpleBroadcastDevice();
+		loop.init(node0);
+		loop.init(node1);
+		loop.init(node2);
+		Layer1 node0layer1 = node0.getPluginInstance(Network.class).getL1();
+		Layer1 node2layer1 = node2.getPluginInstance(Network.class).getL1();
+		PositionPlugin node2Position = node2.getPluginInstance(PositionPlugin.class);
+
+		// Move node 2 out of range and send packet
+		node2Position.setStaticPosition(0, 10 * SimpleBroadcastDevice.DEFAULT_RANGE);
+		node0layer1.sendL1Packet(TEST_PACKET, MANETBroadcastAddress.BROADCAST);
+		Mockito.verify(node2layer1, Mockito.never()).processL0Packet(Mockito.any(), Mockito.any(), Mockito.any());
+
+		// Move node 2 back into range at the same time and send packet again
+		node2Position.setStaticPosition(0, 0);
+		node0layer1.sendL1Packet(TEST_PACKET, MANETBroadcastAddress.BROADCAST);
+		Mockito.verify(node2layer1, Mockito.atLeastOnce()).processL0Packet(Mockito.any(), Mockito.any(), Mockito.any());
+	}
+
 	/**
 	 * Tests RSSI approximation
 	 * 
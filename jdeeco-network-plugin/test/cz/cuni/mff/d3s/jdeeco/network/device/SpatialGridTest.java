@@ -0,0 +1,66 @@
+package cz.cuni.mff.d3s.jdeeco.network.device;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import cz.cuni.mff.d3s.jdeeco.position.Position;
+
+/**
+ * Tests the grid used to look up the receivers of broadcast packets
+ */
+public class SpatialGridTest {
+	SpatialGrid<String> grid;
+
+	@Before
+	public void setUp() {
+		grid = new SpatialGrid<>(100);
+		grid.update("origin", new Position(0, 0));
+		grid.update("near", new Position(60, -60));
+		grid.update("corner", new Position(90, 90));
+		grid.update("far", new Position(250, 0));
+	}
+
+	private Set<String> collect(Position center, double range) {
+		Set<String> result = new HashSet<>();
+		grid.collect(center, range, result);
+		return result;
+	}
+
+	@Test
+	public void testCollectsOnlyItemsInRange() {
+		// WHEN items around the origin are collected
+		// THEN the items in neighbouring cells out of range are omitted
+		assertEquals(new HashSet<>(Arrays.asList("origin", "near")), collect(new Position(0, 0), 100));
+		assertEquals(new HashSet<>(Arrays.asList("origin", "near", "corner")), collect(new Position(0, 0), 130));
+	}
+
+	@Test
+	public void testMovedItemIsFoundAtNewPosition() {
+		// WHEN an item moves to another cell
+		grid.update("far", new Position(-50, 10));
+
+		// THEN it is found at the new position only
+		assertEquals(new HashSet<>(Arrays.asList("origin", "near", "far")), collect(new Position(0, 0), 100));
+		assertEquals(new HashSet<>(), collect(new Position(250, 0), 100));
+		assertEquals(4, grid.size());
+	}
+
+	@Test
+	public void testItemsWithoutPositionAlwaysCollected() {
+		// WHEN an item loses its position
+		grid.update("near", null);
+
+		// THEN it is collected by every query
+		assertEquals(new HashSet<>(Arrays.asList("far", "near")), collect(new Position(250, 0), 10));
+
+		// WHEN the query has no center
+		// THEN all the items are collected
+		assertEquals(new HashSet<>(Arrays.asList("origin", "near", "corner", "far")), collect(null, 10));
+	}
+}
@@ -0,0 +1,36 @@
+package cz.cuni.mff.d3s.jdeeco.network.l1;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import org.junit.Test;
+
+/**
+ * Tests the DefaultDataIDSource
+ */
+public class DefaultDataIDSourceTest {
+
+	@Test
+	public void independentOfOtherNodesTest() {
+		DefaultDataIDSource source = new DefaultDataIDSource(1);
+		new DefaultDataIDSource(2).createDataID();
+		assertEquals(1, source.createDataID());
+		assertEquals(2, source.createDataID());
+	}
+
+	@Test
+	public void nodesSharingSourceByteStartApartTest() {
+		assertNotEquals(new DefaultDataIDSource(1).createDataID(), new DefaultDataIDSource(257).createDataID());
+	}
+
+	@Test
+	public void wrapsWithinTwoBytesTest() {
+		DefaultDataIDSource source = new DefaultDataIDSource(0);
+		int id = 0;
+		for (int i = 0; i < 0xFFFF; i++) {
+			id = source.createDataID();
+		}
+		assertEquals(0xFFFF, id);
+		assertEquals(1, source.createDataID());
+	}
+}
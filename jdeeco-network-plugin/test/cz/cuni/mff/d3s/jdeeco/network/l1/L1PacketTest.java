@@ -3,6 +3,7 @@ package cz.cuni.mff.d3s.jdeeco.network.l1;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 import org.junit.Test;
@@ -52,7 +53,29 @@ public class L1PacketTest {
 		assertEquals(after.payloadSize, before.payloadSize);
 		assertEquals(after.srcNode, before.srcNode);
 		assertEquals(after.startPos, before.startPos);
-		assertTrue(Arrays.equals(after.payload, before.payload));
+		assertEquals(before.payload, after.payload);
+	}
+
+	@Test
+	public void fromBytesRefersToBytesTest() {
+		// GIVEN an encoded packet following other data
+		L1Packet before = new L1Packet(new byte[] { 1, 2, 3 }, (byte) 4, 12, 5, 100);
+		byte[] bytes = new byte[2 + before.getByteSize()];
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		buffer.position(2);
+		before.writeTo(buffer);
+
+		// WHEN the packet is decoded
+		L1Packet after = L1Packet.fromBytes(bytes, 2);
+
+		// THEN the payload is a read-only view of the bytes
+		assertEquals(3, after.payloadSize);
+		assertTrue(after.payload.isReadOnly());
+		byte[] payload = new byte[4];
+		after.copyPayload(payload, 1);
+		assertTrue(Arrays.equals(new byte[] { 0, 1, 2, 3 }, payload));
+		bytes[2 + L1Packet.HEADER_SIZE] = 7;
+		assertEquals(7, after.payload.get(0));
 	}
 
 }
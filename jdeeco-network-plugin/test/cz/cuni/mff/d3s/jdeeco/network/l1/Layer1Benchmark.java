@@ -0,0 +1,98 @@
+package cz.cuni.mff.d3s.jdeeco.network.l1;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import cz.cuni.mff.d3s.deeco.scheduler.Scheduler;
+import cz.cuni.mff.d3s.jdeeco.network.InstantSchedulerMock;
+import cz.cuni.mff.d3s.jdeeco.network.address.Address;
+import cz.cuni.mff.d3s.jdeeco.network.address.MANETBroadcastAddress;
+import cz.cuni.mff.d3s.jdeeco.network.device.Device;
+import cz.cuni.mff.d3s.jdeeco.network.l2.L1DataProcessor;
+import cz.cuni.mff.d3s.jdeeco.network.l2.L2Packet;
+
+/**
+ * Measures sending an L2 packet of 1 kB and 16 kB through the layer 1 of the sender, fragmented to L0 packets of the
+ * default MTU, and its reassembly by the layer 1 of the receiver.
+ *
+ * <p>
+ * The throughput in MB/s is the packet size divided by the average time, the allocation per operation is reported by
+ * the GC profiler as {@code gc.alloc.rate.norm}.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class Layer1Benchmark {
+
+	@Param({ "1024", "16384" })
+	public int size;
+
+	private Layer1 sender;
+	private Layer1 receiver;
+	private byte[] data;
+	private int received;
+
+	@Setup
+	public void setUp() {
+		Scheduler scheduler = new InstantSchedulerMock();
+		// data IDs are encoded into 2 bytes, so they have to wrap around in the long run
+		DataIDSource dataIdSource = new DataIDSource() {
+			private int dataId;
+
+			@Override
+			public int createDataID() {
+				dataId = (dataId + 1) & 0xFFFF;
+				return dataId;
+			}
+		};
+		sender = new Layer1((byte) 1, dataIdSource, scheduler);
+		receiver = new Layer1((byte) 2, dataIdSource, scheduler);
+		final ReceivedInfo info = new MANETReceivedInfo(MANETBroadcastAddress.BROADCAST, 1);
+		sender.registerDevice(new Device() {
+			@Override
+			public String getId() {
+				return "loop";
+			}
+
+			@Override
+			public int getMTU() {
+				return 128;
+			}
+
+			@Override
+			public boolean canSend(Address address) {
+				return true;
+			}
+
+			@Override
+			public void send(byte[] data, Address address) {
+				receiver.processL0Packet(data, this, info);
+			}
+		});
+		receiver.addL1PacketProcessor(new L1DataProcessor() {
+			@Override
+			public void processL2Packet(L2Packet packet) {
+				received += packet.getData().length;
+			}
+		});
+		data = new byte[size];
+	}
+
+	/**
+	 * Sends the packet and receives it.
+	 */
+	@Benchmark
+	public int sendAndReceive() {
+		sender.processL2Packet(new L2Packet(data, null), MANETBroadcastAddress.BROADCAST);
+		return received;
+	}
+}
@@ -0,0 +1,124 @@
+package cz.cuni.mff.d3s.jdeeco.network.l1;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import cz.cuni.mff.d3s.deeco.scheduler.Scheduler;
+import cz.cuni.mff.d3s.jdeeco.network.InstantSchedulerMock;
+import cz.cuni.mff.d3s.jdeeco.network.address.Address;
+import cz.cuni.mff.d3s.jdeeco.network.address.MANETBroadcastAddress;
+import cz.cuni.mff.d3s.jdeeco.network.device.Device;
+import cz.cuni.mff.d3s.jdeeco.network.l2.L1DataProcessor;
+import cz.cuni.mff.d3s.jdeeco.network.l2.L2Packet;
+
+/**
+ * Tests fragmentation and reassembly of L2 packets by the layer 1
+ */
+public class Layer1Test {
+	static final int MTU = 32;
+
+	private Layer1 sender;
+	private Layer1 receiver;
+	private L1DataProcessor processor;
+	private List<byte[]> sent;
+
+	/**
+	 * Device passing the sent L0 packets to the receiving layer
+	 */
+	private class LoopDevice extends Device {
+		@Override
+		public String getId() {
+			return "loop";
+		}
+
+		@Override
+		public int getMTU() {
+			return MTU;
+		}
+
+		@Override
+		public boolean canSend(Address address) {
+			return true;
+		}
+
+		@Override
+		public void send(byte[] data, Address address) {
+			sent.add(data);
+			receiver.processL0Packet(data, this, new MANETReceivedInfo(MANETBroadcastAddress.BROADCAST, 1));
+		}
+	}
+
+	@Before
+	public void setUp() {
+		Scheduler scheduler = new InstantSchedulerMock();
+		sent = new ArrayList<>();
+		sender = new Layer1((byte) 1, DefaultDataIDSource.getInstance(), scheduler);
+		sender.registerDevice(new LoopDevice());
+		receiver = new Layer1((byte) 2, DefaultDataIDSource.getInstance(), scheduler);
+		processor = Mockito.mock(L1DataProcessor.class);
+		receiver.addL1PacketProcessor(processor);
+	}
+
+	private static byte[] createData(int size) {
+		byte[] data = new byte[size];
+		for (int i = 0; i < size; i++) {
+			data[i] = (byte) i;
+		}
+		return data;
+	}
+
+	@Test
+	public void testFragmentedPacketReassembled() {
+		// GIVEN L2 packet data larger than the MTU
+		byte[] data = createData(100);
+
+		// WHEN the packet is sent
+		assertTrue(sender.processL2Packet(new L2Packet(data, null), MANETBroadcastAddress.BROADCAST));
+
+		// THEN it is sent in several L0 packets not exceeding the MTU
+		assertTrue(sent.size() > 1);
+		for (byte[] l0Packet : sent) {
+			assertTrue(l0Packet.length <= MTU);
+		}
+
+		// AND it is reassembled by the receiver once
+		ArgumentCaptor<L2Packet> captor = ArgumentCaptor.forClass(L2Packet.class);
+		Mockito.verify(processor).processL2Packet(captor.capture());
+		assertTrue(Arrays.equals(data, captor.getValue().getData()));
+		assertEquals(sent.size(), captor.getValue().getReceivedInfo().srcFragments.size());
+	}
+
+	@Test
+	public void testInterleavedPacketsReassembledSeparately() {
+		// GIVEN an L0 packet containing fragments of two L2 packets interleaved
+		byte[] first = createData(6);
+		byte[] second = new byte[] { 9, 8, 7 };
+		List<L1Packet> fragments = Arrays.asList(
+				new L1Packet(Arrays.copyOfRange(first, 0, 3), (byte) 5, 10, 0, first.length),
+				new L1Packet(second, (byte) 5, 11, 0, second.length),
+				new L1Packet(Arrays.copyOfRange(first, 3, 6), (byte) 5, 10, 3, first.length));
+		ByteBuffer l0Packet = ByteBuffer.allocate(3 * L1Packet.HEADER_SIZE + first.length + second.length);
+		for (L1Packet fragment : fragments) {
+			fragment.writeTo(l0Packet);
+		}
+
+		// WHEN the L0 packet is received
+		receiver.processL0Packet(l0Packet.array(), null, new MANETReceivedInfo(MANETBroadcastAddress.BROADCAST, 1));
+
+		// THEN both L2 packets are reassembled
+		ArgumentCaptor<L2Packet> captor = ArgumentCaptor.forClass(L2Packet.class);
+		Mockito.verify(processor, Mockito.times(2)).processL2Packet(captor.capture());
+		assertTrue(Arrays.equals(second, captor.getAllValues().get(0).getData()));
+		assertTrue(Arrays.equals(first, captor.getAllValues().get(1).getData()));
+	}
+}
@@ -0,0 +1,133 @@
+package cz.cuni.mff.d3s.jdeeco.network.l2.strategy;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import cz.cuni.mff.d3s.deeco.annotations.Component;
+import cz.cuni.mff.d3s.deeco.annotations.InOut;
+import cz.cuni.mff.d3s.deeco.annotations.PeriodicScheduling;
+import cz.cuni.mff.d3s.deeco.annotations.Process;
+import cz.cuni.mff.d3s.deeco.network.KnowledgeData;
+import cz.cuni.mff.d3s.deeco.runners.DEECoSimulation;
+import cz.cuni.mff.d3s.deeco.runtime.DEECoContainer;
+import cz.cuni.mff.d3s.deeco.runtime.DEECoNode;
+import cz.cuni.mff.d3s.deeco.runtime.DEECoPlugin;
+import cz.cuni.mff.d3s.deeco.runtimelog.RuntimeLogWritersMock;
+import cz.cuni.mff.d3s.deeco.task.ParamHolder;
+import cz.cuni.mff.d3s.deeco.timer.DiscreteEventTimer;
+import cz.cuni.mff.d3s.jdeeco.network.Network;
+import cz.cuni.mff.d3s.jdeeco.network.device.SimpleBroadcastDevice;
+import cz.cuni.mff.d3s.jdeeco.network.l2.L2Packet;
+import cz.cuni.mff.d3s.jdeeco.network.l2.L2Strategy;
+import cz.cuni.mff.d3s.jdeeco.position.PositionPlugin;
+import cz.cuni.mff.d3s.jdeeco.publishing.DefaultKnowledgePublisher;
+
+/**
+ * Measures the throughput of receiving knowledge in a standalone simulation of vehicles within the range of each
+ * other, all of them publishing their knowledge by the {@link DefaultKnowledgePublisher} and incorporating the
+ * knowledge of the others by the {@link KnowledgeInsertingStrategy}. The throughput is reported as the received
+ * knowledge packets per second of the wall time, including the rest of the simulation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class KnowledgeInsertingSimulationBenchmark {
+	private static final long DURATION = 10000;
+
+	@Param({ "20", "50" })
+	public int vehicles;
+
+	@Component
+	public static class Vehicle {
+		public String id;
+		public Integer position;
+		public Double speed;
+		public String destination;
+
+		public Vehicle(String id) {
+			this.id = id;
+			this.position = 0;
+			this.speed = 1.0;
+			this.destination = "depot";
+		}
+
+		@Process
+		@PeriodicScheduling(period = 500)
+		public static void move(@InOut("position") ParamHolder<Integer> position) {
+			position.value = position.value + 1;
+		}
+	}
+
+	/**
+	 * Received knowledge packets, reported as the throughput
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Received {
+		public long packets;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			packets = 0;
+		}
+	}
+
+	/**
+	 * Plug-in counting the knowledge packets received by the node
+	 */
+	static class CountingPlugin implements DEECoPlugin, L2Strategy {
+		long packets;
+
+		@Override
+		public List<Class<? extends DEECoPlugin>> getDependencies() {
+			return Arrays.asList(Network.class);
+		}
+
+		@Override
+		public void init(DEECoContainer container) {
+			container.getPluginInstance(Network.class).getL2().registerL2Strategy(this);
+		}
+
+		@Override
+		public void processL2Packet(L2Packet packet) {
+			if (packet.getObject() instanceof KnowledgeData) {
+				packets++;
+			}
+		}
+	}
+
+	/**
+	 * Runs the simulation of the vehicles.
+	 */
+	@Benchmark
+	public void simulate(Received received) throws Exception {
+		DEECoSimulation realm = new DEECoSimulation(new DiscreteEventTimer());
+		realm.addPlugin(new SimpleBroadcastDevice());
+		realm.addPlugin(Network.class);
+		realm.addPlugin(KnowledgeInsertingStrategy.class);
+		CountingPlugin counting = new CountingPlugin();
+		realm.addPlugin(counting);
+
+		RuntimeLogWritersMock runtimeLogWriters = new RuntimeLogWritersMock();
+		for (int i = 0; i < vehicles; i++) {
+			DEECoNode node = realm.createNode(i, runtimeLogWriters, new PositionPlugin(i, 0),
+					new DefaultKnowledgePublisher());
+			node.deployComponent(new Vehicle("V" + i));
+		}
+
+		realm.start(DURATION);
+		received.packets += counting.packets;
+	}
+}
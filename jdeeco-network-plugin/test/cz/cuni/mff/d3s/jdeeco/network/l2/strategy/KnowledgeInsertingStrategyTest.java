@@ -0,0 +1,275 @@
+package cz.cuni.mff.d3s.jdeeco.network.l2.strategy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import cz.cuni.mff.d3s.deeco.knowledge.ChangeSet;
+import cz.cuni.mff.d3s.deeco.knowledge.KnowledgeManager;
+import cz.cuni.mff.d3s.deeco.knowledge.KnowledgeManagerContainer;
+import cz.cuni.mff.d3s.deeco.knowledge.ValueSet;
+import cz.cuni.mff.d3s.deeco.model.runtime.RuntimeModelHelper;
+import cz.cuni.mff.d3s.deeco.network.KnowledgeData;
+import cz.cuni.mff.d3s.deeco.network.KnowledgeMetaData;
+import cz.cuni.mff.d3s.deeco.runtime.DEECoContainer;
+import cz.cuni.mff.d3s.deeco.runtime.RuntimeFramework;
+import cz.cuni.mff.d3s.deeco.scheduler.Scheduler;
+import cz.cuni.mff.d3s.deeco.task.Task;
+import cz.cuni.mff.d3s.deeco.timer.Timer;
+import cz.cuni.mff.d3s.jdeeco.network.Network;
+import cz.cuni.mff.d3s.jdeeco.network.l2.L2Packet;
+import cz.cuni.mff.d3s.jdeeco.network.l2.Layer2;
+
+public class KnowledgeInsertingStrategyTest {
+	private static final List<String> ROLES = Arrays.asList(Object.class.getName());
+
+	private KnowledgeInsertingStrategy strategy;
+	private KnowledgeManagerContainer knowledgeManagerContainer;
+	private KnowledgeManager replica;
+	private Scheduler scheduler;
+
+	@Before
+	public void setUp() {
+		replica = mock(KnowledgeManager.class);
+		knowledgeManagerContainer = mock(KnowledgeManagerContainer.class);
+		when(knowledgeManagerContainer.createReplica(anyString(), any(Class[].class))).thenReturn(
+				Collections.singletonList(replica));
+
+		scheduler = mock(Scheduler.class);
+		when(scheduler.getTimer()).thenReturn(mock(Timer.class));
+		RuntimeFramework runtime = mock(RuntimeFramework.class);
+		when(runtime.getScheduler()).thenReturn(scheduler);
+		when(runtime.getContainer()).thenReturn(knowledgeManagerContainer);
+		Network network = mock(Network.class);
+		when(network.getL2()).thenReturn(mock(Layer2.class));
+		DEECoContainer container = mock(DEECoContainer.class);
+		when(container.getRuntimeFramework()).thenReturn(runtime);
+		when(container.getPluginInstance(Network.class)).thenReturn(network);
+
+		strategy = new KnowledgeInsertingStrategy();
+		strategy.init(container);
+	}
+
+	private void receive(long version, long baseVersion, Object... pathsAndValues) {
+		receive("remote", version, baseVersion, pathsAndValues);
+	}
+
+	private void receive(String componentId, long version, long baseVersion, Object... pathsAndValues) {
+		receive(componentId, version, baseVersion, null, pathsAndValues);
+	}
+
+	private void receive(String componentId, long version, long baseVersion, List<String> deletedPaths,
+			Object... pathsAndValues) {
+		ValueSet knowledge = new ValueSet();
+		for (int i = 0; i < pathsAndValues.length; i += 2) {
+			knowledge.setValue(RuntimeModelHelper.createKnowledgePath((String) pathsAndValues[i]), pathsAndValues[i + 1]);
+		}
+		KnowledgeMetaData metaData = new KnowledgeMetaData(componentId, version, "sender", version, 1);
+		metaData.baseVersionId = baseVersion;
+		metaData.deletedPaths = deletedPaths;
+		L2Packet packet = mock(L2Packet.class);
+		when(packet.getObject()).thenReturn(
+				new KnowledgeData(knowledge, new ValueSet(), new ValueSet(), ROLES, metaData));
+		strategy.processL2Packet(packet);
+	}
+
+	private List<ChangeSet> getUpdates(int count) throws Exception {
+		ArgumentCaptor<ChangeSet> changeSets = ArgumentCaptor.forClass(ChangeSet.class);
+		verify(replica, times(count)).update(changeSets.capture());
+		return changeSets.getAllValues();
+	}
+
+	private static Object getValue(ChangeSet changeSet, String path) {
+		return changeSet.getValue(RuntimeModelHelper.createKnowledgePath(path));
+	}
+
+	/**
+	 * Receives knowledge data of the remote component by the receptions while the knowledge data of another component
+	 * are being incorporated, as if they were received concurrently
+	 */
+	private void receiveWhileIncorporating(final Runnable receptions) throws Exception {
+		final AtomicBoolean received = new AtomicBoolean();
+		doAnswer(new Answer<Void>() {
+			@Override
+			public Void answer(InvocationOnMock invocation) throws Throwable {
+				if (received.compareAndSet(false, true)) {
+					receptions.run();
+				}
+				return null;
+			}
+		}).when(replica).update(any(ChangeSet.class));
+		receive("other", 1, -1, "id", "other");
+	}
+
+	@Test
+	public void testKnowledgeAppliedWhenReceived() throws Exception {
+		// WHEN the knowledge is received while no other knowledge data are being incorporated
+		receive(1, -1, "position", 1);
+
+		// THEN it is applied to the replica right away, without scheduling any task
+		List<ChangeSet> updates = getUpdates(1);
+		assertEquals(1, getValue(updates.get(0), "position"));
+		verify(scheduler, never()).addTask(any(Task.class));
+	}
+
+	@Test
+	public void testNewestKnowledgeAppliedOnce() throws Exception {
+		// WHEN several versions of the knowledge are received while other knowledge data are being incorporated, the
+		// newest one not last
+		receiveWhileIncorporating(() -> {
+			receive(1, -1, "position", 1);
+			receive(3, -1, "position", 3);
+			receive(2, -1, "position", 2);
+		});
+
+		// THEN only the newest one is applied to the replica, once, after the other knowledge data
+		List<ChangeSet> updates = getUpdates(2);
+		assertEquals("other", getValue(updates.get(0), "id"));
+		assertEquals(3, getValue(updates.get(1), "position"));
+	}
+
+	@Test
+	public void testDeltaCoalescedWithCompleteKnowledge() throws Exception {
+		// WHEN the complete knowledge and a delta based on it are received while other knowledge data are being
+		// incorporated
+		receiveWhileIncorporating(() -> {
+			receive(1, -1, "id", "remote", "position", 1);
+			receive(2, 1, "position", 2);
+		});
+
+		// THEN they are applied as a single update of the complete knowledge
+		List<ChangeSet> updates = getUpdates(2);
+		assertEquals("remote", getValue(updates.get(1), "id"));
+		assertEquals(2, getValue(updates.get(1), "position"));
+	}
+
+	@Test
+	public void testDeletedPathsCoalesced() throws Exception {
+		// GIVEN a replica holding the complete knowledge
+		when(replica.getAllPaths()).thenReturn(
+				Arrays.asList(RuntimeModelHelper.createKnowledgePath("id"),
+						RuntimeModelHelper.createKnowledgePath("position"),
+						RuntimeModelHelper.createKnowledgePath("destination")));
+		receive(1, -1, "id", "remote", "position", 1, "destination", "depot");
+
+		// WHEN a delta deleting paths and a delta setting one of them again are received while other knowledge data are
+		// being incorporated
+		receiveWhileIncorporating(() -> {
+			receive("remote", 2, 1, Arrays.asList("position", "destination"));
+			receive(3, 2, "position", 3);
+		});
+
+		// THEN they are applied as a single update setting the path and deleting the other one
+		ChangeSet update = getUpdates(3).get(2);
+		assertEquals(3, getValue(update, "position"));
+		assertEquals(Arrays.asList(RuntimeModelHelper.createKnowledgePath("destination")),
+				new ArrayList<>(update.getDeletedReferences()));
+	}
+
+	@Test
+	public void testDeltasDroppedAfterMissedKnowledge() throws Exception {
+		// GIVEN a replica holding the complete knowledge
+		receive(1, -1, "id", "remote", "position", 1);
+
+		// WHEN deltas are received after a missed one
+		receive(3, 2, "position", 3);
+		receive(4, 3, "position", 4);
+
+		// THEN they are dropped until the complete knowledge is received
+		getUpdates(1);
+		receive(5, -1, "id", "remote", "position", 5);
+		receive(6, 5, "position", 6);
+		List<ChangeSet> updates = getUpdates(3);
+		assertEquals(5, getValue(updates.get(1), "position"));
+		assertEquals(6, getValue(updates.get(2), "position"));
+	}
+
+	@Test
+	public void testRoleClassesResolvedOnce() throws Exception {
+		// WHEN the knowledge of a component is received repeatedly
+		receive(1, -1, "position", 1);
+		receive(2, -1, "position", 2);
+
+		// THEN the replicas are looked up only once and updated each time
+		verify(knowledgeManagerContainer, times(1)).createReplica(eq("remote"), any(Class[].class));
+		List<ChangeSet> updates = getUpdates(2);
+		assertEquals(2, getValue(updates.get(1), "position"));
+	}
+
+	@Test
+	public void testConcurrentlyReceivedDeltasNotLost() throws Exception {
+		// GIVEN a replica of each component recording the paths it was updated with
+		final Map<String, Collection<Object>> updatedPaths = new HashMap<>();
+		when(knowledgeManagerContainer.createReplica(anyString(), any(Class[].class))).thenAnswer(
+				new Answer<Collection<KnowledgeManager>>() {
+					@Override
+					public Collection<KnowledgeManager> answer(InvocationOnMock invocation) throws Throwable {
+						final Collection<Object> paths = new ArrayList<>();
+						updatedPaths.put((String) invocation.getArguments()[0], paths);
+						KnowledgeManager replica = mock(KnowledgeManager.class);
+						doAnswer(new Answer<Void>() {
+							@Override
+							public Void answer(InvocationOnMock invocation) throws Throwable {
+								paths.addAll(((ChangeSet) invocation.getArguments()[0]).getUpdatedReferences());
+								return null;
+							}
+						}).when(replica).update(any(ChangeSet.class));
+						return Collections.singletonList(replica);
+					}
+				});
+
+		// WHEN the complete knowledge and then deltas each holding another path are received concurrently from several
+		// threads
+		final int senders = 4;
+		final int deltas = 2000;
+		List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < senders; t++) {
+			final String componentId = "remote" + t;
+			Thread thread = new Thread() {
+				@Override
+				public void run() {
+					receive(componentId, 0, -1, "id", componentId);
+					for (int i = 1; i <= deltas; i++) {
+						receive(componentId, i, i - 1, "p" + i, i);
+					}
+				}
+			};
+			threads.add(thread);
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		// THEN no delta is lost
+		for (int t = 0; t < senders; t++) {
+			Collection<Object> paths = updatedPaths.get("remote" + t);
+			for (int i = 1; i <= deltas; i++) {
+				assertTrue("Path p" + i + " of remote" + t, paths.contains(RuntimeModelHelper.createKnowledgePath("p" + i)));
+			}
+		}
+	}
+}
@@ -0,0 +1,284 @@
+package cz.cuni.mff.d3s.jdeeco.publishing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import cz.cuni.mff.d3s.deeco.knowledge.ChangeSet;
+import cz.cuni.mff.d3s.deeco.knowledge.CloningKnowledgeManagerFactory;
+import cz.cuni.mff.d3s.deeco.knowledge.KnowledgeManager;
+import cz.cuni.mff.d3s.deeco.knowledge.KnowledgeManagerContainer;
+import cz.cuni.mff.d3s.deeco.model.runtime.RuntimeModelHelper;
+import cz.cuni.mff.d3s.deeco.model.runtime.api.RuntimeMetadata;
+import cz.cuni.mff.d3s.deeco.model.runtime.custom.RuntimeMetadataFactoryExt;
+import cz.cuni.mff.d3s.deeco.network.KnowledgeData;
+import cz.cuni.mff.d3s.deeco.runtime.DEECoContainer;
+import cz.cuni.mff.d3s.deeco.runtime.RuntimeFramework;
+import cz.cuni.mff.d3s.deeco.scheduler.Scheduler;
+import cz.cuni.mff.d3s.deeco.timer.Timer;
+import cz.cuni.mff.d3s.jdeeco.network.Network;
+import cz.cuni.mff.d3s.jdeeco.network.l2.Layer2;
+import cz.cuni.mff.d3s.jdeeco.network.l2.strategy.KnowledgeInsertingStrategy;
+
+public class DefaultKnowledgePublisherTest {
+
+	private KnowledgeManager local;
+	private KnowledgeManagerContainer remoteContainer;
+	private KnowledgeInsertingStrategy receiver;
+	private long time;
+
+	@Before
+	public void setUp() throws Exception {
+		KnowledgeManagerContainer localContainer = createKnowledgeManagerContainer();
+		local = localContainer.createLocal("vehicle", RuntimeMetadataFactoryExt.eINSTANCE.createComponentInstance(),
+				new Class<?>[0]);
+		setValue("id", "vehicle");
+		setValue("position", 0);
+		setValue("destination", "depot");
+
+		remoteContainer = createKnowledgeManagerContainer();
+		receiver = new KnowledgeInsertingStrategy();
+		receiver.init(createDEECoContainer(2, remoteContainer));
+	}
+
+	private KnowledgeManagerContainer createKnowledgeManagerContainer() {
+		RuntimeMetadata model = RuntimeMetadataFactoryExt.eINSTANCE.createRuntimeMetadata();
+		model.getComponentInstances().add(RuntimeMetadataFactoryExt.eINSTANCE.createComponentInstance());
+		return new KnowledgeManagerContainer(new CloningKnowledgeManagerFactory(), model);
+	}
+
+	private DEECoContainer createDEECoContainer(int id, KnowledgeManagerContainer knowledgeManagerContainer) {
+		Timer timer = mock(Timer.class);
+		when(timer.getCurrentMilliseconds()).thenAnswer(invocation -> time);
+		Scheduler scheduler = mock(Scheduler.class);
+		when(scheduler.getTimer()).thenReturn(timer);
+		RuntimeFramework runtime = mock(RuntimeFramework.class);
+		when(runtime.getScheduler()).thenReturn(scheduler);
+		when(runtime.getContainer()).thenReturn(knowledgeManagerContainer);
+		Network network = mock(Network.class);
+		when(network.getL2()).thenReturn(mock(Layer2.class));
+		DEECoContainer container = mock(DEECoContainer.class);
+		when(container.getId()).thenReturn(id);
+		when(container.getRuntimeFramework()).thenReturn(runtime);
+		when(container.getPluginInstance(Network.class)).thenReturn(network);
+		return container;
+	}
+
+	private DefaultKnowledgePublisher createPublisher(int keyframeInterval) {
+		DefaultKnowledgePublisher publisher = new DefaultKnowledgePublisher(Collections.emptyList(), 1000,
+				keyframeInterval);
+		publisher.init(createDEECoContainer(1, createLocalContainer()));
+		return publisher;
+	}
+
+	private KnowledgeManagerContainer createLocalContainer() {
+		KnowledgeManagerContainer container = mock(KnowledgeManagerContainer.class);
+		when(container.getLocals()).thenReturn(Arrays.asList(local));
+		return container;
+	}
+
+	private void setValue(String path, Object value) throws Exception {
+		ChangeSet changeSet = new ChangeSet();
+		changeSet.setValue(RuntimeModelHelper.createKnowledgePath(path), value);
+		local.update(changeSet);
+	}
+
+	private void delete(String path) throws Exception {
+		ChangeSet changeSet = new ChangeSet();
+		changeSet.setDeleted(RuntimeModelHelper.createKnowledgePath(path));
+		local.update(changeSet);
+	}
+
+	private KnowledgeData publish(DefaultKnowledgePublisher publisher) throws Exception {
+		time += 1000;
+		KnowledgeData data = publisher.getLocalKnowledgeData(local);
+		if (data != null) {
+			receiver.receiveKnowledge(data);
+		}
+		return data;
+	}
+
+	private Object getReplicaValue(String path) throws Exception {
+		KnowledgeManager replica = remoteContainer.getReplicas().iterator().next();
+		return replica.get(Arrays.asList(RuntimeModelHelper.createKnowledgePath(path)))
+				.getValue(RuntimeModelHelper.createKnowledgePath(path));
+	}
+
+	private HashSet<String> getReplicaPaths() {
+		HashSet<String> result = new HashSet<>();
+		remoteContainer.getReplicas().iterator().next().getAllPaths().forEach(path -> result.add(path.toString()));
+		return result;
+	}
+
+	private static HashSet<String> getPaths(KnowledgeData data) {
+		HashSet<String> result = new HashSet<>();
+		data.getKnowledge().getKnowledgePaths().forEach(path -> result.add(path.toString()));
+		return result;
+	}
+
+	@Test
+	public void testCompleteKnowledgeWithoutDeltas() throws Exception {
+		// GIVEN a publisher publishing the complete knowledge every period
+		DefaultKnowledgePublisher publisher = createPublisher(1);
+
+		// WHEN the knowledge is published twice without changes
+		publish(publisher);
+		KnowledgeData data = publish(publisher);
+
+		// THEN the complete knowledge is published
+		assertFalse(data.getMetaData().isDelta());
+		assertEquals(new HashSet<>(Arrays.asList("id", "position", "destination")), getPaths(data));
+	}
+
+	@Test
+	public void testCompleteKnowledgeByDefault() throws Exception {
+		// GIVEN a publisher with the default keyframe interval
+		DefaultKnowledgePublisher publisher = createPublisher(DefaultKnowledgePublisher.DEFAULT_KEYFRAME_INTERVAL);
+		publish(publisher);
+
+		// WHEN a single field changes
+		setValue("position", 1);
+		KnowledgeData data = publish(publisher);
+
+		// THEN the complete knowledge is published
+		assertFalse(data.getMetaData().isDelta());
+		assertEquals(new HashSet<>(Arrays.asList("id", "position", "destination")), getPaths(data));
+	}
+
+	@Test
+	public void testDeltasBetweenKeyframes() throws Exception {
+		// GIVEN a publisher publishing the complete knowledge every third period
+		DefaultKnowledgePublisher publisher = createPublisher(3);
+		KnowledgeData keyframe = publish(publisher);
+
+		// WHEN nothing changes
+		KnowledgeData unchanged = publish(publisher);
+
+		// THEN the complete knowledge is published at first and then nothing
+		assertFalse(keyframe.getMetaData().isDelta());
+		assertEquals(3, getPaths(keyframe).size());
+		assertNull(unchanged);
+
+		// WHEN a single field changes
+		setValue("position", 1);
+		KnowledgeData delta = publish(publisher);
+
+		// THEN only the field is published, based on the last publication
+		assertTrue(delta.getMetaData().isDelta());
+		assertEquals(keyframe.getMetaData().versionId, delta.getMetaData().baseVersionId);
+		assertEquals(Collections.singleton("position"), getPaths(delta));
+		assertEquals(1, getReplicaValue("position"));
+
+		// WHEN the keyframe interval elapses
+		KnowledgeData nextKeyframe = publish(publisher);
+
+		// THEN the complete knowledge is published again
+		assertFalse(nextKeyframe.getMetaData().isDelta());
+		assertEquals(3, getPaths(nextKeyframe).size());
+	}
+
+	@Test
+	public void testDeltaIgnoredBeforeKeyframe() throws Exception {
+		// GIVEN a receiver that missed the first publication
+		DefaultKnowledgePublisher publisher = createPublisher(3);
+		time += 1000;
+		publisher.getLocalKnowledgeData(local);
+
+		// WHEN it receives a delta
+		setValue("position", 1);
+		publish(publisher);
+
+		// THEN it does not create a replica until it receives the complete knowledge
+		assertTrue(remoteContainer.getReplicas().isEmpty());
+		publish(publisher);
+		assertTrue(remoteContainer.getReplicas().isEmpty());
+		publish(publisher);
+		assertEquals(1, getReplicaValue("position"));
+		assertEquals("depot", getReplicaValue("destination"));
+	}
+
+	@Test
+	public void testDeltaByValues() throws Exception {
+		// GIVEN a publisher publishing the complete knowledge every fourth period
+		List<String> route = new ArrayList<>(Arrays.asList("a", "b"));
+		setValue("route", route);
+		DefaultKnowledgePublisher publisher = createPublisher(4);
+		publish(publisher);
+
+		// WHEN a field is updated to the same value
+		setValue("destination", "depot");
+		KnowledgeData unchanged = publish(publisher);
+
+		// THEN nothing is published
+		assertNull(unchanged);
+
+		// WHEN a value changed in place is updated
+		route.add("c");
+		setValue("route", route);
+		setValue("destination", "depot");
+		KnowledgeData delta = publish(publisher);
+
+		// THEN only its field is published
+		assertEquals(Collections.singleton("route"), getPaths(delta));
+		assertEquals(Arrays.asList("a", "b", "c"), getReplicaValue("route"));
+	}
+
+	@Test
+	public void testDeletedPathsInDelta() throws Exception {
+		// GIVEN a publisher publishing the complete knowledge every third period
+		DefaultKnowledgePublisher publisher = createPublisher(3);
+		publish(publisher);
+
+		// WHEN a field is deleted
+		delete("destination");
+		KnowledgeData delta = publish(publisher);
+
+		// THEN the delta holds the deleted path and the replica loses it
+		assertTrue(delta.getMetaData().isDelta());
+		assertTrue(getPaths(delta).isEmpty());
+		assertEquals(Collections.singletonList("destination"), delta.getMetaData().deletedPaths);
+		assertEquals(new HashSet<>(Arrays.asList("id", "position")), getReplicaPaths());
+	}
+
+	@Test
+	public void testResynchronizationAfterMissedDelta() throws Exception {
+		// GIVEN a receiver that received the first publication and missed the next one
+		DefaultKnowledgePublisher publisher = createPublisher(4);
+		publish(publisher);
+		delete("destination");
+		time += 1000;
+		publisher.getLocalKnowledgeData(local);
+
+		// WHEN it receives the next delta
+		setValue("position", 1);
+		KnowledgeData delta = publish(publisher);
+
+		// THEN it drops it along with the following deltas
+		assertTrue(delta.getMetaData().isDelta());
+		assertEquals(0, getReplicaValue("position"));
+		setValue("position", 2);
+		publish(publisher);
+		assertEquals(0, getReplicaValue("position"));
+		assertEquals(new HashSet<>(Arrays.asList("id", "position", "destination")), getReplicaPaths());
+
+		// WHEN it receives the next complete knowledge
+		KnowledgeData keyframe = publish(publisher);
+
+		// THEN the replica holds the complete knowledge without the deleted path
+		assertFalse(keyframe.getMetaData().isDelta());
+		assertEquals(2, getReplicaValue("position"));
+		assertEquals(new HashSet<>(Arrays.asList("id", "position")), getReplicaPaths());
+	}
+}
@@ -0,0 +1,136 @@
+package cz.cuni.mff.d3s.jdeeco.publishing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import cz.cuni.mff.d3s.deeco.annotations.Component;
+import cz.cuni.mff.d3s.deeco.annotations.InOut;
+import cz.cuni.mff.d3s.deeco.annotations.PeriodicScheduling;
+import cz.cuni.mff.d3s.deeco.annotations.Process;
+import cz.cuni.mff.d3s.deeco.runners.DEECoSimulation;
+import cz.cuni.mff.d3s.deeco.runtime.DEECoContainer;
+import cz.cuni.mff.d3s.deeco.runtime.DEECoNode;
+import cz.cuni.mff.d3s.deeco.runtime.DEECoPlugin;
+import cz.cuni.mff.d3s.deeco.runtimelog.RuntimeLogWritersMock;
+import cz.cuni.mff.d3s.deeco.task.ParamHolder;
+import cz.cuni.mff.d3s.deeco.timer.DiscreteEventTimer;
+import cz.cuni.mff.d3s.jdeeco.network.Network;
+import cz.cuni.mff.d3s.jdeeco.network.device.SimpleBroadcastDevice;
+import cz.cuni.mff.d3s.jdeeco.network.l2.L2PacketType;
+import cz.cuni.mff.d3s.jdeeco.network.l2.strategy.KnowledgeInsertingStrategy;
+import cz.cuni.mff.d3s.jdeeco.network.marshaller.PathCancelingFSTmarshaller;
+import cz.cuni.mff.d3s.jdeeco.position.PositionPlugin;
+
+/**
+ * Counts the knowledge data put on the air by a fleet of vehicles, one tenth of them moving and the rest parked, when
+ * publishing the complete knowledge every period and when publishing deltas with a keyframe every tenth period.
+ */
+public class KnowledgePublishingTest {
+	static final int VEHICLES = 20;
+	static final long DURATION = 30000;
+
+	/**
+	 * Counts the knowledge data marshalled for sending
+	 */
+	static class CountingMarshaller extends PathCancelingFSTmarshaller {
+		long packets;
+		long bytes;
+
+		@Override
+		public byte[] marshall(Object data) throws Exception {
+			byte[] result = super.marshall(data);
+			packets++;
+			bytes += result.length;
+			return result;
+		}
+	}
+
+	/**
+	 * Plug-in replacing the knowledge marshaller of each node by the counting one
+	 */
+	static class CountingPlugin implements DEECoPlugin {
+		final CountingMarshaller marshaller = new CountingMarshaller();
+
+		@Override
+		public List<Class<? extends DEECoPlugin>> getDependencies() {
+			return Arrays.asList(Network.class);
+		}
+
+		@Override
+		public void init(DEECoContainer container) {
+			container.getPluginInstance(Network.class).getL2().getMarshallers()
+					.registerMarshaller(L2PacketType.KNOWLEDGE, marshaller);
+		}
+	}
+
+	@Component
+	public static class Vehicle {
+		public String id;
+		public String destination;
+		public List<String> route;
+		public Boolean moving;
+		public Integer position;
+
+		public Vehicle(String id, boolean moving) {
+			this.id = id;
+			this.destination = "depot";
+			this.route = new ArrayList<>();
+			for (int i = 0; i < 20; i++) {
+				route.add("link" + i);
+			}
+			this.moving = moving;
+			this.position = 0;
+		}
+
+		@Process
+		@PeriodicScheduling(period = 1000)
+		public static void move(@InOut("moving") ParamHolder<Boolean> moving,
+				@InOut("position") ParamHolder<Integer> position) {
+			if (moving.value) {
+				position.value = position.value + 1;
+			}
+		}
+	}
+
+	private static CountingMarshaller run(int keyframeInterval) throws Exception {
+		DEECoSimulation realm = new DEECoSimulation(new DiscreteEventTimer());
+		realm.addPlugin(new SimpleBroadcastDevice());
+		realm.addPlugin(Network.class);
+		realm.addPlugin(KnowledgeInsertingStrategy.class);
+		CountingPlugin counting = new CountingPlugin();
+		realm.addPlugin(counting);
+
+		RuntimeLogWritersMock runtimeLogWriters = new RuntimeLogWritersMock();
+		for (int i = 0; i < VEHICLES; i++) {
+			DEECoNode node = realm.createNode(i, runtimeLogWriters, new PositionPlugin(i * 10, 0),
+					new DefaultKnowledgePublisher(DefaultKnowledgePublisher.DEFAULT_PUBLISHING_PERIOD, keyframeInterval));
+			node.deployComponent(new Vehicle("V" + i, i % 10 == 0));
+		}
+
+		realm.start(DURATION);
+		return counting.marshaller;
+	}
+
+	@Test
+	public void testDeltasOfMovingVehiclesOnly() throws Exception {
+		// WHEN the vehicles publish their complete knowledge every period and deltas between keyframes
+		CountingMarshaller complete = run(1);
+		CountingMarshaller deltas = run(10);
+
+		// THEN every vehicle publishes every period at first
+		assertEquals(VEHICLES * DURATION / DefaultKnowledgePublisher.DEFAULT_PUBLISHING_PERIOD, complete.packets);
+
+		// AND only the keyframes and the deltas of the moving vehicles are published then, although the parked vehicles
+		// write their unchanged knowledge every period
+		long keyframes = VEHICLES * DURATION / DefaultKnowledgePublisher.DEFAULT_PUBLISHING_PERIOD / 10;
+		long movingDeltas = VEHICLES / 10 * (DURATION / DefaultKnowledgePublisher.DEFAULT_PUBLISHING_PERIOD - keyframes / VEHICLES);
+		assertEquals(keyframes + movingDeltas, deltas.packets);
+		assertTrue(deltas.bytes * 5 < complete.bytes);
+	}
+}